@@ -117,6 +117,7 @@ public class IndexReIndexMonitor_p {
             }
 
             if (recrawlbt != null && !recrawlbt.shutdownInProgress()) {
+                ((RecrawlBusyThread) recrawlbt).setRevalidate(post.getBoolean("revalidate"));
                 if (post.containsKey("updquery") && post.containsKey("recrawlquerytext")) {
                     ((RecrawlBusyThread) recrawlbt).setQuery(post.get("recrawlquerytext"),inclerrdoc);
                 } else {
@@ -130,6 +131,9 @@ public class IndexReIndexMonitor_p {
             prop.put("recrawljobrunning_docCount", ((RecrawlBusyThread) recrawlbt).urlsfound);
             prop.put("recrawljobrunning_recrawlquerytext", ((RecrawlBusyThread) recrawlbt).getQuery());
             prop.put("recrawljobrunning_includefailedurls", ((RecrawlBusyThread) recrawlbt).getIncludeFailed());
+            prop.put("recrawljobrunning_revalidate", ((RecrawlBusyThread) recrawlbt).getRevalidate());
+            prop.put("recrawljobrunning_revalidated", ((RecrawlBusyThread) recrawlbt).getRevalidated());
+            prop.put("recrawljobrunning_unchanged", ((RecrawlBusyThread) recrawlbt).getUnchanged());
         } else {
             prop.put("recrawljobrunning", 0);
         }
@@ -33,6 +33,7 @@ import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.rwi.IndexCell;
+import net.yacy.kelondro.rwi.ReferenceMerger;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.Formatter;
 import net.yacy.kelondro.util.MemoryControl;
@@ -265,6 +266,12 @@ public class PerformanceQueues_p {
         prop.putNum("maxURLinCache", rwi == null ? 0 : rwi.getBufferMaxReferences());
         prop.putNum("maxAgeOfCache", rwi == null ? 0 : rwi.getBufferMaxAge() / 1000 / 60); // minutes
         prop.putNum("minAgeOfCache", rwi == null ? 0 : rwi.getBufferMinAge() / 1000 / 60); // minutes
+        prop.putNum("mergeCount", ReferenceMerger.mergeCount());
+        prop.putNum("mergeDecoded", ReferenceMerger.decodedCount());
+        prop.putNum("mergeLastMBs", ReferenceMerger.lastMegabytesPerSecond());
+        prop.putNum("mergeLastTermss", (long) ReferenceMerger.lastTermsPerSecond());
+        prop.putNum("mergeAvgMBs", ReferenceMerger.averageMegabytesPerSecond());
+        prop.putNum("mergeAvgTermss", (long) ReferenceMerger.averageTermsPerSecond());
         prop.putNum("maxWaitingWordFlush", sb.getConfigLong("maxWaitingWordFlush", 180));
         prop.put("wordCacheMaxCount", sb.getConfigLong(SwitchboardConstants.WORDCACHE_MAX_COUNT, 20000));
         prop.put("crawlPauseProxy", sb.getConfigLong(SwitchboardConstants.PROXY_ONLINE_CAUTION_DELAY, 30000));
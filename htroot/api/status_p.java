@@ -30,6 +30,7 @@ import java.io.IOException;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlSwitchboard;
+import net.yacy.crawler.HostQueue;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.io.ByteCount;
@@ -96,6 +97,13 @@ public class status_p {
         prop.putNum("loaderSize", sb.crawlQueues.activeWorkerEntries().size());
         prop.putNum("loaderMax", sb.getConfigLong(SwitchboardConstants.CRAWLER_THREADS_ACTIVE_MAX, 10));
 
+        // open files of the crawler queue stacks
+        prop.putNum("stacksOpen", HostQueue.stackFilePool.openCount());
+        prop.putNum("stacksMaxOpen", HostQueue.stackFilePool.getMaxOpen());
+        prop.putNum("stacksHits", HostQueue.stackFilePool.hits());
+        prop.putNum("stacksMisses", HostQueue.stackFilePool.misses());
+        prop.putNum("stacksEvictions", HostQueue.stackFilePool.evictions());
+
         //local crawl queue
         prop.putNum("localCrawlSize", sb.getThread(SwitchboardConstants.CRAWLJOB_LOCAL_CRAWL).getJobCount());
         prop.put("localCrawlState", sb.crawlJobIsPaused(SwitchboardConstants.CRAWLJOB_LOCAL_CRAWL) ? STATE_PAUSED : STATE_RUNNING);
@@ -0,0 +1,374 @@
+/**
+ *  AsyncResolver
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.protocol;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * A host name resolver which does the lookups concurrently and caches the results.
+ * Lookups can be started ahead of time with prefetch(); a later resolve() of the same host
+ * is then answered from the cache or joins the lookup which is already running.
+ * Positive and negative results are cached with separate time-to-live values; concurrent
+ * requests for the same host are combined into one lookup.
+ */
+public class AsyncResolver {
+
+    /**
+     * the backend which does the actual name lookup; this can be replaced with a stub for testing
+     */
+    public interface Resolver {
+        /**
+         * @param host the host name
+         * @return the address of the host
+         * @throws UnknownHostException if the host cannot be resolved
+         */
+        public InetAddress resolve(String host) throws UnknownHostException;
+    }
+
+    public static final Resolver systemResolver = new Resolver() {
+        @Override
+        public InetAddress resolve(final String host) throws UnknownHostException {
+            return InetAddress.getByName(host);
+        }
+    };
+
+    /**
+     * a cache entry; address is null for a negative entry
+     */
+    public static final class Entry {
+        private final String host;
+        public final InetAddress address;
+        public final long expires;
+        private Entry(final String host, final InetAddress address, final long expires) {
+            this.host = host;
+            this.address = address;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * a running or scheduled lookup. A lookup may be handed to both executors, the FutureTask
+     * runs it only once and the second execution returns immediately.
+     */
+    private final class Lookup extends FutureTask<InetAddress> {
+        private final String host;
+        private Lookup(final String host) {
+            super(new Callable<InetAddress>() {
+                @Override
+                public InetAddress call() throws Exception {
+                    final Thread t = Thread.currentThread();
+                    final String oldName = t.getName();
+                    t.setName("AsyncResolver: DNS resolve of '" + host + "'"); // thread dump show which host is resolved
+                    try {
+                        return AsyncResolver.this.resolver.resolve(host);
+                    } finally {
+                        t.setName(oldName);
+                    }
+                }
+            });
+            this.host = host;
+        }
+        @Override
+        protected void done() {
+            finished(this);
+        }
+    }
+
+    private final Resolver resolver;
+    private final ConcurrentMap<String, Entry> cache;
+    private final ConcurrentLinkedQueue<Entry> order; // the entries of the cache in the order of insertion, for eviction
+    private final AtomicInteger orderSize;
+    private final ConcurrentMap<String, Lookup> inflight;
+    private final ThreadPoolExecutor demandExecutor, prefetchExecutor;
+    private final int maxCacheSize;
+    private volatile long ttl, negativeTtl;
+    private final AtomicLong hits, negativeHits, misses, lookups, prefetches, prefetchDropped;
+
+    /**
+     * @param resolver the lookup backend
+     * @param maxCacheSize the maximum number of cached positive and negative entries
+     * @param ttl time-to-live of positive entries in milliseconds
+     * @param negativeTtl time-to-live of negative entries in milliseconds
+     * @param prefetchThreads number of threads for prefetch lookups
+     * @param prefetchQueueSize number of waiting prefetch lookups; more prefetch requests are dropped
+     */
+    public AsyncResolver(final Resolver resolver, final int maxCacheSize, final long ttl, final long negativeTtl, final int prefetchThreads, final int prefetchQueueSize) {
+        this.resolver = resolver;
+        this.maxCacheSize = Math.max(1, maxCacheSize);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.cache = new ConcurrentHashMap<String, Entry>();
+        this.order = new ConcurrentLinkedQueue<Entry>();
+        this.orderSize = new AtomicInteger(0);
+        this.inflight = new ConcurrentHashMap<String, Lookup>();
+        this.hits = new AtomicLong(0);
+        this.negativeHits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.lookups = new AtomicLong(0);
+        this.prefetches = new AtomicLong(0);
+        this.prefetchDropped = new AtomicLong(0);
+
+        // lookups which a caller waits for get their own thread at once, like a cached thread pool
+        this.demandExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new NamePrefixThreadFactory("AsyncResolver.demand"));
+        // prefetches are done with a limited number of threads; if the queue is full, the prefetch is dropped
+        final int threads = Math.max(1, prefetchThreads);
+        this.prefetchExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(1, prefetchQueueSize)), new NamePrefixThreadFactory("AsyncResolver.prefetch"),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                        final Lookup lookup = (Lookup) r;
+                        AsyncResolver.this.inflight.remove(lookup.host, lookup);
+                        AsyncResolver.this.prefetchDropped.incrementAndGet();
+                    }
+                });
+        this.prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * compute the time-to-live of cache entries from the JVM security properties
+     * which are also used for the internal cache of InetAddress
+     * @param property either "networkaddress.cache.ttl" or "networkaddress.cache.negative.ttl"
+     * @param dflt the time-to-live in milliseconds if the property is not set or negative (which means 'forever')
+     * @return the time-to-live in milliseconds
+     */
+    public static long securityTtl(final String property, final long dflt) {
+        try {
+            final String value = Security.getProperty(property);
+            if (value == null) return dflt;
+            final long seconds = Long.parseLong(value.trim());
+            return seconds < 0 ? dflt : seconds * 1000L;
+        } catch (final NumberFormatException e) {
+            return dflt;
+        }
+    }
+
+    public void setTtl(final long ttl, final long negativeTtl) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * get a cache entry which is not expired
+     * @param host the host name
+     * @return the entry or null if the host is not in the cache
+     */
+    public Entry cached(final String host) {
+        final Entry entry = this.cache.get(host);
+        if (entry == null) return null;
+        if (entry.expires < System.currentTimeMillis()) {
+            this.cache.remove(host, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * start a lookup for the host if it is neither cached nor already in progress.
+     * This method does not block.
+     * @param host the host name
+     */
+    public void prefetch(final String host) {
+        if (host == null || host.isEmpty() || cached(host) != null || this.inflight.containsKey(host)) return;
+        final Lookup lookup = new Lookup(host);
+        if (this.inflight.putIfAbsent(host, lookup) != null) return;
+        this.prefetches.incrementAndGet();
+        this.prefetchExecutor.execute(lookup);
+    }
+
+    /**
+     * resolve a host name, using the cache or a lookup which is already in progress if possible
+     * @param host the host name
+     * @param timeout the time in milliseconds to wait for a lookup
+     * @return the address of the host or null if the lookup did not finish within the timeout
+     * @throws UnknownHostException if the host cannot be resolved
+     */
+    public InetAddress resolve(final String host, final long timeout) throws UnknownHostException {
+        final Entry entry = cached(host);
+        if (entry != null) {
+            if (entry.address == null) {
+                this.negativeHits.incrementAndGet();
+                throw new UnknownHostException(host);
+            }
+            this.hits.incrementAndGet();
+            return entry.address;
+        }
+        this.misses.incrementAndGet();
+        Lookup lookup = this.inflight.get(host);
+        if (lookup == null) {
+            final Lookup newLookup = new Lookup(host);
+            lookup = this.inflight.putIfAbsent(host, newLookup);
+            if (lookup == null) lookup = newLookup;
+        }
+        // a prefetch may still wait in the queue; the lookup is started here without waiting for it
+        if (!lookup.isDone()) this.demandExecutor.execute(lookup);
+        try {
+            final InetAddress address = lookup.get(timeout, TimeUnit.MILLISECONDS);
+            if (address == null) throw new UnknownHostException(host);
+            return address;
+        } catch (final TimeoutException e) {
+            // the lookup continues and fills the cache when it finishes
+            return null;
+        } catch (final InterruptedException e) {
+            return null;
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UnknownHostException) throw (UnknownHostException) cause;
+            throw new UnknownHostException(host + ": " + cause);
+        }
+    }
+
+    private void finished(final Lookup lookup) {
+        try {
+            if (lookup.isCancelled()) return;
+            InetAddress address = null;
+            try {
+                address = lookup.get();
+            } catch (final ExecutionException e) {
+            } catch (final InterruptedException e) {
+            }
+            this.lookups.incrementAndGet();
+            final long now = System.currentTimeMillis();
+            if (address == null) {
+                put(new Entry(lookup.host, null, now + this.negativeTtl));
+            } else if (cacheable(lookup.host, address)) {
+                put(new Entry(lookup.host, address, now + this.ttl));
+                resolved(lookup.host, address);
+            }
+        } finally {
+            this.inflight.remove(lookup.host, lookup);
+        }
+    }
+
+    private void put(final Entry entry) {
+        this.cache.put(entry.host, entry);
+        this.order.add(entry);
+        this.orderSize.incrementAndGet();
+        // evict the oldest entries. The order queue also contains entries which had already been removed or replaced;
+        // these are skipped because they are removed only if they are still in the cache. The length of the queue is
+        // limited as well, so such entries do not accumulate.
+        while (this.cache.size() > this.maxCacheSize || this.orderSize.get() > 2 * this.maxCacheSize) {
+            final Entry oldest = this.order.poll();
+            if (oldest == null) break;
+            this.orderSize.decrementAndGet();
+            this.cache.remove(oldest.host, oldest);
+        }
+    }
+
+    /**
+     * decide if a successful lookup shall be cached; loopback addresses are never cached
+     * @param host the host name
+     * @param address the resolved address
+     * @return true if the result shall be stored
+     */
+    protected boolean cacheable(final String host, final InetAddress address) {
+        return !address.isLoopbackAddress();
+    }
+
+    /**
+     * called after a successful and cacheable lookup; may be overwritten to store the result elsewhere
+     * @param host the host name
+     * @param address the resolved address
+     */
+    protected void resolved(final String host, final InetAddress address) {
+    }
+
+    /**
+     * store a known address in the cache
+     * @param host the host name
+     * @param address the address of the host
+     */
+    public void put(final String host, final InetAddress address) {
+        put(new Entry(host, address, System.currentTimeMillis() + this.ttl));
+    }
+
+    public void remove(final String host) {
+        this.cache.remove(host);
+    }
+
+    public void clear() {
+        this.cache.clear();
+        this.order.clear();
+        this.orderSize.set(0);
+    }
+
+    public int size() {
+        return this.cache.size();
+    }
+
+    public int negativeSize() {
+        int c = 0;
+        for (final Entry entry: this.cache.values()) if (entry.address == null) c++;
+        return c;
+    }
+
+    public int inflight() {
+        return this.inflight.size();
+    }
+
+    public long hits() {
+        return this.hits.get();
+    }
+
+    public long negativeHits() {
+        return this.negativeHits.get();
+    }
+
+    public long misses() {
+        return this.misses.get();
+    }
+
+    public long lookups() {
+        return this.lookups.get();
+    }
+
+    public long prefetches() {
+        return this.prefetches.get();
+    }
+
+    public long prefetchDropped() {
+        return this.prefetchDropped.get();
+    }
+
+    public void close() {
+        this.prefetchExecutor.shutdownNow();
+        this.demandExecutor.shutdownNow();
+    }
+}
@@ -46,10 +46,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -62,9 +59,6 @@ import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.util.MemoryControl;
 
 import com.google.common.net.InetAddresses;
-import com.google.common.util.concurrent.SimpleTimeLimiter;
-import com.google.common.util.concurrent.TimeLimiter;
-import com.google.common.util.concurrent.UncheckedTimeoutException;
 
 public class Domains {
     
@@ -76,7 +70,6 @@ public class Domains {
     private static Class<?> InetAddressLocatorClass;
     private static Method InetAddressLocatorGetLocaleInetAddressMethod;
     private static final Set<String> ccSLD_TLD = new HashSet<String>();
-    private static final String PRESENT = "";
     private static final String LOCALHOST_IPv4_PATTERN = "(127\\..*)";
     private static final String LOCALHOST_IPv6_PATTERN = "((\\[?fe80\\:.*)|(\\[?0\\:0\\:0\\:0\\:0\\:0\\:0\\:1.*)|(\\[?\\:\\:1))(/.*|%.*|\\z)";
     private static final String INTRANET_IPv4_PATTERN = "(10\\..*)|(172\\.(1[6-9]|2[0-9]|3[0-1])\\..*)|(169\\.254\\..*)|(192\\.168\\..*)";
@@ -90,8 +83,18 @@ public class Domains {
 
     // a dns cache
     private static final ARC<String, InetAddress> NAME_CACHE_HIT = new ConcurrentARC<>(MAX_NAME_CACHE_HIT_SIZE, CONCURRENCY_LEVEL);
-    private static final ARC<String, String> NAME_CACHE_MISS = new ConcurrentARC<>(MAX_NAME_CACHE_MISS_SIZE, CONCURRENCY_LEVEL);
-    private static final ConcurrentHashMap<String, Object> LOOKUP_SYNC = new ConcurrentHashMap<>(100, 0.75f, Runtime.getRuntime().availableProcessors() * 2);
+    // the resolver holds positive and negative lookup results with a time-to-live and does the (pre-)fetching
+    private static final AsyncResolver RESOLVER = new AsyncResolver(AsyncResolver.systemResolver, MAX_NAME_CACHE_HIT_SIZE + MAX_NAME_CACHE_MISS_SIZE,
+            AsyncResolver.securityTtl("networkaddress.cache.ttl", 600000L), 300000L, CONCURRENCY_LEVEL, 1000) {
+        @Override
+        protected boolean cacheable(final String host, final InetAddress address) {
+            return super.cacheable(host, address) && !matchesList(host, nameCacheNoCachingPatterns);
+        }
+        @Override
+        protected void resolved(final String host, final InetAddress address) {
+            remember(host, address);
+        }
+    };
     private static       List<Pattern> nameCacheNoCachingPatterns = Collections.synchronizedList(new LinkedList<Pattern>());
     public static long cacheHit_Hit = 0, cacheHit_Miss = 0, cacheHit_Insert = 0; // for statistics only; do not write
     public static long cacheMiss_Hit = 0, cacheMiss_Miss = 0, cacheMiss_Insert = 0; // for statistics only; do not write
@@ -740,17 +743,17 @@ public class Domains {
         host = host.toLowerCase().trim();
 
         // trying to resolve host by doing a name cache lookup
-        InetAddress ip = NAME_CACHE_HIT.get(host);
-        if (ip != null) {
-            cacheHit_Hit++;
-            return ip;
-        }
-        cacheHit_Miss++;
-
-        if (NAME_CACHE_MISS.containsKey(host)) {
+        final AsyncResolver.Entry entry = RESOLVER.cached(host);
+        if (entry != null) {
+            if (entry.address != null) {
+                cacheHit_Hit++;
+                return entry.address;
+            }
+            cacheHit_Miss++;
             cacheMiss_Hit++;
             return null;
         }
+        cacheHit_Miss++;
         cacheMiss_Miss++;
         throw new UnknownHostException("host not in cache");
     }
@@ -759,6 +762,15 @@ public class Domains {
         nameCacheNoCachingPatterns = makePatterns(patternList);
     }
 
+    /**
+     * set the time-to-live of name cache entries
+     * @param ttl time-to-live of resolved host names in milliseconds
+     * @param negativeTtl time-to-live of host names which could not be resolved in milliseconds
+     */
+    public static void setNameCacheTTL(final long ttl, final long negativeTtl) {
+        RESOLVER.setTtl(ttl, negativeTtl);
+    }
+
     public static List<Pattern> makePatterns(final String patternList) throws PatternSyntaxException {
     	final String[] entries = (patternList != null) ? CommonPattern.COMMA.split(patternList) : new String[0];
     	final List<Pattern> patterns = new ArrayList<Pattern>(entries.length);
@@ -780,6 +792,7 @@ public class Domains {
         if (!hosts.isEmpty()) return hosts.iterator().next();
         final String host = i.getHostName();
         NAME_CACHE_HIT.insertIfAbsent(host, i);
+        RESOLVER.put(host, i);
         cacheHit_Insert++;
         return host;
     }
@@ -792,11 +805,10 @@ public class Domains {
      */
     public static void setHostName(final InetAddress i, final String host) {
         NAME_CACHE_HIT.insertIfAbsent(host, i);
+        RESOLVER.put(host, i);
         cacheHit_Insert++;
     }
 
-    final private static TimeLimiter timeLimiter = new SimpleTimeLimiter(Executors.newCachedThreadPool());
-
     /**
      * strip off any parts of an url, address string (containing host/ip:port) or raw IPs/Hosts,
      * considering that the host may also be an (IPv4) IP or a IPv6 IP in brackets.
@@ -880,7 +892,7 @@ public class Domains {
 
         if (MemoryControl.shortStatus()) {
             NAME_CACHE_HIT.clear();
-            NAME_CACHE_MISS.clear();
+            RESOLVER.clear();
         }
         
         if (host0.endsWith(".yacyh")) {
@@ -889,103 +901,68 @@ public class Domains {
         }
 
         // try to resolve host by doing a name cache lookup
-        InetAddress ip = NAME_CACHE_HIT.get(host);
-        if (ip != null) {
-            //System.out.println("DNSLOOKUP-CACHE-HIT(CONC) " + host);
-            cacheHit_Hit++;
-            return ip;
-        }
-        cacheHit_Miss++;
-        if (NAME_CACHE_MISS.containsKey(host)) {
-            //System.out.println("DNSLOOKUP-CACHE-MISS(CONC) " + host);
+        final AsyncResolver.Entry entry = RESOLVER.cached(host);
+        if (entry != null) {
+            if (entry.address != null) {
+                cacheHit_Hit++;
+                return entry.address;
+            }
+            cacheHit_Miss++;
             cacheMiss_Hit++;
             return null;
         }
+        cacheHit_Miss++;
         cacheMiss_Miss++;
 
-        // call dnsResolveNetBased(host) using concurrency to interrupt execution in case of a time-out
-        final Object sync_obj_new = new Object();
-        Object sync_obj = LOOKUP_SYNC.putIfAbsent(host, sync_obj_new);
-        if (sync_obj == null) sync_obj = sync_obj_new;
-        synchronized (sync_obj) {
-            // now look again if the host is in the cache where it may be meanwhile because of the synchronization
-
-            ip = NAME_CACHE_HIT.get(host);
-            if (ip != null) {
-                //System.out.println("DNSLOOKUP-CACHE-HIT(SYNC) " + host);
-                LOOKUP_SYNC.remove(host);
-                cacheHit_Hit++;
-                return ip;
-            }
-            cacheHit_Miss++;
-            if (NAME_CACHE_MISS.containsKey(host)) {
-                //System.out.println("DNSLOOKUP-CACHE-MISS(SYNC) " + host);
-                LOOKUP_SYNC.remove(host);
-                cacheMiss_Hit++;
-                return null;
-            }
-            cacheMiss_Miss++;
-
-            // do the dns lookup on the dns server
-            //if (!matchesList(host, nameCacheNoCachingPatterns)) System.out.println("DNSLOOKUP " + host);
+        if (InetAddresses.isInetAddress(host)) {
             try {
-                //final long t = System.currentTimeMillis();
-                String oldName = Thread.currentThread().getName();
-                Thread.currentThread().setName("Domains: DNS resolve of '" + host + "'"); // thread dump show which host is resolved
-                if (InetAddresses.isInetAddress(host)) {
-                    try {
-                        ip = InetAddresses.forString(host);
-                        log.info("using guava for host resolution:"  + host);
-                    } catch (final IllegalArgumentException e) {
-                        ip = null;
-                    }
+                final InetAddress ip = InetAddresses.forString(host);
+                log.info("using guava for host resolution:"  + host);
+                if (!ip.isLoopbackAddress() && !matchesList(host, nameCacheNoCachingPatterns)) {
+                    RESOLVER.put(host, ip);
+                    remember(host, ip);
                 }
-                Thread.currentThread().setName(oldName);
-                if (ip == null) try {
-                    ip = timeLimiter.callWithTimeout(new Callable<InetAddress>() {
-                        @Override
-                        public InetAddress call() throws Exception {
-                            return InetAddress.getByName(host);
-                        }
-                    }, 3000L, TimeUnit.MILLISECONDS, false);
-                    //ip = TimeoutRequest.getByName(host, 1000); // this makes the DNS request to backbone
-                } catch (final UncheckedTimeoutException e) {
-                	// in case of a timeout - maybe cause of massive requests - do not fill NAME_CACHE_MISS
-                	LOOKUP_SYNC.remove(host);
-                    return null;
-                }
-                //.out.println("DNSLOOKUP-*LOOKUP* " + host + ", time = " + (System.currentTimeMillis() - t) + "ms");
-            } catch (final Throwable e) {
-                // add new entries
-                NAME_CACHE_MISS.insertIfAbsent(host, PRESENT);
-                cacheMiss_Insert++;
-                LOOKUP_SYNC.remove(host);
-                return null;
-            }
+                return ip;
+            } catch (final IllegalArgumentException e) {}
+        }
 
-            if (ip == null) {
-                // add new entries
-                NAME_CACHE_MISS.insertIfAbsent(host, PRESENT);
-                cacheMiss_Insert++;
-                LOOKUP_SYNC.remove(host);
-                return null;
-            }
+        // do the dns lookup on the dns server; this joins a prefetch or a concurrent lookup of the same host.
+        // In case of a timeout - maybe cause of massive requests - null is returned but no negative cache entry
+        // is written; the lookup continues and fills the cache when it finishes.
+        try {
+            return RESOLVER.resolve(host, 3000L);
+        } catch (final UnknownHostException e) {
+            cacheMiss_Insert++;
+            return null;
+        }
+    }
 
-            if (!ip.isLoopbackAddress() && !matchesList(host, nameCacheNoCachingPatterns)) {
-                // add new ip cache entries
-                NAME_CACHE_HIT.insertIfAbsent(host, ip);
-                cacheHit_Insert++;
-
-                // add also the isLocal host name caches
-                final boolean localp = ip.isAnyLocalAddress() || ip.isLinkLocalAddress() || ip.isSiteLocalAddress();
-                if (!localp) {
-                    if (globalHosts != null) try {
-                        globalHosts.add(host);
-                    } catch (final IOException e) {}
-                }
-            }
-            LOOKUP_SYNC.remove(host);
-            return ip;
+    /**
+     * start a concurrent dns lookup for a host which will be resolved soon, i.e. the host of an url on the crawl stack.
+     * This does not block; the result is written to the name cache where a later dnsResolve() finds it.
+     * @param host0 the host name
+     */
+    public static void dnsPrefetch(final String host0) {
+        if (host0 == null || host0.isEmpty()) return;
+        final String host = host0.toLowerCase().trim();
+        if (host.endsWith(".yacyh") || InetAddresses.isInetAddress(host) || matchesList(host, nameCacheNoCachingPatterns)) return;
+        RESOLVER.prefetch(host);
+    }
+
+    /**
+     * add a resolved host to the name cache used for reverse lookups and to the global host names
+     */
+    private static void remember(final String host, final InetAddress ip) {
+        // add new ip cache entries
+        NAME_CACHE_HIT.insertIfAbsent(host, ip);
+        cacheHit_Insert++;
+
+        // add also the isLocal host name caches
+        final boolean localp = ip.isAnyLocalAddress() || ip.isLinkLocalAddress() || ip.isSiteLocalAddress();
+        if (!localp) {
+            if (globalHosts != null) try {
+                globalHosts.add(host);
+            } catch (final IOException e) {}
         }
     }
 
@@ -993,7 +970,7 @@ public class Domains {
         try {
         	globalHosts.clear();
         	NAME_CACHE_HIT.clear();
-        	NAME_CACHE_MISS.clear();
+        	RESOLVER.clear();
         } catch (final IOException e) {}
     }
 
@@ -1007,7 +984,7 @@ public class Domains {
     }
 
     public static int nameCacheMissSize() {
-        return NAME_CACHE_MISS.size();
+        return RESOLVER.negativeSize();
     }
 
     public static int nameCacheNoCachingPatternsSize() {
@@ -117,6 +117,7 @@ public class HTTPClient {
 	private HttpUriRequest currentRequest = null;
 	private long upbytes = 0L;
 	private String host = null;
+	private boolean keepAlive = false;
 	private final long timeout;
 	private static ExecutorService executor = Executors.newCachedThreadPool();
 
@@ -249,6 +250,16 @@ public class HTTPClient {
     	this.headers = entrys;
     }
 
+    /**
+     * Keep the connection open after a request so that following requests to the same host
+     * can re-use it from the connection pool. By default all connections are closed.
+     *
+     * @param keepAlive true to keep connections alive
+     */
+    public void setKeepAlive(final boolean keepAlive) {
+    	this.keepAlive = keepAlive;
+    }
+
     /**
      * This method sets the timeout of the Connection and Socket
      *
@@ -776,7 +787,7 @@ public class HTTPClient {
             }
     	}
     	if (this.host != null) httpUriRequest.setHeader(HTTP.TARGET_HOST, this.host);
-        httpUriRequest.setHeader("Connection", "close"); // don't keep alive, prevent CLOSE_WAIT state
+        if (!this.keepAlive) httpUriRequest.setHeader("Connection", "close"); // don't keep alive, prevent CLOSE_WAIT state
     }
 
     private void storeConnectionInfo(final HttpUriRequest httpUriRequest) {
@@ -110,6 +110,17 @@ public class WeakPriorityBlockingQueue<E> implements Serializable {
                         Math.min(this.maxsize, this.queue.size() + (this.drained == null ? 0 : this.drained.size()));
     }
 
+    /**
+     * get the element which is removed by the next put() because the queue is full.
+     * A new element which is not better than this one is dropped by put() anyway,
+     * so a caller can test the weight before it creates the element at all.
+     * @return the worst element of a full queue or null if the queue can still grow
+     */
+    public synchronized Element<E> weakest() {
+        if (this.maxsize < 0 || this.queue.size() < this.maxsize) return null;
+        return this.queue.last();
+    }
+
     /**
      * put a element on the stack using a order of the weight
      * elements that had been on the stack cannot be put in again,
@@ -344,6 +344,9 @@ public final class CrawlStacker {
             return null;
         }
 
+        // the url will be loaded; resolve the host now so the loader does not have to wait for the dns lookup
+        Domains.dnsPrefetch(entry.url().getHost());
+
         if (global) {
             // it may be possible that global == true and local == true, so do not check an error case against it
             if (proxy) CrawlStacker.log.warn("URL '" + entry.url().toString() + "' has conflicting initiator properties: global = true, proxy = true, initiator = proxy" + ", profile.handle = " + profile.handle());
@@ -26,13 +26,16 @@ import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
@@ -47,9 +50,10 @@ import net.yacy.crawler.data.Latency;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.kelondro.data.word.Word;
-import net.yacy.kelondro.index.RowHandleMap;
+import net.yacy.kelondro.index.OffHeapHandleMap;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 /**
  * wrapper for single HostQueue queues; this is a collection of such queues.
@@ -60,16 +64,20 @@ import net.yacy.kelondro.util.FileUtils;
  * The crawldepth is interpreted as clickdepth and the crawler is producing that semantic using a
  * correct crawl ordering.
  */
-public class HostBalancer implements Balancer {
+public class HostBalancer implements Balancer, Latency.Listener {
 
     private final static ConcurrentLog log = new ConcurrentLog("HostBalancer");
-    public final static HandleMap depthCache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024, "HostBalancer.DepthCache");
+    private static volatile HandleMap depthCache = null; // not persisted, only used for lookups; created with the first push because it allocates its table outside of the heap
+    public final static int smallHostLimit = 10; // hosts with up to this number of urls are stored in the small hosts queue
+    private final static int initThreads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())); // threads to register the host queues at start-up
     
     private final File hostsPath;
     private final boolean exceed134217727;
     private final Map<String, HostQueue> queues;
-    private final Set<String> roundRobinHostHashes;
+    private final SmallHostsQueue smallHosts;
+    private final HostScheduler scheduler;
     private final int onDemandLimit;
+    private volatile RobotsTxt robots; // the robots of the latest push or pop, used to compute the host scheduling times
 
     public HostBalancer(
             final File hostsPath,
@@ -82,48 +90,108 @@ public class HostBalancer implements Balancer {
         // create a stack for newly entered entries
         if (!(hostsPath.exists())) hostsPath.mkdirs(); // make the path
         this.queues = new ConcurrentHashMap<String, HostQueue>();
-        this.roundRobinHostHashes = new HashSet<String>();
+        this.smallHosts = new SmallHostsQueue(hostsPath, exceed134217727);
+        this.scheduler = new HostScheduler();
+        this.robots = null;
+        Latency.addListener(this);
         init(); // return without wait but starts a thread to fill the queues
     }
 
     /**
      * fills the queue by scanning the hostsPath directory in a thread to
-     * return immediately (as large unfinished crawls may take longer to load)
+     * return immediately (as large unfinished crawls may take longer to load).
+     * The host queues are registered by a pool of threads using only the directory names and the
+     * size of the stack files; a stack is opened when its queue is accessed the first time.
      */
     private void init() {
-        Thread t = new Thread() {
+        Thread t = new Thread("HostBalancer.init " + this.hostsPath.getName()) {
             @Override
             public void run() {
+                for (String hosthash: smallHosts.hosthashes()) scheduler.offer(hosthash, nextAccess(hosthash));
                 final String[] hostlist = hostsPath.list();
-                for (String hoststr : hostlist) {
-                    try {
-                        File queuePath = new File(hostsPath, hoststr);
-                        HostQueue queue = new HostQueue(queuePath, queues.size() > onDemandLimit, exceed134217727);
-                        if (queue.isEmpty()) {
-                            queue.close();
-                            FileUtils.deletedelete(queuePath);
-                        } else {
-                            queues.put(queue.getHostHash(), queue);
+                if (hostlist == null) return;
+                final long start = System.currentTimeMillis();
+                final AtomicInteger done = new AtomicInteger(0);
+                final ExecutorService service = Executors.newFixedThreadPool(initThreads, new NamePrefixThreadFactory("HostBalancer.init"));
+                for (final String hoststr : hostlist) {
+                    if (hoststr.equals(SmallHostsQueue.fileName)) continue;
+                    service.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            initQueue(hoststr);
+                            final int c = done.incrementAndGet();
+                            if (c % 10000 == 0) log.info("registered " + c + " of " + hostlist.length + " host queues in " + hostsPath.getName());
                         }
-                    } catch (MalformedURLException | RuntimeException e) {
-                        log.warn("delete queue due to init error for " + hostsPath.getName() + " host=" + hoststr + " " + e.getLocalizedMessage());
-                        // if exception thrown we can't init the queue, maybe due to name violation. That won't get better, delete it.
-                        FileUtils.deletedelete(new File(hostsPath, hoststr));
-                    }
+                    });
                 }
+                service.shutdown();
+                try {
+                    service.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {}
+                log.info("registered " + queues.size() + " host queues in " + hostsPath.getName() + " within " + (System.currentTimeMillis() - start) + " milliseconds");
             }
         };
 
         t.start();
     }
 
+    /**
+     * register the host queue of a directory in the hostsPath; empty and broken queues are deleted
+     * @param hoststr the name of the directory of the host queue
+     */
+    private void initQueue(final String hoststr) {
+        try {
+            File queuePath = new File(this.hostsPath, hoststr);
+            HostQueue queue = new HostQueue(queuePath, this.queues.size() > this.onDemandLimit, this.exceed134217727, true);
+            if (queue.isEmpty()) {
+                queue.close();
+                FileUtils.deletedelete(queuePath);
+            } else {
+                synchronized (this) {
+                    // a push may have opened the queue already
+                    if (this.queues.containsKey(queue.getHostHash())) return;
+                    this.queues.put(queue.getHostHash(), queue);
+                }
+                this.scheduler.offer(queue.getHostHash(), nextAccess(queue.getHostHash()));
+            }
+        } catch (MalformedURLException | RuntimeException e) {
+            log.warn("delete queue due to init error for " + this.hostsPath.getName() + " host=" + hoststr + " " + e.getLocalizedMessage());
+            // if exception thrown we can't init the queue, maybe due to name violation. That won't get better, delete it.
+            FileUtils.deletedelete(new File(this.hostsPath, hoststr));
+        }
+    }
+
+    private static HandleMap depthCache() {
+        HandleMap cache = depthCache;
+        if (cache != null) return cache;
+        synchronized (HostBalancer.class) {
+            if (depthCache == null) depthCache = new OffHeapHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024);
+            return depthCache;
+        }
+    }
+
+    /**
+     * get the crawl depth of a url which was pushed to one of the balancers
+     * @param urlhash
+     * @return the crawl depth or null if the url is not known
+     */
+    public static Long getDepth(final byte[] urlhash) {
+        final HandleMap cache = depthCache;
+        if (cache == null) return null;
+        final long depth = cache.get(urlhash); // -1 if the url is not in the cache
+        return depth < 0 ? null : Long.valueOf(depth);
+    }
+
     @Override
     public synchronized void close() {
+        Latency.removeListener(this);
         if (depthCache != null) {
             depthCache.clear();
         }
         for (HostQueue queue: this.queues.values()) queue.close();
         this.queues.clear();
+        this.smallHosts.close();
+        this.scheduler.clear();
     }
 
     @Override
@@ -133,13 +201,15 @@ public class HostBalancer implements Balancer {
         }
         for (HostQueue queue: this.queues.values()) queue.clear();
         this.queues.clear();
+        this.smallHosts.clear();
+        this.scheduler.clear();
     }
 
     @Override
     public Request get(final byte[] urlhash) throws IOException {
         String hosthash = ASCII.String(urlhash, 6, 6);
         HostQueue queue = this.queues.get(hosthash);
-        if (queue == null) return null;
+        if (queue == null) return this.smallHosts.get(urlhash);
         return queue.get(urlhash);
     }
 
@@ -149,6 +219,7 @@ public class HostBalancer implements Balancer {
         for (HostQueue queue: this.queues.values()) {
             c += queue.removeAllByProfileHandle(profileHandle, timeout);
         }
+        c += this.smallHosts.removeAllByProfileHandle(profileHandle, timeout);
         return c;
     }
     
@@ -164,22 +235,26 @@ public class HostBalancer implements Balancer {
             HostQueue hq = this.queues.get(h);
             if (hq != null) c += hq.removeAllByHostHashes(hosthashes);
         }
+        c += this.smallHosts.removeAllByHostHashes(hosthashes);
         // remove from cache
-        Iterator<Map.Entry<byte[], Long>> i = depthCache.iterator();
+        final HandleMap cache = depthCache;
+        if (cache == null) return c;
+        Iterator<Map.Entry<byte[], Long>> i = cache.iterator();
         ArrayList<String> deleteHashes = new ArrayList<String>();
         while (i.hasNext()) {
             String h = ASCII.String(i.next().getKey());
             if (hosthashes.contains(h.substring(6))) deleteHashes.add(h);
         }
-        for (String h: deleteHashes) depthCache.remove(ASCII.getBytes(h));
+        for (String h: deleteHashes) cache.remove(ASCII.getBytes(h));
         return c;
     }
 
     @Override
     public synchronized int remove(final HandleSet urlHashes) throws IOException {
         Map<String, HandleSet> removeLists = new ConcurrentHashMap<String, HandleSet>();
+        final HandleMap cache = depthCache;
         for (byte[] urlhash: urlHashes) {
-            depthCache.remove(urlhash);
+            if (cache != null) cache.remove(urlhash);
             String hosthash = ASCII.String(urlhash, 6, 6);
             HandleSet removeList = removeLists.get(hosthash);
             if (removeList == null) {
@@ -191,23 +266,24 @@ public class HostBalancer implements Balancer {
         int c = 0;
         for (Map.Entry<String, HandleSet> entry: removeLists.entrySet()) {
             HostQueue queue = this.queues.get(entry.getKey());
-            if (queue != null) c += queue.remove(entry.getValue());
+            if (queue != null) c += queue.remove(entry.getValue()); else c += this.smallHosts.remove(entry.getValue());
         }
         return c;
     }
 
     @Override
     public boolean has(final byte[] urlhashb) {
-        if (depthCache.has(urlhashb)) return true;
+        final HandleMap cache = depthCache;
+        if (cache != null && cache.has(urlhashb)) return true;
         String hosthash = ASCII.String(urlhashb, 6, 6);
         HostQueue queue = this.queues.get(hosthash);
-        if (queue == null) return false;
+        if (queue == null) return this.smallHosts.has(urlhashb);
         return queue.has(urlhashb);
     }
 
     @Override
     public int size() {
-        int c = 0;
+        int c = this.smallHosts.size();
         for (HostQueue queue: this.queues.values()) {
             c += queue.size();
         }
@@ -216,6 +292,7 @@ public class HostBalancer implements Balancer {
 
     @Override
     public boolean isEmpty() {
+        if (!this.smallHosts.isEmpty()) return false;
         for (HostQueue queue: this.queues.values()) {
             if (!queue.isEmpty()) return false;
         }
@@ -232,7 +309,8 @@ public class HostBalancer implements Balancer {
         return this.exceed134217727;
     }
     /**
-     * push a request to one of the host queues. If the queue does not exist, it is created
+     * push a request to one of the host queues. Requests for hosts without a host queue are stored in the
+     * small hosts queue; if a host has more than smallHostLimit urls, it gets its own host queue
      * @param entry
      * @param profile
      * @param robots
@@ -243,18 +321,36 @@ public class HostBalancer implements Balancer {
     @Override
     public String push(final Request entry, CrawlProfile profile, final RobotsTxt robots) throws IOException, SpaceExceededException {
         if (this.has(entry.url().hash())) return "double occurrence";
-        depthCache.put(entry.url().hash(), entry.depth());
+        depthCache().put(entry.url().hash(), entry.depth());
         String hosthash = entry.url().hosthash();
+        this.robots = robots;
+        HostQueue queue;
+        String result;
         synchronized (this) {
-            HostQueue queue = this.queues.get(hosthash);
+            queue = this.queues.get(hosthash);
             if (queue == null) {
-                queue = new HostQueue(this.hostsPath, entry.url(), this.queues.size() > this.onDemandLimit, this.exceed134217727);
-                this.queues.put(hosthash, queue);
-                // profile might be null when continue crawls after YaCy restart
-                robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+                final int smallHostSize = this.smallHosts.size(hosthash);
+                if (smallHostSize == 0) {
+                    // profile might be null when continue crawls after YaCy restart
+                    robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+                }
+                if (smallHostSize < smallHostLimit) {
+                    result = this.smallHosts.push(entry, profile);
+                } else {
+                    // move the host from the small hosts queue to its own queue
+                    queue = new HostQueue(this.hostsPath, entry.url(), this.queues.size() > this.onDemandLimit, this.exceed134217727);
+                    for (Request request: this.smallHosts.removeHost(hosthash)) queue.push(request, null, robots);
+                    this.queues.put(hosthash, queue);
+                    result = queue.push(entry, profile, robots);
+                }
+            } else {
+                result = queue.push(entry, profile, robots);
             }
-            return queue.push(entry, profile, robots);
         }
+        // a host which is currently popped is not scheduled; it is scheduled again at the end of the pop.
+        // empty queues are scheduled as well, they are removed in pop
+        this.scheduler.offer(hosthash, nextAccess(hosthash));
+        return result;
     }
 
     /**
@@ -262,7 +358,9 @@ public class HostBalancer implements Balancer {
      * and always above the given minimum delay time. An additional delay time is computed using the robots.txt
      * crawl-delay time which is always respected. In case the minimum time cannot ensured, this method pauses
      * the necessary time until the url is released and returned as CrawlEntry object. In case that a profile
-     * for the computed Entry does not exist, null is returned
+     * for the computed Entry does not exist, null is returned.
+     * The host is taken from the scheduler which orders all hosts by the time when they may be accessed next;
+     * therefore the host with the smallest remaining waiting time is always selected first.
      * @param delay true if the requester demands forced delays using explicit thread sleep
      * @param profile
      * @return a url in a CrawlEntry object
@@ -271,175 +369,33 @@ public class HostBalancer implements Balancer {
      */
     @Override
     public Request pop(boolean delay, CrawlSwitchboard cs, RobotsTxt robots) throws IOException {
+        this.robots = robots;
         tryagain: while (true) try {
-            HostQueue rhq = null;
-            String rhh = null;
-        
-            synchronized (this) {
-                if (this.roundRobinHostHashes.size() == 0) {
-                    // refresh the round-robin cache
-                    this.roundRobinHostHashes.addAll(this.queues.keySet());
-                    // quickly get rid of small stacks to reduce number of files:
-                    // remove all stacks with more than 10 entries
-                    // this shall kick out small stacks to prevent that too many files are opened for very wide crawls
-                    boolean smallStacksExist = false;
-                    boolean singletonStacksExist = false;
-                    smallsearch: for (String s: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(s);
-                        if (hq != null) {
-                            int size = hq.size();
-                            if (size ==  1) {singletonStacksExist = true; break smallsearch;}
-                            if (size <= 10) {smallStacksExist = true; break smallsearch;}
-                        }
-                    }
-                    if (singletonStacksExist || smallStacksExist) {
-                        Iterator<String> i = this.roundRobinHostHashes.iterator();
-                        smallstacks: while (i.hasNext()) {
-                            if (this.roundRobinHostHashes.size() <= 10) break smallstacks; // don't shrink the hosts until nothing is left
-                            String s = i.next();
-                            HostQueue hq = this.queues.get(s);
-                            if (hq == null) {i.remove(); continue smallstacks;}
-                            int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), s, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                            if (delta < 0) continue; // keep all non-waiting stacks; they are useful to speed up things
-                            // to protect all small stacks which have a fast throughput, remove all with long waiting time
-                            if (delta >= 1000) {i.remove(); continue smallstacks;}
-                            int size = hq.size();
-                            if (singletonStacksExist) {
-                                if (size != 1) {i.remove(); continue smallstacks;} // remove all non-singletons
-                            } else /*smallStacksExist*/ {
-                                if (size > 10) {i.remove(); continue smallstacks;} // remove all large stacks
-                            }
-                        }
-                    }
-                    if (this.roundRobinHostHashes.size() == 1) {
-                        if (log.isFine()) log.fine("(re-)initialized the round-robin queue with one host");
-                    } else {
-                        log.info("(re-)initialized the round-robin queue; " + this.roundRobinHostHashes.size() + " hosts.");
-                    }
-                }
-                if (this.roundRobinHostHashes.size() == 0) return null;
-                
-                // if the queue size is 1, just take that
-                if (this.roundRobinHostHashes.size() == 1) {
-                    rhh = this.roundRobinHostHashes.iterator().next();
-                    rhq = this.queues.get(rhh);
-                }
-                
-                if (rhq == null) {
-                    // mixed minimum sleep time / largest queue strategy:
-                    // create a map of sleep time / queue relations with a fuzzy sleep time (ms / 500).
-                    // if the entry with the smallest sleep time contains at least two entries,
-                    // then the larger one from these queues are selected.
-                    TreeMap<Integer, List<String>> fastTree = new TreeMap<>();
-                    mixedstrategy: for (String h: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), h, robots, ClientIdentification.yacyInternetCrawlerAgent) / 200;
-                            if (delta < 0) delta = 0;
-                            List<String> queueHashes = fastTree.get(delta);
-                            if (queueHashes == null) {
-                                queueHashes = new ArrayList<>(2);
-                                fastTree.put(delta, queueHashes);
-                            }
-                            queueHashes.add(h);
-                            // check stop criteria
-                            List<String> firstEntries = fastTree.firstEntry().getValue();
-                            if (firstEntries.size() > 1) {
-                                // select larger queue from that list
-                                int largest = Integer.MIN_VALUE;
-                                for (String hh: firstEntries) {
-                                    HostQueue hhq = this.queues.get(hh);
-                                    if (hhq != null) {
-                                        int s = hhq.size();
-                                        if (s > largest) {
-                                            largest = s;
-                                            rhh = hh;
-                                        }
-                                    }
-                                }
-                                rhq = this.queues.get(rhh);
-                                break mixedstrategy;
-                            }
-                        }
-                    }
-                    if (rhq == null && fastTree.size() > 0) {
-                        // it may be possible that the lowest entry never has more than one queues assigned
-                        // in this case just take the smallest entry
-                        List<String> firstEntries = fastTree.firstEntry().getValue();
-                        assert firstEntries.size() == 1;
-                        rhh = firstEntries.get(0);
-                        rhq = this.queues.get(rhh);
-                    }
-                    // to prevent that the complete roundrobinhosthashes are taken for each round, we remove the entries from the top of the fast queue
-                    List<String> lastEntries = fastTree.size() > 0 ? fastTree.lastEntry().getValue() : null;
-                    if (lastEntries != null) {
-                        for (String h: lastEntries) this.roundRobinHostHashes.remove(h);
-                    }
-                }
-
-                /*
-                // first strategy: get one entry which does not need sleep time
-                Iterator<String> nhhi = this.roundRobinHostHashes.iterator();
-                nosleep: while (nhhi.hasNext()) {
-                    rhh = nhhi.next();
-                    rhq = this.queues.get(rhh);
-                    if (rhq == null) {
-                        nhhi.remove();
-                        continue nosleep;
-            }
-                    int delta = Latency.waitingRemainingGuessed(rhq.getHost(), rhh, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                    if (delta <= 10 || this.roundRobinHostHashes.size() == 1 || rhq.size() == 1) {
-                        nhhi.remove();
-                        break nosleep;
-                    }
-                }
-                if (rhq == null) {
-                    // second strategy: take from the largest stack
-                    int largest = Integer.MIN_VALUE;
-                    for (String h: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int s = hq.size();
-                            if (s > largest) {
-                                largest = s;
-                                rhh = h;
-                            }
-                        }
-                    }
-                    rhq = this.queues.get(rhh);
-                }
-                */
-            }
-            
+            // poll removes the host from the scheduler; it must not be removed again after the queue was emptied
+            // because a push which runs concurrently to this pop may have offered the host again
+            final String rhh = this.scheduler.poll();
+            if (rhh == null) return null;
+            final HostQueue rhq = this.queues.get(rhh);
+            Request request;
             if (rhq == null) {
-                this.roundRobinHostHashes.clear(); // force re-initialization
-                continue tryagain;
-            }
-            this.roundRobinHostHashes.remove(rhh); // prevent that the queue is used again
-            long timestamp = System.currentTimeMillis();
-            Request request = rhq.pop(delay, cs, robots); // this pop is outside of synchronization to prevent blocking of pushes
-            long actualwaiting = System.currentTimeMillis() - timestamp;
-            
-            if (actualwaiting > 1000) {
+                request = this.smallHosts.pop(rhh, delay, cs, robots);
+            } else {
+                request = rhq.pop(delay, cs, robots); // this pop is outside of synchronization to prevent blocking of pushes
+                boolean empty;
                 synchronized (this) {
-                    // to prevent that this occurs again, remove all stacks with positive delay times (which may be less after that waiting)
-                    Iterator<String> i = this.roundRobinHostHashes.iterator();
-                    protectcheck: while (i.hasNext()) {
-                        if (this.roundRobinHostHashes.size() <= 3) break protectcheck; // don't shrink the hosts until nothing is left
-                        String s = i.next();
-                        HostQueue hq = this.queues.get(s);
-                        if (hq == null) {i.remove(); continue protectcheck;}
-                        int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), s, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                        if (delta >= 0) {i.remove();}
-                    }
+                    empty = rhq.isEmpty();
+                    if (empty) this.queues.remove(rhh);
                 }
+                if (empty) rhq.close();
             }
             
-            if (rhq.isEmpty()) {
-                synchronized (this) {
-                    this.queues.remove(rhh);
-                }
-                rhq.close();
+            // the host is not scheduled while it is popped; a push during the pop may have scheduled it again
+            if (this.queues.containsKey(rhh) || this.smallHosts.size(rhh) > 0) {
+                // the loader updates the latency when the url is actually loaded and then the host is scheduled again;
+                // until then we assume that the host is accessed now
+                this.scheduler.schedule(rhh, Math.max(
+                        System.currentTimeMillis() + ClientIdentification.yacyInternetCrawlerAgent.minimumDelta,
+                        nextAccess(rhh)));
             }
             if (request == null) continue tryagain;
             return request;
@@ -453,12 +409,35 @@ public class HostBalancer implements Balancer {
         }
     }
 
+    /**
+     * compute the time when a host may be accessed next
+     * @param hosthash
+     * @return the time in milliseconds since epoch; 0 if the host is not known in this balancer
+     */
+    private long nextAccess(final String hosthash) {
+        final HostQueue queue = this.queues.get(hosthash);
+        if (queue != null) return Latency.nextAccessGuessed(queue.getHost(), queue.getPort(), hosthash, this.robots, ClientIdentification.yacyInternetCrawlerAgent);
+        final String host = this.smallHosts.getHost(hosthash);
+        if (host == null) return 0;
+        return Latency.nextAccessGuessed(host, this.smallHosts.getPort(hosthash), hosthash, this.robots, ClientIdentification.yacyInternetCrawlerAgent);
+    }
+
+    /**
+     * re-schedule a host after it was accessed by a loader
+     * @param hosthash
+     */
+    @Override
+    public void accessed(final String hosthash) {
+        if (!this.queues.containsKey(hosthash) && this.smallHosts.size(hosthash) == 0) return;
+        this.scheduler.reschedule(hosthash, nextAccess(hosthash));
+    }
+
     @Override
     public Iterator<Request> iterator() throws IOException {
         final Iterator<HostQueue> hostsIterator = this.queues.values().iterator();
         @SuppressWarnings("unchecked")
         final Iterator<Request>[] hostIterator = (Iterator<Request>[]) Array.newInstance(Iterator.class, 1);
-        hostIterator[0] = null;
+        hostIterator[0] = this.smallHosts.iterator();
         return new Iterator<Request>() {
             @Override
             public boolean hasNext() {
@@ -493,6 +472,7 @@ public class HostBalancer implements Balancer {
             int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), hq.getHostHash(), robots, ClientIdentification.yacyInternetCrawlerAgent);
             map.put(hq.getHost() + ":" + hq.getPort(), new Integer[]{hq.size(), delta});
         }
+        map.putAll(this.smallHosts.getDomainStackHosts(robots));
         return map;
     }
 
@@ -507,9 +487,13 @@ public class HostBalancer implements Balancer {
     public List<Request> getDomainStackReferences(String host, int maxcount, long maxtime) {
         if (host == null) return new ArrayList<Request>(0);
         try {
-            HostQueue hq = this.queues.get(DigestURL.hosthash(host, host.startsWith("ftp.") ? 21 : 80));
-            if (hq == null) hq = this.queues.get(DigestURL.hosthash(host, 443));
-            return hq == null ? new ArrayList<Request>(0) : hq.getDomainStackReferences(host, maxcount, maxtime);
+            String hosthash = DigestURL.hosthash(host, host.startsWith("ftp.") ? 21 : 80);
+            HostQueue hq = this.queues.get(hosthash);
+            if (hq == null && this.smallHosts.size(hosthash) == 0) {
+                hosthash = DigestURL.hosthash(host, 443);
+                hq = this.queues.get(hosthash);
+            }
+            return hq == null ? this.smallHosts.getDomainStackReferences(hosthash, maxcount) : hq.getDomainStackReferences(host, maxcount, maxtime);
         } catch (MalformedURLException e) {
             ConcurrentLog.logException(e);
             return null;
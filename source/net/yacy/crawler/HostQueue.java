@@ -48,9 +48,11 @@ import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.BufferedObjectIndex;
 import net.yacy.kelondro.index.Index;
 import net.yacy.kelondro.index.OnDemandOpenFileIndex;
+import net.yacy.kelondro.index.OpenFileIndexPool;
+import net.yacy.kelondro.index.PooledOpenFileIndex;
 import net.yacy.kelondro.index.Row;
 import net.yacy.kelondro.index.RowHandleSet;
-import net.yacy.kelondro.table.Table;
+import net.yacy.kelondro.io.Records;
 import static net.yacy.kelondro.util.FileUtils.deletedelete;
 import net.yacy.kelondro.util.kelondroException;
 import net.yacy.repository.Blacklist.BlacklistType;
@@ -64,13 +66,17 @@ public class HostQueue implements Balancer {
     private static final int    EcoFSBufferSize       = 1000;
     private static final int    objectIndexBufferSize = 1000;
 
+    // the pool of open stack files of all host queues; inactive stacks are closed if there are too many
+    public  static final OpenFileIndexPool stackFilePool = new OpenFileIndexPool(1000);
+
     private final File          hostPath; // path to the stack files
     private final String        hostName;
     private final String        hostHash;
     private final int           port;
     private final boolean       exceed134217727;
     private final boolean       onDemand;
-    private       TreeMap<Integer, Index> depthStacks;
+    private volatile TreeMap<Integer, Index> depthStacks; // null as long as the stacks are not opened
+    private       int           storedSize; // the number of urls in the stack files before the stacks are opened
 
     /**
      * Create or open host queue. The host part of the hostUrl parameter is used
@@ -110,6 +116,25 @@ public class HostQueue implements Balancer {
             final File hostPath,
             final boolean onDemand,
             final boolean exceed134217727) throws MalformedURLException {
+        this(hostPath, onDemand, exceed134217727, false);
+    }
+
+    /**
+     * Initializes host queue from cache files. The internal id of the queue is
+     * extracted form the path name an must match the key initially generated
+     * currently the hosthash is used as id.
+     * @param hostPath path of the stack directory (containing the primary key/id of the queue)
+     * @param onDemand
+     * @param exceed134217727
+     * @param lazy if true, the stack files are opened when the queue is accessed the first time;
+     *        until then the size of the queue is computed from the size of the stack files
+     * @throws MalformedURLException
+     */
+    public HostQueue (
+            final File hostPath,
+            final boolean onDemand,
+            final boolean exceed134217727,
+            final boolean lazy) throws MalformedURLException {
         this.onDemand = onDemand;
         this.exceed134217727 = exceed134217727;
         this.hostPath = hostPath;
@@ -123,7 +148,13 @@ public class HostQueue implements Balancer {
             this.hostName = filename.substring(0,p1);
             this.hostHash = filename.substring(p1+2,pdot);
         } else throw new RuntimeException("hostPath name must contain -# followd by hosthash: " + filename);
-        init();
+        if (lazy) {
+            if (!this.hostPath.isDirectory()) throw new MalformedURLException("hostPath is not a directory: " + this.hostPath.toString());
+            this.depthStacks = null;
+            this.storedSize = storedSize();
+        } else {
+            init();
+        }
     }
 
     /**
@@ -137,10 +168,46 @@ public class HostQueue implements Balancer {
                 throw new MalformedURLException("hostPath could not be created: " + this.hostPath.toString());
             }
         }
-        this.depthStacks = new TreeMap<Integer, Index>();
-        int size = openAllStacks();
+        final TreeMap<Integer, Index> stacks = new TreeMap<Integer, Index>();
+        int size = openAllStacks(stacks);
+        this.depthStacks = stacks;
         if (log.isInfo()) log.info("opened HostQueue " + this.hostPath.getAbsolutePath() + " with " + size + " urls.");
     }
+
+    /**
+     * get the stacks of this queue; they are opened if this did not happen yet
+     * @return a map from the crawl depth to the stack of that depth
+     */
+    private TreeMap<Integer, Index> stacks() {
+        TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks != null) return stacks;
+        synchronized (this) {
+            if (this.depthStacks == null) {
+                stacks = new TreeMap<Integer, Index>();
+                int size = openAllStacks(stacks);
+                this.depthStacks = stacks;
+                if (log.isFine()) log.fine("opened HostQueue " + this.hostPath.getAbsolutePath() + " with " + size + " urls on demand.");
+            }
+            return this.depthStacks;
+        }
+    }
+
+    /**
+     * compute the number of urls in the stack files without opening them
+     * @return the sum of the number of records in all stack files
+     */
+    private int storedSize() {
+        String[] l = this.hostPath.list();
+        int c = 0;
+        if (l != null) for (String s: l) {
+            if (s.endsWith(indexSuffix)) try {
+                c += (int) Records.tableSize(new File(this.hostPath, s), Request.rowdef.objectsize);
+            } catch (IOException e) {
+                c++; // the file is broken; it is repaired when the stack is opened
+            }
+        }
+        return c;
+    }
     
     public String getHost() {
         return this.hostName;
@@ -159,7 +226,7 @@ public class HostQueue implements Balancer {
         return this.hostHash;
     }
 
-    private int openAllStacks() {
+    private int openAllStacks(final TreeMap<Integer, Index> stacks) {
         String[] l = this.hostPath.list();
         int c = 0;
         if (l != null) for (String s: l) {
@@ -173,7 +240,7 @@ public class HostQueue implements Balancer {
                         depthStack.close();
                         deletedelete(stackFile);
                     } else {
-                        this.depthStacks.put(depth, depthStack);
+                        stacks.put(depth, depthStack);
                         c += sz;
                     }
                 }
@@ -183,16 +250,17 @@ public class HostQueue implements Balancer {
     }
 
     private Index getLowestStack() {
-        while (this.depthStacks.size() > 0) {
+        final TreeMap<Integer, Index> depthStacks = stacks();
+        while (depthStacks.size() > 0) {
             Map.Entry<Integer, Index> entry;
             synchronized (this) {
-                entry = this.depthStacks.firstEntry();
+                entry = depthStacks.firstEntry();
             }
             if (entry == null) return null; // happens only if map is empty
             if (entry.getValue().size() == 0) {
                 entry.getValue().close();
                 deletedelete(getFile(entry.getKey()));
-                this.depthStacks.remove(entry.getKey());
+                depthStacks.remove(entry.getKey());
                 continue;
             }
             return entry.getValue();
@@ -212,12 +280,12 @@ public class HostQueue implements Balancer {
         Index depthStack;
         // create a new stack
         synchronized (this) {
-            depthStack = this.depthStacks.get(depth);
+            depthStack = stacks().get(depth);
             if (depthStack != null) return depthStack;
             // now actually create a new stack
             final File f = getFile(depth);
             depthStack = openStack(f);
-            if (depthStack != null) this.depthStacks.put(depth, depthStack);
+            if (depthStack != null) stacks().put(depth, depthStack);
         }
         return depthStack;
     }
@@ -240,42 +308,41 @@ public class HostQueue implements Balancer {
                     ConcurrentLog.logException(e);
                 }
             } else {
-                    try {
-                    return new BufferedObjectIndex(new Table(f, Request.rowdef, EcoFSBufferSize, 0, false, exceed134217727, true), objectIndexBufferSize);
-                } catch (final SpaceExceededException e) {
-                    try {
-                        return new BufferedObjectIndex(new Table(f, Request.rowdef, 0, 0, false, exceed134217727, true), objectIndexBufferSize);
-                    } catch (final SpaceExceededException e1) {
-                        ConcurrentLog.logException(e1);
-                    }
+                try {
+                    return new BufferedObjectIndex(new PooledOpenFileIndex(f, Request.rowdef, EcoFSBufferSize, exceed134217727, true, stackFilePool), objectIndexBufferSize);
                 } catch (kelondroException e) {
                     // possibly the file was closed meanwhile
                     ConcurrentLog.logException(e);
+                }
             }
         }
-        }
         return null;
     }
 
     @Override
     public synchronized void close() {
-        for (Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
-            int size = entry.getValue().size();
-            entry.getValue().close();
-            if (size == 0) deletedelete(getFile(entry.getKey()));
+        if (this.depthStacks != null) {
+            for (Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
+                int size = entry.getValue().size();
+                entry.getValue().close();
+                if (size == 0) deletedelete(getFile(entry.getKey()));
+            }
+            this.depthStacks.clear();
         }
-        this.depthStacks.clear();
         String[] l = this.hostPath.list();
         if ((l == null || l.length == 0) && this.hostPath != null) deletedelete(this.hostPath);
     }
 
     @Override
     public synchronized void clear() {
-        for (Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
-            entry.getValue().close();
-            deletedelete(getFile(entry.getKey()));
+        if (this.depthStacks != null) {
+            for (Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
+                entry.getValue().close();
+                deletedelete(getFile(entry.getKey()));
+            }
+            this.depthStacks.clear();
         }
-        this.depthStacks.clear();
+        this.storedSize = 0;
         String[] l = this.hostPath.list();
         if (l != null) for (String s: l) {
             deletedelete(new File(this.hostPath, s));
@@ -286,8 +353,7 @@ public class HostQueue implements Balancer {
     @Override
     public Request get(final byte[] urlhash) throws IOException {
         assert urlhash != null;
-        if (this.depthStacks == null) return null; // case occurs during shutdown
-        for (Index depthStack: this.depthStacks.values()) {
+        for (Index depthStack: stacks().values()) {
             final Row.Entry entry = depthStack.get(urlhash, false);
             if (entry == null) return null;
             return new Request(entry);
@@ -301,7 +367,7 @@ public class HostQueue implements Balancer {
         final long terminate = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : (timeout > 0) ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
         int count = 0;
         synchronized (this) {
-            for (Index depthStack: this.depthStacks.values()) {
+            for (Index depthStack: stacks().values()) {
                 final HandleSet urlHashes = new RowHandleSet(Word.commonHashLength, Base64Order.enhancedCoder, 100);
                 final Iterator<Row.Entry> i = depthStack.rows();
                 Row.Entry rowEntry;
@@ -349,7 +415,7 @@ public class HostQueue implements Balancer {
     @Override
     public synchronized int remove(final HandleSet urlHashes) throws IOException {
         int removedCounter = 0;
-        for (Index depthStack: this.depthStacks.values()) {
+        for (Index depthStack: stacks().values()) {
             final int s = depthStack.size();
             for (final byte[] urlhash: urlHashes) {
                 final Row.Entry entry = depthStack.remove(urlhash);
@@ -365,7 +431,7 @@ public class HostQueue implements Balancer {
     public boolean has(final byte[] urlhashb) {
         for (int retry = 0; retry < 3; retry++) {
             try {
-                for (Index depthStack: this.depthStacks.values()) {
+                for (Index depthStack: stacks().values()) {
                     if (depthStack.has(urlhashb)) return true;
                 }
                 return false;
@@ -376,8 +442,10 @@ public class HostQueue implements Balancer {
 
     @Override
     public int size() {
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) return this.storedSize;
         int size = 0;
-        for (Index depthStack: this.depthStacks.values()) {
+        for (Index depthStack: stacks.values()) {
             size += depthStack.size();
         }
         return size;
@@ -385,7 +453,9 @@ public class HostQueue implements Balancer {
 
     @Override
     public boolean isEmpty() {
-        for (Index depthStack: this.depthStacks.values()) {
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) return this.storedSize == 0;
+        for (Index depthStack: stacks.values()) {
             if (!depthStack.isEmpty()) return false;
         }
         return true;
@@ -436,20 +506,8 @@ public class HostQueue implements Balancer {
                 }
                 if (rowEntry == null) continue mainloop;
                 crawlEntry = new Request(rowEntry);
-
-                // check blacklist (again) because the user may have created blacklist entries after the queue has been filled
-                if (Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, crawlEntry.url())) {
-                    if (log.isFine()) log.fine("URL '" + crawlEntry.url() + "' is in blacklist.");
-                    continue mainloop;
-                }
-
-                // at this point we must check if the crawlEntry has relevance because the crawl profile still exists
-                // if not: return null. A calling method must handle the null value and try again
-                profileEntry = cs.get(UTF8.getBytes(crawlEntry.profileHandle()));
-                if (profileEntry == null) {
-                    if (log.isFine()) log.fine("no profile entry for handle " + crawlEntry.profileHandle());
-                    continue mainloop;
-                }
+                profileEntry = profile(crawlEntry, cs);
+                if (profileEntry == null) continue mainloop;
                 
                 // depending on the caching policy we need sleep time to avoid DoS-like situations
                 sleeptime = Latency.getDomainSleepTime(robots, profileEntry, crawlEntry.url());
@@ -457,6 +515,44 @@ public class HostQueue implements Balancer {
             }
         }
         if (crawlEntry == null) return null;
+        selected(this, crawlEntry, profileEntry, sleeptime, delay, robots);
+        return crawlEntry;
+    }
+
+    /**
+     * check if a request which was taken from a stack shall be loaded
+     * @param crawlEntry
+     * @param cs
+     * @return the crawl profile of the request or null if the request must be dropped because it is blacklisted
+     *         or the crawl profile does not exist any more
+     */
+    static CrawlProfile profile(final Request crawlEntry, final CrawlSwitchboard cs) {
+        // check blacklist (again) because the user may have created blacklist entries after the queue has been filled
+        if (Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, crawlEntry.url())) {
+            if (log.isFine()) log.fine("URL '" + crawlEntry.url() + "' is in blacklist.");
+            return null;
+        }
+
+        // at this point we must check if the crawlEntry has relevance because the crawl profile still exists
+        // if not: return null. A calling method must handle the null value and try again
+        CrawlProfile profileEntry = cs.get(UTF8.getBytes(crawlEntry.profileHandle()));
+        if (profileEntry == null) {
+            if (log.isFine()) log.fine("no profile entry for handle " + crawlEntry.profileHandle());
+            return null;
+        }
+        return profileEntry;
+    }
+
+    /**
+     * update the latency for a request which was taken from a stack and pause until the host may be accessed
+     * @param monitor the object which is used to wait
+     * @param crawlEntry
+     * @param profileEntry
+     * @param sleeptime the domain sleep time as computed with Latency.getDomainSleepTime
+     * @param delay true if the requester demands forced delays using explicit thread sleep
+     * @param robots
+     */
+    static void selected(final Object monitor, final Request crawlEntry, final CrawlProfile profileEntry, final long sleeptime, final boolean delay, final RobotsTxt robots) {
         ClientIdentification.Agent agent = profileEntry == null ? ClientIdentification.yacyInternetCrawlerAgent : profileEntry.getAgent();
         long robotsTime = Latency.getRobotsTime(robots, crawlEntry.url(), agent);
         Latency.updateAfterSelection(crawlEntry.url(), profileEntry == null ? 0 : robotsTime);
@@ -473,22 +569,21 @@ public class HostQueue implements Balancer {
                 loops = 0;
             }
             Thread.currentThread().setName("Balancer waiting for " + crawlEntry.url().getHost() + ": " + sleeptime + " milliseconds");
-            synchronized(this) {
+            synchronized(monitor) {
                 // must be synchronized here to avoid 'takeover' moves from other threads which then idle the same time which would not be enough
-                if (rest > 0) {try {this.wait(rest);} catch (final InterruptedException e) {}}
+                if (rest > 0) {try {monitor.wait(rest);} catch (final InterruptedException e) {}}
                 for (int i = 0; i < loops; i++) {
                     if (log.isInfo()) log.info("waiting for " + crawlEntry.url().getHost() + ": " + (loops - i) + " seconds remaining...");
-                    try {this.wait(1000); } catch (final InterruptedException e) {}
+                    try {monitor.wait(1000); } catch (final InterruptedException e) {}
                 }
             }
             Latency.updateAfterSelection(crawlEntry.url(), robotsTime);
         }
-        return crawlEntry;
     }
 
     @Override
     public Iterator<Request> iterator() throws IOException {
-        final Iterator<Map.Entry<Integer, Index>> depthIterator = this.depthStacks.entrySet().iterator();
+        final Iterator<Map.Entry<Integer, Index>> depthIterator = stacks().entrySet().iterator();
         @SuppressWarnings("unchecked")
         final Iterator<Row.Entry>[] rowIterator = (Iterator<Row.Entry>[]) Array.newInstance(Iterator.class, 1);
         rowIterator[0] = null;
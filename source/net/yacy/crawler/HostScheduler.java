@@ -0,0 +1,194 @@
+/**
+ *  HostScheduler
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *  
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.crawler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A priority structure of host hashes ordered by the time when the host may be accessed next.
+ * The hosts are distributed over stripes by their hash; each stripe is a sorted set with its own lock,
+ * so schedule operations on different hosts do not block each other. poll() looks at the first
+ * element of every stripe and takes the earliest one, which costs O(stripes + log n).
+ */
+public class HostScheduler {
+
+    private static final int stripeCount = 16;
+
+    private final Stripe[] stripes;
+
+    public HostScheduler() {
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) this.stripes[i] = new Stripe();
+    }
+
+    private static final class Slot implements Comparable<Slot> {
+        private final String hosthash;
+        private final long readyTime;
+        private Slot(final String hosthash, final long readyTime) {
+            this.hosthash = hosthash;
+            this.readyTime = readyTime;
+        }
+        @Override
+        public int compareTo(final Slot o) {
+            if (this.readyTime < o.readyTime) return -1;
+            if (this.readyTime > o.readyTime) return 1;
+            return this.hosthash.compareTo(o.hosthash);
+        }
+    }
+
+    private static final class Stripe {
+        private final TreeSet<Slot> order = new TreeSet<Slot>();
+        private final Map<String, Slot> slots = new HashMap<String, Slot>();
+    }
+
+    private Stripe stripe(final String hosthash) {
+        return this.stripes[(hosthash.hashCode() & Integer.MAX_VALUE) % stripeCount];
+    }
+
+    /**
+     * set the ready time of a host; the host is added if it is not scheduled
+     * @param hosthash
+     * @param readyTime the time in milliseconds when the host may be accessed
+     */
+    public void schedule(final String hosthash, final long readyTime) {
+        final Stripe stripe = stripe(hosthash);
+        synchronized (stripe) {
+            final Slot old = stripe.slots.get(hosthash);
+            if (old != null) {
+                if (old.readyTime == readyTime) return;
+                stripe.order.remove(old);
+            }
+            final Slot slot = new Slot(hosthash, readyTime);
+            stripe.slots.put(hosthash, slot);
+            stripe.order.add(slot);
+        }
+    }
+
+    /**
+     * add a host if it is not scheduled yet
+     * @param hosthash
+     * @param readyTime the time in milliseconds when the host may be accessed
+     * @return true if the host was added, false if it was already scheduled
+     */
+    public boolean offer(final String hosthash, final long readyTime) {
+        final Stripe stripe = stripe(hosthash);
+        synchronized (stripe) {
+            if (stripe.slots.containsKey(hosthash)) return false;
+            final Slot slot = new Slot(hosthash, readyTime);
+            stripe.slots.put(hosthash, slot);
+            stripe.order.add(slot);
+            return true;
+        }
+    }
+
+    /**
+     * change the ready time of a host only if it is scheduled
+     * @param hosthash
+     * @param readyTime the time in milliseconds when the host may be accessed
+     * @return true if the host was scheduled
+     */
+    public boolean reschedule(final String hosthash, final long readyTime) {
+        final Stripe stripe = stripe(hosthash);
+        synchronized (stripe) {
+            final Slot old = stripe.slots.get(hosthash);
+            if (old == null) return false;
+            if (old.readyTime == readyTime) return true;
+            stripe.order.remove(old);
+            final Slot slot = new Slot(hosthash, readyTime);
+            stripe.slots.put(hosthash, slot);
+            stripe.order.add(slot);
+            return true;
+        }
+    }
+
+    /**
+     * remove the host with the earliest ready time
+     * @return the host hash or null if no host is scheduled
+     */
+    public String poll() {
+        while (true) {
+            Stripe best = null;
+            Slot bestSlot = null;
+            for (final Stripe stripe: this.stripes) {
+                synchronized (stripe) {
+                    if (stripe.order.isEmpty()) continue;
+                    final Slot first = stripe.order.first();
+                    if (bestSlot == null || first.compareTo(bestSlot) < 0) {
+                        best = stripe;
+                        bestSlot = first;
+                    }
+                }
+            }
+            if (best == null) return null;
+            synchronized (best) {
+                // the stripe may have been changed concurrently; then we look again
+                if (best.order.isEmpty() || best.order.first() != bestSlot) continue;
+                best.order.pollFirst();
+                best.slots.remove(bestSlot.hosthash);
+                return bestSlot.hosthash;
+            }
+        }
+    }
+
+    /**
+     * get the ready time of a host
+     * @param hosthash
+     * @return the ready time or Long.MIN_VALUE if the host is not scheduled
+     */
+    public long readyTime(final String hosthash) {
+        final Stripe stripe = stripe(hosthash);
+        synchronized (stripe) {
+            final Slot slot = stripe.slots.get(hosthash);
+            return slot == null ? Long.MIN_VALUE : slot.readyTime;
+        }
+    }
+
+    public boolean remove(final String hosthash) {
+        final Stripe stripe = stripe(hosthash);
+        synchronized (stripe) {
+            final Slot slot = stripe.slots.remove(hosthash);
+            if (slot == null) return false;
+            stripe.order.remove(slot);
+            return true;
+        }
+    }
+
+    public int size() {
+        int c = 0;
+        for (final Stripe stripe: this.stripes) {
+            synchronized (stripe) {
+                c += stripe.slots.size();
+            }
+        }
+        return c;
+    }
+
+    public void clear() {
+        for (final Stripe stripe: this.stripes) {
+            synchronized (stripe) {
+                stripe.order.clear();
+                stripe.slots.clear();
+            }
+        }
+    }
+}
@@ -25,20 +25,41 @@ package net.yacy.crawler;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.federate.solr.connector.SolrConnector;
+import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.cora.protocol.http.HTTPClient;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.crawler.data.Latency;
 import net.yacy.crawler.data.NoticedURL;
 import net.yacy.crawler.retrieval.Request;
+import net.yacy.crawler.robots.RobotsTxtEntry;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 import net.yacy.kelondro.workflow.AbstractBusyThread;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.search.schema.CollectionSchema;
+import org.apache.http.HttpResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
 
 /**
  * Selects documents by a query from the local index
@@ -46,19 +67,27 @@ import org.apache.solr.common.SolrDocumentList;
  * This is intended to keep the index up-to-date
  * Currently the doucments are selected by expired fresh_date_dt field
  * an added to the crawler in smaller chunks (see chunksize) as long as no other crawl is runnin.
+ * In the revalidate mode the urls are first checked with conditional HEAD requests
+ * and only documents which were modified since they were loaded are added to the crawler.
  */
 public class RecrawlBusyThread extends AbstractBusyThread {
 
     public final static String THREAD_NAME = "recrawlindex";
 
+    private final static int REVALIDATE_THREADS = 8; // number of hosts which are revalidated concurrently
+    private final static int REVALIDATE_MAX_WAIT = 5000; // if the access delay of a host is longer, the remaining urls of the host are left to the crawler
+
     private String currentQuery = CollectionSchema.fresh_date_dt.getSolrFieldName()+":[* TO NOW/DAY-1DAY]"; // current query
     private boolean includefailed = false; // flag if docs with httpstatus_i <> 200 shall be recrawled
     private int chunkstart = 0;
     private final int chunksize;
     final Switchboard sb;
-    private final Set<DigestURL> urlstack; // buffer of urls to recrawl
+    private final Map<DigestURL, Date> urlstack; // buffer of urls to recrawl with the date of the last modification or loading
     public long urlsfound = 0;
     private String solrSortBy;
+    private boolean revalidate; // flag if urls are checked with conditional requests before they are recrawled
+    private final AtomicLong revalidated = new AtomicLong(0); // number of conditional requests
+    private final AtomicLong unchanged = new AtomicLong(0); // number of documents which were not modified
 
     public RecrawlBusyThread(Switchboard xsb) {
         super(3000, 1000); // set lower limits of cycle delay
@@ -67,11 +96,12 @@ public class RecrawlBusyThread extends AbstractBusyThread {
         this.setPriority(Thread.MIN_PRIORITY);
 
         this.sb = xsb;
-        urlstack = new HashSet<DigestURL>();
+        urlstack = new LinkedHashMap<DigestURL, Date>();
         // workaround to prevent solr exception on existing index (not fully reindexed) since intro of schema with docvalues
         // org.apache.solr.core.SolrCore java.lang.IllegalStateException: unexpected docvalues type NONE for field 'load_date_dt' (expected=NUMERIC). Use UninvertingReader or index with docvalues.
         solrSortBy = null; // CollectionSchema.load_date_dt.getSolrFieldName() + " asc";
         this.chunksize = sb.getConfigInt(SwitchboardConstants.CRAWLER_THREADS_ACTIVE_MAX, 200);
+        this.revalidate = sb.getConfigBool(SwitchboardConstants.CRAWLER_RECRAWL_REVALIDATE, false);
     }
 
     /**
@@ -104,6 +134,33 @@ public class RecrawlBusyThread extends AbstractBusyThread {
         return this.includefailed;
     }
 
+    /**
+     * Flag to check the urls with conditional requests (If-Modified-Since) before they are recrawled.
+     * Documents which were not modified are not added to the crawler, only their fresh date is updated.
+     * @param revalidate
+     */
+    public void setRevalidate(boolean revalidate) {
+        this.revalidate = revalidate;
+    }
+
+    public boolean getRevalidate() {
+        return this.revalidate;
+    }
+
+    /**
+     * @return number of conditional requests done in revalidate mode
+     */
+    public long getRevalidated() {
+        return this.revalidated.get();
+    }
+
+    /**
+     * @return number of documents which were found unchanged in revalidate mode
+     */
+    public long getUnchanged() {
+        return this.unchanged.get();
+    }
+
     /**
      * feed urls to the local crawler
      * (Switchboard.addToCrawler() is not used here, as there existing urls are always skiped)
@@ -113,11 +170,14 @@ public class RecrawlBusyThread extends AbstractBusyThread {
     private boolean feedToCrawler() {
 
         int added = 0;
+        int notmodified = 0;
 
         if (!this.urlstack.isEmpty()) {
             final CrawlProfile profile = sb.crawler.defaultTextSnippetGlobalProfile;
 
-            for (DigestURL url : this.urlstack) {
+            if (this.revalidate) notmodified = revalidateStack(profile.getAgent());
+
+            for (DigestURL url : this.urlstack.keySet()) {
                 final Request request = sb.loader.request(url, true, true);
                 String acceptedError = sb.crawlStacker.checkAcceptanceChangeable(url, profile, 0);
                 if (!includefailed && acceptedError == null) { // skip check if failed docs to be included
@@ -138,7 +198,121 @@ public class RecrawlBusyThread extends AbstractBusyThread {
             }
             this.urlstack.clear();
         }
-        return (added > 0);
+        return (added > 0 || notmodified > 0);
+    }
+
+    /**
+     * Check the urls in the urlstack with conditional HEAD requests and remove the urls of
+     * documents which were not modified since they were loaded. The fresh date of these
+     * documents is updated in the index, so they are not selected again by the next query.
+     * The urls are grouped by host; the urls of one host are checked one after another over a
+     * keep-alive connection and with the crawl delay of the host, different hosts are checked concurrently.
+     * Urls without a known date and urls which could not be checked stay in the urlstack.
+     *
+     * @param agent the client identification for the requests
+     * @return number of urls removed from the urlstack
+     */
+    private int revalidateStack(final ClientIdentification.Agent agent) {
+        final Map<String, List<Map.Entry<DigestURL, Date>>> hosts = new HashMap<String, List<Map.Entry<DigestURL, Date>>>();
+        for (Map.Entry<DigestURL, Date> entry : this.urlstack.entrySet()) {
+            final DigestURL url = entry.getKey();
+            if (entry.getValue() == null || !(url.isHTTP() || url.isHTTPS())) continue;
+            List<Map.Entry<DigestURL, Date>> batch = hosts.get(url.hosthash());
+            if (batch == null) {
+                batch = new ArrayList<Map.Entry<DigestURL, Date>>();
+                hosts.put(url.hosthash(), batch);
+            }
+            batch.add(entry);
+        }
+        if (hosts.isEmpty()) return 0;
+
+        final Collection<DigestURL> notmodified = new ConcurrentLinkedQueue<DigestURL>();
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(hosts.size());
+        for (final List<Map.Entry<DigestURL, Date>> batch : hosts.values()) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    revalidateHost(batch, agent, notmodified);
+                    return null;
+                }
+            });
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(hosts.size(), REVALIDATE_THREADS), new NamePrefixThreadFactory(THREAD_NAME + ".revalidate"));
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+        } finally {
+            executor.shutdownNow();
+        }
+        if (notmodified.isEmpty()) return 0;
+
+        // update the fresh date of the unchanged documents with a partial update, computed with the same formula as in CollectionConfiguration
+        final long now = System.currentTimeMillis();
+        final List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>(notmodified.size());
+        for (DigestURL url : notmodified) {
+            final Date modDate = this.urlstack.remove(url);
+            final SolrInputDocument doc = new SolrInputDocument();
+            doc.setField(CollectionSchema.id.getSolrFieldName(), ASCII.String(url.hash()));
+            doc.setField(CollectionSchema.load_date_dt.getSolrFieldName(), new Date(now));
+            doc.setField(CollectionSchema.fresh_date_dt.getSolrFieldName(), new Date(now + Math.max(0, now - modDate.getTime()) / 2));
+            docs.add(doc);
+        }
+        try {
+            sb.index.fulltext().getDefaultConnector().update(docs);
+        } catch (Throwable e) {
+            ConcurrentLog.warn(THREAD_NAME, "cannot update fresh date of unchanged documents: " + e.getMessage());
+        }
+        this.unchanged.addAndGet(docs.size());
+        return docs.size();
+    }
+
+    /**
+     * Check the urls of one host with conditional HEAD requests
+     * @param batch the urls of the host with the date of their last modification or loading
+     * @param agent the client identification for the requests
+     * @param notmodified collection where the urls of not modified documents are added
+     */
+    private void revalidateHost(final List<Map.Entry<DigestURL, Date>> batch, final ClientIdentification.Agent agent, final Collection<DigestURL> notmodified) {
+        final HTTPClient client = new HTTPClient(agent);
+        client.setKeepAlive(true);
+        for (Map.Entry<DigestURL, Date> entry : batch) {
+            if (this.shutdownInProgress()) return;
+            final DigestURL url = entry.getKey();
+            final Date modDate = entry.getValue();
+
+            // respect the robots.txt and the crawl delay of the host
+            final RobotsTxtEntry robotsEntry = sb.robots.getEntry(url, agent);
+            if (robotsEntry != null && robotsEntry.isDisallowed(url)) continue;
+            final int waiting = Latency.waitingRemaining(url, sb.robots, agent);
+            if (waiting > REVALIDATE_MAX_WAIT) return;
+            if (waiting > 0) try {
+                Thread.sleep(waiting);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            final RequestHeader requestHeader = new RequestHeader();
+            requestHeader.put(HeaderFramework.USER_AGENT, agent.userAgent);
+            requestHeader.put(RequestHeader.IF_MODIFIED_SINCE, HeaderFramework.formatRFC1123(modDate));
+            client.setHeader(requestHeader.entrySet());
+            Latency.updateBeforeLoad(url);
+            final long start = System.currentTimeMillis();
+            try {
+                final HttpResponse response = client.HEADResponse(url, false);
+                Latency.updateAfterLoad(url, System.currentTimeMillis() - start);
+                this.revalidated.incrementAndGet();
+                final int code = response.getStatusLine().getStatusCode();
+                boolean unmodified = code == 304;
+                if (code == 200) {
+                    // servers which ignore If-Modified-Since may still send a Last-Modified date
+                    final ResponseHeader responseHeader = new ResponseHeader(code, response.getAllHeaders());
+                    unmodified = responseHeader.containsKey(HeaderFramework.LAST_MODIFIED) && !responseHeader.lastModified().after(modDate);
+                }
+                if (unmodified) notmodified.add(url);
+            } catch (IOException e) {
+                ConcurrentLog.fine(THREAD_NAME, "revalidate: cannot check " + url.toNormalform(true) + ": " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -174,7 +348,8 @@ public class RecrawlBusyThread extends AbstractBusyThread {
             try {
                 // query all or only httpstatus=200 depending on includefailed flag
                 docList = solrConnector.getDocumentListByQuery(this.includefailed ? currentQuery : currentQuery + " AND (" + CollectionSchema.httpstatus_i.name() + ":200)",
-                        this.solrSortBy, this.chunkstart, this.chunksize, CollectionSchema.sku.getSolrFieldName());
+                        this.solrSortBy, this.chunkstart, this.chunksize, CollectionSchema.id.getSolrFieldName(), CollectionSchema.sku.getSolrFieldName(),
+                        CollectionSchema.last_modified.getSolrFieldName(), CollectionSchema.load_date_dt.getSolrFieldName());
                 this.urlsfound = docList.getNumFound();
             } catch (Throwable e) {
                 this.urlsfound = 0;
@@ -186,7 +361,10 @@ public class RecrawlBusyThread extends AbstractBusyThread {
         if (docList != null) {
             for (SolrDocument doc : docList) {
                 try {
-                    this.urlstack.add(new DigestURL((String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName())));
+                    // the date for a conditional request is the last modification date or, if not given, the load date
+                    Date modDate = (Date) doc.getFieldValue(CollectionSchema.last_modified.getSolrFieldName());
+                    if (modDate == null) modDate = (Date) doc.getFieldValue(CollectionSchema.load_date_dt.getSolrFieldName());
+                    this.urlstack.put(new DigestURL((String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName())), modDate);
                 } catch (MalformedURLException ex) {
                     try { // if index entry hasn't a valid url (useless), delete it
                         solrConnector.deleteById((String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName()));
@@ -0,0 +1,401 @@
+/**
+ *  SmallHostsQueue
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.crawler.data.Latency;
+import net.yacy.crawler.retrieval.Request;
+import net.yacy.crawler.robots.RobotsTxt;
+import net.yacy.kelondro.index.Index;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.table.Table;
+import net.yacy.kelondro.util.kelondroException;
+
+/**
+ * A single stack file which holds the crawl requests of all hosts which have only a few urls to crawl.
+ * Wide crawls produce a long tail of hosts with one or very few urls; a HostQueue for each of them
+ * would create a directory and a stack file per host. The HostBalancer keeps those hosts in this
+ * shared stack and moves a host to its own HostQueue if it gets more urls.
+ * The requests are stored in one table; the assignment of hosts to urls is held in memory
+ * and is computed from the table when it is opened.
+ */
+public class SmallHostsQueue {
+
+    private final static ConcurrentLog log = new ConcurrentLog("SmallHostsQueue");
+
+    public  static final String fileName        = "smallhosts" + HostQueue.indexSuffix;
+    private static final int    EcoFSBufferSize = 1000;
+
+    private final File file;
+    private final boolean exceed134217727;
+    private final Map<String, Host> hosts; // a mapping from host hashes to the urls of the host
+    private Index stack;
+
+    private static final class Host {
+        private final String name;
+        private final int port;
+        private final List<byte[]> urlhashes;
+        private Host(final String name, final int port) {
+            this.name = name;
+            this.port = port;
+            this.urlhashes = new ArrayList<byte[]>(2);
+        }
+    }
+
+    public SmallHostsQueue(final File hostsPath, final boolean exceed134217727) {
+        this.file = new File(hostsPath, fileName);
+        this.exceed134217727 = exceed134217727;
+        this.hosts = new HashMap<String, Host>();
+        this.stack = openStack();
+        int c = 0;
+        if (this.stack != null) try {
+            final Iterator<Row.Entry> i = this.stack.rows();
+            while (i.hasNext()) {
+                final Row.Entry row = i.next();
+                if (row == null) continue;
+                try {
+                    final Request request = new Request(row);
+                    host(request).urlhashes.add(request.url().hash());
+                    c++;
+                } catch (final IOException e) {
+                    log.warn("cannot read request in " + this.file.getName() + ": " + e.getMessage());
+                }
+            }
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+        if (log.isInfo()) log.info("opened " + this.file.getAbsolutePath() + " with " + c + " urls from " + this.hosts.size() + " hosts.");
+    }
+
+    private Index openStack() {
+        try {
+            return new Table(this.file, Request.rowdef, EcoFSBufferSize, 0, false, this.exceed134217727, true);
+        } catch (final SpaceExceededException e) {
+            try {
+                return new Table(this.file, Request.rowdef, 0, 0, false, this.exceed134217727, true);
+            } catch (final SpaceExceededException e1) {
+                ConcurrentLog.logException(e1);
+            }
+        } catch (final kelondroException e) {
+            ConcurrentLog.logException(e);
+        }
+        return null;
+    }
+
+    private Host host(final Request request) {
+        final String hosthash = request.url().hosthash();
+        Host host = this.hosts.get(hosthash);
+        if (host == null) {
+            final String name = request.url().getHost();
+            host = new Host(name == null ? "localhost" : name, request.url().getPort());
+            this.hosts.put(hosthash, host);
+        }
+        return host;
+    }
+
+    private void forget(final String hosthash, final byte[] urlhash) {
+        final Host host = this.hosts.get(hosthash);
+        if (host == null) return;
+        final Iterator<byte[]> i = host.urlhashes.iterator();
+        while (i.hasNext()) {
+            if (Arrays.equals(i.next(), urlhash)) {
+                i.remove();
+                break;
+            }
+        }
+        if (host.urlhashes.isEmpty()) this.hosts.remove(hosthash);
+    }
+
+    public synchronized int size() {
+        return this.stack == null ? 0 : this.stack.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.stack == null || this.stack.isEmpty();
+    }
+
+    /**
+     * @param hosthash
+     * @return the number of urls which are stored for the given host
+     */
+    public synchronized int size(final String hosthash) {
+        final Host host = this.hosts.get(hosthash);
+        return host == null ? 0 : host.urlhashes.size();
+    }
+
+    /**
+     * @return the hashes of all hosts which have urls in this queue
+     */
+    public synchronized List<String> hosthashes() {
+        return new ArrayList<String>(this.hosts.keySet());
+    }
+
+    /**
+     * @param hosthash
+     * @return the host name of a host in this queue or null if the host is not in this queue
+     */
+    public synchronized String getHost(final String hosthash) {
+        final Host host = this.hosts.get(hosthash);
+        return host == null ? null : host.name;
+    }
+
+    /**
+     * @param hosthash
+     * @return the port of a host in this queue or -1 if the host is not in this queue
+     */
+    public synchronized int getPort(final String hosthash) {
+        final Host host = this.hosts.get(hosthash);
+        return host == null ? -1 : host.port;
+    }
+
+    public synchronized boolean has(final byte[] urlhash) {
+        if (this.stack == null) return false;
+        final Host host = this.hosts.get(ASCII.String(urlhash, 6, 6));
+        if (host == null) return false;
+        return this.stack.has(urlhash);
+    }
+
+    public synchronized Request get(final byte[] urlhash) throws IOException {
+        if (this.stack == null) return null;
+        final Row.Entry entry = this.stack.get(urlhash, false);
+        if (entry == null) return null;
+        return new Request(entry);
+    }
+
+    /**
+     * push a request to the queue
+     * @param entry
+     * @param profile
+     * @return null if everything is ok or a string with an error message if the url is already stored
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public synchronized String push(final Request entry, final CrawlProfile profile) throws IOException, SpaceExceededException {
+        if (this.stack == null) throw new IOException("stack " + this.file.getName() + " is not available");
+        final byte[] hash = entry.url().hash();
+        if (this.stack.has(hash)) return "double occurrence in urlFileIndex";
+
+        // increase dom counter
+        if (profile != null) {
+            int maxPages = profile.domMaxPages();
+            if (maxPages != Integer.MAX_VALUE && maxPages > 0) {
+                profile.domInc(entry.url().getHost());
+            }
+        }
+
+        this.stack.put(entry.toRow());
+        host(entry).urlhashes.add(hash);
+        return null;
+    }
+
+    /**
+     * remove all requests of a host; this is used to move the host to its own HostQueue
+     * @param hosthash
+     * @return the requests of the host
+     * @throws IOException
+     */
+    public synchronized List<Request> removeHost(final String hosthash) throws IOException {
+        final Host host = this.hosts.remove(hosthash);
+        final List<Request> requests = new ArrayList<Request>();
+        if (host == null || this.stack == null) return requests;
+        for (final byte[] urlhash: host.urlhashes) {
+            final Row.Entry entry = this.stack.remove(urlhash);
+            if (entry != null) requests.add(new Request(entry));
+        }
+        return requests;
+    }
+
+    /**
+     * get the next request of the given host; the requests of a host are returned in crawl depth order.
+     * This applies the same checks and forced delays as HostQueue.pop
+     * @param hosthash
+     * @param delay true if the requester demands forced delays using explicit thread sleep
+     * @param cs
+     * @param robots
+     * @return the next request or null if the host has no more requests
+     * @throws IOException
+     */
+    public Request pop(final String hosthash, final boolean delay, final CrawlSwitchboard cs, final RobotsTxt robots) throws IOException {
+        long sleeptime = 0;
+        Request crawlEntry = null;
+        CrawlProfile profileEntry = null;
+        synchronized (this) {
+            mainloop: while (true) {
+                final Host host = this.hosts.get(hosthash);
+                if (host == null || this.stack == null) return null;
+                crawlEntry = null;
+                for (final byte[] urlhash: host.urlhashes) {
+                    final Row.Entry row = this.stack.get(urlhash, false);
+                    if (row == null) continue;
+                    final Request request = new Request(row);
+                    if (crawlEntry == null || request.depth() < crawlEntry.depth()) crawlEntry = request;
+                }
+                if (crawlEntry == null) {
+                    // the host entry does not match the stack
+                    this.hosts.remove(hosthash);
+                    return null;
+                }
+                final byte[] urlhash = crawlEntry.url().hash();
+                this.stack.remove(urlhash);
+                forget(hosthash, urlhash);
+                profileEntry = HostQueue.profile(crawlEntry, cs);
+                if (profileEntry == null) continue mainloop;
+
+                // depending on the caching policy we need sleep time to avoid DoS-like situations
+                sleeptime = Latency.getDomainSleepTime(robots, profileEntry, crawlEntry.url());
+                break;
+            }
+        }
+        HostQueue.selected(this, crawlEntry, profileEntry, sleeptime, delay, robots);
+        return crawlEntry;
+    }
+
+    /**
+     * remove urls from the queue
+     * @param urlHashes, a list of hashes that shall be removed
+     * @return number of entries that had been removed
+     * @throws IOException
+     */
+    public synchronized int remove(final HandleSet urlHashes) throws IOException {
+        if (this.stack == null) return 0;
+        int removedCounter = 0;
+        for (final byte[] urlhash: urlHashes) {
+            if (this.stack.remove(urlhash) != null) {
+                forget(ASCII.String(urlhash, 6, 6), urlhash);
+                removedCounter++;
+            }
+        }
+        return removedCounter;
+    }
+
+    /**
+     * delete all urls which are stored for given host hashes
+     * @param hosthashes
+     * @return number of deleted urls
+     */
+    public synchronized int removeAllByHostHashes(final Set<String> hosthashes) {
+        int c = 0;
+        for (final String hosthash: hosthashes) {
+            try {
+                c += removeHost(hosthash).size();
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        return c;
+    }
+
+    public synchronized int removeAllByProfileHandle(final String profileHandle, final long timeout) throws IOException {
+        if (this.stack == null) return 0;
+        final long terminate = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : (timeout > 0) ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        final List<byte[]> urlHashes = new ArrayList<byte[]>();
+        final Iterator<Row.Entry> i = this.stack.rows();
+        while (i.hasNext() && (System.currentTimeMillis() < terminate)) {
+            final Row.Entry row = i.next();
+            if (row == null) continue;
+            final Request request = new Request(row);
+            if (request.profileHandle().equals(profileHandle)) urlHashes.add(request.url().hash());
+        }
+        for (final byte[] urlhash: urlHashes) {
+            this.stack.remove(urlhash);
+            forget(ASCII.String(urlhash, 6, 6), urlhash);
+        }
+        return urlHashes.size();
+    }
+
+    /**
+     * get the host names and stack sizes of all hosts in this queue
+     * @param robots
+     * @return a map of host:port strings to an integer array: {the size of the domain stack, guessed delta waiting time}
+     */
+    public synchronized Map<String, Integer[]> getDomainStackHosts(final RobotsTxt robots) {
+        final Map<String, Integer[]> map = new HashMap<String, Integer[]>();
+        for (final Map.Entry<String, Host> entry: this.hosts.entrySet()) {
+            final Host host = entry.getValue();
+            final int delta = Latency.waitingRemainingGuessed(host.name, host.port, entry.getKey(), robots, ClientIdentification.yacyInternetCrawlerAgent);
+            map.put(host.name + ":" + host.port, new Integer[]{host.urlhashes.size(), delta});
+        }
+        return map;
+    }
+
+    /**
+     * get the requests of a host
+     * @param hosthash
+     * @param maxcount
+     * @return a list of crawl loader requests
+     */
+    public synchronized List<Request> getDomainStackReferences(final String hosthash, final int maxcount) {
+        final List<Request> cel = new ArrayList<Request>();
+        final Host host = this.hosts.get(hosthash);
+        if (host == null || this.stack == null) return cel;
+        for (final byte[] urlhash: host.urlhashes) {
+            if (cel.size() >= maxcount) break;
+            try {
+                final Row.Entry row = this.stack.get(urlhash, false);
+                if (row != null) cel.add(new Request(row));
+            } catch (final IOException e) {}
+        }
+        return cel;
+    }
+
+    public synchronized Iterator<Request> iterator() throws IOException {
+        final List<Request> requests = new ArrayList<Request>();
+        if (this.stack == null) return requests.iterator();
+        final Iterator<Row.Entry> i = this.stack.rows();
+        while (i.hasNext()) {
+            final Row.Entry row = i.next();
+            if (row != null) requests.add(new Request(row));
+        }
+        return requests.iterator();
+    }
+
+    public synchronized void clear() {
+        this.hosts.clear();
+        if (this.stack != null) try {
+            this.stack.clear();
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    public synchronized void close() {
+        this.hosts.clear();
+        if (this.stack != null) {
+            this.stack.close();
+            this.stack = null;
+        }
+    }
+}
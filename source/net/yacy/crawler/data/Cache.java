@@ -34,8 +34,11 @@
 
 package net.yacy.crawler.data;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Map;
@@ -234,7 +237,36 @@ public final class Cache {
         } catch (final IOException e) {
             throw new IOException("Cache.store: cannot write to fileDB (2): " + e.getMessage());
         }
+        storeHeader(url, responseHeader);
+    }
+
+    /**
+     * store the content of a file, i.e. a spooled document; the file is read as a stream and is not loaded into memory
+     * @param url
+     * @param responseHeader
+     * @param file
+     * @throws IOException
+     */
+    public static void store(final DigestURL url, final ResponseHeader responseHeader, final File file) throws IOException {
+        if (maxCacheSize == 0) return;
+        if (responseHeader == null) throw new IOException("Cache.store of url " + url.toNormalform(false) + " not possible: responseHeader == null");
+        if (responseHeader.getXRobotsTag().contains("noarchive")) return; // don't cache, see http://noarchive.net/
+        if (file == null) throw new IOException("Cache.store of url " + url.toNormalform(false) + " not possible: file == null");
+        log.info("storing content of url " + url.toNormalform(false) + ", " + file.length() + " bytes");
+
+        // store the file
+        final InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            fileDB.insert(url.hash(), is);
+        } catch (final IOException e) {
+            throw new IOException("Cache.store: cannot write to fileDB (2): " + e.getMessage());
+        } finally {
+            is.close();
+        }
+        storeHeader(url, responseHeader);
+    }
 
+    private static void storeHeader(final DigestURL url, final ResponseHeader responseHeader) throws IOException {
         // store the response header into the header database
         final HashMap<String, String> hm = new HashMap<String, String>();
         hm.putAll(responseHeader);
@@ -57,7 +57,9 @@ import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.ConnectionInfo;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.HarvestProcess;
+import net.yacy.crawler.HostQueue;
 import net.yacy.crawler.data.NoticedURL.StackType;
+import net.yacy.crawler.retrieval.AsyncHTTPLoader;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.crawler.robots.RobotsTxtEntry;
@@ -79,6 +81,7 @@ public class CrawlQueues {
     private final Switchboard sb;
     private final Loader[] worker;
     private final ArrayBlockingQueue<Request> workerQueue;
+    private final AsyncHTTPLoader asyncLoader; // null if all urls are loaded by the worker threads
     private ArrayList<String> remoteCrawlProviderHashes;
 
     public  NoticedURL noticeURL;
@@ -91,10 +94,22 @@ public class CrawlQueues {
         this.worker = new Loader[maxWorkers];
         this.workerQueue = new ArrayBlockingQueue<Request>(200);
         this.remoteCrawlProviderHashes = null;
+        AsyncHTTPLoader asyncLoader = null;
+        if (sb.getConfigBool(SwitchboardConstants.CRAWLER_ASYNC, false)) try {
+            asyncLoader = new AsyncHTTPLoader(sb, log,
+                    sb.getConfigInt(SwitchboardConstants.CRAWLER_ASYNC_MAXINFLIGHT, 1000),
+                    sb.getConfigLong(SwitchboardConstants.CRAWLER_ASYNC_MAXBUFFERED, 256L * 1024L * 1024L),
+                    sb.getConfigInt(SwitchboardConstants.CRAWLER_ASYNC_HANDOFFTHREADS, 20));
+            log.config("Started asynchronous http loader");
+        } catch (final IOException e) {
+            log.warn("cannot start asynchronous http loader, using loader threads only: " + e.getMessage());
+        }
+        this.asyncLoader = asyncLoader;
 
         // start crawling management
         log.config("Starting Crawling Management");
         log.config("Opening noticeURL..");
+        HostQueue.stackFilePool.setMaxOpen(sb.getConfigInt(SwitchboardConstants.CRAWLER_MAX_OPEN_STACKS, 1000));
         this.noticeURL = new NoticedURL(queuePath, sb.getConfigInt("crawler.onDemandLimit", 1000), sb.exceed134217727);
         log.config("Opening errorURL..");
         this.errorURL = new ErrorCache(sb.index.fulltext());
@@ -142,6 +157,7 @@ public class CrawlQueues {
                 }
             }
         }
+        if (this.asyncLoader != null) this.asyncLoader.close();
         this.noticeURL.close();
         if (this.delegatedURL != null) this.delegatedURL.clear();
     }
@@ -237,6 +253,7 @@ public class CrawlQueues {
     public Map<DigestURL, Request> activeWorkerEntries() {
         synchronized (this.worker) {
             Map<DigestURL, Request> map = new HashMap<DigestURL, Request>();
+            if (this.asyncLoader != null) map.putAll(this.asyncLoader.activeEntries());
             for (final Loader w: this.worker) {
                 if (w != null) {
                     Request r = w.loading();
@@ -365,7 +382,13 @@ public class CrawlQueues {
                 if (urlEntry == null || urlEntry.url() == null) {
                     CrawlQueues.log.info(stats + ": urlEntry = null");
                 } else {
-                    if (!activeWorkerEntries().containsKey(urlEntry.url())) {
+                    if (this.asyncLoader != null && this.asyncLoader.accepts(url)) {
+                        if (!this.asyncLoader.isLoading(url)) try {
+                            this.asyncLoader.load(urlEntry, profile);
+                        } catch (InterruptedException e) {
+                            ConcurrentLog.logException(e);
+                        }
+                    } else if (!activeWorkerEntries().containsKey(urlEntry.url())) {
                         try {
                             ensureLoaderRunning();
                             this.workerQueue.put(urlEntry);
@@ -415,8 +438,8 @@ public class CrawlQueues {
         }
 
         // check again
-        if (this.workerQueue.remainingCapacity() == 0) {
-            return "too many workers active: " + this.workerQueue.size();
+        if (loaderFull()) {
+            return "too many workers active: " + this.workerQueue.size() + (this.asyncLoader == null ? "" : ", in flight: " + this.asyncLoader.size());
         }
 
         final String cautionCause = this.sb.onlineCaution();
@@ -440,7 +463,7 @@ public class CrawlQueues {
         }
 
         // check again
-        if (this.workerQueue.remainingCapacity() == 0) {
+        if (loaderFull()) {
             if (CrawlQueues.log.isFine()) {
                 CrawlQueues.log.fine("remoteCrawlLoaderJob: too many processes in loader queue, dismissed (" + "workerQueue=" + this.workerQueue.size() + "), httpClients = " + ConnectionInfo.getCount());
             }
@@ -685,6 +708,14 @@ public class CrawlQueues {
         }
     }
 
+    /**
+     * @return true if no more urls can be submitted for loading
+     */
+    private boolean loaderFull() {
+        // with the asynchronous loader the worker threads are only used for local and non-http urls
+        return this.workerQueue.remainingCapacity() == 0 || (this.asyncLoader != null && this.asyncLoader.isFull());
+    }
+
     private void ensureLoaderRunning() {
         // check if there is at least one loader available
         for (int i = 0; i < this.worker.length; i++) {
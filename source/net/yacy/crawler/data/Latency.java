@@ -24,8 +24,10 @@
 package net.yacy.crawler.data;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -46,6 +48,29 @@ public class Latency {
     private static final int mapMaxSize = 1000;
     private static final ConcurrentHashMap<String, Host> map = new ConcurrentHashMap<String, Host>();
 
+    // listeners which are informed about each access to a host, i.e. to re-schedule the host in a crawl queue
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    public interface Listener {
+        /**
+         * called after the access time of a host was updated
+         * @param hosthash the hash of the host
+         */
+        public void accessed(final String hosthash);
+    }
+
+    public static void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void notifyListeners(final String hosthash) {
+        for (final Listener listener: listeners) listener.accessed(hosthash);
+    }
+
     /**
      * update the latency entry after a host was selected for queueing into the loader
      * @param url
@@ -80,6 +105,7 @@ public class Latency {
         } else {
             h.update();
         }
+        notifyListeners(hosthash);
     }
 
     /**
@@ -99,6 +125,7 @@ public class Latency {
         } else {
             h.update(time);
         }
+        notifyListeners(hosthash);
     }
 
     private static Host host(final DigestURL url) {
@@ -178,6 +205,22 @@ public class Latency {
 
         return Math.min(60000, waiting) - timeSinceLastAccess;
     }
+
+    /**
+     * guess the time when a host may be accessed next; this is the absolute form of waitingRemainingGuessed
+     * which can be used as sort key in a crawl scheduler
+     * @param hostname
+     * @param port
+     * @param hosthash
+     * @param robots
+     * @param agent
+     * @return the time in milliseconds since epoch; 0 if the host was never accessed before
+     */
+    public static long nextAccessGuessed(final String hostname, final int port, final String hosthash, final RobotsTxt robots, final ClientIdentification.Agent agent) {
+        final int remaining = waitingRemainingGuessed(hostname, port, hosthash, robots, agent);
+        if (remaining == Integer.MIN_VALUE) return 0;
+        return System.currentTimeMillis() + remaining;
+    }
     
     /**
      * calculates how long should be waited until the domain can be accessed again
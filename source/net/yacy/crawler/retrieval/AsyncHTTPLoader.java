@@ -0,0 +1,554 @@
+// AsyncHTTPLoader.java
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.retrieval;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.federate.solr.FailCategory;
+import net.yacy.cora.federate.yacy.CacheStrategy;
+import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.crawler.CrawlSwitchboard;
+import net.yacy.crawler.data.Cache;
+import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.crawler.data.Latency;
+import net.yacy.crawler.robots.RobotsTxtEntry;
+import net.yacy.kelondro.io.ByteCount;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+import net.yacy.kelondro.workflow.WorkflowJob;
+import net.yacy.repository.Blacklist.BlacklistType;
+import net.yacy.repository.LoaderDispatcher;
+import net.yacy.search.Switchboard;
+import net.yacy.search.SwitchboardConstants;
+import net.yacy.server.http.AlternativeDomainNames;
+
+/**
+ * A fetch engine for the crawler which loads http(s) resources with a non-blocking http client.
+ * In contrast to the loader threads of the CrawlQueues, a request does not occupy a thread while
+ * it waits for the remote server. A small pool of worker threads evaluates the responses; the steps
+ * which may block, the robots.txt check, the cache lookup and the hand-over of a loaded document to the
+ * cache and the indexer, are done by a separate pool of hand-off threads.
+ * Every request in flight has at most one step queued in these pools, so their queues are bounded by
+ * maxInFlight; if the hand-off threads fall behind, the requests keep their slots and load() blocks.
+ * The number of requests in flight is limited by maxInFlight and the sum of all response bodies
+ * which are buffered at the same time is limited by maxBuffered; responses which would exceed that
+ * limit are aborted and recorded as temporary network failure.
+ * Access delays which are still required by the LoaderDispatcher double-check are scheduled
+ * with a timer instead of a sleep.
+ */
+public final class AsyncHTTPLoader {
+
+    private final Switchboard sb;
+    private final ConcurrentLog log;
+    private final HTTPLoader httpLoader; // used to produce the same request headers as the threaded loader
+    private final HttpClient client;
+    private final ThreadPoolExecutor worker; // evaluates the responses
+    private final ThreadPoolExecutor handoff; // robots.txt, cache and indexer
+    private final Semaphore slots;
+    private final long maxBuffered;
+    private final AtomicLong buffered;
+    private final ConcurrentMap<DigestURL, Request> inFlight;
+    private final int socketTimeout;
+    private final int maxFileSize;
+
+    /**
+     * create and start an asynchronous loader
+     * @param sb the switchboard
+     * @param log the log for loading messages
+     * @param maxInFlight the maximum number of requests which are handled at the same time
+     * @param maxBuffered the maximum number of bytes of all response bodies which are loaded at the same time
+     * @param handoffThreads the number of threads for the robots.txt check, the cache lookup and the hand-over to the indexer
+     * @throws IOException if the http client cannot be started
+     */
+    public AsyncHTTPLoader(final Switchboard sb, final ConcurrentLog log, final int maxInFlight, final long maxBuffered, final int handoffThreads) throws IOException {
+        this.sb = sb;
+        this.log = log;
+        this.httpLoader = sb.loader.httpLoader(); // a second HTTPLoader would clear the spool path of the first one
+        this.slots = new Semaphore(maxInFlight);
+        this.maxBuffered = maxBuffered;
+        this.buffered = new AtomicLong(0);
+        this.inFlight = new ConcurrentHashMap<DigestURL, Request>();
+        this.socketTimeout = (int) sb.getConfigLong("crawler.clientTimeout", 30000);
+        this.maxFileSize = sb.getConfigInt("crawler.http.maxFileSize", HTTPLoader.DEFAULT_MAXFILESIZE);
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.worker = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, maxInFlight)), new NamePrefixThreadFactory("AsyncHTTPLoader.worker"));
+        this.worker.allowCoreThreadTimeOut(true);
+        final int handoffs = Math.max(1, handoffThreads);
+        this.handoff = new ThreadPoolExecutor(handoffs, handoffs, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, maxInFlight)), new NamePrefixThreadFactory("AsyncHTTPLoader.handoff"));
+        this.handoff.allowCoreThreadTimeOut(true);
+
+        this.client = new HttpClient(new SslContextFactory(true)); // the crawler accepts all certificates, like the HTTPClient does
+        final QueuedThreadPool executor = new QueuedThreadPool(Math.max(8, 2 * threads), 2);
+        executor.setName("AsyncHTTPLoader.client");
+        this.client.setExecutor(executor);
+        this.client.setFollowRedirects(false); // we want to handle redirection ourselves, so we don't index pages twice
+        this.client.setConnectTimeout(this.socketTimeout);
+        this.client.setIdleTimeout(this.socketTimeout);
+        this.client.setMaxConnectionsPerDestination(Math.max(1, sb.getConfigInt(SwitchboardConstants.CRAWLER_MAX_SAME_HOST_IN_QUEUE, 20)));
+        this.client.setMaxRequestsQueuedPerDestination(maxInFlight);
+        this.client.setUserAgentField(null); // the agent is set with the request header
+        try {
+            this.client.start();
+        } catch (final Exception e) {
+            throw new IOException("cannot start http client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * test if the given url can be loaded with this loader; local urls are left to the
+     * threaded loaders because they may need an authentication
+     * @param url
+     * @return true if the url is a remote http or https url
+     */
+    public boolean accepts(final DigestURL url) {
+        return (url.isHTTP() || url.isHTTPS()) && !url.isLocal();
+    }
+
+    /**
+     * @return true if the maximum number of requests is in flight
+     */
+    public boolean isFull() {
+        return this.slots.availablePermits() == 0;
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public int size() {
+        return this.inFlight.size();
+    }
+
+    /**
+     * @param url
+     * @return true if the url is in flight
+     */
+    public boolean isLoading(final DigestURL url) {
+        return this.inFlight.containsKey(url);
+    }
+
+    /**
+     * @return the requests in flight, keyed by the url which had been submitted
+     */
+    public Map<DigestURL, Request> activeEntries() {
+        return Collections.unmodifiableMap(this.inFlight);
+    }
+
+    /**
+     * submit a request. This blocks only if the maximum number of requests is in flight;
+     * the result is pushed to the indexer or recorded in the error cache.
+     * A request for an url which is already in flight is rejected.
+     * @param request the request
+     * @param profile the crawl profile of the request
+     * @return false if the url of the request is already in flight
+     * @throws InterruptedException
+     */
+    public boolean load(final Request request, final CrawlProfile profile) throws InterruptedException {
+        this.slots.acquire();
+        final DigestURL key = request.url();
+        if (this.inFlight.putIfAbsent(key, request) != null) {
+            this.slots.release();
+            return false;
+        }
+        request.setStatus("worker-initialized", WorkflowJob.STATUS_INITIATED);
+        try {
+            this.handoff.execute(new Runnable() {
+                @Override
+                public void run() {
+                    start(key, request, profile, HTTPLoader.DEFAULT_CRAWLING_RETRY_COUNT);
+                }
+            });
+        } catch (final RuntimeException e) {
+            finish(key, 0);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * check robots.txt, blacklist and cache and send the request if the resource must be loaded from the web
+     */
+    private void start(final DigestURL key, final Request request, final CrawlProfile profile, final int retryCount) {
+        try {
+            final DigestURL url = request.url();
+            final ClientIdentification.Agent agent = profile.getAgent();
+            if (retryCount < 0) {
+                this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "retry counter exceeded", -1);
+                fail(key, request, 0);
+                return;
+            }
+
+            // checking robots.txt
+            request.setStatus("worker-checkingrobots", WorkflowJob.STATUS_STARTED);
+            final RobotsTxtEntry robotsEntry = this.sb.robots.getEntry(url, agent);
+            if (robotsEntry != null && robotsEntry.isDisallowed(url)) {
+                this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.FINAL_ROBOTS_RULE, "denied by robots.txt", -1);
+                request.setStatus("worker-disallowed", WorkflowJob.STATUS_FINISHED);
+                finish(key, 0);
+                return;
+            }
+
+            // check if url is in blacklist
+            final String host = url.getHost();
+            if (host == null || host.length() < 2) throw new IOException("host is not well-formed: '" + host + "'");
+            if (Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, host.toLowerCase(), url.getFile())) {
+                this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.FINAL_LOAD_CONTEXT, "url in blacklist", -1);
+                fail(key, request, 0);
+                return;
+            }
+
+            // check if we have the page in the cache
+            final Response cached = this.sb.loader.loadFromCache(request, profile.cacheStrategy(), agent);
+            if (cached != null) {
+                index(key, request, cached, 0);
+                return;
+            }
+            if (profile.cacheStrategy() == CacheStrategy.CACHEONLY) {
+                this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "cannot load: cache only strategy", -1);
+                fail(key, request, 0);
+                return;
+            }
+
+            // wait without a thread if the host was accessed too recently
+            final long delay = LoaderDispatcher.accessDelay(agent, url);
+            final Runnable send = new Runnable() {
+                @Override
+                public void run() {
+                    send(key, request, profile, retryCount);
+                }
+            };
+            if (delay > 0) {
+                this.client.getScheduler().schedule(send, delay, TimeUnit.MILLISECONDS);
+            } else {
+                send.run();
+            }
+        } catch (final Throwable e) {
+            this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
+            request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+            finish(key, 0);
+        }
+    }
+
+    private void send(final DigestURL key, final Request request, final CrawlProfile profile, final int retryCount) {
+        try {
+            DigestURL url = request.url();
+
+            // resolve yacy and yacyh domains
+            final AlternativeDomainNames yacyResolver = this.sb.peers;
+            if (yacyResolver != null) {
+                final String yAddress = yacyResolver.resolve(url.getHost());
+                if (yAddress != null) url = new DigestURL(url.getProtocol() + "://" + yAddress + url.getFile());
+            }
+
+            // create a request header; the accepted encodings are those which the client can decode
+            final RequestHeader requestHeader = this.httpLoader.createRequestheader(request, profile.getAgent());
+            final org.eclipse.jetty.client.api.Request get = this.client.newRequest(url.toNormalform(true));
+            get.method(HttpMethod.GET);
+            get.timeout(this.socketTimeout, TimeUnit.MILLISECONDS);
+            for (final Map.Entry<String, String> entry: requestHeader.entrySet()) {
+                if (!HeaderFramework.ACCEPT_ENCODING.equalsIgnoreCase(entry.getKey())) get.header(entry.getKey(), entry.getValue());
+            }
+
+            request.setStatus("loading", WorkflowJob.STATUS_RUNNING);
+            Latency.updateBeforeLoad(request.url());
+            LoaderDispatcher.accessed(request.url());
+            get.send(new BodyListener(key, request, profile, requestHeader, retryCount));
+        } catch (final Throwable e) {
+            this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
+            request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+            finish(key, 0);
+        }
+    }
+
+    /**
+     * collects the response body of one request within the size limits
+     */
+    private final class BodyListener extends org.eclipse.jetty.client.api.Response.Listener.Adapter {
+
+        private final DigestURL key;
+        private final Request request;
+        private final CrawlProfile profile;
+        private final RequestHeader requestHeader;
+        private final int retryCount;
+        private final long start;
+        private ByteArrayOutputStream body;
+        private int size;
+
+        private BodyListener(final DigestURL key, final Request request, final CrawlProfile profile, final RequestHeader requestHeader, final int retryCount) {
+            this.key = key;
+            this.request = request;
+            this.profile = profile;
+            this.requestHeader = requestHeader;
+            this.retryCount = retryCount;
+            this.start = System.currentTimeMillis();
+            this.body = null;
+            this.size = 0;
+        }
+
+        @Override
+        public void onHeaders(final org.eclipse.jetty.client.api.Response response) {
+            long length = -1;
+            try {
+                length = response.getHeaders().getLongField(HeaderFramework.CONTENT_LENGTH);
+            } catch (final NumberFormatException e) {}
+            if (length > AsyncHTTPLoader.this.maxFileSize) {
+                response.abort(new FileSizeException(length));
+            }
+            // the body is not allocated with the announced length because that memory is not yet accounted in buffered
+        }
+
+        @Override
+        public void onContent(final org.eclipse.jetty.client.api.Response response, final ByteBuffer content) {
+            final int n = content.remaining();
+            if (this.size + n > AsyncHTTPLoader.this.maxFileSize) {
+                response.abort(new FileSizeException(this.size + n));
+                return;
+            }
+            this.size += n;
+            if (AsyncHTTPLoader.this.buffered.addAndGet(n) > AsyncHTTPLoader.this.maxBuffered) {
+                response.abort(new IOException("response buffer limit of " + AsyncHTTPLoader.this.maxBuffered + " bytes exceeded"));
+                return;
+            }
+            if (this.body == null) this.body = new ByteArrayOutputStream(4096);
+            if (content.hasArray()) {
+                this.body.write(content.array(), content.arrayOffset() + content.position(), n);
+                content.position(content.limit());
+            } else {
+                final byte[] b = new byte[n];
+                content.get(b);
+                this.body.write(b, 0, n);
+            }
+        }
+
+        @Override
+        public void onComplete(final Result result) {
+            // the client threads must not be blocked by the indexer queue
+            execute(AsyncHTTPLoader.this.worker, this.key, this.request, this.size, new Runnable() {
+                @Override
+                public void run() {
+                    complete(BodyListener.this, result);
+                }
+            });
+        }
+    }
+
+    private final static class FileSizeException extends IOException {
+        private static final long serialVersionUID = 3418372638745234892L;
+        private FileSizeException(final long size) {
+            super("file size '" + size + "' exceeds max filesize limit");
+        }
+    }
+
+    private void complete(final BodyListener listener, final Result result) {
+        final Request request = listener.request;
+        final CrawlProfile profile = listener.profile;
+        final DigestURL url = request.url();
+        final String requestURLString = url.toNormalform(true);
+        try {
+            Latency.updateAfterLoad(url, System.currentTimeMillis() - listener.start);
+            if (result.isFailed()) {
+                final Throwable failure = result.getFailure();
+                final int statusCode = result.getResponse() == null ? -1 : result.getResponse().getStatus();
+                if (failure instanceof FileSizeException) {
+                    this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "file size limit exceeded", statusCode);
+                } else {
+                    if (this.log.isFine()) this.log.fine("problem loading " + requestURLString + ": " + failure.getMessage());
+                    this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "cannot load: load error - " + failure.getMessage(), statusCode);
+                }
+                fail(listener.key, request, listener.size);
+                return;
+            }
+
+            final org.eclipse.jetty.client.api.Response r = result.getResponse();
+            final int statusCode = r.getStatus();
+            final ResponseHeader responseHeader = new ResponseHeader(statusCode);
+            for (final HttpField field: r.getHeaders()) {
+                // the content is already decoded by the client
+                if (HeaderFramework.CONTENT_ENCODING.equalsIgnoreCase(field.getName()) && "gzip".equalsIgnoreCase(field.getValue())) continue;
+                responseHeader.add(field.getName(), field.getValue());
+            }
+
+            if (statusCode > 299 && statusCode < 310) {
+                // read redirection URL
+                String redirectionUrlString = responseHeader.get(HeaderFramework.LOCATION);
+                redirectionUrlString = redirectionUrlString == null ? "" : redirectionUrlString.trim();
+                if (redirectionUrlString.isEmpty()) {
+                    this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE,
+                            "no redirection url provided, field '" + HeaderFramework.LOCATION + "' is empty", statusCode);
+                    fail(listener.key, request, listener.size);
+                    return;
+                }
+                final DigestURL redirectionUrl = DigestURL.newURL(url, redirectionUrlString);
+                this.log.info("CRAWLER Redirection detected ('" + statusCode + "') for URL " + requestURLString);
+                this.log.info("CRAWLER ..Redirecting request to: " + redirectionUrl.toNormalform(false));
+                this.sb.webStructure.generateCitationReference(url, redirectionUrl);
+                if (this.sb.getConfigBool(SwitchboardConstants.CRAWLER_RECORD_REDIRECTS, true)) {
+                    this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.FINAL_REDIRECT_RULE, "redirect to " + redirectionUrlString, statusCode);
+                }
+                if (!this.sb.getConfigBool(SwitchboardConstants.CRAWLER_FOLLOW_REDIRECTS, true)) {
+                    this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "redirection not wanted", statusCode);
+                    fail(listener.key, request, listener.size);
+                    return;
+                }
+                request.redirectURL(redirectionUrl);
+                if (!CrawlSwitchboard.DEFAULT_PROFILES.contains(profile.name())) {
+                    // put redirect url on the crawler queue to repeat a double-check
+                    this.sb.crawlStacker.stackCrawl(request);
+                    request.setStatus("worker-processed", WorkflowJob.STATUS_FINISHED);
+                    finish(listener.key, listener.size);
+                    return;
+                }
+                // retry loading with new url, keeping the slot of this request
+                release(listener.size);
+                execute(this.handoff, listener.key, request, 0, new Runnable() {
+                    @Override
+                    public void run() {
+                        start(listener.key, request, profile, listener.retryCount - 1);
+                    }
+                });
+                return;
+            }
+
+            if (statusCode != 200 && statusCode != 203) {
+                this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "wrong http status code", statusCode);
+                fail(listener.key, request, listener.size);
+                return;
+            }
+
+            final byte[] content = listener.body == null ? new byte[0] : listener.body.toByteArray();
+            listener.body = null;
+            ByteCount.addAccountCount(ByteCount.CRAWLER, content.length);
+            final Response response = new Response(request, listener.requestHeader, responseHeader, profile, false, content);
+            execute(this.handoff, listener.key, request, listener.size, new Runnable() {
+                @Override
+                public void run() {
+                    store(listener.key, request, response, listener.size);
+                }
+            });
+        } catch (final Throwable e) {
+            this.sb.crawlQueues.errorURL.push(url, request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
+            request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+            finish(listener.key, listener.size);
+        }
+    }
+
+    /**
+     * store a loaded document to the cache if the profile and the protocol allow this and push it to the indexer
+     */
+    private void store(final DigestURL key, final Request request, final Response response, final int bufferedSize) {
+        try {
+            if (response.profile().storeHTCache()) {
+                final String storeError = response.shallStoreCacheForCrawler();
+                if (storeError == null) {
+                    try {
+                        Cache.store(response.url(), response.getResponseHeader(), response.getContent());
+                    } catch (final IOException e) {
+                        this.log.warn("cannot write " + response.url() + " to Cache (3): " + e.getMessage(), e);
+                    }
+                } else {
+                    this.log.warn("cannot write " + response.url() + " to Cache (4): " + storeError);
+                }
+            }
+            index(key, request, response, bufferedSize);
+        } catch (final Throwable e) {
+            this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), response.profile(), FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
+            request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+            finish(key, bufferedSize);
+        }
+    }
+
+    private void index(final DigestURL key, final Request request, final Response response, final int bufferedSize) {
+        request.setStatus("loaded", WorkflowJob.STATUS_RUNNING);
+        final String storedFailMessage = this.sb.toIndexer(response);
+        request.setStatus("enqueued-" + ((storedFailMessage == null) ? "ok" : "fail"), WorkflowJob.STATUS_FINISHED);
+        if (storedFailMessage != null) {
+            this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), response.profile(), FailCategory.TEMPORARY_NETWORK_FAILURE, "cannot load: not enqueued to indexer: " + storedFailMessage, -1);
+            request.setStatus("worker-error", WorkflowJob.STATUS_FINISHED);
+        } else {
+            request.setStatus("worker-processed", WorkflowJob.STATUS_FINISHED);
+        }
+        finish(key, bufferedSize);
+    }
+
+    private void fail(final DigestURL key, final Request request, final int bufferedSize) {
+        request.setStatus("worker-error", WorkflowJob.STATUS_FINISHED);
+        finish(key, bufferedSize);
+    }
+
+    /**
+     * run a step of a request in one of the pools; the pools reject a step only after close(),
+     * then the request is finished
+     */
+    private void execute(final ThreadPoolExecutor pool, final DigestURL key, final Request request, final int bufferedSize, final Runnable step) {
+        try {
+            pool.execute(step);
+        } catch (final RejectedExecutionException e) {
+            fail(key, request, bufferedSize);
+        }
+    }
+
+    private void release(final int bufferedSize) {
+        if (bufferedSize > 0) this.buffered.addAndGet(-bufferedSize);
+    }
+
+    private void finish(final DigestURL key, final int bufferedSize) {
+        release(bufferedSize);
+        if (this.inFlight.remove(key) != null) this.slots.release();
+    }
+
+    /**
+     * stop the client; requests in flight are aborted
+     */
+    public void close() {
+        try {
+            this.client.stop();
+        } catch (final Exception e) {
+            ConcurrentLog.logException(e);
+        }
+        this.worker.shutdownNow();
+        this.handoff.shutdownNow();
+        this.inFlight.clear();
+    }
+}
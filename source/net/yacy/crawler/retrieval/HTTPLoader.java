@@ -24,15 +24,22 @@
 
 package net.yacy.crawler.retrieval;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.StatusLine;
 
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.federate.solr.FailCategory;
 import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
@@ -44,6 +51,7 @@ import net.yacy.crawler.data.Cache;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.crawler.data.Latency;
 import net.yacy.kelondro.io.ByteCount;
+import net.yacy.kelondro.util.FileUtils;
 import net.yacy.repository.Blacklist.BlacklistType;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
@@ -65,12 +73,25 @@ public final class HTTPLoader {
     private final Switchboard sb;
     private final ConcurrentLog log;
 
+    /**
+     * crawled documents which are larger than this or have an unknown size are streamed into a file
+     * in the spool path instead of a byte array; a negative value switches spooling off
+     */
+    private final long spoolSize;
+    private final File spoolPath;
+
     public HTTPLoader(final Switchboard sb, final ConcurrentLog theLog) {
         this.sb = sb;
         this.log = theLog;
 
         // refreshing timeout value
         this.socketTimeout = (int) sb.getConfigLong("crawler.clientTimeout", 30000);
+
+        // spool files are only needed until the document is parsed; old files are left over from a previous run
+        this.spoolSize = sb.getConfigLong(SwitchboardConstants.CRAWLER_HTTP_SPOOL_SIZE, 1024 * 1024);
+        this.spoolPath = new File(sb.queuesRoot, "SPOOL");
+        if (this.spoolPath.exists()) FileUtils.deletedelete(this.spoolPath);
+        this.spoolPath.mkdirs();
     }
 
     public Response load(final Request entry, CrawlProfile profile, final int maxFileSize, final BlacklistType blacklistType, final ClientIdentification.Agent agent) throws IOException {
@@ -268,7 +289,7 @@ public final class HTTPLoader {
 	 * @return a request header
 	 * @throws IOException when an error occured
 	 */
-	private RequestHeader createRequestheader(final Request request, final ClientIdentification.Agent agent)
+	RequestHeader createRequestheader(final Request request, final ClientIdentification.Agent agent)
 			throws IOException {
 		final RequestHeader requestHeader = new RequestHeader();
 		requestHeader.put(HeaderFramework.USER_AGENT, agent.userAgent);
@@ -334,13 +355,40 @@ public final class HTTPLoader {
         client.setHeader(requestHeader.entrySet());
 
         // send request
-    	final byte[] responseBody = client.GETbytes(url, sb.getConfig(SwitchboardConstants.ADMIN_ACCOUNT_USER_NAME, "admin"), sb.getConfig(SwitchboardConstants.ADMIN_ACCOUNT_B64MD5, ""), maxFileSize, false);
+        // documents of a crawl may be spooled to a file; others are used directly by the caller and are always loaded into memory
+        final boolean spool = this.spoolSize >= 0 && profile != null && !CrawlSwitchboard.DEFAULT_PROFILES.contains(profile.name()) && !Domains.isLocalhost(url.getHost());
+        final byte[] responseBody;
+        File spoolFile = null;
+        if (spool) {
+            client.GET(url, false);
+            try {
+                final HttpEntity entity = client.getHttpResponse().getEntity();
+                final long contentLength = entity == null ? -1 : entity.getContentLength();
+                final int status = client.getHttpResponse().getStatusLine().getStatusCode();
+                // only the content of the accepted status codes is read, see below
+                if (entity == null || (status != 200 && status != 203) || (maxFileSize >= 0 && contentLength >= maxFileSize)) {
+                    responseBody = null;
+                } else if (contentLength >= 0 && contentLength <= this.spoolSize) {
+                    responseBody = HTTPClient.getByteArray(entity, maxFileSize);
+                } else {
+                    // the size is unknown or large: keep the content in memory only as long as it is small
+                    final ByteArrayOutputStream head = new ByteArrayOutputStream(contentLength < 0 ? 4096 : 1024);
+                    spoolFile = spool(entity, maxFileSize, head);
+                    responseBody = spoolFile == null ? head.toByteArray() : null;
+                }
+            } finally {
+                client.finish();
+            }
+        } else {
+            responseBody = client.GETbytes(url, sb.getConfig(SwitchboardConstants.ADMIN_ACCOUNT_USER_NAME, "admin"), sb.getConfig(SwitchboardConstants.ADMIN_ACCOUNT_B64MD5, ""), maxFileSize, false);
+        }
         final int statusCode = client.getHttpResponse().getStatusLine().getStatusCode();
     	final ResponseHeader responseHeader = new ResponseHeader(statusCode, client.getHttpResponse().getAllHeaders());
         String requestURLString = request.url().toNormalform(true);
 
         // check redirection
     	if (statusCode > 299 && statusCode < 310) {
+    	    if (spoolFile != null) FileUtils.deletedelete(spoolFile);
 
     	    final DigestURL redirectionUrl = extractRedirectURL(request, profile, url, client.getHttpResponse().getStatusLine(),
 					responseHeader, requestURLString);
@@ -368,7 +416,7 @@ public final class HTTPLoader {
             // we don't want to follow redirects
             this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "redirection not wanted", statusCode);
             throw new IOException("REJECTED UNWANTED REDIRECTION '" + client.getHttpResponse().getStatusLine() + "' for URL '" + requestURLString + "'$");
-        } else if (responseBody == null) {
+        } else if (responseBody == null && spoolFile == null) {
     	    // no response, reject file
             this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "no response body", statusCode);
             throw new IOException("REJECTED EMPTY RESPONSE BODY '" + client.getHttpResponse().getStatusLine() + "' for URL '" + requestURLString + "'$");
@@ -376,11 +424,12 @@ public final class HTTPLoader {
             // the transfer is ok
 
             // we write the new cache entry to file system directly
-            final long contentLength = responseBody.length;
+            final long contentLength = responseBody == null ? spoolFile.length() : responseBody.length;
             ByteCount.addAccountCount(ByteCount.CRAWLER, contentLength);
 
             // check length again in case it was not possible to get the length before loading
             if (maxFileSize >= 0 && contentLength > maxFileSize) {
+                if (spoolFile != null) FileUtils.deletedelete(spoolFile);
             	this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "file size limit exceeded", statusCode);
             	throw new IOException("REJECTED URL " + request.url() + " because file size '" + contentLength + "' exceeds max filesize limit of " + maxFileSize + " bytes. (GET)$");
             }
@@ -394,15 +443,57 @@ public final class HTTPLoader {
                     false,
                     responseBody
             );
+            if (spoolFile != null) response.setContentFile(spoolFile);
 
             return response;
     	} else {
+    	    if (spoolFile != null) FileUtils.deletedelete(spoolFile);
             // if the response has not the right response type then reject file
         	this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "wrong http status code", statusCode);
             throw new IOException("REJECTED WRONG STATUS TYPE '" + client.getHttpResponse().getStatusLine() + "' for URL '" + requestURLString + "'$");
         }
     }
 
+    /**
+     * stream the content of a http entity into a new file in the spool path.
+     * Content which is not larger than the spool size is not written to a file but to the given buffer.
+     * @param entity the http entity
+     * @param maxFileSize maximum number of bytes; -1 means no limit
+     * @param head the buffer for small content
+     * @return the spool file or null if the content is small and was written to head
+     * @throws IOException if the content cannot be read or written or exceeds maxFileSize
+     */
+    private File spool(final HttpEntity entity, final int maxFileSize, final ByteArrayOutputStream head) throws IOException {
+        final InputStream in = entity.getContent();
+        if (in == null) return null;
+        File file = null;
+        OutputStream out = head;
+        boolean success = false;
+        try {
+            final byte[] buffer = new byte[8192];
+            long sum = 0;
+            int l;
+            while ((l = in.read(buffer)) != -1) {
+                sum += l;
+                if (maxFileSize >= 0 && sum > maxFileSize) throw new IOException("Download exceeded maximum value of " + maxFileSize + " bytes");
+                if (file == null && sum > this.spoolSize) {
+                    // switch to a spool file
+                    file = File.createTempFile("load", ".spool", this.spoolPath);
+                    out = new BufferedOutputStream(new FileOutputStream(file));
+                    head.writeTo(out);
+                    head.reset();
+                }
+                out.write(buffer, 0, l);
+            }
+            success = true;
+        } finally {
+            if (file != null) try {out.close();} catch (final IOException e) {}
+            try {in.close();} catch (final IOException e) {}
+            if (!success && file != null) FileUtils.deletedelete(file);
+        }
+        return file;
+    }
+
     public static Response load(final Request request, ClientIdentification.Agent agent) throws IOException {
         return load(request, agent, 3);
     }
@@ -26,6 +26,12 @@
 
 package net.yacy.crawler.retrieval;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
@@ -45,6 +51,7 @@ import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
+import net.yacy.kelondro.util.FileUtils;
 import net.yacy.search.Switchboard;
 
 public class Response {
@@ -68,6 +75,7 @@ public class Response {
     private final  ResponseHeader     responseHeader;
     private final  CrawlProfile       profile;
     private        byte[]             content;
+    private        File               contentFile;     // the content of a large document, spooled to a file instead of the content array
     private        int                status;          // tracker indexing status, see status defs below
     private final  boolean            fromCache;
     
@@ -290,6 +298,7 @@ public class Response {
             return this.responseHeader.getContentLengthLong();
         }
         if (this.content != null) return this.content.length;
+        if (this.contentFile != null) return this.contentFile.length();
         // the size is unknown
         return -1;
     }
@@ -305,10 +314,63 @@ public class Response {
         }
     }
 
+    /**
+     * get the content as byte array. If the content was spooled to a file, it is read from there;
+     * the array is not kept in this response. Use getContentStream() to avoid that the whole content is in memory.
+     * @return the content or null if there is no content
+     */
     public byte[] getContent() {
+        if (this.content == null && this.contentFile != null) try {
+            return FileUtils.read(this.contentFile);
+        } catch (final IOException e) {
+            return null;
+        }
         return this.content;
     }
 
+    /**
+     * set the content as a spool file; this is used for large documents which shall not be held in memory.
+     * The file is deleted with release().
+     * @param file the file which contains the content
+     */
+    public void setContentFile(final File file) {
+        this.content = null;
+        this.contentFile = file;
+        if (this.responseHeader != null && file != null && Long.parseLong(this.responseHeader.get(HeaderFramework.CONTENT_LENGTH, "0")) <= file.length()) {
+            this.responseHeader.put(HeaderFramework.CONTENT_LENGTH, Long.toString(file.length())); // repair length
+        }
+    }
+
+    /**
+     * @return the spool file of the content or null if the content is not spooled
+     */
+    public File getContentFile() {
+        return this.contentFile;
+    }
+
+    public boolean hasContent() {
+        return this.content != null || this.contentFile != null;
+    }
+
+    /**
+     * @return a stream of the content or null if there is no content. Don't forget to close it.
+     * @throws IOException
+     */
+    public InputStream getContentStream() throws IOException {
+        if (this.content != null) return new ByteArrayInputStream(this.content);
+        if (this.contentFile != null) return new BufferedInputStream(new FileInputStream(this.contentFile));
+        return null;
+    }
+
+    /**
+     * delete the spool file of the content, if there is one
+     */
+    public void release() {
+        final File f = this.contentFile;
+        this.contentFile = null;
+        if (f != null) FileUtils.deletedelete(f);
+    }
+
     // the following three methods for cache read/write granting shall be as loose
     // as possible but also as strict as necessary to enable caching of most items
 
@@ -859,6 +921,9 @@ public class Response {
         final String supportError = TextParser.supports(url(), this.responseHeader == null ? null : this.responseHeader.getContentType());
         if (supportError != null) throw new Parser.Failure("no parser support:" + supportError, url());
         try {
+            if (this.content == null && this.contentFile != null) {
+                return TextParser.parseSource(url(), this.responseHeader == null ? null : this.responseHeader.getContentType(), this.responseHeader == null ? StandardCharsets.UTF_8.name() : this.responseHeader.getCharacterEncoding(), new VocabularyScraper(), this.request.timezoneOffset(), this.request.depth(), this.contentFile);
+            }
             return TextParser.parseSource(url(), this.responseHeader == null ? null : this.responseHeader.getContentType(), this.responseHeader == null ? StandardCharsets.UTF_8.name() : this.responseHeader.getCharacterEncoding(), new VocabularyScraper(), this.request.timezoneOffset(), this.request.depth(), this.content);
         } catch (final Exception e) {
             return null;
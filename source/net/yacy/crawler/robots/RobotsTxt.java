@@ -30,12 +30,17 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import net.yacy.cora.document.id.DigestURL;
@@ -43,13 +48,21 @@ import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.yacy.CacheStrategy;
 import net.yacy.cora.protocol.ClientIdentification;
 import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.cora.protocol.http.HTTPClient;
+import net.yacy.cora.storage.ARC;
+import net.yacy.cora.storage.ConcurrentARC;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.retrieval.HTTPLoader;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.data.WorkTables;
 import net.yacy.kelondro.blob.BEncodedHeap;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 import net.yacy.repository.LoaderDispatcher;
+import net.yacy.search.Switchboard;
 import net.yacy.repository.Blacklist.BlacklistType;
 
 public class RobotsTxt {
@@ -60,7 +73,15 @@ public class RobotsTxt {
     protected static final String ROBOTS_DB_PATH_SEPARATOR = ";";
     protected static final Pattern ROBOTS_DB_PATH_SEPARATOR_MATCHER = Pattern.compile(ROBOTS_DB_PATH_SEPARATOR);
 
+    private static final long EXPIRE_AGE = 7L * 24L * 60L * 60L * 1000L; // entries older than this are loaded again
+    private static final long REFRESH_AGE = 6L * 24L * 60L * 60L * 1000L; // entries older than this are refreshed in the background
+    private static final int CACHE_SIZE = 10000;
+
     private final ConcurrentMap<String, DomSync> syncObjects;
+    private final ARC<String, RobotsTxtEntry> entryCache; // parsed entries in front of the robots table
+    private final Set<String> refreshing; // hosts which are currently refreshed in the background
+    private final ThreadPoolExecutor refreshExecutor;
+    private final AtomicLong cacheHits, cacheMisses, revalidated;
     //private static final HashSet<String> loadedRobots = new HashSet<String>(); // only for debugging
     private final WorkTables tables;
     private final LoaderDispatcher loader;
@@ -71,6 +92,13 @@ public class RobotsTxt {
 
     public RobotsTxt(final WorkTables worktables, LoaderDispatcher loader) {
         this.syncObjects = new ConcurrentHashMap<String, DomSync>();
+        this.entryCache = new ConcurrentARC<String, RobotsTxtEntry>(CACHE_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors()));
+        this.refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.refreshExecutor = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory("RobotsTxt.refresh"));
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+        this.cacheHits = new AtomicLong(0);
+        this.cacheMisses = new AtomicLong(0);
+        this.revalidated = new AtomicLong(0);
         this.tables = worktables;
         this.loader = loader;
         try {
@@ -87,6 +115,7 @@ public class RobotsTxt {
     public void clear() throws IOException {
         log.info("clearing robots table");
         this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME).clear();
+        this.entryCache.clear();
         this.syncObjects.clear();
     }
 
@@ -101,15 +130,54 @@ public class RobotsTxt {
     }
 
     public RobotsTxtEntry getEntry(final String urlHostPort, final ClientIdentification.Agent agent, final boolean fetchOnlineIfNotAvailableOrNotFresh) {
-            // this method will always return a non-null value
-        RobotsTxtEntry robotsTxt4Host = null;
-        Map<String, byte[]> record;
+        // first look into the cache of parsed entries, then into the robots table
+        RobotsTxtEntry robotsTxt4Host = this.entryCache.get(urlHostPort);
+        if (robotsTxt4Host != null) {
+            this.cacheHits.incrementAndGet();
+        } else {
+            this.cacheMisses.incrementAndGet();
+            robotsTxt4Host = getTableEntry(urlHostPort);
+            if (robotsTxt4Host != null) this.entryCache.insertIfAbsent(urlHostPort, robotsTxt4Host);
+        }
+        if (!fetchOnlineIfNotAvailableOrNotFresh) return robotsTxt4Host;
+
+        final long age = robotsTxt4Host == null || robotsTxt4Host.getLoadedDate() == null ? Long.MAX_VALUE : System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime();
+        if (age <= REFRESH_AGE) return robotsTxt4Host;
+
+        if (robotsTxt4Host != null) {
+            // the entry is expired or expires soon; it is refreshed in the background and the old rules are used until then.
+            // this prevents that crawler threads wait for a robots.txt download of a host which is known already.
+            refresh(urlHostPort, agent);
+            return robotsTxt4Host;
+        }
+
+        // the host is not known; we must load the robots.txt before we can continue
+        final DomSync syncObj = syncObject(urlHostPort);
+
+        // we can now synchronize for each host separately
+        synchronized (syncObj) {
+            // if we have not found any data or the data is older than 7 days, we need to load it from the remote server
+            // check the robots table again for all threads that come here because they waited for another one
+            // to complete a download
+            robotsTxt4Host = getTableEntry(urlHostPort);
+            if (robotsTxt4Host != null &&
+                robotsTxt4Host.getLoadedDate() != null &&
+                System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime() <= 1*24*60*60*1000) {
+                return robotsTxt4Host;
+            }
+            return load(urlHostPort, robotsTxt4Host, agent);
+        }
+    }
+
+    private RobotsTxtEntry getTableEntry(final String urlHostPort) {
         BEncodedHeap robotsTable = null;
         try {
             robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
         } catch (final IOException e1) {
             log.severe("tables not available", e1);
+            return null;
         }
+        Map<String, byte[]> record;
         try {
             record = robotsTable.get(robotsTable.encodedKey(urlHostPort));
         } catch (final SpaceExceededException e) {
@@ -119,68 +187,131 @@ public class RobotsTxt {
             log.warn("cannot get robotstxt from table", e);
             record = null;
         }
-        if (record != null) robotsTxt4Host = new RobotsTxtEntry(urlHostPort, record);
-
-        if (fetchOnlineIfNotAvailableOrNotFresh && (
-             robotsTxt4Host == null ||
-             robotsTxt4Host.getLoadedDate() == null ||
-             System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime() > 7*24*60*60*1000
-           )) {
-
-            // make or get a synchronization object
-        	DomSync syncObj = this.syncObjects.get(urlHostPort);
-            if (syncObj == null) {
-                syncObj = new DomSync();
-                this.syncObjects.put(urlHostPort, syncObj);
-            }
+        return record == null ? null : new RobotsTxtEntry(urlHostPort, record);
+    }
 
-            // we can now synchronize for each host separately
-            synchronized (syncObj) {
-                // if we have not found any data or the data is older than 7 days, we need to load it from the remote server
-                // check the robots table again for all threads that come here because they waited for another one
-                // to complete a download
+    private DomSync syncObject(final String urlHostPort) {
+        // make or get a synchronization object
+        DomSync syncObj = this.syncObjects.get(urlHostPort);
+        if (syncObj == null) {
+            syncObj = new DomSync();
+            final DomSync s = this.syncObjects.putIfAbsent(urlHostPort, syncObj);
+            if (s != null) syncObj = s;
+        }
+        return syncObj;
+    }
+
+    /**
+     * load a robots.txt in the background; concurrent requests for the same host are ignored
+     * @param urlHostPort
+     * @param agent
+     */
+    private void refresh(final String urlHostPort, final ClientIdentification.Agent agent) {
+        if (this.loader == null || !this.refreshing.add(urlHostPort)) return;
+        this.refreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    record = robotsTable.get(robotsTable.encodedKey(urlHostPort));
-                } catch (final SpaceExceededException e) {
-                    log.warn("memory exhausted", e);
-                    record = null;
-                } catch (final IOException e) {
-                    log.warn("cannot get robotstxt from table", e);
-                    record = null;
-                }
-                if (record != null) robotsTxt4Host = new RobotsTxtEntry(urlHostPort, record);
-                if (robotsTxt4Host != null &&
-                    robotsTxt4Host.getLoadedDate() != null &&
-                    System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime() <= 1*24*60*60*1000) {
-                    return robotsTxt4Host;
+                    synchronized (syncObject(urlHostPort)) {
+                        final RobotsTxtEntry robotsTxt4Host = getTableEntry(urlHostPort);
+                        if (robotsTxt4Host != null &&
+                            robotsTxt4Host.getLoadedDate() != null &&
+                            System.currentTimeMillis() - robotsTxt4Host.getLoadedDate().getTime() <= REFRESH_AGE) {
+                            return; // another thread was faster
+                        }
+                        load(urlHostPort, robotsTxt4Host, agent);
+                    }
+                } catch (final Throwable e) {
+                    log.warn("refresh of robots.txt for " + urlHostPort + " failed", e);
+                } finally {
+                    RobotsTxt.this.refreshing.remove(urlHostPort);
                 }
+            }
+        });
+    }
 
-                // generating the proper url to download the robots txt
-                DigestURL robotsURL = robotsURL(urlHostPort);
+    /**
+     * load the robots.txt of a host from the remote server and store it.
+     * If an old entry has an etag or a modification date, a conditional request is made and the old entry
+     * is kept when the server reports that the file was not modified.
+     * @param urlHostPort
+     * @param robotsTxt4Host the old entry or null if there is none
+     * @param agent
+     * @return the new entry
+     */
+    private RobotsTxtEntry load(final String urlHostPort, final RobotsTxtEntry robotsTxt4Host, final ClientIdentification.Agent agent) {
+        final BEncodedHeap robotsTable;
+        try {
+            robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
+        } catch (final IOException e1) {
+            log.severe("tables not available", e1);
+            return robotsTxt4Host;
+        }
 
-                Response response = null;
-                if (robotsURL != null) {
-                    if (log.isFine()) log.fine("Trying to download the robots.txt file from URL '" + robotsURL + "'.");
-                    Request request = new Request(robotsURL, null);
-                    try {
-                        response = RobotsTxt.this.loader.load(request, CacheStrategy.NOCACHE, null, agent);
-                    } catch (final Throwable e) {
-                        log.info("Trying to download the robots.txt file from URL '" + robotsURL.toNormalform(false) + "' failed - " + e.getMessage());
-                        response = null;
+        // generating the proper url to download the robots txt
+        DigestURL robotsURL = robotsURL(urlHostPort);
+
+        Response response = null;
+        if (robotsURL != null) {
+            if (robotsTxt4Host != null && (robotsTxt4Host.getETag() != null || robotsTxt4Host.getModDate() != null)) {
+                try {
+                    response = this.revalidate(robotsURL, robotsTxt4Host, agent);
+                    if (response == null) {
+                        // not modified
+                        this.revalidated.incrementAndGet();
+                        return processOldEntry(robotsTxt4Host, robotsURL, robotsTable);
                     }
+                } catch (final IOException e) {
+                    // do an unconditional request
+                    response = null;
                 }
-
-                if (response == null) {
-                    processOldEntry(robotsTxt4Host, robotsURL, robotsTable);
-                } else {
-                    processNewEntry(robotsURL, response, agent.robotIDs);
+            }
+            if (response == null && this.loader != null) {
+                if (log.isFine()) log.fine("Trying to download the robots.txt file from URL '" + robotsURL + "'.");
+                Request request = new Request(robotsURL, null);
+                try {
+                    response = RobotsTxt.this.loader.load(request, CacheStrategy.NOCACHE, null, agent);
+                } catch (final Throwable e) {
+                    log.info("Trying to download the robots.txt file from URL '" + robotsURL.toNormalform(false) + "' failed - " + e.getMessage());
+                    response = null;
                 }
             }
         }
 
-        return robotsTxt4Host;
+        if (response == null) {
+            return processOldEntry(robotsTxt4Host, robotsURL, robotsTable);
+        }
+        return processNewEntry(robotsURL, response, agent.robotIDs);
     }
-    
+
+    /**
+     * do a conditional request for a robots.txt using the etag and modification date of the old entry.
+     * The request is not done by the loader, therefore the blacklist and the size limit of the loader are applied here.
+     * @param robotsURL
+     * @param robotsTxt4Host the old entry
+     * @param agent
+     * @return the response if the robots.txt was loaded or null if the server answered 'not modified'
+     * @throws IOException if the request failed or the answer cannot be used; then the robots.txt must be loaded by the loader
+     */
+    private Response revalidate(final DigestURL robotsURL, final RobotsTxtEntry robotsTxt4Host, final ClientIdentification.Agent agent) throws IOException {
+        if (Switchboard.urlBlacklist != null && Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, robotsURL)) {
+            throw new IOException("url in blacklist: " + robotsURL.toNormalform(false));
+        }
+        final int maxFileSize = this.loader == null ? HTTPLoader.DEFAULT_MAXFILESIZE : this.loader.protocolMaxFileSize(robotsURL);
+        final RequestHeader requestHeader = new RequestHeader();
+        requestHeader.put(HeaderFramework.USER_AGENT, agent.userAgent);
+        if (robotsTxt4Host.getETag() != null) requestHeader.put(RequestHeader.IF_NONE_MATCH, robotsTxt4Host.getETag());
+        if (robotsTxt4Host.getModDate() != null) requestHeader.put(RequestHeader.IF_MODIFIED_SINCE, HeaderFramework.formatRFC1123(robotsTxt4Host.getModDate()));
+        final HTTPClient client = new HTTPClient(agent);
+        client.setHeader(requestHeader.entrySet());
+        final byte[] robotsTxt = client.GETbytes(robotsURL, null, null, maxFileSize, false); // null if the content is larger than maxFileSize
+        final int code = client.getHttpResponse().getStatusLine().getStatusCode();
+        if (code == 304) return null;
+        if (robotsTxt == null || (code != 200 && code != 203)) throw new IOException("unexpected response " + code + " for " + robotsURL.toNormalform(false));
+        final ResponseHeader responseHeader = new ResponseHeader(code, client.getHttpResponse().getAllHeaders());
+        return new Response(new Request(robotsURL, null), requestHeader, responseHeader, null, false, robotsTxt);
+    }
+
     public void delete(final MultiProtocolURL theURL) {
         final String urlHostPort = getHostPort(theURL);
         if (urlHostPort == null) return;
@@ -192,6 +323,7 @@ public class RobotsTxt {
             return;
         }
         if (robotsTable == null) return;
+        this.entryCache.remove(urlHostPort);
         try {
             robotsTable.delete(robotsTable.encodedKey(urlHostPort));
         } catch (IOException e) {
@@ -214,12 +346,7 @@ public class RobotsTxt {
             @Override
             public void run(){
                 this.setName("Robots.txt:ensureExist(" + theURL.toNormalform(true) + ")");
-                // make or get a synchronization object
-                DomSync syncObj = RobotsTxt.this.syncObjects.get(urlHostPort);
-                if (syncObj == null) {
-                    syncObj = new DomSync();
-                    RobotsTxt.this.syncObjects.put(urlHostPort, syncObj);
-                }
+                final DomSync syncObj = syncObject(urlHostPort);
                 // we can now synchronize for each host separately
                 synchronized (syncObj) {
                     if (robotsTable.containsKey(robotsTable.encodedKey(urlHostPort))) return;
@@ -249,7 +376,7 @@ public class RobotsTxt {
         if (concurrent) t.start(); else t.run();
     }
 
-    private void processOldEntry(RobotsTxtEntry robotsTxt4Host, DigestURL robotsURL, BEncodedHeap robotsTable) {
+    private RobotsTxtEntry processOldEntry(RobotsTxtEntry robotsTxt4Host, DigestURL robotsURL, BEncodedHeap robotsTable) {
         // no robots.txt available, make an entry to prevent that the robots loading is done twice
         if (robotsTxt4Host == null) {
             // generate artificial entry
@@ -275,9 +402,10 @@ public class RobotsTxt {
             try {clear();} catch (final IOException e) {}
             addEntry(robotsTxt4Host);
         }
+        return robotsTxt4Host;
     }
     
-    private void processNewEntry(DigestURL robotsURL, Response response, final String[] thisAgents) {
+    private RobotsTxtEntry processNewEntry(DigestURL robotsURL, Response response, final String[] thisAgents) {
         final byte[] robotsTxt = response.getContent();
         //Log.logInfo("RobotsTxt", "robots of " + robotsURL.toNormalform(true, true) + ":\n" + ((robotsTxt == null) ? "null" : UTF8.String(robotsTxt))); // debug TODO remove
         RobotsTxtParser parserResult;
@@ -307,6 +435,7 @@ public class RobotsTxt {
                     parserResult.crawlDelayMillis(),
                     parserResult.agentName());
         addEntry(robotsTxt4Host);
+        return robotsTxt4Host;
     }
     
     private String addEntry(final RobotsTxtEntry entry) {
@@ -314,6 +443,7 @@ public class RobotsTxt {
         try {
             final BEncodedHeap robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
             robotsTable.insert(robotsTable.encodedKey(entry.getHostName()), entry.getMem());
+            this.entryCache.put(entry.getHostName(), entry);
             return entry.getHostName();
         } catch (final Exception e) {
             log.warn("cannot write robots.txt entry", e);
@@ -321,6 +451,25 @@ public class RobotsTxt {
         }
     }
 
+    public int cacheSize() {
+        return this.entryCache.size();
+    }
+
+    public long cacheHits() {
+        return this.cacheHits.get();
+    }
+
+    public long cacheMisses() {
+        return this.cacheMisses.get();
+    }
+
+    /**
+     * @return the number of robots.txt files which had not been loaded again because the server answered 'not modified'
+     */
+    public long revalidated() {
+        return this.revalidated.get();
+    }
+
     public static final String getHostPort(final MultiProtocolURL theURL) {
         int port = theURL.getPort();
         if (port == -1) {
@@ -28,6 +28,7 @@
 
 package net.yacy.crawler.robots;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -57,8 +58,10 @@ public class RobotsTxtEntry {
     // this is a simple record structure that holds all properties of a single crawl start
     private final Map<String, byte[]> mem;
     private final List<String> allowPathList, denyPathList, sitemapList;
+    private final String[] denyPrefixes; // the denyPathList compiled for the isDisallowed check: sorted and prefix-free
     private final String hostName, agentName;
-    private String info; // this is filled if robots disallowed access; then the reason is noted there;
+    private volatile String info; // this is filled if robots disallowed access; then the reason is noted there;
+    private volatile String[] check; // the path and the matching deny element of the latest isDisallowed call; the info is computed from that
 
     protected RobotsTxtEntry(final String hostName, final Map<String, byte[]> mem) {
         this.hostName = hostName.toLowerCase();
@@ -72,6 +75,7 @@ public class RobotsTxtEntry {
         this.sitemapList = new LinkedList<String>();
         fillMultiValue(this.sitemapList, SITEMAP_LIST);
         this.agentName = this.mem.containsKey(AGENT_NAME) ? UTF8.String(this.mem.get(AGENT_NAME)) : null;
+        this.denyPrefixes = compile(this.denyPathList);
     }
 
     private void fillMultiValue(List<String> list, String listName) {
@@ -116,6 +120,38 @@ public class RobotsTxtEntry {
         readMultiValue(allowPathList,    this.allowPathList, ALLOW_PATH_LIST);
         readMultiValue(disallowPathList, this.denyPathList,  DISALLOW_PATH_LIST);
         readMultiValue(sitemapList,      this.sitemapList,   SITEMAP_LIST);
+        this.denyPrefixes = compile(this.denyPathList);
+    }
+
+    /**
+     * compile a list of deny paths into a sorted array where no element is the prefix of another element.
+     * A path is then disallowed if the greatest element which is not greater than the path is a prefix of it;
+     * that can be found with a binary search instead of testing all elements of the list.
+     * @param paths the deny paths
+     * @return the sorted, prefix-free array of paths
+     */
+    private static String[] compile(final List<String> paths) {
+        final String[] sorted = paths.toArray(new String[paths.size()]);
+        Arrays.sort(sorted);
+        final List<String> prefixes = new ArrayList<String>(sorted.length);
+        for (final String path: sorted) {
+            // a path which starts with the previous prefix is already covered by that prefix
+            if (prefixes.isEmpty() || !path.startsWith(prefixes.get(prefixes.size() - 1))) prefixes.add(path);
+        }
+        return prefixes.toArray(new String[prefixes.size()]);
+    }
+
+    /**
+     * find the element of the deny path list which is a prefix of the given path
+     * @param path
+     * @return the deny path or null if the path is not denied
+     */
+    private String denyPrefix(final String path) {
+        int p = Arrays.binarySearch(this.denyPrefixes, path);
+        if (p >= 0) return this.denyPrefixes[p];
+        p = -p - 2; // the position of the greatest element which is lower than the path
+        if (p >= 0 && path.startsWith(this.denyPrefixes[p])) return this.denyPrefixes[p];
+        return null;
     }
 
     private void readMultiValue(List<String> externallist, List<String> internallist, String listName) {
@@ -213,10 +249,12 @@ public class RobotsTxtEntry {
         String path = subpathURL.getFile();
         if (this.mem == null) {
             this.info = "no robots file available";
+            this.check = null;
             return false;
         }
-        if (this.denyPathList.isEmpty()) {
+        if (this.denyPrefixes.length == 0) {
             this.info = "no entry in robots.txt";
+            this.check = null;
             return false;
         }
 
@@ -225,19 +263,16 @@ public class RobotsTxtEntry {
         // escaping all occurences of ; because this char is used as special char in the Robots DB
         else  path = RobotsTxt.ROBOTS_DB_PATH_SEPARATOR_MATCHER.matcher(path).replaceAll("%3B");
 
-        for (final String element : this.denyPathList) {
-
-            // disallow rule
-            if (path.startsWith(element)) {
-                this.info = "path '" + path + "' starts with '" + element + "' from deny path list = " + this.denyPathList.toString();
-                return true;
-            }
-        }
-        this.info = "path '" + path + "' does not start with any element from deny path list";
-        return false;
+        // disallow rule
+        final String element = denyPrefix(path);
+        this.check = new String[]{path, element};
+        return element != null;
     }
 
     public String getInfo() {
-        return this.info;
+        final String[] c = this.check;
+        if (c == null) return this.info;
+        if (c[1] == null) return "path '" + c[0] + "' does not start with any element from deny path list";
+        return "path '" + c[0] + "' starts with '" + c[1] + "' from deny path list = " + this.denyPathList.toString();
     }
 }
\ No newline at end of file
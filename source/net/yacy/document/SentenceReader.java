@@ -33,13 +33,24 @@ public class SentenceReader implements Iterator<StringBuilder>, Iterable<StringB
     private StringBuilder buffer;
     private String text;
     private int pos;
+    private int start; // the position in the text where the sentence in the buffer starts
     private boolean pre = false;
 
     public SentenceReader(final String text) {
+        this(text, 0);
+    }
+
+    /**
+     * read the sentences of a text starting at a given position
+     * @param text
+     * @param offset a position in the text as given by sentenceStart()
+     */
+    public SentenceReader(final String text, final int offset) {
     	assert text != null;
         this.text = text;
-        this.pos = 0;
+        this.pos = offset;
         this.pre = false;
+        this.start = this.pos;
         this.buffer = nextElement0();
     }
 
@@ -105,10 +116,29 @@ public class SentenceReader implements Iterator<StringBuilder>, Iterable<StringB
             return null;
         }
         final StringBuilder r = this.buffer;
+        this.start = this.pos;
         this.buffer = nextElement0();
         return r;
     }
 
+    /**
+     * @return the position in the text where the sentence starts which is returned by the next call of next()
+     */
+    public int sentenceStart() {
+        return this.start;
+    }
+
+    /**
+     * read a single sentence from a text
+     * @param text
+     * @param offset the start of the sentence as given by sentenceStart()
+     * @return the sentence or null if there is no sentence at the offset
+     */
+    public static StringBuilder sentenceAt(final String text, final int offset) {
+        if (offset < 0 || offset >= text.length()) return null;
+        return new SentenceReader(text, offset).buffer;
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
@@ -38,6 +38,17 @@ public class SnippetExtractor {
     HandleSet remainingHashes;
 
     public SnippetExtractor(final Collection<StringBuilder> sentences, final HandleSet queryhashes, int maxLength) throws UnsupportedOperationException {
+        this(lines(sentences), queryhashes, maxLength);
+    }
+
+    /**
+     * compute a snippet from a selection of the sentences of a text
+     * @param sentences the selected sentences, mapped by their line number within the text; the line number is part of the ranking
+     * @param queryhashes
+     * @param maxLength
+     * @throws UnsupportedOperationException
+     */
+    public SnippetExtractor(final SortedMap<Integer, StringBuilder> sentences, final HandleSet queryhashes, int maxLength) throws UnsupportedOperationException {
         if (sentences == null) throw new UnsupportedOperationException("sentence == null");
         if (queryhashes == null || queryhashes.isEmpty()) throw new UnsupportedOperationException("queryhashes == null");
         SortedMap<byte[], Integer> hs;
@@ -45,9 +56,11 @@ public class SnippetExtractor {
         long uniqCounter = 999L;
         Integer pos;
         TreeSet<Integer> positions;
-        int linenumber = 0;
+        int linenumber;
         int fullmatchcounter = 0;
-        lookup: for (final StringBuilder sentence: sentences) {
+        lookup: for (final Map.Entry<Integer, StringBuilder> line: sentences.entrySet()) {
+            linenumber = line.getKey().intValue();
+            final StringBuilder sentence = line.getValue();
             hs = WordTokenizer.hashSentence(sentence.toString(), 100);
             positions = new TreeSet<Integer>();
             for (final byte[] word: queryhashes) {
@@ -68,7 +81,6 @@ public class SnippetExtractor {
                 if (positions.size() == queryhashes.size()) fullmatchcounter++;
                 if (fullmatchcounter >= 3) break lookup;
             }
-            linenumber++;
         }
 
         StringBuilder sentence;
@@ -112,6 +124,43 @@ public class SnippetExtractor {
         throw new UnsupportedOperationException("no snippet computed");
     }
 
+    private static SortedMap<Integer, StringBuilder> lines(final Collection<StringBuilder> sentences) {
+        if (sentences == null) return null;
+        final SortedMap<Integer, StringBuilder> lines = new TreeMap<Integer, StringBuilder>();
+        int linenumber = 0;
+        for (final StringBuilder sentence: sentences) lines.put(linenumber++, sentence);
+        return lines;
+    }
+
+    /**
+     * compute a bit mask of the words in a sentence: every word sets one of 64 bits which is selected by the word hash.
+     * The words are the same which are used to rank the sentence in the snippet computation, so a sentence can only
+     * match a query if the mask of the query words and the mask of the sentence have a common bit.
+     * @param sentence
+     * @return the bit mask
+     */
+    public static long wordBits(final String sentence) {
+        long bits = 0L;
+        for (final byte[] hash: WordTokenizer.hashSentence(sentence, 100).keySet()) bits |= wordBit(hash);
+        return bits;
+    }
+
+    /**
+     * @param hashes word hashes, i.e. of the query words
+     * @return the bit mask of the words
+     */
+    public static long wordBits(final HandleSet hashes) {
+        long bits = 0L;
+        for (final byte[] hash: hashes) bits |= wordBit(hash);
+        return bits;
+    }
+
+    private static long wordBit(final byte[] hash) {
+        int h = 0;
+        for (final byte b: hash) h = 31 * h + b;
+        return 1L << (h & 63);
+    }
+
     private static int linelengthKey(int givenlength, int maxlength) {
         if (givenlength > maxlength) return 1;
         if (givenlength >= maxlength / 2 && givenlength < maxlength) return 7;
@@ -21,7 +21,6 @@ package net.yacy.http.servlets;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -1016,23 +1015,21 @@ public class YaCyDefaultServlet extends HttpServlet  {
                 
                 String mimeType = Classification.ext2mime(targetExt, MimeTypes.Type.TEXT_HTML.asString());
 
-                InputStream fis;
                 long fileSize = targetFile.length();
 
-                if (fileSize <= Math.min(4 * 1024 * 1204, MemoryControl.available() / 100)) {
-                    // read file completely into ram, avoid that too many files are open at the same time
-                    fis = new ByteArrayInputStream(FileUtils.read(targetFile));
-                } else {
-                    fis = new BufferedInputStream(new FileInputStream(targetFile));
-                }
-
                 // set response header
                 response.setContentType(mimeType);
                 response.setStatus(HttpServletResponse.SC_OK);
                 ByteArrayOutputStream bas = new ByteArrayOutputStream(4096);
                 // apply templates
-                TemplateEngine.writeTemplate(targetFile.getName(), fis, bas, templatePatterns);                
-                fis.close();
+                if (fileSize <= Math.min(4 * 1024 * 1204, MemoryControl.available() / 100)) {
+                    // the template is parsed once and kept in ram as compiled template until the file changes
+                    TemplateEngine.writeTemplate(targetFile, bas, templatePatterns);
+                } else {
+                    InputStream fis = new BufferedInputStream(new FileInputStream(targetFile));
+                    TemplateEngine.writeTemplate(targetFile.getName(), fis, bas, templatePatterns);
+                    fis.close();
+                }
                 // handle SSI
                 parseSSI (bas.toByteArray(),request,response);
             }
@@ -31,6 +31,8 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -38,7 +40,6 @@ import java.util.List;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
@@ -49,6 +50,8 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.date.GenericFormatter;
 import net.yacy.cora.document.encoding.ASCII;
@@ -63,6 +66,7 @@ import net.yacy.kelondro.rwi.Reference;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.rwi.ReferenceFactory;
 import net.yacy.kelondro.rwi.ReferenceIterator;
+import net.yacy.kelondro.rwi.ReferenceMerger;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.MergeIterator;
@@ -87,6 +91,8 @@ public class ArrayStack implements BLOB {
     private static final long maxFileSize = Integer.MAX_VALUE;
     public  static final long oneMonth    = 1000L * 60L * 60L * 24L * 365L / 12L;
 
+    public static boolean mappedRead = false; // overwrite this to read BLOB files which are not written any more through a memory mapping
+
     private       int            keylength;
     private       ByteOrder      ordering;
     private final File           heapLocation;
@@ -94,7 +100,7 @@ public class ArrayStack implements BLOB {
     private       long           fileSizeLimit;
     private       long           repositoryAgeMax;
     private       long           repositorySizeMax;
-    private       List<blobItem> blobs;
+    private volatile List<blobItem> blobs; // an immutable snapshot; modifications replace the whole list
     private final String         prefix;
     private final int            buffersize;
     private final boolean        trimall;
@@ -208,6 +214,7 @@ public class ArrayStack implements BLOB {
                        } else {
                            oneBlob = new HeapModifier(f, keylength, ordering);
                            oneBlob.optimize(); // no writings here, can be used with minimum memory
+                           if (mappedRead) ((HeapModifier) oneBlob).map();
                        }
                        sortedItems.put(Long.valueOf(time), new blobItem(d, f, oneBlob));
                    } catch (final IOException e) {
@@ -223,16 +230,51 @@ public class ArrayStack implements BLOB {
         }
 
         // read the blob tree in a sorted way and write them into an array
-        this.blobs = new CopyOnWriteArrayList<blobItem>();
-        for (final blobItem bi : sortedItems.values()) {
-            this.blobs.add(bi);
-        }
+        this.blobs = Collections.unmodifiableList(new ArrayList<blobItem>(sortedItems.values()));
+    }
+
+    /*
+     * The list of blobs is a copy-on-write snapshot: all read methods take the current list once and work on it
+     * without any synchronization. All methods that mount or unmount a blob are synchronized among each other and
+     * replace the list with a modified copy. A reader that still holds an old snapshot may see a blobItem which has
+     * been unmounted in the meantime. Therefore readers must acquire the blob of an item and release it after use;
+     * an unmounted blob is closed when the last reader releases it, and acquire returns null for a closed blob.
+     */
+
+    private void addBlob(final blobItem bi) {
+        final List<blobItem> b = new ArrayList<blobItem>(this.blobs.size() + 1);
+        b.addAll(this.blobs);
+        b.add(bi);
+        this.blobs = Collections.unmodifiableList(b);
+    }
+
+    private blobItem removeBlob(final int idx) {
+        final List<blobItem> b = new ArrayList<blobItem>(this.blobs);
+        final blobItem bi = b.remove(idx);
+        this.blobs = Collections.unmodifiableList(b);
+        return bi;
+    }
+
+    /**
+     * @return the current list of blobs; the list is empty after close()
+     */
+    private List<blobItem> snapshot() {
+        final List<blobItem> blobs = this.blobs;
+        return (blobs == null) ? Collections.<blobItem>emptyList() : blobs;
     }
 
     @Override
     public long mem() {
         long m = 0;
-        if (this.blobs != null) for (final blobItem b: this.blobs) m += b.blob.mem();
+        for (final blobItem bi: snapshot()) {
+            final BLOB blob = bi.acquire();
+            if (blob == null) continue;
+            try {
+                m += blob.mem();
+            } finally {
+                bi.release();
+            }
+        }
         return m;
     }
 
@@ -250,7 +292,7 @@ public class ArrayStack implements BLOB {
      * @param location
      * @throws IOException
      */
-    public synchronized void mountBLOB(final File location, final boolean full) throws IOException {
+    public void mountBLOB(final File location, final boolean full) throws IOException {
         Date d;
         try {
             d = my_SHORT_MILSEC_FORMATTER.parse(location.getName().substring(this.prefix.length() + 1, this.prefix.length() + 18), 0).getTime();
@@ -263,8 +305,12 @@ public class ArrayStack implements BLOB {
         } else {
             oneBlob = new HeapModifier(location, this.keylength, this.ordering);
             oneBlob.optimize();
+            if (mappedRead) ((HeapModifier) oneBlob).map();
+        }
+        // the blob is opened outside of the lock because reading its index may take some time
+        synchronized (this) {
+            addBlob(new blobItem(d, location, oneBlob));
         }
-        this.blobs.add(new blobItem(d, location, oneBlob));
     }
 
     private synchronized void unmountBLOB(final File location, final boolean writeIDX) {
@@ -272,10 +318,8 @@ public class ArrayStack implements BLOB {
         for (int i = 0; i < this.blobs.size(); i++) {
             b = this.blobs.get(i);
             if (b.location.getAbsolutePath().equals(location.getAbsolutePath())) {
-                this.blobs.remove(i);
-                b.blob.close(writeIDX);
-                b.blob = null;
-                b.location = null;
+                removeBlob(i);
+                b.retire(writeIDX);
                 return;
             }
         }
@@ -283,12 +327,7 @@ public class ArrayStack implements BLOB {
     }
 
     private File unmount(final int idx) {
-        final blobItem b = this.blobs.remove(idx);
-        b.blob.close(false);
-        b.blob = null;
-        final File f = b.location;
-        b.location = null;
-        return f;
+        return removeBlob(idx).retire(false);
     }
 
     public synchronized File[] unmountBestMatch(final float maxq, long maxResultSize) {
@@ -374,8 +413,9 @@ public class ArrayStack implements BLOB {
      * return the number of BLOB files in this array
      * @return
      */
-    public synchronized int entries() {
-        return (this.blobs == null) ? 0 : this.blobs.size();
+    public int entries() {
+        final List<blobItem> blobs = this.blobs;
+        return (blobs == null) ? 0 : blobs.size();
     }
 
     /**
@@ -399,7 +439,7 @@ public class ArrayStack implements BLOB {
         this.fileAgeLimit = Math.min(oneMonth, maxAge / 10);
     }
 
-    public void setMaxSize(final long maxSize) {
+    public synchronized void setMaxSize(final long maxSize) {
         this.repositorySizeMax = maxSize;
         this.fileSizeLimit = Math.min(maxFileSize, maxSize / 100L);
         executeLimits();
@@ -412,18 +452,13 @@ public class ArrayStack implements BLOB {
         // age limit:
         while (!this.blobs.isEmpty() && System.currentTimeMillis() - this.blobs.get(0).creation.getTime() - this.fileAgeLimit > this.repositoryAgeMax) {
             // too old
-            final blobItem oldestBLOB = this.blobs.remove(0);
-            oldestBLOB.blob.close(false);
-            oldestBLOB.blob = null;
-            FileUtils.deletedelete(oldestBLOB.location);
+            FileUtils.deletedelete(removeBlob(0).retire(false));
         }
 
         // size limit
         while (!this.blobs.isEmpty() && length() > this.repositorySizeMax) {
             // too large
-            final blobItem oldestBLOB = this.blobs.remove(0);
-            oldestBLOB.blob.close(false);
-            FileUtils.deletedelete(oldestBLOB.location);
+            FileUtils.deletedelete(removeBlob(0).retire(false));
         }
     }
 
@@ -431,9 +466,12 @@ public class ArrayStack implements BLOB {
      * return the size of the repository (in bytes)
      */
     @Override
-    public synchronized long length() {
+    public long length() {
         long s = 0;
-        for (int i = 0; i < this.blobs.size(); i++) s += this.blobs.get(i).location.length();
+        for (final blobItem bi: snapshot()) {
+            final File location = bi.location;
+            if (location != null) s += location.length();
+        }
         return s;
     }
 
@@ -444,8 +482,10 @@ public class ArrayStack implements BLOB {
 
     private class blobItem {
         Date creation;
-        File location;
-        BLOB blob;
+        volatile File location;
+        volatile BLOB blob;
+        private final AtomicInteger refs = new AtomicInteger(1); // one reference is held by the list of blobs
+        private volatile boolean writeIDX = false;
         public blobItem(final Date creation, final File location, final BLOB blob) {
             assert blob != null;
             this.creation = creation;
@@ -458,6 +498,36 @@ public class ArrayStack implements BLOB {
             this.location = newBLOB(this.creation);
             this.blob = (buffer == 0) ? new HeapModifier(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering) : new Heap(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering, buffer);
         }
+        /**
+         * get the blob for reading; every successful acquire must be followed by a release
+         * @return the blob or null if the blob is closed
+         */
+        public BLOB acquire() {
+            while (true) {
+                final int r = this.refs.get();
+                if (r <= 0) return null;
+                if (this.refs.compareAndSet(r, r + 1)) return this.blob;
+            }
+        }
+        public void release() {
+            if (this.refs.decrementAndGet() > 0) return;
+            final BLOB b = this.blob;
+            this.blob = null;
+            if (b != null) b.close(this.writeIDX);
+        }
+        /**
+         * drop the reference of the list of blobs; this must be called after the item is removed from the list.
+         * The blob is closed now or when the last reader releases it.
+         * @param writeIDX
+         * @return the location of the blob file
+         */
+        public File retire(final boolean writeIDX) {
+            this.writeIDX = writeIDX;
+            final File f = this.location;
+            this.location = null;
+            release();
+            return f;
+        }
     }
 
     /**
@@ -475,12 +545,12 @@ public class ArrayStack implements BLOB {
      */
     @Override
     public synchronized void clear() throws IOException {
-        for (final blobItem bi: this.blobs) {
+        final List<blobItem> blobs = snapshot();
+        this.blobs = Collections.emptyList();
+        for (final blobItem bi: blobs) {
             bi.blob.clear();
-            bi.blob.close(false);
-            HeapWriter.delete(bi.location);
+            HeapWriter.delete(bi.retire(false));
         }
-        this.blobs.clear();
     }
 
     /**
@@ -488,15 +558,31 @@ public class ArrayStack implements BLOB {
      * @return the number of entries in the table
      */
     @Override
-    public synchronized int size() {
+    public int size() {
         int s = 0;
-        for (final blobItem bi: this.blobs) s += bi.blob.size();
+        for (final blobItem bi: snapshot()) {
+            final BLOB blob = bi.acquire();
+            if (blob == null) continue;
+            try {
+                s += blob.size();
+            } finally {
+                bi.release();
+            }
+        }
         return s;
     }
 
     @Override
-    public synchronized boolean isEmpty() {
-        for (final blobItem bi: this.blobs) if (!bi.blob.isEmpty()) return false;
+    public boolean isEmpty() {
+        for (final blobItem bi: snapshot()) {
+            final BLOB blob = bi.acquire();
+            if (blob == null) continue;
+            try {
+                if (!blob.isEmpty()) return false;
+            } finally {
+                bi.release();
+            }
+        }
         return true;
     }
 
@@ -504,11 +590,22 @@ public class ArrayStack implements BLOB {
      * ask for the number of blob entries in each blob of the blob array
      * @return the number of entries in each blob
      */
-    public synchronized int[] sizes() {
-        if (this.blobs == null) return new int[0];
-        final int[] s = new int[this.blobs.size()];
+    public int[] sizes() {
+        final List<blobItem> blobs = snapshot();
+        final int[] s = new int[blobs.size()];
         int c = 0;
-        for (final blobItem bi: this.blobs) s[c++] = bi.blob.size();
+        for (final blobItem bi: blobs) {
+            final BLOB blob = bi.acquire();
+            if (blob == null) {
+                s[c++] = 0;
+                continue;
+            }
+            try {
+                s[c++] = blob.size();
+            } finally {
+                bi.release();
+            }
+        }
         return s;
     }
 
@@ -520,12 +617,23 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized CloneableIterator<byte[]> keys(final boolean up, final boolean rotating) throws IOException {
+    public CloneableIterator<byte[]> keys(final boolean up, final boolean rotating) throws IOException {
         assert rotating == false;
-        final List<CloneableIterator<byte[]>> c = new ArrayList<CloneableIterator<byte[]>>(this.blobs.size());
-        final Iterator<blobItem> i = this.blobs.iterator();
+        final List<blobItem> blobs = snapshot();
+        final List<CloneableIterator<byte[]>> c = new ArrayList<CloneableIterator<byte[]>>(blobs.size());
+        final Iterator<blobItem> i = blobs.iterator();
         while (i.hasNext()) {
-            c.add(i.next().blob.keys(up, rotating));
+            final blobItem bi = i.next();
+            final BLOB blob = bi.acquire();
+            if (blob == null) continue;
+            try {
+                final CloneableIterator<byte[]> keys = blob.keys(up, rotating);
+                if (keys == null) bi.release(); else c.add(new BlobKeys(bi, keys)); // the reference is released by the iterator
+            } catch (final IOException e) {
+                bi.release();
+                for (final CloneableIterator<byte[]> k: c) k.close();
+                throw e;
+            }
         }
         return MergeIterator.cascade(c, this.ordering, MergeIterator.simpleMerge, up);
     }
@@ -538,15 +646,86 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
-        final List<CloneableIterator<byte[]>> c = new ArrayList<CloneableIterator<byte[]>>(this.blobs.size());
-        final Iterator<blobItem> i = this.blobs.iterator();
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
+        final List<blobItem> blobs = snapshot();
+        final List<CloneableIterator<byte[]>> c = new ArrayList<CloneableIterator<byte[]>>(blobs.size());
+        final Iterator<blobItem> i = blobs.iterator();
         while (i.hasNext()) {
-            c.add(i.next().blob.keys(up, firstKey));
+            final blobItem bi = i.next();
+            final BLOB blob = bi.acquire();
+            if (blob == null) continue;
+            try {
+                final CloneableIterator<byte[]> keys = blob.keys(up, firstKey);
+                if (keys == null) bi.release(); else c.add(new BlobKeys(bi, keys)); // the reference is released by the iterator
+            } catch (final IOException e) {
+                bi.release();
+                for (final CloneableIterator<byte[]> k: c) k.close();
+                throw e;
+            }
         }
         return MergeIterator.cascade(c, this.ordering, MergeIterator.simpleMerge, up);
     }
 
+    /**
+     * the keys of one blob. The iterator holds a reference of the blob, so the blob is not closed
+     * when it is unmounted during the iteration; the reference is released when the iteration is
+     * finished or closed.
+     */
+    private static class BlobKeys implements CloneableIterator<byte[]> {
+
+        private final blobItem bi;
+        private final CloneableIterator<byte[]> keys;
+        private final AtomicBoolean released;
+
+        /**
+         * @param bi the blob item; the caller must have acquired a reference which is taken over by this iterator
+         * @param keys the keys of the blob or null for an empty iteration without a reference
+         */
+        private BlobKeys(final blobItem bi, final CloneableIterator<byte[]> keys) {
+            this.bi = bi;
+            this.keys = keys;
+            this.released = new AtomicBoolean(keys == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.released.get()) return false;
+            if (this.keys.hasNext()) return true;
+            close();
+            return false;
+        }
+
+        @Override
+        public byte[] next() {
+            if (this.released.get()) return null;
+            return this.keys.next();
+        }
+
+        @Override
+        public void remove() {
+            this.keys.remove();
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            if (this.keys == null || this.bi.acquire() == null) return new BlobKeys(this.bi, null);
+            try {
+                return new BlobKeys(this.bi, this.keys.clone(modifier));
+            } catch (final RuntimeException e) {
+                this.bi.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (this.released.compareAndSet(false, true)) {
+                this.keys.close();
+                this.bi.release();
+            }
+        }
+    }
+
     /**
      * check if a specific key is in the database
      * @param key  the primary key
@@ -554,7 +733,7 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized boolean containsKey(final byte[] key) {
+    public boolean containsKey(final byte[] key) {
     	final blobItem bi = keeperOf(key);
     	return bi != null;
         //for (blobItem bi: blobs) if (bi.blob.has(key)) return true;
@@ -568,21 +747,22 @@ public class ArrayStack implements BLOB {
      * @return the blobItem that holds the key or null if no blobItem is found
      */
     private blobItem keeperOf(final byte[] key) {
-        if (this.blobs.isEmpty()) return null;
-        if (this.blobs.size() == 1) {
-            final blobItem bi = this.blobs.get(0);
-            if (bi.blob.containsKey(key)) return bi;
+        final List<blobItem> blobs = this.blobs;
+        if (blobs == null || blobs.isEmpty()) return null;
+        if (blobs.size() == 1) {
+            final blobItem bi = blobs.get(0);
+            if (contains(bi, key)) return bi;
             return null;
         }
 
         // first check the current blob only because that has most probably the key if any has that key
-        int bs1 = this.blobs.size() - 1;
-        blobItem bi = this.blobs.get(bs1);
-        if (bi.blob.containsKey(key)) return bi;
-        if (this.blobs.size() == 2) {
+        int bs1 = blobs.size() - 1;
+        blobItem bi = blobs.get(bs1);
+        if (contains(bi, key)) return bi;
+        if (blobs.size() == 2) {
             // this should not be done concurrently
-            bi = this.blobs.get(0);
-            if (bi.blob.containsKey(key)) return bi;
+            bi = blobs.get(0);
+            if (contains(bi, key)) return bi;
             return null;
         }
 
@@ -590,12 +770,12 @@ public class ArrayStack implements BLOB {
         final CompletionService<blobItem> cs = new ExecutorCompletionService<blobItem>(this.executor);
         int accepted = 0;
         for (int i = 0; i < bs1; i++) {
-            final blobItem b = this.blobs.get(i);
+            final blobItem b = blobs.get(i);
             try {
                 cs.submit(new Callable<blobItem>() {
                     @Override
                     public blobItem call() {
-                        if (b.blob.containsKey(key)) return b;
+                        if (contains(b, key)) return b;
                         return null;
                     }
                 });
@@ -603,7 +783,7 @@ public class ArrayStack implements BLOB {
             } catch (final RejectedExecutionException e) {
                 // the executor is either shutting down or the blocking queue is full
                 // execute the search direct here without concurrency
-                if (b.blob.containsKey(key)) return b;
+                if (contains(b, key)) return b;
             }
         }
 
@@ -631,6 +811,36 @@ public class ArrayStack implements BLOB {
         return null;
     }
 
+    private static boolean contains(final blobItem bi, final byte[] key) {
+        final BLOB blob = bi.acquire();
+        if (blob == null) return false;
+        try {
+            return blob.containsKey(key);
+        } finally {
+            bi.release();
+        }
+    }
+
+    private static byte[] get(final blobItem bi, final byte[] key) throws IOException, SpaceExceededException {
+        final BLOB blob = bi.acquire();
+        if (blob == null) return null;
+        try {
+            return blob.get(key);
+        } finally {
+            bi.release();
+        }
+    }
+
+    private static long length(final blobItem bi, final byte[] key) throws IOException {
+        final BLOB blob = bi.acquire();
+        if (blob == null) return -1;
+        try {
+            return blob.length(key);
+        } finally {
+            bi.release();
+        }
+    }
+
     /**
      * retrieve the whole BLOB from the table
      * @param key  the primary key
@@ -639,14 +849,12 @@ public class ArrayStack implements BLOB {
      */
     @Override
     public byte[] get(final byte[] key) throws IOException, SpaceExceededException {
-        if (this.blobs == null || this.blobs.isEmpty()) return null;
-        if (this.blobs.size() == 1) {
-            final blobItem bi = this.blobs.get(0);
-            return bi.blob.get(key);
-        }
+        final List<blobItem> blobs = this.blobs;
+        if (blobs == null || blobs.isEmpty()) return null;
+        if (blobs.size() == 1) return get(blobs.get(0), key);
 
         final blobItem bi = keeperOf(key);
-    	return (bi == null) ? null : bi.blob.get(key);
+    	return (bi == null) ? null : get(bi, key);
 
     	/*
     	byte[] b;
@@ -688,17 +896,15 @@ public class ArrayStack implements BLOB {
         private final byte[] key;
 
         public BlobValues(final byte[] key) {
-            this.bii = ArrayStack.this.blobs.iterator();
+            this.bii = snapshot().iterator();
             this.key = key;
         }
 
         @Override
         protected byte[] next0() {
             while (this.bii.hasNext()) {
-                final BLOB b = this.bii.next().blob;
-                if (b == null) continue;
                 try {
-                    final byte[] n = b.get(this.key);
+                    final byte[] n = get(this.bii.next(), this.key);
                     if (n != null) return n;
                 } catch (final IOException e) {
                     ConcurrentLog.severe("ArrayStack", "BlobValues - IOException: " + e.getMessage(), e);
@@ -719,10 +925,10 @@ public class ArrayStack implements BLOB {
      * @throws IOException
      */
     @Override
-    public synchronized long length(final byte[] key) throws IOException {
+    public long length(final byte[] key) throws IOException {
         long l;
-        for (final blobItem bi: this.blobs) {
-            l = bi.blob.length(key);
+        for (final blobItem bi: snapshot()) {
+            l = length(bi, key);
             if (l >= 0) return l;
         }
         return -1;
@@ -735,6 +941,127 @@ public class ArrayStack implements BLOB {
      * @return
      * @throws IOException
      */
+    /**
+     * get the first bytes of all blobs for the given key
+     * @param key
+     * @param maxlen the maximum number of bytes from each blob
+     * @return the heads of all blobs with that key
+     * @throws IOException
+     */
+    public Iterable<byte[]> headAll(final byte[] key, final int maxlen) throws IOException {
+        return new BlobHeads(key, maxlen);
+    }
+
+    private class BlobHeads extends LookAheadIterator<byte[]> {
+
+        private final Iterator<blobItem> bii;
+        private final byte[] key;
+        private final int maxlen;
+
+        public BlobHeads(final byte[] key, final int maxlen) {
+            this.bii = snapshot().iterator();
+            this.key = key;
+            this.maxlen = maxlen;
+        }
+
+        @Override
+        protected byte[] next0() {
+            while (this.bii.hasNext()) {
+                final blobItem bi = this.bii.next();
+                final BLOB b = bi.acquire();
+                if (b == null) continue;
+                try {
+                    final byte[] n;
+                    if (b instanceof HeapReader && !(b instanceof Heap)) { // a Heap may have the blob in its write buffer
+                        n = ((HeapReader) b).head(this.key, this.maxlen);
+                    } else {
+                        final byte[] a = b.get(this.key);
+                        n = (a == null || a.length <= this.maxlen) ? a : Arrays.copyOf(a, this.maxlen);
+                    }
+                    if (n != null) return n;
+                } catch (final IOException e) {
+                    ConcurrentLog.severe("ArrayStack", "BlobHeads - IOException: " + e.getMessage(), e);
+                    return null;
+                } catch (final SpaceExceededException e) {
+                    ConcurrentLog.severe("ArrayStack", "BlobHeads - RowSpaceExceededException: " + e.getMessage(), e);
+                    break;
+                } finally {
+                    bi.release();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * access to parts of a single BLOB without reading the complete BLOB
+     */
+    public interface BlobRange {
+        public long length();
+        public boolean read(long offset, byte[] b, int off, int len) throws IOException;
+    }
+
+    /**
+     * get range readers for all BLOBs of a key. Parts of BLOBs in sealed heap files are read from the file
+     * on demand, BLOBs in a writable heap are read completely.
+     * @param key
+     * @return a list of range readers, one for every BLOB of the key
+     * @throws IOException
+     */
+    public List<BlobRange> rangeAll(final byte[] key) throws IOException {
+        final List<BlobRange> ranges = new ArrayList<BlobRange>();
+        for (final blobItem bi: snapshot()) {
+            final BLOB b = bi.acquire();
+            if (b == null) continue;
+            try {
+                if (b instanceof HeapReader && !(b instanceof Heap)) { // a Heap may have the blob in its write buffer
+                    final long length = b.length(key);
+                    if (length < 0) continue;
+                    ranges.add(new BlobRange() {
+                        @Override
+                        public long length() {
+                            return length;
+                        }
+                        @Override
+                        public boolean read(final long offset, final byte[] t, final int off, final int len) throws IOException {
+                            // the blob may have been unmounted since the range was created
+                            final BLOB rb = bi.acquire();
+                            if (rb == null) return false;
+                            try {
+                                return ((HeapReader) rb).read(key, offset, t, off, len);
+                            } finally {
+                                bi.release();
+                            }
+                        }
+                    });
+                } else {
+                    final byte[] a;
+                    try {
+                        a = b.get(key);
+                    } catch (final SpaceExceededException e) {
+                        throw new IOException(e.getMessage());
+                    }
+                    if (a == null) continue;
+                    ranges.add(new BlobRange() {
+                        @Override
+                        public long length() {
+                            return a.length;
+                        }
+                        @Override
+                        public boolean read(final long offset, final byte[] t, final int off, final int len) {
+                            if (offset < 0 || offset + len > a.length) return false;
+                            System.arraycopy(a, (int) offset, t, off, len);
+                            return true;
+                        }
+                    });
+                }
+            } finally {
+                bi.release();
+            }
+        }
+        return ranges;
+    }
+
     public Iterable<Long> lengthAll(final byte[] key) throws IOException {
         return new BlobLengths(key);
     }
@@ -745,17 +1072,15 @@ public class ArrayStack implements BLOB {
         private final byte[] key;
 
         public BlobLengths(final byte[] key) {
-            this.bii = ArrayStack.this.blobs.iterator();
+            this.bii = snapshot().iterator();
             this.key = key;
         }
 
         @Override
         protected Long next0() {
             while (this.bii.hasNext()) {
-                final BLOB b = this.bii.next().blob;
-                if (b == null) continue;
                 try {
-                    final long l = b.length(this.key);
+                    final long l = length(this.bii.next(), this.key);
                     if (l >= 0) return Long.valueOf(l);
                 } catch (final IOException e) {
                     ConcurrentLog.severe("ArrayStack", "", e);
@@ -772,10 +1097,10 @@ public class ArrayStack implements BLOB {
      * @return the size of the BLOB or -1 if the BLOB does not exist
      * @throws IOException
      */
-    public synchronized long lengthAdd(final byte[] key) throws IOException {
+    public long lengthAdd(final byte[] key) throws IOException {
         long l = 0;
-        for (final blobItem bi: this.blobs) {
-            l += bi.blob.length(key);
+        for (final blobItem bi: snapshot()) {
+            l += length(bi, key);
         }
         return l;
     }
@@ -801,7 +1126,7 @@ public class ArrayStack implements BLOB {
         if ((bi == null) || (System.currentTimeMillis() - bi.creation.getTime() > this.fileAgeLimit) || (bi.location.length() > this.fileSizeLimit && this.fileSizeLimit >= 0)) {
             // add a new blob to the array
             bi = new blobItem(this.buffersize);
-            this.blobs.add(bi);
+            addBlob(bi);
         }
         assert bi.blob instanceof Heap;
         bi.blob.insert(key, b);
@@ -886,9 +1211,10 @@ public class ArrayStack implements BLOB {
      */
     @Override
     public synchronized void close(final boolean writeIDX) {
-        for (final blobItem bi: this.blobs) bi.blob.close(writeIDX);
-        this.blobs.clear();
+        final List<blobItem> blobs = this.blobs;
+        if (blobs == null) return;
         this.blobs = null;
+        for (final blobItem bi: blobs) bi.retire(writeIDX);
     }
 
     /**
@@ -941,60 +1267,57 @@ public class ArrayStack implements BLOB {
     private static <ReferenceType extends Reference> File mergeWorker(
                     final ReferenceFactory<ReferenceType> factory,
                     final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer) {
-        // iterate both files and write a new one
-        ReferenceIterator<ReferenceType> i1 = null;
+        // check if one of the files is empty
         try {
-            i1 = new ReferenceIterator<ReferenceType>(f1, factory);
-            ReferenceIterator<ReferenceType> i2 = null;
-            try {
-                i2 = new ReferenceIterator<ReferenceType>(f2, factory);
-                if (!i1.hasNext()) {
-                    if (i2.hasNext()) {
-                        HeapWriter.delete(f1);
-                        if (f2.renameTo(newFile)) return newFile;
-                        return f2;
-                    }
+            final boolean e1 = isEmpty(f1, keylength);
+            final boolean e2 = isEmpty(f2, keylength);
+            if (e1) {
+                if (!e2) {
                     HeapWriter.delete(f1);
-                    HeapWriter.delete(f2);
-                    return null;
-                } else if (!i2.hasNext()) {
-                    HeapWriter.delete(f2);
-                    if (f1.renameTo(newFile)) return newFile;
-                    return f1;
+                    if (f2.renameTo(newFile)) return newFile;
+                    return f2;
                 }
-                assert i1.hasNext();
-                assert i2.hasNext();
-                final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
-                try {
-                    final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-                    merge(i1, i2, order, writer);
-                    writer.close(true);
-                } catch (final IOException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
-                } catch (final SpaceExceededException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
-                }
-                // we don't need the old files any more
                 HeapWriter.delete(f1);
                 HeapWriter.delete(f2);
-                return newFile;
-            } catch (final IOException e) {
-                ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f2 = " + f2.toString() + ": " + e.getMessage(), e);
                 return null;
-            } finally {
-                if (i2 != null) i2.close();
+            } else if (e2) {
+                HeapWriter.delete(f2);
+                if (f1.renameTo(newFile)) return newFile;
+                return f1;
             }
         } catch (final IOException e) {
-            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f1 = " + f1.toString() + ": " + e.getMessage(), e);
+            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f1 = " + f1.toString() + ", f2 = " + f2.toString() + ": " + e.getMessage(), e);
             return null;
+        }
+        // iterate both files and write a new one
+        final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+        try {
+            final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
+            ReferenceMerger.merge(f1, f2, factory, order, writer);
+            writer.close(true);
+        } catch (final IOException e) {
+            ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
+            HeapWriter.delete(tmpFile);
+            HeapWriter.delete(newFile);
+            return null;
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
+            HeapWriter.delete(tmpFile);
+            HeapWriter.delete(newFile);
+            return null;
+        }
+        // we don't need the old files any more
+        HeapWriter.delete(f1);
+        HeapWriter.delete(f2);
+        return newFile;
+    }
+
+    private static boolean isEmpty(final File f, final int keylength) throws IOException {
+        final HeapStreamReader reader = new HeapStreamReader(f, keylength, 4096);
+        try {
+            return reader.next() == null;
         } finally {
-            if (i1 != null) i1.close();
+            reader.close();
         }
     }
 
@@ -1037,107 +1360,6 @@ public class ArrayStack implements BLOB {
         return newFile;
     }
 
-    private static <ReferenceType extends Reference> void merge(
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i1,
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i2,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
-        assert i1.hasNext();
-        assert i2.hasNext();
-        byte[] c1lh, c2lh;
-        ReferenceContainer<ReferenceType> c1, c2;
-        c1 = i1.next();
-        c2 = i2.next();
-        int e, s;
-        while (true) {
-            assert c1 != null;
-            assert c2 != null;
-            e = ordering.compare(c1.getTermHash(), c2.getTermHash());
-            if (e < 0) {
-            	s = c1.shrinkReferences();
-            	if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-                writer.add(c1.getTermHash(), c1.exportCollection());
-                if (i1.hasNext()) {
-                    c1lh = c1.getTermHash();
-                    c1 = i1.next();
-                    assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                    continue;
-                }
-                c1 = null;
-                break;
-            }
-            if (e > 0) {
-                s = c2.shrinkReferences();
-                if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-                writer.add(c2.getTermHash(), c2.exportCollection());
-                if (i2.hasNext()) {
-                    c2lh = c2.getTermHash();
-                    c2 = i2.next();
-                    assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                    continue;
-                }
-                c2 = null;
-                break;
-            }
-            assert e == 0;
-            // merge the entries
-            c1 = c1.merge(c2);
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            c1lh = c1.getTermHash();
-            c2lh = c2.getTermHash();
-            if (i1.hasNext() && i2.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                continue;
-            }
-            c1 = null;
-            c2 = null;
-            if (i1.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            }
-            if (i2.hasNext()) {
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            }
-            break;
-
-        }
-        // catch up remaining entries
-        assert !(i1.hasNext() && i2.hasNext());
-        assert (c1 == null) || (c2 == null);
-        while (c1 != null) {
-            //System.out.println("FLUSH REMAINING 1: " + c1.getWordHash());
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            if (i1.hasNext()) {
-                c1lh = c1.getTermHash();
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            } else {
-                c1 = null;
-            }
-        }
-        while (c2 != null) {
-            //System.out.println("FLUSH REMAINING 2: " + c2.getWordHash());
-            s = c2.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-            writer.add(c2.getTermHash(), c2.exportCollection());
-            if (i2.hasNext()) {
-                c2lh = c2.getTermHash();
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            } else {
-                c2 = null;
-            }
-        }
-        // finished with writing
-    }
-
     private static <ReferenceType extends Reference> void rewrite(
             final CloneableIterator<ReferenceContainer<ReferenceType>> i,
             final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
@@ -280,6 +280,27 @@ public class Compressor implements BLOB, Iterable<byte[]> {
         if (MemoryControl.shortStatus()) flushAll();
     }
 
+    /**
+     * write a BLOB from a stream. The content is compressed while it is read, therefore only the compressed
+     * content is held in memory; the entry is written to the backend directly and not to the buffer.
+     * @param key
+     * @param is the content; the stream is not closed
+     * @throws IOException
+     */
+    public void insert(final byte[] key, final InputStream is) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+        baos.write(gzipMagic);
+        final OutputStream os = new GZIPOutputStream(baos, 65536){{def.setLevel(Deflater.BEST_COMPRESSION);}};
+        final byte[] b = new byte[65536];
+        int c;
+        while ((c = is.read(b)) > 0) os.write(b, 0, c);
+        os.close();
+        synchronized (this) {
+            delete(key);
+            this.backend.insert(key, baos.toByteArray());
+        }
+    }
+
     @Override
     public synchronized void delete(final byte[] key) throws IOException {
         this.backend.delete(key);
@@ -316,6 +316,19 @@ public final class Heap extends HeapModifier implements BLOB {
         this.close();
     }
     
+    @Override
+    protected boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * a heap with a write buffer is still growing and cannot be mapped
+     */
+    @Override
+    public boolean map() {
+        return false;
+    }
+
     public int getBuffermax() {
         return this.buffermax;
     }
@@ -64,6 +64,7 @@ public class HeapModifier extends HeapReader implements BLOB {
      */
     @Override
     public synchronized void clear() throws IOException {
+        unmap();
         this.index.clear();
         this.free.clear();
         this.file.close();
@@ -232,7 +233,8 @@ public class HeapModifier extends HeapReader implements BLOB {
                 Long seek = this.free.lastKey();
                 int size = this.free.get(seek).intValue();
                 if (seek.longValue() + size + 4 != this.file.length()) return;
-                // shrink the file
+                // shrink the file; a mapping must not survive a truncation
+                unmap();
                 this.file.setLength(seek.longValue());
                 this.free.remove(seek);
             }
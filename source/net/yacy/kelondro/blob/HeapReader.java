@@ -29,12 +29,17 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
@@ -46,11 +51,15 @@ import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.LookAheadIterator;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.MappedHandleMap;
+import net.yacy.kelondro.index.OffHeapHandleMap;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.io.CachedFileWriter;
+import net.yacy.kelondro.io.MappedFileReader;
 import net.yacy.kelondro.io.Writer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 import net.yacy.kelondro.util.RotateIterator;
 
 
@@ -60,6 +69,12 @@ public class HeapReader {
 
 	private final static ConcurrentLog log = new ConcurrentLog("HeapReader");
 
+	public static boolean offHeapIndex = false; // overwrite this to hold the key/seek index of heap files outside of the java heap
+	public static boolean mappedIndex = false; // overwrite this to use the index dump of heap files which are not written any more directly with a memory mapping
+
+	// one thread for all heaps which verifies mapped index dumps after they have been opened
+	private final static ExecutorService verifier = new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory("HeapReader.verifier"));
+
     // input values
     protected int                keylength;  // the length of the primary key
     protected File               heapFile;   // the file of the heap
@@ -71,6 +86,7 @@ public class HeapReader {
     protected Gap                free;       // set of {seek, size} pairs denoting space and position of free records
     private   File               fingerprintFileIdx, fingerprintFileGap; // files with dumped indexes. Will be deleted if file is written
     private   Date               closeDate;  // records a time when the file was closed; used for debugging
+    private volatile MappedFileReader mapped; // a read-only mapping of the file, only used if the heap is not written any more
 
     public HeapReader(
             final File heapFile,
@@ -84,6 +100,7 @@ public class HeapReader {
         this.heapFile.getParentFile().mkdirs();
         this.file = new CachedFileWriter(this.heapFile);
         this.closeDate = null;
+        this.mapped = null;
 
         // read or initialize the index
         this.fingerprintFileIdx = null;
@@ -135,6 +152,40 @@ public class HeapReader {
         this.index.optimize();
     }
 
+    /**
+     * map the heap file into memory for reading. This must only be done for heap files which do not grow any more,
+     * because the mapping covers only the file length at the time of mapping. After mapping, get() and length(key)
+     * read positionally from the mapping and do not need to synchronize on the shared file pointer.
+     * @return true if the file is mapped
+     */
+    public boolean map() {
+        if (this.mapped != null) return true;
+        if (this.heapFile.length() == 0) return false;
+        try {
+            this.mapped = new MappedFileReader(this.heapFile);
+            return true;
+        } catch (final IOException e) {
+            // i.e. if the virtual address space is exhausted; we just go on with the file access
+            log.warn("cannot map heap file " + this.heapFile.getName() + ": " + e.getMessage());
+            this.mapped = null;
+            return false;
+        }
+    }
+
+    /**
+     * remove the mapping of the heap file. This must be called before the file is truncated.
+     * Reads which still use the mapping are finished first; later reads go to the file.
+     */
+    protected void unmap() {
+        final MappedFileReader m = this.mapped;
+        this.mapped = null;
+        if (m != null) m.close();
+    }
+
+    public boolean isMapped() {
+        return this.mapped != null;
+    }
+
     protected byte[] normalizeKey(byte[] key) {
         // check size of key: zero-filled keys are only possible of the ordering is
         // an instance of the natural ordering. Base64-orderings cannot use zeros in keys.
@@ -156,6 +207,22 @@ public class HeapReader {
         return k;
     }
 
+    /**
+     * a heap which is still written must have an index that can be extended
+     * @return true if new entries may be added to this heap
+     */
+    protected boolean isWritable() {
+        return false;
+    }
+
+    /**
+     * create a new, empty key/seek index as selected with offHeapIndex
+     */
+    protected static HandleMap newIndex(final int keylength, final ByteOrder ordering, final int expectedspace, final String name) {
+        if (offHeapIndex) return new OffHeapHandleMap(keylength, ordering, 8, expectedspace);
+        return new RowHandleMap(keylength, ordering, 8, expectedspace, name);
+    }
+
     private boolean initIndexReadDump() {
         // look for an index dump and read it if it exist
         // if this is successful, return true; otherwise false
@@ -174,9 +241,22 @@ public class HeapReader {
         }
 
         // there is an index and a gap file:
+        // if the heap is not written any more, the index dump can be used directly
+        this.index = null;
+        if (mappedIndex && !isWritable() && !this.fingerprintFileIdx.getName().endsWith(".gz")) {
+            try {
+                final MappedHandleMap mapped = new MappedHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx);
+                this.index = mapped;
+                verifyIndexInBackground(mapped);
+            } catch (final IOException e) {
+                log.warn("cannot map index dump " + this.fingerprintFileIdx.getName() + ", loading it: " + e.getMessage());
+            }
+        }
         // read the index file:
-        try {
-            this.index = new RowHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx);
+        if (this.index == null) try {
+            this.index = offHeapIndex ?
+                    new OffHeapHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx) :
+                    new RowHandleMap(this.keylength, this.ordering, 8, this.fingerprintFileIdx);
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
             return false;
@@ -205,6 +285,66 @@ public class HeapReader {
         return !this.index.isEmpty();
     }
 
+    /**
+     * check a mapped index dump in a concurrent process: the keys must be in order and the
+     * positions must point to records with the same key. The check of the positions is done
+     * only for a sample of the index to keep the random access to the heap file small.
+     * If the check fails, the dump is deleted, which causes a re-build of the index at the next start.
+     * Until then all reads are still correct because get() verifies the key of each record.
+     * @param mapped
+     */
+    private void verifyIndexInBackground(final MappedHandleMap mapped) {
+        verifier.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (HeapReader.this.index != mapped) return; // already closed
+                boolean ok = true;
+                try {
+                    final int e = mapped.verifyOrder();
+                    if (e >= 0) {
+                        log.severe("index dump " + mapped.file().getName() + " is not ordered at record " + e);
+                        ok = false;
+                    } else {
+                        final MappedFileReader heap = new MappedFileReader(HeapReader.this.heapFile);
+                        try {
+                            final int size = mapped.size();
+                            final int step = Math.max(1, size / 1000);
+                            final byte[] keyf = new byte[HeapReader.this.keylength];
+                            final Iterator<byte[]> i = mapped.keys(true, null);
+                            int c = 0;
+                            while (i.hasNext() && HeapReader.this.index == mapped) {
+                                final byte[] key = i.next();
+                                if (c++ % step != 0) continue;
+                                final long pos = mapped.get(key);
+                                if (pos < 0) continue; // removed in the meantime
+                                heap.readFully(pos + 4, keyf, 0, keyf.length);
+                                if (!HeapReader.this.ordering.equal(key, keyf) && mapped.get(key) >= 0) {
+                                    log.severe("index dump " + mapped.file().getName() + " points to a wrong record at " + pos);
+                                    ok = false;
+                                    break;
+                                }
+                            }
+                        } finally {
+                            heap.close();
+                        }
+                    }
+                } catch (final ClosedChannelException e) {
+                    return; // the heap was closed during the verification
+                } catch (final IOException e) {
+                    log.severe("verification of index dump " + mapped.file().getName() + " failed: " + e.getMessage());
+                    ok = false;
+                }
+                if (HeapReader.this.index != mapped) return; // closed during the verification
+                if (ok) {
+                    log.info("verified index dump " + mapped.file().getName());
+                } else {
+                    log.severe("deleting index dump of " + HeapReader.this.heapFile.getName() + "; the index will be re-built at the next start");
+                    deleteFingerprint();
+                }
+            }
+        });
+    }
+
     /**
      * deletion of the fingerprint: this should happen if the heap is written or entries are deleted
      * if the files are not deleted then it may be possible that they are not used anyway because the
@@ -252,7 +392,9 @@ public class HeapReader {
         log.info("generating index for " + this.heapFile.toString() + ", " + (this.file.length() / 1024 / 1024) + " MB. Please wait.");
 
         this.free = new Gap();
-        RowHandleMap.initDataConsumer indexready = RowHandleMap.asynchronusInitializer(this.name() + ".initializer", this.keylength, this.ordering, 8, Math.max(10, (int) (Runtime.getRuntime().freeMemory() / (10 * 1024 * 1024))));
+        // the off-heap index does not need to sort, so it is filled directly without the asynchronous initializer
+        final HandleMap direct = offHeapIndex ? newIndex(this.keylength, this.ordering, (int) Math.min(Integer.MAX_VALUE, this.file.length() / 256), this.name()) : null;
+        RowHandleMap.initDataConsumer indexready = direct != null ? null : RowHandleMap.asynchronusInitializer(this.name() + ".initializer", this.keylength, this.ordering, 8, Math.max(10, (int) (Runtime.getRuntime().freeMemory() / (10 * 1024 * 1024))));
         byte[] key = new byte[this.keylength];
         int reclen;
         long seek = 0;
@@ -287,8 +429,14 @@ public class HeapReader {
                 if (reclen > 0) this.free.put(seek, reclen);
             } else {
                 if (this.ordering.wellformed(key)) {
-                    indexready.consume(key, seek);
-                    key = new byte[this.keylength];
+                    if (direct == null) {
+                        indexready.consume(key, seek);
+                        key = new byte[this.keylength];
+                    } else try {
+                        direct.putUnique(key, seek);
+                    } catch (final SpaceExceededException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
                 } else {
                     // free the lost space
                     this.free.put(seek, reclen);
@@ -302,15 +450,19 @@ public class HeapReader {
             seek += 4L + reclen;
         }
         }
-        indexready.finish();
+        if (direct != null) {
+            this.index = direct;
+        } else {
+            indexready.finish();
 
-        // finish the index generation
-        try {
-            this.index = indexready.result();
-        } catch (final InterruptedException e) {
-        	ConcurrentLog.logException(e);
-        } catch (final ExecutionException e) {
-        	ConcurrentLog.logException(e);
+            // finish the index generation
+            try {
+                this.index = indexready.result();
+            } catch (final InterruptedException e) {
+            	ConcurrentLog.logException(e);
+            } catch (final ExecutionException e) {
+            	ConcurrentLog.logException(e);
+            }
         }
         log.info("finished index generation for " + this.heapFile.toString() + ", " + this.index.size() + " entries, " + this.free.size() + " gaps.");
     }
@@ -489,6 +641,21 @@ public class HeapReader {
         }
         key = normalizeKey(key);
 
+        final MappedFileReader m = this.mapped;
+        if (m != null) {
+            // lock-free access: the index is synchronized internally and the mapping is read positionally
+            final HandleMap idx = this.index;
+            if (idx == null) return null;
+            try {
+                final long pos = idx.get(key);
+                if (pos < 0) return null;
+                return getMapped(m, idx, key, pos);
+            } catch (final ClosedChannelException e) {
+                // unmapped in the meantime, read from the file
+                if (this.index == null) return null;
+            }
+        }
+
         synchronized (this.index) {
             // check if the index contains the key
             final long pos = this.index.get(key);
@@ -549,6 +716,124 @@ public class HeapReader {
         }
     }
 
+    /**
+     * read the first bytes of a blob. This is cheaper than get() if only a header of the blob is needed.
+     * @param key
+     * @param maxlen the maximum number of bytes to read
+     * @return the first bytes of the blob, less than maxlen if the blob is shorter, or null if the key does not exist
+     * @throws IOException
+     */
+    public byte[] head(byte[] key, final int maxlen) throws IOException {
+        if (this.index == null) return null;
+        key = normalizeKey(key);
+        final MappedFileReader m = this.mapped;
+        if (m != null) {
+            final HandleMap idx = this.index;
+            if (idx == null) return null;
+            try {
+                final long pos = idx.get(key);
+                if (pos < 0) return null;
+                final int len = m.readInt(pos) - this.keylength;
+                if (len < 0) return null;
+                final byte[] head = new byte[Math.min(len, maxlen)];
+                m.readFully(pos + 4 + this.keylength, head, 0, head.length);
+                return head;
+            } catch (final ClosedChannelException e) {
+                // unmapped in the meantime, read from the file
+                if (this.index == null) return null;
+            }
+        }
+        synchronized (this.index) {
+            final long pos = this.index.get(key);
+            if (pos < 0) return null;
+            this.file.seek(pos);
+            final int len = this.file.readInt() - this.keylength;
+            if (len < 0) return null;
+            this.file.seek(pos + 4 + this.keylength);
+            final byte[] head = new byte[Math.min(len, maxlen)];
+            this.file.readFully(head, 0, head.length);
+            return head;
+        }
+    }
+
+    /**
+     * read a part of a blob. This is cheaper than get() if only a few parts of a large blob are needed.
+     * @param key
+     * @param offset the position within the blob
+     * @param b the target array
+     * @param off the position in the target array
+     * @param len the number of bytes to read
+     * @return false if the key does not exist or the blob is shorter than offset + len
+     * @throws IOException
+     */
+    public boolean read(byte[] key, final long offset, final byte[] b, final int off, final int len) throws IOException {
+        if (this.index == null) return false;
+        key = normalizeKey(key);
+        final MappedFileReader m = this.mapped;
+        if (m != null) {
+            final HandleMap idx = this.index;
+            if (idx == null) return false;
+            try {
+                final long pos = idx.get(key);
+                if (pos < 0) return false;
+                final int bloblen = m.readInt(pos) - this.keylength;
+                if (offset < 0 || offset + len > bloblen) return false;
+                m.readFully(pos + 4 + this.keylength + offset, b, off, len);
+                return true;
+            } catch (final ClosedChannelException e) {
+                // unmapped in the meantime, read from the file
+                if (this.index == null) return false;
+            }
+        }
+        synchronized (this.index) {
+            final long pos = this.index.get(key);
+            if (pos < 0) return false;
+            this.file.seek(pos);
+            final int bloblen = this.file.readInt() - this.keylength;
+            if (offset < 0 || offset + len > bloblen) return false;
+            this.file.seek(pos + 4 + this.keylength + offset);
+            this.file.readFully(b, off, len);
+            return true;
+        }
+    }
+
+    private byte[] getMapped(final MappedFileReader m, final HandleMap idx, final byte[] key, final long pos) throws IOException, SpaceExceededException {
+        final int len = m.readInt(pos) - this.keylength;
+        if (len < 0) {
+            log.severe("file " + this.heapFile + " corrupted at " + pos + ": negative len. len = " + len + ", pk.len = " + this.keylength);
+            idx.remove(key);
+            return null;
+        }
+        long memr = len + this.keylength + 64;
+        if (MemoryControl.available() < memr) {
+            if (!MemoryControl.request(memr, true)) throw new SpaceExceededException(memr, "HeapReader.getMapped()/check"); // not enough memory available for this blob
+        }
+
+        // read and verify the key
+        final byte[] keyf = new byte[this.keylength];
+        m.readFully(pos + 4, keyf, 0, keyf.length);
+        if (!this.ordering.equal(key, keyf)) {
+            log.severe("indexed verification access failed for " + this.heapFile.toString());
+            idx.remove(key);
+            return null;
+        }
+
+        // read the blob
+        byte[] blob;
+        try {
+            blob = new byte[len];
+        } catch (final OutOfMemoryError e) {
+            MemoryControl.gc(1000, "HeapReader.getMapped()/blob");
+            try {
+                blob = new byte[len];
+            } catch (final OutOfMemoryError ee) {
+                throw new SpaceExceededException(len, "HeapReader.getMapped()/blob");
+            }
+        }
+        m.readFully(pos + 4 + this.keylength, blob, 0, blob.length);
+        return blob;
+    }
+
     public byte[] get(Object key) {
         if (!(key instanceof byte[])) return null;
         try {
@@ -586,6 +871,20 @@ public class HeapReader {
         }
         key = normalizeKey(key);
 
+        final MappedFileReader m = this.mapped;
+        if (m != null) {
+            final HandleMap idx = this.index;
+            if (idx == null) return -1;
+            try {
+                final long pos = idx.get(key);
+                if (pos < 0) return -1;
+                return m.readInt(pos) - this.keylength;
+            } catch (final ClosedChannelException e) {
+                // unmapped in the meantime, read from the file
+                if (this.index == null) return -1;
+            }
+        }
+
         synchronized (this.index) {
             // check if the index contains the key
             final long pos = this.index.get(key);
@@ -602,6 +901,7 @@ public class HeapReader {
      */
     public void close(boolean writeIDX) {
         if (this.index == null) return;
+        unmap();
         synchronized (this.index) {
             try {
             if (this.file != null)
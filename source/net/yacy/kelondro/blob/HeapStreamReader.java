@@ -0,0 +1,193 @@
+// HeapStreamReader.java
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A sequential reader for heap files which does not load the BLOBs into memory.
+ * In contrast to HeapReader.entries, next() only reads the key of the next record and
+ * the payload can be read afterwards in pieces of any size at any position with read().
+ * All reads go through one read window, so sequential reads cause only one system call per window.
+ */
+public final class HeapStreamReader implements Closeable {
+
+    private final File heapFile;
+    private final int keylength;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private final long length;
+
+    // the read window
+    private final byte[] window;
+    private long windowStart;
+    private int windowLength;
+
+    // the current record
+    private long next;
+    private byte[] key;
+    private long payloadStart;
+    private int payloadLength;
+
+    /**
+     * @param heapFile a closed heap file
+     * @param keylength the length of the keys in the heap file
+     * @param windowSize the size of the read window in bytes
+     * @throws IOException
+     */
+    public HeapStreamReader(final File heapFile, final int keylength, final int windowSize) throws IOException {
+        if (!heapFile.exists()) throw new IOException("file " + heapFile + " does not exist");
+        this.heapFile = heapFile;
+        this.keylength = keylength;
+        this.raf = new RandomAccessFile(heapFile, "r");
+        this.channel = this.raf.getChannel();
+        this.length = this.channel.size();
+        int ws = Math.max(keylength + 4, windowSize);
+        if (!MemoryControl.request(ws, false)) ws = Math.max(keylength + 4, 4096);
+        this.window = new byte[ws];
+        this.windowStart = 0;
+        this.windowLength = 0;
+        this.next = 0;
+        this.key = null;
+    }
+
+    public File file() {
+        return this.heapFile;
+    }
+
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * move to the next record which is not empty
+     * @return the key of the record or null if the end of the file is reached
+     * @throws IOException
+     */
+    public byte[] next() throws IOException {
+        final byte[] head = new byte[4 + this.keylength];
+        while (this.next + 4 <= this.length) {
+            final int h = (int) Math.min(head.length, this.length - this.next);
+            read(this.next, head, 0, h);
+            final int len = ((head[0] & 0xff) << 24) | ((head[1] & 0xff) << 16) | ((head[2] & 0xff) << 8) | (head[3] & 0xff);
+            if (len < 0 || this.next + 4 + len > this.length) throw new IOException("corrupted record at position " + this.next + " in " + this.heapFile.getName());
+            final long record = this.next;
+            this.next = record + 4 + len;
+            if (len == 0) continue; // rare, but possible: zero length record
+            if (head[4] == 0) continue; // an empty record
+            if (len < this.keylength) throw new IOException("corrupted record at position " + record + " in " + this.heapFile.getName());
+            this.key = new byte[this.keylength];
+            System.arraycopy(head, 4, this.key, 0, this.keylength);
+            this.payloadStart = record + 4 + this.keylength;
+            this.payloadLength = len - this.keylength;
+            return this.key;
+        }
+        this.key = null;
+        return null;
+    }
+
+    /**
+     * @return the key of the current record
+     */
+    public byte[] key() {
+        return this.key;
+    }
+
+    /**
+     * @return the length of the payload of the current record
+     */
+    public int payloadLength() {
+        return this.payloadLength;
+    }
+
+    /**
+     * read a part of the payload of the current record
+     * @param offset the position within the payload
+     * @param b the target array
+     * @param off the position in the target array
+     * @param len the number of bytes to read
+     * @throws IOException
+     */
+    public void readPayload(final long offset, final byte[] b, final int off, final int len) throws IOException {
+        assert this.key != null;
+        if (offset < 0 || offset + len > this.payloadLength) throw new IndexOutOfBoundsException("offset = " + offset + ", len = " + len + ", payloadLength = " + this.payloadLength);
+        read(this.payloadStart + offset, b, off, len);
+    }
+
+    /**
+     * read the complete payload of the current record
+     * @return the payload
+     * @throws IOException
+     */
+    public byte[] payload() throws IOException {
+        final byte[] b = new byte[this.payloadLength];
+        readPayload(0, b, 0, b.length);
+        return b;
+    }
+
+    private void read(long pos, final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pos >= this.windowStart && pos < this.windowStart + this.windowLength) {
+                final int p = (int) (pos - this.windowStart);
+                final int l = Math.min(len, this.windowLength - p);
+                System.arraycopy(this.window, p, b, off, l);
+                pos += l; off += l; len -= l;
+                continue;
+            }
+            if (len >= this.window.length) {
+                // large reads bypass the window
+                final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+                while (bb.hasRemaining()) {
+                    final int r = this.channel.read(bb, pos + bb.position() - off);
+                    if (r < 0) throw new EOFException("end of " + this.heapFile.getName() + " reached");
+                }
+                return;
+            }
+            fill(pos);
+        }
+    }
+
+    private void fill(final long pos) throws IOException {
+        final ByteBuffer bb = ByteBuffer.wrap(this.window, 0, (int) Math.min(this.window.length, this.length - pos));
+        while (bb.hasRemaining()) {
+            final int r = this.channel.read(bb, pos + bb.position());
+            if (r < 0) break;
+        }
+        if (bb.position() == 0) throw new EOFException("end of " + this.heapFile.getName() + " reached");
+        this.windowStart = pos;
+        this.windowLength = bb.position();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.raf != null) try {this.raf.close();} catch (final IOException e) {}
+        this.raf = null;
+        this.channel = null;
+    }
+}
@@ -29,13 +29,13 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
-import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.util.FileUtils;
 
 
@@ -82,7 +82,7 @@ public final class HeapWriter {
         this.heapFileTMP = temporaryHeapFile;
         this.heapFileREADY = readyHeapFile;
         this.keylength = keylength;
-        this.index = new RowHandleMap(keylength, ordering, 8, 100000, readyHeapFile.getAbsolutePath());
+        this.index = HeapReader.newIndex(keylength, ordering, 100000, readyHeapFile.getAbsolutePath());
         try {
             this.os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryHeapFile), outBuffer));
         } catch (final OutOfMemoryError e) {
@@ -116,6 +116,45 @@ public final class HeapWriter {
         //os.flush(); // necessary? may cause bad IO performance :-(
     }
 
+    /**
+     * add a BLOB to the heap which is written in pieces. The returned stream must be filled with
+     * exactly blobLength bytes and closed before any other BLOB is added.
+     * @param key
+     * @param blobLength the number of bytes that will be written to the returned stream
+     * @return a stream for the content of the BLOB
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public synchronized OutputStream add(byte[] key, final int blobLength) throws IOException, SpaceExceededException {
+        assert blobLength > 0;
+        key = HeapReader.normalizeKey(key, this.keylength);
+        assert key.length == this.keylength : "key.length == " + key.length + ", this.keylength = " + this.keylength;
+        assert this.index.get(key) < 0 : "index.get(key) = " + this.index.get(key) + ", key = " + UTF8.String(key); // must not occur before
+        this.index.putUnique(key, this.seek);
+        final int chunkl = this.keylength + blobLength;
+        this.os.writeInt(chunkl);
+        this.os.write(key);
+        this.seek += chunkl + 4;
+        final DataOutputStream target = this.os;
+        return new OutputStream() {
+            private int remaining = blobLength;
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                if (len > this.remaining) throw new IOException("BLOB exceeds announced length " + blobLength);
+                target.write(b, off, len);
+                this.remaining -= len;
+            }
+            @Override
+            public void close() throws IOException {
+                if (this.remaining != 0) throw new IOException("BLOB is " + this.remaining + " bytes shorter than announced length " + blobLength);
+            }
+        };
+    }
+
     /**
      * close the BLOB table
      * @throws
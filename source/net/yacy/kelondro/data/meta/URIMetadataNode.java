@@ -32,6 +32,8 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import net.yacy.cora.date.GenericFormatter;
@@ -44,9 +46,11 @@ import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.solr.SolrType;
 import net.yacy.cora.lod.vocabulary.Tagging;
 import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.SentenceReader;
+import net.yacy.document.SnippetExtractor;
 import net.yacy.document.Tokenizer;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.kelondro.data.word.Word;
@@ -528,6 +532,30 @@ public class URIMetadataNode extends SolrDocument /* implements Comparable<URIMe
         text = null;
         return sentences;
     }
+
+    /**
+     * get the sentences of the text which may contain one of the given words. The sentences are read at the
+     * positions in text_sentences_val and selected with the word masks in text_sentencebits_val, both computed at indexing time.
+     * @param wordhashes
+     * @return the selected sentences, mapped by their line number as in getSentences(false), or null if the text has no sentence positions
+     */
+    public SortedMap<Integer, StringBuilder> getSentences(final HandleSet wordhashes) {
+        final String text = this.getText();
+        if (text == null || text.length() == 0) return null;
+        final ArrayList<Integer> offsets = getIntList(CollectionSchema.text_sentences_val);
+        if (offsets.isEmpty()) return null;
+        ArrayList<Integer> bits = getIntList(CollectionSchema.text_sentencebits_val);
+        if (bits.size() != 2 * offsets.size()) bits = null; // not usable; read all sentences
+        final long mask = SnippetExtractor.wordBits(wordhashes);
+        final SortedMap<Integer, StringBuilder> sentences = new TreeMap<Integer, StringBuilder>();
+        for (int i = 0; i < offsets.size(); i++) {
+            if (bits != null && (((bits.get(2 * i).intValue() & 0xffffffffL) | ((long) bits.get(2 * i + 1).intValue() << 32)) & mask) == 0) continue;
+            final StringBuilder sentence = SentenceReader.sentenceAt(text, offsets.get(i).intValue());
+            if (sentence == null) return null; // the positions do not fit to the text
+            sentences.put(i, sentence);
+        }
+        return sentences;
+    }
     
     public ArrayList<String> getDescription() {
         return getStringList(CollectionSchema.description_txt);
@@ -721,6 +749,8 @@ public class URIMetadataNode extends SolrDocument /* implements Comparable<URIMe
                        SeedDB peers,
                        final TextSnippet textSnippet) {
         this.removeFields(CollectionSchema.text_t.getSolrFieldName()); // clear the text field which eats up most of the space; it was used for snippet computation which is in a separate field here
+        this.removeFields(CollectionSchema.text_sentences_val.getSolrFieldName());
+        this.removeFields(CollectionSchema.text_sentencebits_val.getSolrFieldName());
         this.alternative_urlstring = null;
         this.alternative_urlname = null;
         this.textSnippet = textSnippet;
@@ -0,0 +1,222 @@
+/**
+ *  ColumnarRowCodec
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.ByteArrayOutputStream;
+
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.util.MemoryControl;
+
+/**
+ * A compact, column-oriented export format for sorted row collections, used for RWI containers in BLOB files.
+ * The rows are sorted by the primary key and then written column by column:
+ * - the primary keys are prefix-compressed against the previous key,
+ * - every column with a width of up to 8 bytes is either written once if all rows have the same value,
+ *   or as a sequence of zig-zag varint encoded differences to the value of the previous row.
+ *   Flag columns where most rows have the same bits therefore shrink to mostly one byte per row.
+ * - wider columns are written raw.
+ * The first byte of an export in this format is a marker which can never be the first byte of an export
+ * made by RowCollection.exportCollection(), because that starts with a non-negative row count.
+ * RowSet.importRowSet() recognizes the marker, so both formats can be read everywhere.
+ */
+public final class ColumnarRowCodec {
+
+    private static final byte MARKER = (byte) 0xC1;
+    private static final byte VERSION = 1;
+
+    private static final int MODE_CONSTANT = 0;
+    private static final int MODE_DELTA = 1;
+    private static final int MODE_RAW = 2;
+
+    /**
+     * the number of bytes at the start of an export which are sufficient to compute the number of rows with count()
+     */
+    public static final int headLength = 7;
+
+    private ColumnarRowCodec() {}
+
+    /**
+     * test if an exported collection has the columnar format
+     * @param b an exported collection
+     * @return true if the export was made with encode()
+     */
+    public static boolean isColumnar(final byte[] b) {
+        return b != null && b.length >= 2 && b[0] == MARKER;
+    }
+
+    /**
+     * encode a collection. The collection must be sorted and the caller must hold the lock of the collection.
+     * @param c a sorted collection
+     * @return the encoded collection
+     */
+    public static byte[] encode(final RowCollection c) {
+        final Row rowdef = c.rowdef;
+        final int count = c.chunkcount;
+        final int objectsize = rowdef.objectsize;
+        final byte[] cache = c.chunkcache;
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(Math.max(16, count * objectsize / 3));
+        os.write(MARKER);
+        os.write(VERSION);
+        writeVarint(os, count);
+
+        // primary keys, prefix-compressed
+        final int keylength = rowdef.primaryKeyLength;
+        for (int i = 0; i < count; i++) {
+            final int p = i * objectsize;
+            int shared = 0;
+            if (i > 0) {
+                final int q = p - objectsize;
+                while (shared < keylength && cache[p + shared] == cache[q + shared]) shared++;
+            }
+            os.write(shared);
+            os.write(cache, p + shared, keylength - shared);
+        }
+
+        // all other columns
+        for (int col = 1; col < rowdef.columns(); col++) {
+            final int start = rowdef.colstart[col];
+            final int width = rowdef.column(col).cellwidth;
+            if (width > 8) {
+                os.write(MODE_RAW);
+                for (int i = 0; i < count; i++) os.write(cache, i * objectsize + start, width);
+                continue;
+            }
+            boolean constant = true;
+            final long first = count == 0 ? 0 : NaturalOrder.decodeLong(cache, start, width);
+            for (int i = 1; i < count && constant; i++) {
+                constant = NaturalOrder.decodeLong(cache, i * objectsize + start, width) == first;
+            }
+            if (constant) {
+                os.write(MODE_CONSTANT);
+                writeVarint(os, first);
+                continue;
+            }
+            os.write(MODE_DELTA);
+            long last = 0, v;
+            for (int i = 0; i < count; i++) {
+                v = NaturalOrder.decodeLong(cache, i * objectsize + start, width);
+                writeVarint(os, zigzag(v - last));
+                last = v;
+            }
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * decode a collection which was encoded with encode()
+     * @param b the encoded collection
+     * @param rowdef the row definition of the collection
+     * @return a sorted RowSet
+     * @throws SpaceExceededException
+     */
+    public static RowSet decode(final byte[] b, final Row rowdef) throws SpaceExceededException {
+        assert isColumnar(b);
+        if (b[1] != VERSION) throw new IllegalArgumentException("unknown columnar format version " + b[1]);
+        final int[] p = new int[]{2};
+        final int count = (int) readVarint(b, p);
+        final int objectsize = rowdef.objectsize;
+        final long alloc = ((long) count) * ((long) objectsize);
+        if (alloc > Integer.MAX_VALUE) throw new SpaceExceededException((int) alloc, "ColumnarRowCodec.decode: alloc > Integer.MAX_VALUE");
+        MemoryControl.request((int) alloc, true);
+        final byte[] cache;
+        try {
+            cache = new byte[(int) alloc];
+        } catch (final OutOfMemoryError e) {
+            throw new SpaceExceededException((int) alloc, "ColumnarRowCodec.decode: OutOfMemoryError");
+        }
+
+        // primary keys
+        final int keylength = rowdef.primaryKeyLength;
+        for (int i = 0; i < count; i++) {
+            final int q = i * objectsize;
+            final int shared = b[p[0]++] & 0xff;
+            if (shared > 0) System.arraycopy(cache, q - objectsize, cache, q, shared);
+            System.arraycopy(b, p[0], cache, q + shared, keylength - shared);
+            p[0] += keylength - shared;
+        }
+
+        // all other columns
+        for (int col = 1; col < rowdef.columns(); col++) {
+            final int start = rowdef.colstart[col];
+            final int width = rowdef.column(col).cellwidth;
+            final int mode = b[p[0]++];
+            if (mode == MODE_RAW) {
+                for (int i = 0; i < count; i++) {
+                    System.arraycopy(b, p[0], cache, i * objectsize + start, width);
+                    p[0] += width;
+                }
+            } else if (mode == MODE_CONSTANT) {
+                final long v = readVarint(b, p);
+                for (int i = 0; i < count; i++) NaturalOrder.encodeLong(v, cache, i * objectsize + start, width);
+            } else if (mode == MODE_DELTA) {
+                long v = 0;
+                for (int i = 0; i < count; i++) {
+                    v += unzigzag(readVarint(b, p));
+                    NaturalOrder.encodeLong(v, cache, i * objectsize + start, width);
+                }
+            } else {
+                throw new IllegalArgumentException("unknown column mode " + mode + " in column " + col);
+            }
+        }
+        return new RowSet(rowdef, count, cache, count);
+    }
+
+    /**
+     * compute the number of rows from the start of an export in any of both formats
+     * @param head at least the first headLength bytes of an export, or the complete export if it is shorter
+     * @return the number of rows in the export
+     */
+    public static int count(final byte[] head) {
+        if (isColumnar(head)) return (int) readVarint(head, new int[]{2});
+        if (head == null || head.length < 4) return 0;
+        return (int) NaturalOrder.decodeLong(head, 0, 4);
+    }
+
+    private static long zigzag(final long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(final long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream os, long v) {
+        while ((v & ~0x7FL) != 0) {
+            os.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        os.write((int) v);
+    }
+
+    private static long readVarint(final byte[] b, final int[] p) {
+        long v = 0;
+        int shift = 0;
+        byte x;
+        do {
+            x = b[p[0]++];
+            v |= ((long) (x & 0x7F)) << shift;
+            shift += 7;
+        } while ((x & 0x80) != 0);
+        return v;
+    }
+
+}
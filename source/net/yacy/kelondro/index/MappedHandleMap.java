@@ -0,0 +1,498 @@
+/**
+ *  MappedHandleMap
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.cora.storage.HandleMap;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.io.MappedFileReader;
+import net.yacy.kelondro.util.MergeIterator;
+
+/**
+ * A HandleMap on top of an index dump file. The dump, as written by RowHandleMap.dump() or
+ * OffHeapHandleMap.dump(), is a sequence of sorted records of the form (key, value) with a fixed width.
+ * This class maps that file into memory and finds keys with a binary search. Nothing is loaded into
+ * the java heap, therefore opening the map takes no time regardless of the size of the dump.
+ * The dump itself is never written: keys which are put or removed after mapping are recorded in a
+ * sorted map in RAM which overrides the dump. This is efficient as long as only a few keys are changed,
+ * as it is the case for indexes of heap files which are not written any more.
+ */
+public final class MappedHandleMap implements HandleMap, Iterable<Map.Entry<byte[], Long>> {
+
+    private final int keylength, idxbytes, recordsize;
+    private final ByteOrder ordering;
+    private final File file;
+    private MappedFileReader mapped;
+    private int records;
+    private final TreeMap<byte[], Long> changes; // keys which were put or removed after mapping; removed keys have the value -1
+    private int sizeDelta; // the number of added keys minus the number of removed keys
+
+    /**
+     * map an index dump
+     * @param keylength
+     * @param objectOrder the order of the keys in the dump
+     * @param idxbytes the number of bytes for a value
+     * @param file an uncompressed dump
+     * @throws IOException
+     */
+    public MappedHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final File file) throws IOException {
+        if (file.getName().endsWith(".gz")) throw new IOException("compressed index dumps cannot be mapped: " + file.getName());
+        this.keylength = keylength;
+        this.idxbytes = idxbytes;
+        this.recordsize = keylength + idxbytes;
+        this.ordering = objectOrder;
+        this.file = file;
+        this.mapped = new MappedFileReader(file);
+        if (this.mapped.length() % this.recordsize != 0 || this.mapped.length() / this.recordsize > Integer.MAX_VALUE) {
+            this.mapped.close();
+            throw new IOException("index dump " + file.getName() + " has a wrong size " + file.length() + " for a record size of " + this.recordsize);
+        }
+        this.records = (int) (this.mapped.length() / this.recordsize);
+        this.changes = new TreeMap<byte[], Long>(objectOrder);
+        this.sizeDelta = 0;
+    }
+
+    public File file() {
+        return this.file;
+    }
+
+    private byte[] keyAt(final MappedFileReader m, final int i) throws IOException {
+        final byte[] k = new byte[this.keylength];
+        m.readFully((long) i * this.recordsize, k, 0, this.keylength);
+        return k;
+    }
+
+    private long valueAt(final MappedFileReader m, final int i) throws IOException {
+        final byte[] v = new byte[this.idxbytes];
+        m.readFully((long) i * this.recordsize + this.keylength, v, 0, this.idxbytes);
+        return NaturalOrder.decodeLong(v);
+    }
+
+    /**
+     * binary search for the position of a key in the dump
+     * @return the record number if the key exists, otherwise (-(insertion point) - 1)
+     */
+    private int search(final MappedFileReader m, final byte[] key) throws IOException {
+        int lo = 0, hi = this.records - 1;
+        final byte[] k = new byte[this.keylength];
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            m.readFully((long) mid * this.recordsize, k, 0, this.keylength);
+            final int c = this.ordering.compare(k, 0, key, 0, this.keylength);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * check that all keys in the dump are strictly ascending. This reads the whole dump and should
+     * be done in a background process.
+     * @return the number of the first record which is not in order, or -1 if the order is correct
+     * @throws ClosedChannelException if the map was closed during the check
+     */
+    public int verifyOrder() throws IOException {
+        final MappedFileReader m = this.mapped;
+        if (m == null || this.records == 0) return -1;
+        byte[] last = keyAt(m, 0), next;
+        for (int i = 1; i < this.records; i++) {
+            next = keyAt(m, i);
+            if (this.ordering.compare(last, next) >= 0) return i;
+            last = next;
+        }
+        return -1;
+    }
+
+    @Override
+    public long mem() {
+        synchronized (this.changes) {
+            return 64L + this.changes.size() * (this.keylength + 64L);
+        }
+    }
+
+    @Override
+    public void optimize() {
+    }
+
+    @Override
+    public int dump(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        final OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 1024 * 1024);
+        int c = 0;
+        try {
+            final Iterator<Map.Entry<byte[], Long>> i = iterator();
+            final byte[] v = new byte[this.idxbytes];
+            while (i.hasNext()) {
+                final Map.Entry<byte[], Long> entry = i.next();
+                os.write(entry.getKey());
+                NaturalOrder.encodeLong(entry.getValue().longValue(), v, 0, this.idxbytes);
+                os.write(v);
+                c++;
+            }
+        } finally {
+            os.close();
+        }
+        tmp.renameTo(file);
+        return c;
+    }
+
+    /**
+     * release the mapping; the dump file is not deleted
+     */
+    @Override
+    public void clear() {
+        close();
+    }
+
+    /**
+     * @return true if the key was put or removed after mapping; then the dump must not be used for that key
+     */
+    private boolean isChanged(final byte[] key) {
+        synchronized (this.changes) {
+            return !this.changes.isEmpty() && this.changes.containsKey(key);
+        }
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        final Iterator<byte[]> i = keys(true, null);
+        return i.hasNext() ? i.next() : null;
+    }
+
+    @Override
+    public byte[] largestKey() {
+        final Iterator<byte[]> i = keys(false, null);
+        return i.hasNext() ? i.next() : null;
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        return get(key) >= 0;
+    }
+
+    @Override
+    public long get(final byte[] key) {
+        assert key != null;
+        synchronized (this.changes) {
+            if (!this.changes.isEmpty()) {
+                final Long l = this.changes.get(key);
+                if (l != null) return l.longValue();
+            }
+        }
+        return getMapped(key);
+    }
+
+    private long getMapped(final byte[] key) {
+        final MappedFileReader m = this.mapped;
+        if (m == null) return -1;
+        try {
+            final int p = search(m, key);
+            if (p < 0) return -1;
+            return valueAt(m, p);
+        } catch (final ClosedChannelException e) {
+            return -1; // closed in the meantime
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+            return -1;
+        }
+    }
+
+    @Override
+    public long put(final byte[] key, final long l) {
+        assert l >= 0 : "l = " + l;
+        assert key != null;
+        synchronized (this.changes) {
+            final long old = get(key);
+            this.changes.put(Arrays.copyOf(key, this.keylength), l);
+            if (old < 0) this.sizeDelta++;
+            return old;
+        }
+    }
+
+    @Override
+    public void putUnique(final byte[] key, final long l) {
+        put(key, l);
+    }
+
+    @Override
+    public long add(final byte[] key, final long a) {
+        assert key != null;
+        synchronized (this.changes) {
+            final long old = get(key);
+            final long i = old < 0 ? a : old + a;
+            put(key, i);
+            return i;
+        }
+    }
+
+    @Override
+    public long inc(final byte[] key) {
+        return add(key, 1);
+    }
+
+    @Override
+    public long dec(final byte[] key) {
+        return add(key, -1);
+    }
+
+    /**
+     * the keys of a dump are unique and the changes are a map
+     */
+    @Override
+    public ArrayList<long[]> removeDoubles() {
+        return new ArrayList<long[]>(0);
+    }
+
+    @Override
+    public ArrayList<byte[]> top(final int count) {
+        final ArrayList<byte[]> list = new ArrayList<byte[]>();
+        final Iterator<byte[]> i = keys(true, null);
+        while (i.hasNext() && list.size() < count) list.add(i.next());
+        return list;
+    }
+
+    @Override
+    public long remove(final byte[] key) {
+        synchronized (this.changes) {
+            final long l = get(key);
+            if (l < 0) return -1;
+            this.changes.put(Arrays.copyOf(key, this.keylength), -1L);
+            this.sizeDelta--;
+            return l;
+        }
+    }
+
+    @Override
+    public long removeone() {
+        final byte[] key = smallestKey();
+        if (key == null) return -1;
+        return remove(key);
+    }
+
+    @Override
+    public int size() {
+        synchronized (this.changes) {
+            return this.records + this.sizeDelta;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        final CloneableIterator<byte[]> dumpKeys = dumpKeys(up, firstKey);
+        synchronized (this.changes) {
+            if (this.changes.isEmpty()) return dumpKeys;
+        }
+        return new MergeIterator<byte[]>(dumpKeys, new changedKeyIterator(up, firstKey), this.ordering, MergeIterator.simpleMerge, up);
+    }
+
+    /**
+     * iterate the keys of the dump which have not been changed after mapping
+     */
+    private CloneableIterator<byte[]> dumpKeys(final boolean up, final byte[] firstKey) {
+        final MappedFileReader m = this.mapped;
+        int start = up ? 0 : this.records - 1;
+        if (m != null && firstKey != null) try {
+            final int p = search(m, firstKey);
+            start = p >= 0 ? p : up ? -(p + 1) : -(p + 1) - 1;
+        } catch (final ClosedChannelException e) {
+            start = -1;
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
+        return new keyIterator(m, up, start);
+    }
+
+    private class keyIterator implements CloneableIterator<byte[]> {
+
+        private final MappedFileReader m;
+        private final boolean up;
+        private int p;
+        private byte[] next, last;
+
+        public keyIterator(final MappedFileReader m, final boolean up, final int start) {
+            this.m = m;
+            this.up = up;
+            this.p = start;
+            this.last = null;
+            this.next = advance();
+        }
+
+        private byte[] advance() {
+            if (this.m == null) return null;
+            try {
+                while (this.p >= 0 && this.p < MappedHandleMap.this.records) {
+                    final byte[] k = keyAt(this.m, this.p);
+                    this.p += this.up ? 1 : -1;
+                    if (!isChanged(k)) return k;
+                }
+            } catch (final ClosedChannelException e) {
+                // closed in the meantime
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public byte[] next() {
+            if (this.next == null) throw new NoSuchElementException();
+            this.last = this.next;
+            this.next = advance();
+            return this.last;
+        }
+
+        @Override
+        public void remove() {
+            if (this.last != null) MappedHandleMap.this.remove(this.last);
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            return dumpKeys(this.up, (byte[]) modifier);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * iterate the keys which were put after mapping; the keys are copied at the start
+     */
+    private class changedKeyIterator implements CloneableIterator<byte[]> {
+
+        private final boolean up;
+        private final Iterator<byte[]> keys;
+        private byte[] last;
+
+        public changedKeyIterator(final boolean up, final byte[] firstKey) {
+            this.up = up;
+            final List<byte[]> list = new ArrayList<byte[]>();
+            synchronized (MappedHandleMap.this.changes) {
+                NavigableMap<byte[], Long> m = MappedHandleMap.this.changes;
+                if (firstKey != null) m = up ? m.tailMap(firstKey, true) : m.headMap(firstKey, true);
+                if (!up) m = m.descendingMap();
+                for (final Map.Entry<byte[], Long> entry: m.entrySet()) {
+                    if (entry.getValue().longValue() >= 0) list.add(entry.getKey());
+                }
+            }
+            this.keys = list.iterator();
+            this.last = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.keys.hasNext();
+        }
+
+        @Override
+        public byte[] next() {
+            this.last = this.keys.next();
+            return this.last;
+        }
+
+        @Override
+        public void remove() {
+            if (this.last != null) MappedHandleMap.this.remove(this.last);
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            return new changedKeyIterator(this.up, (byte[]) modifier);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * release the mapping of the dump; the map is empty afterwards
+     */
+    @Override
+    public synchronized void close() {
+        final MappedFileReader m = this.mapped;
+        synchronized (this.changes) {
+            this.mapped = null;
+            this.records = 0;
+            this.changes.clear();
+            this.sizeDelta = 0;
+        }
+        if (m != null) m.close();
+    }
+
+    /**
+     * iterate over all entries in the order of the keys
+     */
+    @Override
+    public Iterator<Map.Entry<byte[], Long>> iterator() {
+        final CloneableIterator<byte[]> keys = keys(true, null);
+        return new Iterator<Map.Entry<byte[], Long>>() {
+            private byte[] last = null;
+
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Map.Entry<byte[], Long> next() {
+                this.last = keys.next();
+                return new AbstractMap.SimpleEntry<byte[], Long>(this.last, get(this.last));
+            }
+
+            @Override
+            public void remove() {
+                if (this.last != null) MappedHandleMap.this.remove(this.last);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,587 @@
+/**
+ *  OffHeapHandleMap
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.cora.storage.HandleMap;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A HandleMap which stores fixed-width keys and their values outside of the java heap.
+ * The entries are held in an open-addressing hash table with linear probing inside of direct ByteBuffers.
+ * Each slot is one status byte, the key and the value encoded with idxbytes bytes in the same way as the
+ * value column of a RowHandleMap, therefore dumps of both implementations are interchangeable.
+ * Compared to a RowHandleMap this does not create any objects per entry, which removes the entries from
+ * the garbage collection completely. Ordered access (keys(), dump()) is more expensive because
+ * the entries must be sorted first; lookups and updates are faster.
+ */
+public final class OffHeapHandleMap implements HandleMap, Iterable<Map.Entry<byte[], Long>> {
+
+    private static final byte FREE = 0, USED = 1, DELETED = 2;
+    private static final int SEGMENT_BITS = 20; // 1M slots per buffer
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+    private static final int MAX_CAPACITY = 1 << 30; // the largest power of two of the int slot numbers
+
+    private final int keylength, idxbytes, slotwidth;
+    private final ByteOrder ordering;
+    private ByteBuffer[] segments;
+    private int capacity, mask; // capacity is a power of two
+    private int size, deleted;
+
+    /**
+     * initialize an empty OffHeapHandleMap
+     * @param keylength
+     * @param objectOrder
+     * @param idxbytes the number of bytes for a value
+     * @param expectedspace the expected number of entries; the table will grow if necessary
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final int expectedspace) {
+        assert idxbytes > 0 && idxbytes <= 8 : "idxbytes = " + idxbytes;
+        this.keylength = keylength;
+        this.idxbytes = idxbytes;
+        this.slotwidth = 1 + keylength + idxbytes;
+        this.ordering = objectOrder;
+        this.size = 0;
+        this.deleted = 0;
+        allocate(capacityFor(Math.min(expectedspace, MAX_INITIAL_CAPACITY)));
+    }
+
+    /**
+     * initialize an OffHeapHandleMap with the content of a dumped index
+     * @param keylength
+     * @param objectOrder
+     * @param idxbytes
+     * @param file a dump, written either by a RowHandleMap or an OffHeapHandleMap
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public OffHeapHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final File file) throws IOException, SpaceExceededException {
+        this(keylength, objectOrder, idxbytes, 0);
+        final int recordsize = keylength + idxbytes;
+        try {
+            allocate(capacityFor((int) Math.min(Integer.MAX_VALUE / 2, file.length() / recordsize)));
+        } catch (final OutOfMemoryError e) {
+            throw new SpaceExceededException(file.length(), "OffHeapHandleMap/init");
+        }
+        InputStream is;
+        try {
+            is = new BufferedInputStream(new FileInputStream(file), 1024 * 1024);
+        } catch (final OutOfMemoryError e) {
+            is = new FileInputStream(file);
+        }
+        if (file.getName().endsWith(".gz")) is = new GZIPInputStream(is);
+        try {
+            final byte[] a = new byte[recordsize * 4096];
+            int c, p;
+            while (true) {
+                // fill the buffer with complete records
+                c = 0;
+                while (c < a.length && (p = is.read(a, c, a.length - c)) > 0) c += p;
+                for (int off = 0; off + recordsize <= c; off += recordsize) {
+                    if (!this.ordering.wellformed(a, off, keylength)) continue; // same as in RowHandleMap
+                    put(a, off, NaturalOrder.decodeLong(a, off + keylength, idxbytes));
+                }
+                if (c < a.length) break;
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static int capacityFor(final int entries) {
+        int c = MIN_CAPACITY;
+        while (c < MAX_CAPACITY && c * 3 / 4 < entries) c = c << 1;
+        return c;
+    }
+
+    private void allocate(final int newCapacity) {
+        final int segmentSlots = Math.min(newCapacity, 1 << SEGMENT_BITS);
+        final ByteBuffer[] s = new ByteBuffer[Math.max(1, newCapacity >>> SEGMENT_BITS)];
+        for (int i = 0; i < s.length; i++) s[i] = ByteBuffer.allocateDirect(segmentSlots * this.slotwidth); // direct buffers are zero-filled (FREE)
+        this.segments = s;
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+    }
+
+    private ByteBuffer segment(final int slot) {
+        return this.segments[slot >>> SEGMENT_BITS];
+    }
+
+    private int offset(final int slot) {
+        return (slot & SEGMENT_MASK) * this.slotwidth;
+    }
+
+    private int hash(final byte[] key, final int off) {
+        int h = 0;
+        for (int i = 0; i < this.keylength; i++) h = 31 * h + key[off + i];
+        // spread the bits because keys may differ only in the last bytes
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private boolean keyEquals(final ByteBuffer b, final int p, final byte[] key, final int off) {
+        for (int i = 0; i < this.keylength; i++) if (b.get(p + 1 + i) != key[off + i]) return false;
+        return true;
+    }
+
+    private long value(final ByteBuffer b, final int p) {
+        long c = 0;
+        final int vp = p + 1 + this.keylength;
+        for (int i = 0; i < this.idxbytes; i++) c = (c << 8) | (b.get(vp + i) & 0xFF);
+        return c;
+    }
+
+    private void setValue(final ByteBuffer b, final int p, long v) {
+        final int vp = p + 1 + this.keylength;
+        for (int i = this.idxbytes - 1; i >= 0; i--) {
+            b.put(vp + i, (byte) (v & 0xFF));
+            v >>= 8;
+        }
+    }
+
+    private byte[] key(final ByteBuffer b, final int p) {
+        final byte[] k = new byte[this.keylength];
+        for (int i = 0; i < this.keylength; i++) k[i] = b.get(p + 1 + i);
+        return k;
+    }
+
+    /**
+     * find the slot of a key
+     * @return the slot number or -1 if the key does not exist
+     */
+    private int find(final byte[] key, final int off) {
+        int slot = hash(key, off) & this.mask;
+        for (int n = 0; n < this.capacity; n++) {
+            final ByteBuffer b = segment(slot);
+            final int p = offset(slot);
+            final byte status = b.get(p);
+            if (status == FREE) return -1;
+            if (status == USED && keyEquals(b, p, key, off)) return slot;
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * put a key/value pair
+     * @return the previous value or -1 if the key did not exist
+     */
+    private long put(final byte[] key, final int off, final long l) throws SpaceExceededException {
+        assert key.length >= off + this.keylength;
+        if ((this.size + this.deleted + 1) * 4L > this.capacity * 3L) {
+            // grow only if the table is really filled; otherwise just remove the deletion markers
+            final boolean grow = this.size * 2L > this.capacity;
+            if (grow && this.capacity >= MAX_CAPACITY) {
+                throw new SpaceExceededException((long) MAX_CAPACITY * 2L * this.slotwidth, "OffHeapHandleMap/put: the table is full, it cannot grow beyond " + MAX_CAPACITY + " slots");
+            }
+            rehash(grow ? this.capacity << 1 : this.capacity);
+        }
+        int slot = hash(key, off) & this.mask;
+        int target = -1;
+        for (int n = 0; n < this.capacity; n++) {
+            final ByteBuffer b = segment(slot);
+            final int p = offset(slot);
+            final byte status = b.get(p);
+            if (status == FREE) {
+                if (target < 0) target = slot;
+                break;
+            }
+            if (status == DELETED) {
+                if (target < 0) target = slot;
+            } else if (keyEquals(b, p, key, off)) {
+                final long old = value(b, p);
+                setValue(b, p, l);
+                return old;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        assert target >= 0;
+        final ByteBuffer b = segment(target);
+        final int p = offset(target);
+        if (b.get(p) == DELETED) this.deleted--;
+        b.put(p, USED);
+        for (int i = 0; i < this.keylength; i++) b.put(p + 1 + i, key[off + i]);
+        setValue(b, p, l);
+        this.size++;
+        return -1;
+    }
+
+    private void rehash(final int newCapacity) throws SpaceExceededException {
+        final ByteBuffer[] oldSegments = this.segments;
+        final int oldCapacity = this.capacity;
+        try {
+            allocate(newCapacity);
+        } catch (final OutOfMemoryError e) {
+            this.segments = oldSegments;
+            this.capacity = oldCapacity;
+            this.mask = oldCapacity - 1;
+            throw new SpaceExceededException((long) newCapacity * this.slotwidth, "OffHeapHandleMap/rehash");
+        }
+        this.size = 0;
+        this.deleted = 0;
+        final int segmentSlots = Math.min(oldCapacity, 1 << SEGMENT_BITS);
+        final byte[] k = new byte[this.keylength];
+        for (final ByteBuffer b: oldSegments) {
+            for (int s = 0; s < segmentSlots; s++) {
+                final int p = s * this.slotwidth;
+                if (b.get(p) != USED) continue;
+                for (int i = 0; i < this.keylength; i++) k[i] = b.get(p + 1 + i);
+                put(k, 0, value(b, p));
+            }
+        }
+    }
+
+    private long removeSlot(final int slot) {
+        final ByteBuffer b = segment(slot);
+        final int p = offset(slot);
+        final long v = value(b, p);
+        b.put(p, DELETED);
+        this.size--;
+        this.deleted++;
+        return v;
+    }
+
+    /**
+     * the memory which is used in the java heap; the table itself is not counted
+     * because it does not put any pressure on the heap
+     */
+    @Override
+    public long mem() {
+        return 64L + 16L * (this.segments == null ? 0 : this.segments.length);
+    }
+
+    /**
+     * the memory which is used outside of the java heap
+     * @return the number of bytes of all direct buffers
+     */
+    public long offHeapMem() {
+        return (long) this.capacity * this.slotwidth;
+    }
+
+    @Override
+    public synchronized void optimize() {
+        // remove deletion markers, they make the search chains longer
+        if (this.deleted > this.size / 4) try {
+            rehash(this.capacity);
+        } catch (final SpaceExceededException e) {
+            // no problem, this was only an optimization
+        }
+    }
+
+    @Override
+    public synchronized int dump(final File file) throws IOException {
+        final byte[][] sorted = sortedKeys(true, null);
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        OutputStream os;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(tmp), 4 * 1024 * 1024);
+        } catch (final OutOfMemoryError e) {
+            os = new FileOutputStream(tmp);
+        }
+        if (file.getName().endsWith(".gz")) os = new GZIPOutputStream(os, 65536){{def.setLevel(Deflater.BEST_COMPRESSION);}};
+        final byte[] v = new byte[this.idxbytes];
+        for (final byte[] k: sorted) {
+            os.write(k);
+            NaturalOrder.encodeLong(get(k), v, 0, this.idxbytes);
+            os.write(v);
+        }
+        os.flush();
+        os.close();
+        tmp.renameTo(file);
+        assert file.exists() : file.toString();
+        assert !tmp.exists() : tmp.toString();
+        return sorted.length;
+    }
+
+    @Override
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        this.size = 0;
+        this.deleted = 0;
+    }
+
+    @Override
+    public synchronized byte[] smallestKey() {
+        return extremeKey(true);
+    }
+
+    @Override
+    public synchronized byte[] largestKey() {
+        return extremeKey(false);
+    }
+
+    private byte[] extremeKey(final boolean smallest) {
+        byte[] best = null;
+        for (int slot = 0; slot < this.capacity; slot++) {
+            final ByteBuffer b = segment(slot);
+            final int p = offset(slot);
+            if (b.get(p) != USED) continue;
+            final byte[] k = key(b, p);
+            if (best == null || (this.ordering.compare(k, best) < 0) == smallest) best = k;
+        }
+        return best;
+    }
+
+    @Override
+    public synchronized boolean has(final byte[] key) {
+        assert key != null;
+        return find(key, 0) >= 0;
+    }
+
+    @Override
+    public synchronized long get(final byte[] key) {
+        assert key != null;
+        final int slot = find(key, 0);
+        if (slot < 0) return -1;
+        return value(segment(slot), offset(slot));
+    }
+
+    @Override
+    public synchronized long put(final byte[] key, final long l) throws SpaceExceededException {
+        assert l >= 0 : "l = " + l;
+        assert key != null;
+        return put(key, 0, l);
+    }
+
+    @Override
+    public synchronized void putUnique(final byte[] key, final long l) throws SpaceExceededException {
+        put(key, l);
+    }
+
+    @Override
+    public synchronized long add(final byte[] key, final long a) throws SpaceExceededException {
+        assert key != null;
+        final int slot = find(key, 0);
+        if (slot < 0) {
+            put(key, 0, a);
+            return a;
+        }
+        final ByteBuffer b = segment(slot);
+        final int p = offset(slot);
+        final long i = value(b, p) + a;
+        setValue(b, p, i);
+        return i;
+    }
+
+    @Override
+    public long inc(final byte[] key) throws SpaceExceededException {
+        return add(key, 1);
+    }
+
+    @Override
+    public long dec(final byte[] key) throws SpaceExceededException {
+        return add(key, -1);
+    }
+
+    /**
+     * keys in a hash table are always unique, there are no doubles
+     */
+    @Override
+    public ArrayList<long[]> removeDoubles() {
+        return new ArrayList<long[]>(0);
+    }
+
+    @Override
+    public synchronized ArrayList<byte[]> top(final int count) {
+        final ArrayList<byte[]> list = new ArrayList<byte[]>();
+        for (int slot = 0; slot < this.capacity && list.size() < count; slot++) {
+            final ByteBuffer b = segment(slot);
+            final int p = offset(slot);
+            if (b.get(p) == USED) list.add(key(b, p));
+        }
+        return list;
+    }
+
+    @Override
+    public synchronized long remove(final byte[] key) {
+        assert key != null;
+        final int slot = find(key, 0);
+        if (slot < 0) return -1;
+        return removeSlot(slot);
+    }
+
+    @Override
+    public synchronized long removeone() {
+        for (int slot = 0; slot < this.capacity; slot++) {
+            if (segment(slot).get(offset(slot)) == USED) return removeSlot(slot);
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.size;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * collect the keys in order. This is done on the heap because the result is needed in order.
+     * @param up
+     * @param firstKey the first key in the result (inclusive); may be null
+     * @return the ordered keys
+     */
+    private byte[][] sortedKeys(final boolean up, final byte[] firstKey) {
+        final ArrayList<byte[]> keys = new ArrayList<byte[]>(this.size);
+        for (int slot = 0; slot < this.capacity; slot++) {
+            final ByteBuffer b = segment(slot);
+            final int p = offset(slot);
+            if (b.get(p) != USED) continue;
+            final byte[] k = key(b, p);
+            if (firstKey != null) {
+                final int c = this.ordering.compare(k, firstKey);
+                if (up ? c < 0 : c > 0) continue;
+            }
+            keys.add(k);
+        }
+        final byte[][] a = keys.toArray(new byte[keys.size()][]);
+        Arrays.sort(a, up ? this.ordering : Collections.reverseOrder(this.ordering));
+        return a;
+    }
+
+    @Override
+    public synchronized CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        return new keyIterator(sortedKeys(up, firstKey), up);
+    }
+
+    private class keyIterator implements CloneableIterator<byte[]> {
+
+        private final byte[][] keys;
+        private final boolean up;
+        private int p;
+
+        public keyIterator(final byte[][] keys, final boolean up) {
+            this.keys = keys;
+            this.up = up;
+            this.p = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.p < this.keys.length;
+        }
+
+        @Override
+        public byte[] next() {
+            if (this.p >= this.keys.length) throw new NoSuchElementException();
+            return this.keys[this.p++];
+        }
+
+        @Override
+        public void remove() {
+            OffHeapHandleMap.this.remove(this.keys[this.p - 1]);
+        }
+
+        @Override
+        public CloneableIterator<byte[]> clone(final Object modifier) {
+            return keys(this.up, (byte[]) modifier);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        this.segments = new ByteBuffer[0];
+        this.capacity = 0;
+        this.mask = 0;
+        this.size = 0;
+        this.deleted = 0;
+    }
+
+    /**
+     * iterate over all entries in no specific order
+     */
+    @Override
+    public Iterator<Map.Entry<byte[], Long>> iterator() {
+        return new Iterator<Map.Entry<byte[], Long>>() {
+
+            private int slot = -1, next = advance(-1);
+
+            private int advance(int s) {
+                synchronized (OffHeapHandleMap.this) {
+                    while (++s < OffHeapHandleMap.this.capacity) {
+                        if (segment(s).get(offset(s)) == USED) return s;
+                    }
+                    return -1;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
+            }
+
+            @Override
+            public Map.Entry<byte[], Long> next() {
+                if (this.next < 0) throw new NoSuchElementException();
+                this.slot = this.next;
+                final Map.Entry<byte[], Long> entry;
+                synchronized (OffHeapHandleMap.this) {
+                    final ByteBuffer b = segment(this.slot);
+                    final int p = offset(this.slot);
+                    entry = new AbstractMap.SimpleEntry<byte[], Long>(key(b, p), value(b, p));
+                }
+                this.next = advance(this.slot);
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                synchronized (OffHeapHandleMap.this) {
+                    if (this.slot >= 0 && segment(this.slot).get(offset(this.slot)) == USED) removeSlot(this.slot);
+                }
+            }
+        };
+    }
+
+}
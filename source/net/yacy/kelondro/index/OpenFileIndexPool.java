@@ -0,0 +1,126 @@
+/**
+ *  OpenFileIndexPool
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool which limits the number of concurrently opened PooledOpenFileIndex files.
+ * The pool holds the open indexes in least-recently-used order; if the limit is exceeded,
+ * the index which was not accessed for the longest time is closed. It is opened again
+ * transparently on the next access.
+ */
+public class OpenFileIndexPool {
+
+    private final LinkedHashMap<PooledOpenFileIndex, Boolean> open; // in access order
+    private volatile int maxOpen;
+    private final AtomicLong hits, misses, evictions;
+
+    public OpenFileIndexPool(final int maxOpen) {
+        this.open = new LinkedHashMap<PooledOpenFileIndex, Boolean>(16, 0.75f, true);
+        this.maxOpen = Math.max(1, maxOpen);
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.evictions = new AtomicLong(0);
+    }
+
+    /**
+     * register an access to an index; this is called by the index while it holds its own lock
+     * @param index the accessed index which is open now
+     * @param opened true if the index had to be opened for the access
+     */
+    protected void accessed(final PooledOpenFileIndex index, final boolean opened) {
+        if (opened) this.misses.incrementAndGet(); else this.hits.incrementAndGet();
+        synchronized (this.open) {
+            this.open.put(index, Boolean.TRUE);
+            evict(index);
+        }
+    }
+
+    /**
+     * remove an index from the pool after it was closed
+     * @param index
+     */
+    protected void closed(final PooledOpenFileIndex index) {
+        synchronized (this.open) {
+            this.open.remove(index);
+        }
+    }
+
+    /**
+     * close the least recently used indexes until the pool size is within the limit.
+     * Indexes which are in use by another thread at the same time are skipped; they are
+     * not idle and waiting for them could cause a deadlock.
+     * @param current the index which is accessed by the current thread, this is never closed
+     */
+    private void evict(final PooledOpenFileIndex current) {
+        if (this.open.size() <= this.maxOpen) return;
+        final Iterator<PooledOpenFileIndex> i = this.open.keySet().iterator();
+        while (this.open.size() > this.maxOpen && i.hasNext()) {
+            final PooledOpenFileIndex victim = i.next();
+            if (victim == current) continue;
+            if (victim.closeIfIdle()) {
+                i.remove();
+                this.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void setMaxOpen(final int maxOpen) {
+        this.maxOpen = Math.max(1, maxOpen);
+    }
+
+    public int getMaxOpen() {
+        return this.maxOpen;
+    }
+
+    /**
+     * @return the number of currently opened files
+     */
+    public int openCount() {
+        synchronized (this.open) {
+            return this.open.size();
+        }
+    }
+
+    /**
+     * @return the number of accesses to an index which was already open
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of accesses which had to open an index file
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of indexes which had been closed to stay within the open file limit
+     */
+    public long evictions() {
+        return this.evictions.get();
+    }
+}
@@ -0,0 +1,539 @@
+/**
+ *  PooledOpenFileIndex
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.Row.Entry;
+import net.yacy.kelondro.table.Table;
+import net.yacy.kelondro.util.kelondroException;
+
+/**
+ * An index file which is kept open as long as it is used frequently. In contrast to the OnDemandOpenFileIndex,
+ * which opens the file for each single access, the file is closed only if the OpenFileIndexPool decides
+ * that too many files are open and this index is the least recently used one.
+ * Iterators are copies of the content because the file may be closed at any time between two accesses.
+ */
+public class PooledOpenFileIndex implements Index, Iterable<Row.Entry> {
+
+    private final File file;
+    private final Row rowdef;
+    private final int buffersize;
+    private final boolean exceed134217727;
+    private final OpenFileIndexPool pool;
+    private final ReentrantLock lock;
+    private boolean warmUp;
+    private Index index;
+    private int sizecache;
+
+    /**
+     * @param file the table file
+     * @param rowdef
+     * @param buffersize the buffer size of the table file
+     * @param exceed134217727
+     * @param warmUp if true, the table is cleaned from double entries when it is opened the first time
+     * @param pool the pool which limits the number of open files
+     */
+    public PooledOpenFileIndex(final File file, final Row rowdef, final int buffersize, final boolean exceed134217727, final boolean warmUp, final OpenFileIndexPool pool) {
+        this.file = file;
+        this.rowdef = rowdef;
+        this.buffersize = buffersize;
+        this.exceed134217727 = exceed134217727;
+        this.pool = pool;
+        this.lock = new ReentrantLock();
+        this.warmUp = warmUp;
+        this.index = null;
+        this.sizecache = -1;
+    }
+
+    /**
+     * get the opened index; must be called while the lock is held
+     * @return the index or null if the file cannot be opened
+     */
+    private Index getIndex() {
+        if (this.index != null) {
+            this.pool.accessed(this, false);
+            return this.index;
+        }
+        try {
+            try {
+                this.index = new Table(this.file, this.rowdef, this.buffersize, 0, false, this.exceed134217727, this.warmUp);
+            } catch (final SpaceExceededException e) {
+                this.index = new Table(this.file, this.rowdef, 0, 0, false, this.exceed134217727, this.warmUp);
+            }
+            this.warmUp = false;
+        } catch (final kelondroException e) {
+            ConcurrentLog.logException(e);
+            return null;
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+            return null;
+        }
+        this.pool.accessed(this, true);
+        return this.index;
+    }
+
+    /**
+     * close the file if no other thread is using this index right now; this is called by the pool
+     * @return true if the file is closed now
+     */
+    protected boolean closeIfIdle() {
+        if (!this.lock.tryLock()) return false;
+        try {
+            if (this.index != null) {
+                this.index.close();
+                this.index = null;
+            }
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean isOpen() {
+        this.lock.lock();
+        try {
+            return this.index != null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            return index.smallestKey();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] largestKey() {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            return index.largestKey();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void optimize() {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return;
+            index.optimize();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long mem() {
+        this.lock.lock();
+        try {
+            return this.index == null ? 0 : this.index.mem();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void addUnique(final Entry row) throws SpaceExceededException, IOException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return;
+            index.addUnique(row);
+            if (this.sizecache >= 0) this.sizecache++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return;
+            index.clear();
+            this.sizecache = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            if (this.index != null) {
+                this.index.close();
+                this.index = null;
+            }
+            this.pool.closed(this);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteOnExit() {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return;
+            index.deleteOnExit();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public String filename() {
+        return this.file.toString();
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            if (this.sizecache >= 0) return this.sizecache;
+            final Index index = getIndex();
+            if (index == null) return 0;
+            this.sizecache = index.size();
+            return this.sizecache;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Entry get(final byte[] key, final boolean forcecopy) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return null;
+            final Index index = getIndex();
+            if (index == null) return null;
+            return index.get(key, forcecopy);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<byte[], Row.Entry> get(final Collection<byte[]> keys, final boolean forcecopy) throws IOException, InterruptedException {
+        final Map<byte[], Row.Entry> map = new TreeMap<byte[], Row.Entry>(row().objectOrder);
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return map;
+            Row.Entry entry;
+            for (final byte[] key: keys) {
+                entry = get(key, forcecopy);
+                if (entry != null) map.put(key, entry);
+            }
+            return map;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return false;
+            final Index index = getIndex();
+            if (index == null) return false;
+            return index.has(key);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean put(final Entry row) throws IOException, SpaceExceededException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return false;
+            final boolean b = index.put(row);
+            if (this.sizecache >= 0 && b) this.sizecache++;
+            return b;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Entry remove(final byte[] key) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return null;
+            final Index index = getIndex();
+            if (index == null) return null;
+            final Entry e = index.remove(key);
+            if (this.sizecache >= 0 && e != null) this.sizecache--;
+            return e;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(final byte[] key) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return false;
+            final Index index = getIndex();
+            if (index == null) return false;
+            final boolean b = index.delete(key);
+            if (this.sizecache >= 0 && b) this.sizecache--;
+            return b;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<RowCollection> removeDoubles() throws IOException, SpaceExceededException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            final List<RowCollection> l = index.removeDoubles();
+            this.sizecache = index.size();
+            return l;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Row.Entry> top(final int count) throws IOException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            return index.top(count);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Row.Entry> random(final int count) throws IOException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            return index.random(count);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Entry removeOne() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.sizecache == 0) return null;
+            final Index index = getIndex();
+            if (index == null) return null;
+            final Entry e = index.removeOne();
+            if (this.sizecache >= 0 && e != null) this.sizecache--;
+            return e;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Entry replace(final Entry row) throws SpaceExceededException, IOException {
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index == null) return null;
+            final Entry e = index.replace(row);
+            if (this.sizecache >= 0 && e == null) this.sizecache++;
+            return e;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Row row() {
+        return this.rowdef;
+    }
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
+        final List<byte[]> list = new ArrayList<byte[]>();
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index != null) {
+                final Iterator<byte[]> i = index.keys(up, firstKey);
+                while (i.hasNext()) list.add(i.next());
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return new copyIterator<byte[]>(list) {
+            @Override
+            protected CloneableIterator<byte[]> reload(final byte[] modifier) throws IOException {
+                return keys(up, modifier);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        final List<Entry> list = new ArrayList<Entry>();
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index != null) {
+                final Iterator<Entry> i = index.iterator();
+                while (i.hasNext()) list.add(i.next());
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return list.iterator();
+    }
+
+    @Override
+    public CloneableIterator<Entry> rows(final boolean up, final byte[] firstKey) throws IOException {
+        final List<Entry> list = new ArrayList<Entry>();
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index != null) {
+                final Iterator<Entry> i = index.rows(up, firstKey);
+                while (i.hasNext()) list.add(i.next());
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return new copyIterator<Entry>(list) {
+            @Override
+            protected CloneableIterator<Entry> reload(final byte[] modifier) throws IOException {
+                return rows(up, modifier);
+            }
+        };
+    }
+
+    @Override
+    public CloneableIterator<Entry> rows() throws IOException {
+        final List<Entry> list = new ArrayList<Entry>();
+        this.lock.lock();
+        try {
+            final Index index = getIndex();
+            if (index != null) {
+                final Iterator<Entry> i = index.rows();
+                while (i.hasNext()) list.add(i.next());
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return new copyIterator<Entry>(list) {
+            @Override
+            protected CloneableIterator<Entry> reload(final byte[] modifier) throws IOException {
+                return rows();
+            }
+        };
+    }
+
+    /**
+     * an iterator over a copy of the content; a clone copies the content again, starting at the key given as modifier
+     */
+    private static abstract class copyIterator<E> implements CloneableIterator<E> {
+
+        private final Iterator<E> li;
+
+        public copyIterator(final List<E> list) {
+            this.li = list.iterator();
+        }
+
+        protected abstract CloneableIterator<E> reload(final byte[] modifier) throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            return this.li.hasNext();
+        }
+
+        @Override
+        public E next() {
+            return this.li.next();
+        }
+
+        @Override
+        public void remove() {
+            this.li.remove();
+        }
+
+        @Override
+        public CloneableIterator<E> clone(final Object modifier) {
+            try {
+                return reload((byte[]) modifier);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+                return new copyIterator<E>(new ArrayList<E>(0)) {
+                    @Override
+                    protected CloneableIterator<E> reload(final byte[] m) throws IOException {
+                        return copyIterator.this.reload(m);
+                    }
+                };
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
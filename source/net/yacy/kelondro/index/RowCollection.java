@@ -172,7 +172,7 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
 
     private static Column exportColumn0, exportColumn1, exportColumn2, exportColumn3, exportColumn4, collectionColumnProducer;
 
-    protected static final long exportOverheadSize = 14;
+    public static final long exportOverheadSize = 14;
     
     private static Row exportRow(final int chunkcachelength) {
         /*
@@ -230,6 +230,40 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         return entry.bytes();
     }
 
+    /**
+     * produce the head of an export of a sorted collection, as written by exportCollection().
+     * The complete export is the head followed by chunkcount sorted rows.
+     * @param rowdef the row definition of the collection
+     * @param chunkcount the number of rows in the collection
+     * @param lastTimeWrote
+     * @return the first exportOverheadSize bytes of an export
+     */
+    public static byte[] exportHead(final Row rowdef, final int chunkcount, final long lastTimeWrote) {
+        final Row.Entry entry = exportRow(0).newEntry();
+        entry.setCol(exp_chunkcount, chunkcount);
+        entry.setCol(exp_last_read, daysSince2000(System.currentTimeMillis()));
+        entry.setCol(exp_last_wrote, daysSince2000(lastTimeWrote));
+        entry.setCol(exp_order_type, (rowdef.objectOrder == null) ? ASCII.getBytes("__") : ASCII.getBytes(rowdef.objectOrder.signature()));
+        entry.setCol(exp_order_bound, chunkcount);
+        return entry.bytes();
+    }
+
+    /**
+     * compute the number of rows of an export from its head if the export is completely sorted
+     * @param head the first exportOverheadSize bytes of an export made by exportCollection()
+     * @param length the length of the complete export
+     * @param rowdef the row definition of the collection
+     * @return the number of rows or -1 if the export is not sorted or does not match the row definition
+     */
+    public static int sortedExportCount(final byte[] head, final long length, final Row rowdef) {
+        if (head.length < exportOverheadSize || length < exportOverheadSize) return -1;
+        final int chunkcount = (int) NaturalOrder.decodeLong(head, 0, 4);
+        final int sortBound = (int) NaturalOrder.decodeLong(head, 10, 4);
+        if (chunkcount < 0 || sortBound != chunkcount) return -1;
+        if (length != exportOverheadSize + ((long) chunkcount) * rowdef.objectsize) return -1;
+        return chunkcount;
+    }
+
     public void saveCollection(final File file) throws IOException {
         FileUtils.copy(exportCollection(), file);
     }
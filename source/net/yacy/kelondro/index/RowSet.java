@@ -79,6 +79,7 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
     }
 
     public final static RowSet importRowSet(final byte[] b, final Row rowdef) throws SpaceExceededException {
+        if (ColumnarRowCodec.isColumnar(b)) return ColumnarRowCodec.decode(b, rowdef);
     	assert b.length >= exportOverheadSize : "b.length = " + b.length;
     	if (b.length < exportOverheadSize) return new RowSet(rowdef, 0);
         final int size = (int) NaturalOrder.decodeLong(b, 0, 4);
@@ -334,6 +335,40 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return -1;
     }
 
+    /**
+     * find a key in the sorted area, starting at a given position: the step width is doubled from the
+     * start position until the key is passed, then a binary search follows (galloping search).
+     * If ascending keys are searched, this is much faster than a binary search over the whole collection.
+     * @param key
+     * @param astart
+     * @param from the position where the search starts
+     * @return the position of the key if the key exists, or -(p + 1) where p is the position of the first greater entry
+     */
+    public final synchronized int gallop(final byte[] key, final int astart, final int from) {
+        assert (this.rowdef.objectOrder != null);
+        final int rbound = this.sortBound;
+        int l = from;
+        int r = from;
+        int step = 1;
+        int d;
+        while (r < rbound) {
+            d = compare(key, astart, r);
+            if (d == 0) return r;
+            if (d < 0) break;
+            l = r + 1;
+            r = (int) Math.min(rbound, ((long) from) + step);
+            step <<= 1;
+        }
+        int p;
+        while (l < r) {
+            p = (l + r) >>> 1;
+            d = compare(key, astart, p);
+            if (d == 0) return p;
+            if (d < 0) r = p; else l = p + 1;
+        }
+        return -(l + 1);
+    }
+
     protected final int binaryPosition(final byte[] key, final int astart) {
         // returns the exact position of the key if the key exists,
         // or a position of an entry that is greater than the key if the
@@ -0,0 +1,206 @@
+// MappedFileReader.java
+// ---------------------
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+
+package net.yacy.kelondro.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read-only, memory-mapped view on a file. The file is mapped in chunks because a single
+ * MappedByteBuffer cannot address more than 2GB. All read methods are positional and do not
+ * share a file pointer, therefore they can be called concurrently without any synchronization.
+ * The mapping reflects the file length at the time of construction; the file must not be
+ * truncated while it is mapped.
+ * close() releases the mapping as soon as no read is running any more; reads after close()
+ * throw a ClosedChannelException.
+ */
+public final class MappedFileReader {
+
+    private static final int CHUNK_BITS = 30; // one chunk is 1GB
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Object unsafe;
+    private static final Method invokeCleaner;
+    static {
+        Object u = null;
+        Method m = null;
+        try {
+            // since Java 9
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            m = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            u = f.get(null);
+        } catch (final Exception e) {
+            m = null;
+        }
+        unsafe = u;
+        invokeCleaner = m;
+    }
+
+    private final File file;
+    private final long length;
+    private final MappedByteBuffer[] chunks;
+    private final AtomicInteger refs; // one reference of the owner and one for each running read
+    private final AtomicBoolean closed;
+
+    public MappedFileReader(final File file) throws IOException {
+        this.file = file;
+        this.refs = new AtomicInteger(1);
+        this.closed = new AtomicBoolean(false);
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            this.length = channel.size();
+            final int count = (int) ((this.length + CHUNK_MASK) >>> CHUNK_BITS);
+            this.chunks = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final long start = ((long) i) << CHUNK_BITS;
+                this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, this.length - start));
+            }
+        } finally {
+            // the mapping stays valid after the channel is closed; this does not consume a file descriptor
+            raf.close();
+        }
+    }
+
+    public File file() {
+        return this.file;
+    }
+
+    /**
+     * the length of the file at the time when it was mapped
+     * @return the mapped length in bytes
+     */
+    public long length() {
+        return this.length;
+    }
+
+    /**
+     * read an int (big endian, as written by DataOutput.writeInt) at the given position
+     * @param pos
+     * @return the int value
+     * @throws IOException if the position is outside of the mapped area
+     */
+    public int readInt(final long pos) throws IOException {
+        if (pos < 0 || pos + 4 > this.length) throw new EOFException("readInt at " + pos + " outside of " + this.file.getName() + ", length = " + this.length);
+        final int c = (int) (pos >>> CHUNK_BITS);
+        final int p = (int) (pos & CHUNK_MASK);
+        final MappedByteBuffer chunk = this.chunks[c];
+        if (p + 4 <= chunk.limit()) {
+            acquire();
+            try {
+                return chunk.getInt(p); // absolute get does not move the buffer position
+            } finally {
+                release();
+            }
+        }
+        final byte[] b = new byte[4];
+        readFully(pos, b, 0, 4);
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    /**
+     * read len bytes at the given position into b
+     * @param pos the position in the file
+     * @param b the target array
+     * @param off the offset in the target array
+     * @param len the number of bytes to read
+     * @throws IOException if the requested area is outside of the mapped area
+     */
+    public void readFully(long pos, final byte[] b, int off, int len) throws IOException {
+        if (pos < 0 || pos + len > this.length) throw new EOFException("read of " + len + " bytes at " + pos + " outside of " + this.file.getName() + ", length = " + this.length);
+        acquire();
+        try {
+            while (len > 0) {
+                final int c = (int) (pos >>> CHUNK_BITS);
+                final int p = (int) (pos & CHUNK_MASK);
+                // a duplicate has its own position, so concurrent readers do not interfere
+                final ByteBuffer chunk = this.chunks[c].duplicate();
+                final int l = Math.min(len, chunk.limit() - p);
+                chunk.position(p);
+                chunk.get(b, off, l);
+                pos += l;
+                off += l;
+                len -= l;
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire() throws ClosedChannelException {
+        while (true) {
+            final int r = this.refs.get();
+            if (r <= 0) throw new ClosedChannelException();
+            if (this.refs.compareAndSet(r, r + 1)) return;
+        }
+    }
+
+    private void release() {
+        if (this.refs.decrementAndGet() == 0) {
+            for (final MappedByteBuffer chunk: this.chunks) unmap(chunk);
+        }
+    }
+
+    /**
+     * release the mapping. Running reads are finished first; the mapping is removed by the last of them.
+     */
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) release();
+    }
+
+    public boolean isClosed() {
+        return this.closed.get();
+    }
+
+    /**
+     * unmap a buffer at once; there is no public API for that, therefore the cleaner of the buffer
+     * is called directly. If that is not possible, the mapping is released by the garbage collector.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        try {
+            if (invokeCleaner != null) {
+                invokeCleaner.invoke(unsafe, buffer);
+            } else {
+                // up to Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (final Exception e) {
+            // the mapping is released by the garbage collector
+        }
+    }
+
+}
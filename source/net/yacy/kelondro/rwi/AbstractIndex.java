@@ -36,11 +36,19 @@ import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowHandleSet;
 
 public abstract class AbstractIndex <ReferenceType extends Reference> implements Index<ReferenceType> {
 
     final protected ReferenceFactory<ReferenceType> factory;
 
+    /**
+     * if true, searchConjunction() loads the container with the least references first and reads the other
+     * containers only for the urls which are in all containers loaded so far. Large containers of frequent words
+     * are then not loaded completely, but the containers in the result are also reduced to these urls.
+     */
+    public static boolean selectiveConjunction = false;
+
     public AbstractIndex(final ReferenceFactory<ReferenceType> factory) {
         this.factory = factory;
     }
@@ -94,6 +102,7 @@ public abstract class AbstractIndex <ReferenceType extends Reference> implements
      */
     @Override
     public TreeMap<byte[], ReferenceContainer<ReferenceType>> searchConjunction(final HandleSet wordHashes, final HandleSet urlselection) {
+        if (selectiveConjunction && wordHashes.size() > 1) return searchConjunctionSelective(wordHashes, urlselection);
     	// first check if there is any entry that has no match; this uses only operations in ram
     	/*
     	Iterator<byte[]> i = wordHashes.iterator();
@@ -127,6 +136,54 @@ public abstract class AbstractIndex <ReferenceType extends Reference> implements
         return containers;
     }
 
+    private TreeMap<byte[], ReferenceContainer<ReferenceType>> searchConjunctionSelective(final HandleSet wordHashes, final HandleSet urlselection) {
+        final TreeMap<byte[], ReferenceContainer<ReferenceType>> containers = new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder);
+
+        // order the word hashes by the number of references
+        final TreeMap<Long, byte[]> bySize = new TreeMap<Long, byte[]>();
+        int count = 0, size;
+        for (final byte[] wordHash: wordHashes) {
+            size = count(wordHash);
+            if (size == 0) return containers; // a conjunction with an unknown word has no result
+            bySize.put(Long.valueOf(((long) size) * 1000L + count), wordHash);
+            count++;
+        }
+
+        // load the containers, starting with the smallest one
+        final Row row = this.factory.getRow();
+        HandleSet selection = urlselection;
+        ReferenceContainer<ReferenceType> singleContainer;
+        for (final byte[] wordHash: bySize.values()) {
+            try {
+                singleContainer = get(wordHash, selection);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+                continue;
+            }
+            if (singleContainer == null || singleContainer.isEmpty()) return new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder);
+
+            // reduce the container to the urls which are in all containers so far and use them as selection for the next container
+            try {
+                final HandleSet next = new RowHandleSet(row.primaryKeyLength, row.objectOrder, Math.min(singleContainer.size(), selection == null ? Integer.MAX_VALUE : selection.size()));
+                final ReferenceContainer<ReferenceType> reduced = new ReferenceContainer<ReferenceType>(this.factory, wordHash);
+                byte[] urlHash;
+                for (final Row.Entry entry: singleContainer) {
+                    urlHash = entry.getPrimaryKeyBytes();
+                    if (selection != null && !selection.has(urlHash)) continue;
+                    next.putUnique(urlHash);
+                    if (selection != null) reduced.addUnique(entry);
+                }
+                if (selection != null) singleContainer = reduced;
+                selection = next;
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+            }
+            if (singleContainer.isEmpty()) return new TreeMap<byte[], ReferenceContainer<ReferenceType>>(Base64Order.enhancedCoder);
+            containers.put(wordHash, singleContainer);
+        }
+        return containers;
+    }
+
     public TermSearch<ReferenceType> query(
             final HandleSet queryHashes,
             final HandleSet excludeHashes,
@@ -66,10 +66,11 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     private static final long cleanupCycle =  60000;
     private static final long dumpCycle    = 600000;
+    private static final int  ramShards    = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())); // number of independent ram caches
 
     // class variables
     private final ReferenceContainerArray<ReferenceType> array;
-    private       ReferenceContainerCache<ReferenceType> ram;
+    private final ShardedReferenceContainerCache<ReferenceType> ram;
     private final ComparableARC<byte[], Integer>         countCache;
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
@@ -97,7 +98,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
         this.merger = merger;
         this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
-        this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+        this.ram = new ShardedReferenceContainerCache<ReferenceType>(factory, termOrder, termSize, ramShards);
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
@@ -138,23 +139,25 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
                     if (IndexCell.this.ram.size() >= IndexCell.this.maxRamEntries ||
                         (IndexCell.this.ram.size() > 3000 && !MemoryControl.request(80L * 1024L * 1024L, false)) ||
                         (!IndexCell.this.ram.isEmpty() && IndexCell.this.lastDump + dumpCycle < t)) try {
-                            IndexCell.this.lastDump = System.currentTimeMillis();
+                        // when the dump is only caused by the size of the cache, only a part of it is dumped
+                        final boolean full = IndexCell.this.lastDump + dumpCycle >= t && MemoryControl.request(80L * 1024L * 1024L, false);
+                        IndexCell.this.lastDump = System.currentTimeMillis();
                         // removed delayed
                         try {removeDelayed();} catch (final IOException e) {}
-                        // dump the ram
-                        final File dumpFile = IndexCell.this.array.newContainerBLOBFile();
-                        // a critical point: when the ram is handed to the dump job,
-                        // don't write into it any more. Use a fresh one instead
-                        ReferenceContainerCache<ReferenceType> ramdump;
-                        final ByteOrder termOrder = IndexCell.this.ram.termKeyOrdering();
-                        final int termSize = IndexCell.this.ram.termKeyLength();
-                        synchronized (this) {
-                            ramdump = IndexCell.this.ram;
-                            // get a fresh ram cache
-                            IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
+                        // a critical point: when a shard is handed to the dump job,
+                        // don't write into it any more. The shard is replaced by a fresh one
+                        if (full) {
+                            // the cache is full: dump the largest shards, each to an own file,
+                            // while the other shards keep accepting new references
+                            for (int i = 0; i < IndexCell.this.ram.shardCount() && IndexCell.this.ram.size() > IndexCell.this.maxRamEntries / 2; i++) {
+                                final int shard = IndexCell.this.ram.largestShard();
+                                if (IndexCell.this.ram.shardSize(shard) == 0) break;
+                                IndexCell.this.merger.dump(IndexCell.this.ram.exchange(shard), IndexCell.this.array.newContainerBLOBFile(), IndexCell.this.array);
+                            }
+                        } else {
+                            // dump the whole ram into one file
+                            IndexCell.this.merger.dump(IndexCell.this.ram.exchangeAll(), IndexCell.this.array.newContainerBLOBFile(), IndexCell.this.array);
                         }
-                        // dump the buffer
-                        IndexCell.this.merger.dump(ramdump, dumpFile, IndexCell.this.array);
                         IndexCell.this.lastDump = System.currentTimeMillis();
                     } catch (final Throwable e) {
                         // catch all exceptions
@@ -344,6 +347,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
      * all containers in the BLOBs and the RAM are merged and returned.
      * Please be aware that the returned values may be top-level cloned ReferenceContainers or direct links to containers
      * If the containers are modified after they are returned, they MAY alter the stored index.
+     * If an urlselection is given, large containers in the BLOBs are only read for the selected urls,
+     * but the result may still contain references to urls which are not selected.
      * @throws IOException
      * @return a container with merged ReferenceContainer from RAM and the file array or null if there is no data to be returned
      */
@@ -352,7 +357,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         final ReferenceContainer<ReferenceType> c0 = this.ram.get(termHash, null);
         ReferenceContainer<ReferenceType> c1 = null;
         try {
-            c1 = this.array.get(termHash);
+            c1 = this.array.get(termHash, urlselection);
         } catch (final SpaceExceededException e2) {
             ConcurrentLog.logException(e2);
         }
@@ -596,7 +601,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     public synchronized void close() {
         this.countCache.clear();
         try {removeDelayed();} catch (final IOException e) {}
-        if (!this.ram.isEmpty()) this.ram.dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
+        if (!this.ram.isEmpty()) this.ram.exchangeAll().dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
         // close all
         this.flushShallRun = false;
         if (this.flushThread != null) try { this.flushThread.join(); } catch (final InterruptedException e) {}
@@ -42,7 +42,9 @@ import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.ColumnarRowCodec;
 import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowCollection;
 import net.yacy.kelondro.index.RowSet;
 
 
@@ -60,6 +62,7 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
     private   byte[] termHash;
     protected ReferenceFactory<ReferenceType> factory;
     public static int maxReferences = 0; // overwrite this to enable automatic index shrinking. 0 means no shrinking
+    public static boolean columnarExport = false; // if true, containers are written to BLOBs in the compressed format of ColumnarRowCodec
 
     public ReferenceContainer(final ReferenceFactory<ReferenceType> factory, final byte[] termHash, final RowSet collection) {
         super(collection);
@@ -113,6 +116,28 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return this.termHash;
     }
 
+    /**
+     * export the container for a BLOB file; this is either the export format of RowCollection
+     * or, if columnarExport is set, the format of ColumnarRowCodec. Both formats are read by RowSet.importRowSet().
+     * Small containers are smaller in the format of RowCollection because the columnar format has a mode byte for
+     * each column, therefore the columnar format is only used if it is smaller.
+     */
+    @Override
+    public synchronized byte[] exportCollection() {
+        if (!columnarExport) return super.exportCollection();
+        final byte[] columnar = exportColumnar();
+        if (columnar.length >= RowCollection.exportOverheadSize + ((long) size()) * this.rowdef.objectsize) return super.exportCollection();
+        return columnar;
+    }
+
+    /**
+     * export the container in the format of ColumnarRowCodec, regardless of the size
+     */
+    public synchronized byte[] exportColumnar() {
+        sort();
+        return ColumnarRowCodec.encode(this);
+    }
+
     public void add(final Reference entry) throws SpaceExceededException {
         // add without double-occurrence test
         assert entry.toKelondroEntry().objectsize() == super.rowdef.objectsize;
@@ -406,7 +431,7 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         final int high = ((i1.size() > i2.size()) ? i1.size() : i2.size());
         final int low  = ((i1.size() > i2.size()) ? i2.size() : i1.size());
         final int stepsEnum = 10 * (high + low - 1);
-        final int stepsTest = 12 * log2(high) * low;
+        final int stepsTest = 12 * log2(high / low) * low;
 
         // start most efficient method
         if (stepsEnum > stepsTest) {
@@ -426,21 +451,35 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         final int keylength = small.rowdef.width(0);
         assert (keylength == large.rowdef.width(0));
         final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
-        final Iterator<ReferenceType> se = small.entries();
+        if (!((small.rowdef.getOrdering().signature().equals(large.rowdef.getOrdering().signature())))) return conj; // ordering must be equal
+        // both containers are sorted, so the urls of the small container can be searched in ascending order:
+        // every search in the large container starts at the position of the previous hit (galloping search)
+        small.sort();
+        large.sort();
         ReferenceType ie1;
         ReferenceType ie2;
-        while (se.hasNext()) {
-            ie1 = se.next();
-            ie2 = large.getReference(ie1.urlhash());
-            if ((ie1 != null) && (ie2 != null)) {
-                assert (ie1.urlhash().length == keylength) : "ie0.urlHash() = " + ASCII.String(ie1.urlhash());
-                assert (ie2.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie2.urlhash());
-                // this is a hit. Calculate word distance:
-
-                ie1 = factory.produceFast(ie2, true);
-                ie1.join(ie2);
-                if (ie1.distance() <= maxDistance) conj.add(ie1);
+        Row.Entry row;
+        byte[] urlHash;
+        int from = 0, p;
+        final int smallSize = small.size();
+        final int largeSize = large.size();
+        for (int i = 0; i < smallSize && from < largeSize; i++) {
+            row = small.get(i, false);
+            if (row == null) continue;
+            urlHash = row.getPrimaryKeyBytes();
+            p = large.gallop(urlHash, 0, from);
+            if (p < 0) {
+                from = -p - 1;
+                continue;
             }
+            from = p + 1;
+            // this is a hit. Calculate word distance:
+            ie1 = factory.produceFast(factory.produceSlow(row), true);
+            ie2 = factory.produceSlow(large.get(p, false));
+            assert (ie1.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie1.urlhash());
+            assert (ie2.urlhash().length == keylength) : "ie2.urlHash() = " + ASCII.String(ie2.urlhash());
+            ie1.join(ie2);
+            if (ie1.distance() <= maxDistance) conj.add(ie1);
         }
         return conj;
     }
@@ -26,18 +26,22 @@ package net.yacy.kelondro.rwi;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
 import net.yacy.cora.sorting.Rating;
+import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.BLOB;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.ColumnarRowCodec;
 import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowCollection;
 import net.yacy.kelondro.index.RowSet;
 
 
@@ -47,6 +51,7 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
 
     private final ReferenceFactory<ReferenceType> factory;
     private final ArrayStack array;
+    private long lastBLOBTime = 0;
 
     /**
      * open a index container array based on BLOB dumps. The content of the BLOBs will not be read
@@ -91,8 +96,15 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return this.array.ordering();
     }
 
-    public File newContainerBLOBFile() {
-    	return this.array.newBLOB(new Date());
+    /**
+     * generate a new file name for a BLOB in this array. Names have a resolution of one millisecond,
+     * therefore the time is advanced if several names are requested within the same millisecond.
+     * @return a file name which is not used by another BLOB
+     */
+    public synchronized File newContainerBLOBFile() {
+        final long t = Math.max(System.currentTimeMillis(), this.lastBLOBTime + 1);
+        this.lastBLOBTime = t;
+    	return this.array.newBLOB(new Date(t));
     }
 
     public void mountBLOBFile(final File location) throws IOException {
@@ -324,7 +336,106 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
     	return c;
     }
 
+    /**
+     * get the references of a term which belong to a selection of urls. In large sorted BLOBs the selected urls
+     * are found with a galloping search over the rows in the file, so only the rows which are needed are read
+     * and the skipped blocks of the container are never loaded. Small BLOBs, BLOBs in the columnar format and
+     * BLOBs where the selection covers a large part of the container are read completely, therefore the
+     * result may contain also references which are not selected.
+     * @param termHash
+     * @param urlselection the selected urls or null to get all references
+     * @return the indexContainer if one exist, null otherwise
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) throws IOException, SpaceExceededException {
+        if (urlselection == null || urlselection.isEmpty()) return get(termHash);
+        final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
+        ReferenceContainer<ReferenceType> c = null;
+        int k = 0;
+        for (final ArrayStack.BlobRange range: this.array.rangeAll(termHash)) {
+            final RowSet rows = select(range, urlselection);
+            if (rows == null) continue;
+            final ReferenceContainer<ReferenceType> d = new ReferenceContainer<ReferenceType>(this.factory, termHash, rows);
+            c = (c == null) ? d : c.merge(d);
+            k++;
+            if (System.currentTimeMillis() > timeout) {
+                ConcurrentLog.warn("ReferenceContainerArray", "timout in get() (3): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
+                return c;
+            }
+        }
+        return c;
+    }
+
+    private static final int selectMinRows = 1024; // containers with less rows are always read completely
+
+    private RowSet select(final ArrayStack.BlobRange range, final HandleSet urlselection) throws IOException, SpaceExceededException {
+        final Row rowdef = this.factory.getRow();
+        final long length = range.length();
+        final byte[] head = new byte[(int) Math.min(length, RowCollection.exportOverheadSize)];
+        if (!range.read(0, head, 0, head.length)) return null;
+        final int n = ColumnarRowCodec.isColumnar(head) ? -1 : RowCollection.sortedExportCount(head, length, rowdef);
+        if (n < selectMinRows || urlselection.comparator() != rowdef.objectOrder ||
+            ((long) urlselection.size()) * log2(n) * rowdef.primaryKeyLength > length / 4) {
+            // read the complete container
+            final byte[] b = new byte[(int) length];
+            if (!range.read(0, b, 0, b.length)) return null;
+            return RowSet.importRowSet(b, rowdef);
+        }
+
+        // galloping search of all selected urls over the rows of the container
+        final int objectsize = rowdef.objectsize;
+        final int keylength = rowdef.primaryKeyLength;
+        final int headlength = head.length;
+        final byte[] key = new byte[keylength];
+        final byte[] rows = new byte[Math.min(n, urlselection.size()) * objectsize];
+        int found = 0;
+        int from = 0; // all rows before this position have keys which are smaller than the next selected url
+        final Iterator<byte[]> i = urlselection.keys(true, null);
+        byte[] url;
+        int l, r, p, step, d;
+        while (i.hasNext() && from < n) {
+            url = i.next();
+            // find a right bound for the url with doubled steps
+            l = from; r = from; step = 1; d = 1;
+            while (r < n) {
+                if (!range.read(headlength + ((long) r) * objectsize, key, 0, keylength)) return null;
+                d = rowdef.objectOrder.compare(url, key);
+                if (d <= 0) break;
+                l = r + 1;
+                r = (int) Math.min(n, ((long) from) + step);
+                step <<= 1;
+            }
+            // binary search between l and r
+            p = (d == 0) ? r : -1;
+            while (p < 0 && l < r) {
+                final int m = (l + r) >>> 1;
+                if (!range.read(headlength + ((long) m) * objectsize, key, 0, keylength)) return null;
+                d = rowdef.objectOrder.compare(url, key);
+                if (d == 0) p = m; else if (d < 0) r = m; else l = m + 1;
+            }
+            if (p >= 0) {
+                if (!range.read(headlength + ((long) p) * objectsize, rows, found * objectsize, objectsize)) return null;
+                found++;
+                from = p + 1;
+            } else {
+                from = l;
+            }
+        }
+        final byte[] export = new byte[headlength + found * objectsize];
+        System.arraycopy(RowCollection.exportHead(rowdef, found, System.currentTimeMillis()), 0, export, 0, headlength);
+        System.arraycopy(rows, 0, export, headlength, found * objectsize);
+        return RowSet.importRowSet(export, rowdef);
+    }
+
+    private static int log2(int x) {
+        int l = 0;
+        while (x > 0) {x = x >> 1; l++;}
+        return l;
+    }
+
     public int count(final byte[] termHash) throws IOException {
+        if (ReferenceContainer.columnarExport) return countHeads(termHash);
         final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
         final Iterator<Long> entries = this.array.lengthAll(termHash).iterator();
         if (entries == null || !entries.hasNext()) return 0;
@@ -349,6 +460,24 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return c;
     }
 
+    /**
+     * count the references using the headers of the containers. This is necessary if BLOBs may contain
+     * containers in the columnar format where the number of references cannot be computed from the length.
+     */
+    private int countHeads(final byte[] termHash) throws IOException {
+        final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
+        int c = 0, k = 0;
+        for (final byte[] head: this.array.headAll(termHash, ColumnarRowCodec.headLength)) {
+            c += ColumnarRowCodec.count(head);
+            k++;
+            if (System.currentTimeMillis() > timeout) {
+                ConcurrentLog.warn("ReferenceContainerArray", "timout in countHeads(): " + k + " tables searched. timeout = " + METHOD_MAXRUNTIME);
+                return c;
+            }
+        }
+        return c;
+    }
+
     /**
      * delete a indexContainer from the heap cache. This can only be used for write-enabled heaps
      * @param wordHash
@@ -379,7 +508,14 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
             if (b == null) return null;
             final ReferenceContainer<ReferenceType> c = this.rewriter.reduce(new ReferenceContainer<ReferenceType>(ReferenceContainerArray.this.factory, this.wordHash, RowSet.importRowSet(b, ReferenceContainerArray.this.factory.getRow())));
             if (c == null) return null;
-            final byte bb[] = c.exportCollection();
+            byte bb[] = c.exportCollection();
+            // the new export must have the old size or must be at least 4 bytes smaller, which are needed to mark the gap in the heap.
+            // Otherwise the columnar export is padded to the old size which is possible because the decoder ignores trailing bytes;
+            // the columnar export of the reduced container is never larger than the old export.
+            if (bb.length != b.length && bb.length > b.length - 4) {
+                final byte[] columnar = ColumnarRowCodec.isColumnar(bb) ? bb : c.exportColumnar();
+                if (columnar.length <= b.length) bb = Arrays.copyOf(columnar, b.length);
+            }
             assert bb.length <= b.length;
             return bb;
         }
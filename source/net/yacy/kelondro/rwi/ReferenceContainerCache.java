@@ -113,6 +113,16 @@ public final class ReferenceContainerCache<ReferenceType extends Reference> exte
         return this.cache.keySet().iterator();
     }
 
+    /**
+     * move all containers of another cache into this cache without copying them.
+     * The terms of both caches must be disjoint, which is the case for the shards of a ShardedReferenceContainerCache.
+     * @param other a cache which must not be used any more after this call
+     */
+    protected void adopt(final ReferenceContainerCache<ReferenceType> other) {
+        if (this.cache == null || other.cache == null) return;
+        this.cache.putAll(other.cache);
+    }
+
     /**
      * dump the cache to a file. This method can be used in a destructive way
      * which means that memory can be freed during the dump. This may be important
@@ -0,0 +1,343 @@
+// ReferenceMerger.java
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.HeapStreamReader;
+import net.yacy.kelondro.blob.HeapWriter;
+import net.yacy.kelondro.index.ColumnarRowCodec;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowCollection;
+import net.yacy.kelondro.index.RowSet;
+
+/**
+ * A k-way merge of two RWI BLOB files which walks both heap files in key order without
+ * loading them into memory. References of a term which appears only in one of the files are
+ * copied in chunks without decoding them. References of a term which appears in both files are
+ * merged row by row in chunks if both are stored as sorted, uncompressed exports; only if the merged
+ * container must be shrinked or converted into a different export format, it is decoded completely.
+ * The merger records the throughput of all merges for the performance pages.
+ */
+public final class ReferenceMerger {
+
+    private final static ConcurrentLog log = new ConcurrentLog("ReferenceMerger");
+
+    private static final int windowSize = 1024 * 1024; // the read window of each input file
+    private static final int chunkSize = 64 * 1024;    // the size of the row chunks which are merged in one step
+
+    // statistics
+    private static final AtomicLong mergeCount = new AtomicLong(0);
+    private static final AtomicLong mergeBytes = new AtomicLong(0);
+    private static final AtomicLong mergeTerms = new AtomicLong(0);
+    private static final AtomicLong mergeTime = new AtomicLong(0);
+    private static final AtomicLong mergeDecoded = new AtomicLong(0);
+    private static volatile long lastBytes = 0, lastTerms = 0, lastTime = 0;
+
+    private ReferenceMerger() {}
+
+    /**
+     * merge two heap files into a new heap file. A term which appears in both files gets the union of the references
+     * of both files; if a reference appears in both files, the one from the first file is taken.
+     * @param f1 the first heap file
+     * @param f2 the second heap file
+     * @param factory the factory for the references
+     * @param ordering the order of the keys in the heap files
+     * @param writer the writer of the new heap file
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public static <ReferenceType extends Reference> void merge(
+            final File f1, final File f2,
+            final ReferenceFactory<ReferenceType> factory,
+            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
+        final long start = System.currentTimeMillis();
+        final int keylength = factory.getRow().primaryKeyLength;
+        final HeapStreamReader r1 = new HeapStreamReader(f1, keylength, windowSize);
+        long terms = 0;
+        long bytes = 0;
+        try {
+            final HeapStreamReader r2 = new HeapStreamReader(f2, keylength, windowSize);
+            try {
+                bytes = r1.length() + r2.length();
+                byte[] k1 = r1.next(), k2 = r2.next(), l1, l2;
+                int e;
+                while (k1 != null && k2 != null) {
+                    e = ordering.compare(k1, k2);
+                    if (e < 0) {
+                        copy(r1, factory, writer);
+                        l1 = k1; k1 = r1.next();
+                        assert k1 == null || ordering.compare(k1, l1) > 0;
+                    } else if (e > 0) {
+                        copy(r2, factory, writer);
+                        l2 = k2; k2 = r2.next();
+                        assert k2 == null || ordering.compare(k2, l2) > 0;
+                    } else {
+                        merge(r1, r2, factory, writer);
+                        l1 = k1; k1 = r1.next();
+                        assert k1 == null || ordering.compare(k1, l1) > 0;
+                        l2 = k2; k2 = r2.next();
+                        assert k2 == null || ordering.compare(k2, l2) > 0;
+                    }
+                    terms++;
+                }
+                // catch up remaining entries
+                while (k1 != null) {
+                    copy(r1, factory, writer);
+                    k1 = r1.next();
+                    terms++;
+                }
+                while (k2 != null) {
+                    copy(r2, factory, writer);
+                    k2 = r2.next();
+                    terms++;
+                }
+            } finally {
+                r2.close();
+            }
+        } finally {
+            r1.close();
+        }
+        final long time = Math.max(1, System.currentTimeMillis() - start);
+        mergeCount.incrementAndGet();
+        mergeBytes.addAndGet(bytes);
+        mergeTerms.addAndGet(terms);
+        mergeTime.addAndGet(time);
+        lastBytes = bytes; lastTerms = terms; lastTime = time;
+        log.info("merged " + f1.getName() + " with " + f2.getName() + ": " + terms + " terms, " + (bytes / 1024 / 1024) + " MB in " + time + " ms, " + ((int) megabytesPerSecond(bytes, time)) + " MB/s, " + ((int) termsPerSecond(terms, time)) + " terms/s");
+    }
+
+    /**
+     * write the current record of a reader to the new heap file
+     */
+    private static <ReferenceType extends Reference> void copy(
+            final HeapStreamReader r,
+            final ReferenceFactory<ReferenceType> factory,
+            final HeapWriter writer) throws IOException, SpaceExceededException {
+        final Row rowdef = factory.getRow();
+        final int length = r.payloadLength();
+        final byte[] head = new byte[Math.min(length, (int) RowCollection.exportOverheadSize)];
+        r.readPayload(0, head, 0, head.length);
+        final boolean columnar = ColumnarRowCodec.isColumnar(head);
+        final int count = columnar ? ColumnarRowCodec.count(head) : RowCollection.sortedExportCount(head, length, rowdef);
+        if (columnar == ReferenceContainer.columnarExport && count >= 0 && (ReferenceContainer.maxReferences <= 0 || count <= ReferenceContainer.maxReferences)) {
+            // the record can be taken as it is
+            final OutputStream os = writer.add(r.key(), length);
+            final byte[] chunk = new byte[Math.min(length, chunkSize)];
+            for (int offset = 0; offset < length; offset += chunk.length) {
+                final int l = Math.min(chunk.length, length - offset);
+                r.readPayload(offset, chunk, 0, l);
+                os.write(chunk, 0, l);
+            }
+            os.close();
+            return;
+        }
+        final ReferenceContainer<ReferenceType> c = container(r, factory);
+        if (c != null) write(c, writer);
+    }
+
+    /**
+     * write the union of the current records of both readers to the new heap file
+     */
+    private static <ReferenceType extends Reference> void merge(
+            final HeapStreamReader r1, final HeapStreamReader r2,
+            final ReferenceFactory<ReferenceType> factory,
+            final HeapWriter writer) throws IOException, SpaceExceededException {
+        final Row rowdef = factory.getRow();
+        if (!ReferenceContainer.columnarExport) {
+            final int headLength = (int) RowCollection.exportOverheadSize;
+            final byte[] h1 = new byte[Math.min(r1.payloadLength(), headLength)];
+            final byte[] h2 = new byte[Math.min(r2.payloadLength(), headLength)];
+            r1.readPayload(0, h1, 0, h1.length);
+            r2.readPayload(0, h2, 0, h2.length);
+            final int n1 = ColumnarRowCodec.isColumnar(h1) ? -1 : RowCollection.sortedExportCount(h1, r1.payloadLength(), rowdef);
+            final int n2 = ColumnarRowCodec.isColumnar(h2) ? -1 : RowCollection.sortedExportCount(h2, r2.payloadLength(), rowdef);
+            if (n1 >= 0 && n2 >= 0) {
+                // first pass: count the rows of the union
+                int count = 0;
+                RowCursor c1 = new RowCursor(r1, headLength, n1, rowdef);
+                RowCursor c2 = new RowCursor(r2, headLength, n2, rowdef);
+                while (c1.hasRow() && c2.hasRow()) {
+                    final int e = rowdef.objectOrder.compare(c1.chunk(), c1.offset(), c2.chunk(), c2.offset(), rowdef.primaryKeyLength);
+                    if (e <= 0) c1.advance();
+                    if (e >= 0) c2.advance();
+                    count++;
+                }
+                count += c1.remaining() + c2.remaining();
+                if (ReferenceContainer.maxReferences <= 0 || count <= ReferenceContainer.maxReferences) {
+                    // second pass: write the union
+                    final OutputStream os = writer.add(r1.key(), headLength + count * rowdef.objectsize);
+                    os.write(RowCollection.exportHead(rowdef, count, System.currentTimeMillis()));
+                    final byte[] out = new byte[Math.max(1, chunkSize / rowdef.objectsize) * rowdef.objectsize];
+                    int p = 0;
+                    c1 = new RowCursor(r1, headLength, n1, rowdef);
+                    c2 = new RowCursor(r2, headLength, n2, rowdef);
+                    RowCursor c;
+                    while (c1.hasRow() || c2.hasRow()) {
+                        if (!c2.hasRow()) {
+                            c = c1;
+                        } else if (!c1.hasRow()) {
+                            c = c2;
+                        } else {
+                            final int e = rowdef.objectOrder.compare(c1.chunk(), c1.offset(), c2.chunk(), c2.offset(), rowdef.primaryKeyLength);
+                            if (e == 0) c2.advance(); // double entries are taken from the first file
+                            c = e <= 0 ? c1 : c2;
+                        }
+                        System.arraycopy(c.chunk(), c.offset(), out, p, rowdef.objectsize);
+                        c.advance();
+                        p += rowdef.objectsize;
+                        if (p == out.length) {
+                            os.write(out, 0, p);
+                            p = 0;
+                        }
+                    }
+                    if (p > 0) os.write(out, 0, p);
+                    os.close();
+                    return;
+                }
+            }
+        }
+        // decode both containers
+        mergeDecoded.incrementAndGet();
+        final ReferenceContainer<ReferenceType> c1 = container(r1, factory);
+        final ReferenceContainer<ReferenceType> c2 = container(r2, factory);
+        if (c1 == null && c2 == null) return;
+        write(c1 == null ? c2 : c2 == null ? c1 : c1.merge(c2), writer);
+    }
+
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> container(
+            final HeapStreamReader r,
+            final ReferenceFactory<ReferenceType> factory) throws IOException {
+        try {
+            final RowSet row = RowSet.importRowSet(r.payload(), factory.getRow());
+            return new ReferenceContainer<ReferenceType>(factory, r.key(), row);
+        } catch (final SpaceExceededException e) {
+            log.severe("lost entry '" + ASCII.String(r.key()) + "' because of too low memory: " + e.toString());
+            return null;
+        } catch (final OutOfMemoryError e) {
+            log.severe("lost entry '" + ASCII.String(r.key()) + "' because of too low memory: " + e.toString());
+            return null;
+        }
+    }
+
+    private static <ReferenceType extends Reference> void write(
+            final ReferenceContainer<ReferenceType> c,
+            final HeapWriter writer) throws IOException, SpaceExceededException {
+        final int s = c.shrinkReferences();
+        if (s > 0) log.info("shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
+        writer.add(c.getTermHash(), c.exportCollection());
+    }
+
+    /**
+     * a cursor over the rows of a sorted export which holds only one chunk of rows in memory
+     */
+    private static final class RowCursor {
+        private final HeapStreamReader reader;
+        private final int objectsize;
+        private final long end;
+        private final byte[] chunk;
+        private long next;
+        private int chunkpos, chunklen;
+
+        private RowCursor(final HeapStreamReader reader, final int start, final int count, final Row rowdef) {
+            this.reader = reader;
+            this.objectsize = rowdef.objectsize;
+            this.next = start;
+            this.end = start + ((long) count) * this.objectsize;
+            this.chunk = new byte[(int) Math.min(this.end - start, Math.max(1, chunkSize / this.objectsize) * this.objectsize)];
+            this.chunkpos = 0;
+            this.chunklen = 0;
+        }
+
+        private boolean hasRow() {
+            return this.chunkpos < this.chunklen || this.next < this.end;
+        }
+
+        private int remaining() {
+            return (int) (((this.chunklen - this.chunkpos) + (this.end - this.next)) / this.objectsize);
+        }
+
+        private byte[] chunk() {
+            return this.chunk;
+        }
+
+        private int offset() throws IOException {
+            if (this.chunkpos >= this.chunklen) {
+                this.chunklen = (int) Math.min(this.chunk.length, this.end - this.next);
+                this.reader.readPayload(this.next, this.chunk, 0, this.chunklen);
+                this.next += this.chunklen;
+                this.chunkpos = 0;
+            }
+            return this.chunkpos;
+        }
+
+        private void advance() {
+            this.chunkpos += this.objectsize;
+        }
+    }
+
+    private static double megabytesPerSecond(final long bytes, final long time) {
+        return time <= 0 ? 0.0d : ((double) bytes) / 1024.0d / 1024.0d * 1000.0d / time;
+    }
+
+    private static double termsPerSecond(final long terms, final long time) {
+        return time <= 0 ? 0.0d : ((double) terms) * 1000.0d / time;
+    }
+
+    /**
+     * @return the number of merges since start-up
+     */
+    public static long mergeCount() {
+        return mergeCount.get();
+    }
+
+    /**
+     * @return the number of terms where the references had to be decoded for a merge since start-up
+     */
+    public static long decodedCount() {
+        return mergeDecoded.get();
+    }
+
+    public static double lastMegabytesPerSecond() {
+        return megabytesPerSecond(lastBytes, lastTime);
+    }
+
+    public static double lastTermsPerSecond() {
+        return termsPerSecond(lastTerms, lastTime);
+    }
+
+    public static double averageMegabytesPerSecond() {
+        return megabytesPerSecond(mergeBytes.get(), mergeTime.get());
+    }
+
+    public static double averageTermsPerSecond() {
+        return termsPerSecond(mergeTerms.get(), mergeTime.get());
+    }
+}
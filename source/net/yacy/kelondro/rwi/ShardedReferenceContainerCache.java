@@ -0,0 +1,223 @@
+// ShardedReferenceContainerCache.java
+// (C) 2026 by agent
+// first published 17.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.Row;
+
+/**
+ * A RAM cache for references which is partitioned into a number of independent ReferenceContainerCache shards.
+ * The shard of a term is selected by the hash of the term, so every term lives in exactly one shard.
+ * Writers for terms in different shards do not share any lock, and a single shard can be exchanged
+ * against an empty one to dump it while all other shards keep accepting new references.
+ *
+ * @param <ReferenceType>
+ */
+public final class ShardedReferenceContainerCache<ReferenceType extends Reference> {
+
+    private final ReferenceFactory<ReferenceType> factory;
+    private final ByteOrder termOrder;
+    private final int termSize;
+    private final AtomicReferenceArray<ReferenceContainerCache<ReferenceType>> shards;
+
+    /**
+     * @param factory the factory for payload reference objects
+     * @param termOrder the order on search terms for the cache
+     * @param termSize the fixed size of search terms
+     * @param shardCount the number of shards
+     */
+    public ShardedReferenceContainerCache(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize, final int shardCount) {
+        assert shardCount > 0;
+        this.factory = factory;
+        this.termOrder = termOrder;
+        this.termSize = termSize;
+        this.shards = new AtomicReferenceArray<ReferenceContainerCache<ReferenceType>>(Math.max(1, shardCount));
+        for (int i = 0; i < this.shards.length(); i++) this.shards.set(i, newShard());
+    }
+
+    private ReferenceContainerCache<ReferenceType> newShard() {
+        return new ReferenceContainerCache<ReferenceType>(this.factory, this.termOrder, this.termSize);
+    }
+
+    private ReferenceContainerCache<ReferenceType> shard(final byte[] termHash) {
+        final int h = ByteArray.hashCode(termHash);
+        return this.shards.get(((h ^ (h >>> 16)) & Integer.MAX_VALUE) % this.shards.length());
+    }
+
+    public int shardCount() {
+        return this.shards.length();
+    }
+
+    /**
+     * @param i the number of a shard
+     * @return the number of terms in the shard
+     */
+    public int shardSize(final int i) {
+        return this.shards.get(i).size();
+    }
+
+    /**
+     * @return the number of the shard with the largest number of terms
+     */
+    public int largestShard() {
+        int m = 0, s = -1, c;
+        for (int i = 0; i < this.shards.length(); i++) {
+            c = this.shards.get(i).size();
+            if (c > s) {s = c; m = i;}
+        }
+        return m;
+    }
+
+    /**
+     * replace one shard with an empty shard. The returned cache must be dumped by the caller;
+     * it is not visible for readers of this cache any more.
+     * @param i the number of the shard
+     * @return the previous content of the shard
+     */
+    public ReferenceContainerCache<ReferenceType> exchange(final int i) {
+        return this.shards.getAndSet(i, newShard());
+    }
+
+    /**
+     * replace all shards with empty shards and combine their previous content in a single cache
+     * @return a cache with the content of all shards
+     */
+    public ReferenceContainerCache<ReferenceType> exchangeAll() {
+        final ReferenceContainerCache<ReferenceType> all = newShard();
+        for (int i = 0; i < this.shards.length(); i++) all.adopt(exchange(i));
+        return all;
+    }
+
+    /**
+     * a single cache containing all containers of all shards, for iteration
+     */
+    private ReferenceContainerCache<ReferenceType> snapshot() {
+        if (this.shards.length() == 1) return this.shards.get(0);
+        final ReferenceContainerCache<ReferenceType> all = newShard();
+        for (int i = 0; i < this.shards.length(); i++) all.adopt(this.shards.get(i));
+        return all;
+    }
+
+    public Row rowdef() {
+        return this.factory.getRow();
+    }
+
+    public int termKeyLength() {
+        return this.termSize;
+    }
+
+    public ByteOrder termKeyOrdering() {
+        return this.termOrder;
+    }
+
+    public void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException {
+        if (container == null || container.isEmpty()) return;
+        shard(container.getTermHash()).add(container);
+    }
+
+    public void add(final byte[] termHash, final ReferenceType newEntry) throws SpaceExceededException {
+        shard(termHash).add(termHash, newEntry);
+    }
+
+    public boolean has(final byte[] termHash) {
+        return shard(termHash).has(termHash);
+    }
+
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) {
+        return shard(termHash).get(termHash, urlselection);
+    }
+
+    public int count(final byte[] termHash) {
+        return shard(termHash).count(termHash);
+    }
+
+    public ReferenceContainer<ReferenceType> remove(final byte[] termHash) {
+        return shard(termHash).remove(termHash);
+    }
+
+    public void delete(final byte[] termHash) {
+        shard(termHash).delete(termHash);
+    }
+
+    public boolean remove(final byte[] termHash, final byte[] urlHashBytes) {
+        return shard(termHash).remove(termHash, urlHashBytes);
+    }
+
+    public int remove(final byte[] termHash, final HandleSet urlHashes) {
+        return shard(termHash).remove(termHash, urlHashes);
+    }
+
+    public Iterator<ByteArray> keys() {
+        final List<ByteArray> keys = new ArrayList<ByteArray>();
+        for (int i = 0; i < this.shards.length(); i++) {
+            final Iterator<ByteArray> k = this.shards.get(i).keys();
+            while (k.hasNext()) keys.add(k.next());
+        }
+        return keys.iterator();
+    }
+
+    public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+        return snapshot().referenceContainerIterator(startWordHash, rot, excludePrivate);
+    }
+
+    public int size() {
+        int s = 0;
+        for (int i = 0; i < this.shards.length(); i++) s += this.shards.get(i).size();
+        return s;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < this.shards.length(); i++) if (!this.shards.get(i).isEmpty()) return false;
+        return true;
+    }
+
+    public long usedMemory() {
+        long b = 0L;
+        for (int i = 0; i < this.shards.length(); i++) b += this.shards.get(i).usedMemory();
+        return b;
+    }
+
+    public int maxReferences() {
+        int m = 0;
+        for (int i = 0; i < this.shards.length(); i++) m = Math.max(m, this.shards.get(i).maxReferences());
+        return m;
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.shards.length(); i++) this.shards.get(i).clear();
+    }
+
+    public void close() {
+        for (int i = 0; i < this.shards.length(); i++) this.shards.get(i).close();
+    }
+
+}
@@ -329,9 +329,7 @@ public class SplitTable implements Index, Iterable<Row.Entry> {
     public Row.Entry get(final byte[] key, final boolean forcecopy) throws IOException {
         final Index keeper = keeperOf(key);
         if (keeper == null) return null;
-        synchronized (this) { // avoid concurrent IO from different methods
-            return keeper.get(key, forcecopy);
-        }
+        return keeper.get(key, forcecopy); // the partition does its own locking
     }
 
     @Override
@@ -387,9 +385,7 @@ public class SplitTable implements Index, Iterable<Row.Entry> {
     public Row.Entry replace(final Row.Entry row) throws IOException, SpaceExceededException {
         assert row.objectsize() <= this.rowdef.objectsize;
         Index keeper = keeperOf(row.getPrimaryKeyBytes());
-        if (keeper != null) synchronized (this) { // avoid concurrent IO from different methods
-            return keeper.replace(row);
-        }
+        if (keeper != null) return keeper.replace(row); // the partition does its own locking
         synchronized (this) {
             assert this.current == null || this.tables.get(this.current) != null : "this.current = " + this.current;
             keeper = (this.current == null) ? newTable() : checkTable(this.tables.get(this.current));
@@ -411,9 +407,7 @@ public class SplitTable implements Index, Iterable<Row.Entry> {
         final byte[] key = row.getPrimaryKeyBytes();
         if (this.tables == null) return true;
         Index keeper = keeperOf(key);
-        if (keeper != null) synchronized (this) { // avoid concurrent IO from different methods
-            return keeper.put(row);
-        }
+        if (keeper != null) return keeper.put(row); // the partition does its own locking
         synchronized (this) {
             keeper = keeperOf(key); // we must check that again because it could have changed in between
             if (keeper != null) return keeper.put(row);
@@ -459,18 +453,14 @@ public class SplitTable implements Index, Iterable<Row.Entry> {
     public boolean delete(final byte[] key) throws IOException {
         final Index table = keeperOf(key);
         if (table == null) return false;
-        synchronized (this) { // avoid concurrent IO from different methods
-            return table.delete(key);
-        }
+        return table.delete(key); // the partition does its own locking
     }
 
     @Override
     public Row.Entry remove(final byte[] key) throws IOException {
         final Index table = keeperOf(key);
         if (table == null) return null;
-        synchronized (this) { // avoid concurrent IO from different methods
-            return table.remove(key);
-        }
+        return table.remove(key); // the partition does its own locking
     }
 
     @Override
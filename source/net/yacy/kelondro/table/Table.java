@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.order.CloneableIterator;
@@ -66,6 +67,10 @@ import net.yacy.kelondro.util.kelondroException;
  * - the access index can be either completely in RAM (kelondroRAMIndex) or it is file-based (kelondroTree)
  * - the content cache can be either a complete RAM-based shadow of the File, or empty.
  * The content cache can also be deleted during run-time, if the available RAM gets too low.
+ * Concurrent access is controlled with a read/write lock: all operations which change the position of
+ * records in the file (appending, removal, clear) take the write lock. Lookups and the update of
+ * existing records only take the read lock and additionally the lock of a stripe chosen by the primary key,
+ * so that lookups and updates of different keys can be done in parallel.
  */
 
 public class Table implements Index, Iterable<Row.Entry> {
@@ -74,6 +79,7 @@ public class Table implements Index, Iterable<Row.Entry> {
     private final static ConcurrentLog log = new ConcurrentLog("TABLE");
     private final static TreeMap<String, Table> tableTracker = new TreeMap<String, Table>();
     private final static long maxarraylength = 134217727L; // (2^27-1) that may be the maximum size of array length in some JVMs
+    private final static int stripeCount = 64; // must be a power of 2
 
     private final long minmemremaining; // if less than this memory is remaininig, the memory copy of a table is abandoned
     private final int buffersize;
@@ -81,7 +87,9 @@ public class Table implements Index, Iterable<Row.Entry> {
     private final Row taildef;
     private       HandleMap index;
     private       BufferedRecords file;
-    private       RowSet table;
+    private volatile RowSet table; // may be abandoned by an update which holds only the read lock
+    private final ReentrantReadWriteLock lock;
+    private final Object[] stripes;
 
     public Table(
     		final File tablefile,
@@ -94,6 +102,9 @@ public class Table implements Index, Iterable<Row.Entry> {
 
         this.rowdef = rowdef;
         this.buffersize = buffersize;
+        this.lock = new ReentrantReadWriteLock();
+        this.stripes = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) this.stripes[i] = new Object();
         this.minmemremaining = Math.max(200L * 1024L * 1024L, MemoryControl.available() / 10);
         //this.fail = 0;
         // define the taildef, a row like the rowdef but without the first column
@@ -235,8 +246,24 @@ public class Table implements Index, Iterable<Row.Entry> {
         synchronized (tableTracker) {tableTracker.put(tablefile.toString(), this);}
     }
 
-    public synchronized void warmUp() {
-        warmUp0();
+    public void warmUp() {
+        this.lock.writeLock().lock();
+        try {
+            warmUp0();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * get the lock object for in-place updates of the row with the given key
+     * @param key a primary key
+     * @return one of the stripe locks
+     */
+    private Object stripe(final byte[] key) {
+        int h = 0;
+        for (int i = Math.min(key.length, this.rowdef.primaryKeyLength) - 1; i >= 0; i--) h = 31 * h + key[i];
+        return this.stripes[(h ^ (h >>> 16)) & (stripeCount - 1)];
     }
 
     private void warmUp0() {
@@ -342,8 +369,11 @@ public class Table implements Index, Iterable<Row.Entry> {
 
     private final Map<StatKeys, String> memoryStats() {
         // returns statistical data about this object
-        synchronized (this) {
-            assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
+        this.lock.readLock().lock();
+        try {
+            assert this.table == null || this.index == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
+        } finally {
+            this.lock.readLock().unlock();
         }
         final HashMap<StatKeys, String> map = new HashMap<StatKeys, String>(8);
         if (this.index == null) return map; // possibly closed or beeing closed
@@ -373,7 +403,16 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized void addUnique(final Entry row) throws IOException, SpaceExceededException {
+    public void addUnique(final Entry row) throws IOException, SpaceExceededException {
+        this.lock.writeLock().lock();
+        try {
+            addUnique0(row);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void addUnique0(final Entry row) throws IOException, SpaceExceededException {
         assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
         assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
         final int i = (int) this.file.size();
@@ -399,18 +438,23 @@ public class Table implements Index, Iterable<Row.Entry> {
         assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
     }
 
-    public synchronized void addUnique(final List<Entry> rows) throws IOException, SpaceExceededException {
-        assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
-        for (final Entry entry: rows) {
-            try {
-                addUnique(entry);
-            } catch (final SpaceExceededException e) {
-                if (this.table == null) throw e;
-                this.table = null;
-                addUnique(entry);
+    public void addUnique(final List<Entry> rows) throws IOException, SpaceExceededException {
+        this.lock.writeLock().lock();
+        try {
+            assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
+            for (final Entry entry: rows) {
+                try {
+                    addUnique0(entry);
+                } catch (final SpaceExceededException e) {
+                    if (this.table == null) throw e;
+                    this.table = null;
+                    addUnique0(entry);
+                }
             }
+            assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
     }
 
     /**
@@ -421,7 +465,16 @@ public class Table implements Index, Iterable<Row.Entry> {
      * @throws
      */
     @Override
-    public synchronized List<RowCollection> removeDoubles() throws IOException, SpaceExceededException {
+    public List<RowCollection> removeDoubles() throws IOException, SpaceExceededException {
+        this.lock.writeLock().lock();
+        try {
+            return removeDoubles0();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private List<RowCollection> removeDoubles0() throws IOException, SpaceExceededException {
         assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
         final List<RowCollection> report = new ArrayList<RowCollection>();
         RowSet rows;
@@ -476,15 +529,20 @@ public class Table implements Index, Iterable<Row.Entry> {
     @Override
     public void close() {
     	String tablefile = null;
-        if (this.file != null) {
-        	tablefile = this.file.filename().toString();
-        	this.file.close();
+        this.lock.writeLock().lock();
+        try {
+            if (this.file != null) {
+            	tablefile = this.file.filename().toString();
+            	this.file.close();
+            }
+            this.file = null;
+            if (this.table != null) this.table.close();
+            this.table = null;
+            if (this.index != null) this.index.close();
+            this.index = null;
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        this.file = null;
-        if (this.table != null) this.table.close();
-        this.table = null;
-        if (this.index != null) this.index.close();
-        this.index = null;
 		if (tablefile != null) tableTracker.remove(tablefile);
     }
 
@@ -501,24 +559,30 @@ public class Table implements Index, Iterable<Row.Entry> {
     @Override
     public Entry get(final byte[] key, final boolean _forcecopy) throws IOException {
         if (this.file == null || this.index == null) return null;
-        Entry e = get0(key);
-        if (e != null && this.rowdef.objectOrder.equal(key, e.getPrimaryKeyBytes())) return e;
-        synchronized (this) {
-            //assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size() + ", file = " + filename();
-            assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size() + ", file = " + filename();
-            e = get0(key);
+        this.lock.readLock().lock();
+        try {
+            final Entry e;
+            synchronized (stripe(key)) {
+                e = get0(key);
+            }
             assert e == null || this.rowdef.objectOrder.equal(key, e.getPrimaryKeyBytes()) : "key = " + ASCII.String(key) + ", e.k = " + ASCII.String(e.getPrimaryKeyBytes());
             return e;
+        } finally {
+            this.lock.readLock().unlock();
         }
     }
 
+    /**
+     * read a row; the caller must hold the read lock and the stripe lock of the key
+     */
     private Entry get0(final byte[] key) throws IOException {
     	if (this.file == null || this.index == null) return null;
         final int i = (int) this.index.get(key);
         if (i == -1) return null;
         final byte[] b = new byte[this.rowdef.objectsize];
+        final RowSet t = this.table;
         final Row.Entry cacherow;
-        if (this.table == null || (cacherow = this.table.get(i, false)) == null) {
+        if (t == null || (cacherow = t.get(i, false)) == null) {
             // read row from the file
             try {
                 this.file.get(i, b, 0);
@@ -526,7 +590,7 @@ public class Table implements Index, Iterable<Row.Entry> {
                 // there must be a problem with the table index
                 log.severe("IndexOutOfBoundsException: " + e.getMessage(), e);
                 this.index.remove(key);
-                if (this.table != null) this.table.remove(key);
+                if (t != null) t.remove(key);
                 return null;
             }
         } else {
@@ -556,8 +620,13 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
-        return this.index.keys(up, firstKey);
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            return this.index.keys(up, firstKey);
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
 
     @Override
@@ -568,47 +637,65 @@ public class Table implements Index, Iterable<Row.Entry> {
         assert rowb != null;
         if (rowb == null) return null;
         final byte[] key = row.getPrimaryKeyBytes();
-        synchronized (this) {
-            //assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
-            //assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
+        // first try to update an existing row in place; this does not move any record
+        this.lock.readLock().lock();
+        try {
+            if (this.file == null) return null;
+            synchronized (stripe(key)) {
+                final int i = (int) this.index.get(key);
+                if (i >= 0) return replaceInPlace(i, key, rowb);
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        // the key is new: appending the row is a structural change
+        this.lock.writeLock().lock();
+        try {
+            if (this.file == null) return null;
             final int i = (int) this.index.get(key);
-            if (i == -1) {
-                try {
-                    addUnique(row);
-                } catch (final SpaceExceededException e) {
-                    if (this.table == null) throw e;
-                    this.table = null;
-                    addUnique(row);
-                }
-                return null;
+            if (i >= 0) return replaceInPlace(i, key, rowb); // the key was added concurrently
+            try {
+                addUnique0(row);
+            } catch (final SpaceExceededException e) {
+                if (this.table == null) throw e;
+                this.table = null;
+                addUnique0(row);
             }
+            return null;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
 
-            final byte[] b = new byte[this.rowdef.objectsize];
-            Row.Entry cacherow;
-            if (this.table == null || (cacherow = this.table.get(i, false)) == null) {
-                // read old value
-                this.file.get(i, b, 0);
-                // write new value
-                this.file.put(i, rowb, 0);
-            } else {
-                // read old value
-                assert cacherow != null;
-                System.arraycopy(key, 0, b, 0, this.rowdef.primaryKeyLength);
-                System.arraycopy(cacherow.bytes(), 0, b, this.rowdef.primaryKeyLength, this.rowdef.objectsize - this.rowdef.primaryKeyLength);
-                // write new value
-                try {
-                    this.table.set(i, this.taildef.newEntry(rowb, this.rowdef.primaryKeyLength, true));
-                } catch (final SpaceExceededException e) {
-                    this.table = null;
-                }
-                if (abandonTable()) this.table = null;
-                this.file.put(i, rowb, 0);
+    /**
+     * overwrite the row at position i; the caller must hold the write lock or the read lock and the stripe lock of the key
+     * @return the old row
+     */
+    private Entry replaceInPlace(final int i, final byte[] key, final byte[] rowb) throws IOException {
+        final byte[] b = new byte[this.rowdef.objectsize];
+        final RowSet t = this.table;
+        Row.Entry cacherow;
+        if (t == null || (cacherow = t.get(i, false)) == null) {
+            // read old value
+            this.file.get(i, b, 0);
+            // write new value
+            this.file.put(i, rowb, 0);
+        } else {
+            // read old value
+            assert cacherow != null;
+            System.arraycopy(key, 0, b, 0, this.rowdef.primaryKeyLength);
+            System.arraycopy(cacherow.bytes(), 0, b, this.rowdef.primaryKeyLength, this.rowdef.objectsize - this.rowdef.primaryKeyLength);
+            // write new value
+            try {
+                t.set(i, this.taildef.newEntry(rowb, this.rowdef.primaryKeyLength, true));
+            } catch (final SpaceExceededException e) {
+                this.table = null;
             }
-            assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
-            assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
-            // return old value
-            return this.rowdef.newEntry(b);
+            if (abandonTable()) this.table = null;
+            this.file.put(i, rowb, 0);
         }
+        // return old value
+        return this.rowdef.newEntry(b);
     }
 
     /**
@@ -626,36 +713,56 @@ public class Table implements Index, Iterable<Row.Entry> {
         assert rowb != null;
         if (rowb == null) return true;
         final byte[] key = row.getPrimaryKeyBytes();
-        synchronized (this) {
-            //assert this.file == null || this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size() + ", file = " + filename();
-            //assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size() + ", file = " + filename();
-            final int i = (int) this.index.get(key);
-            if (i == -1) {
-                try {
-                    addUnique(row);
-                } catch (final SpaceExceededException e) {
-                    if (this.table == null) throw e;
-                    this.table = null;
-                    addUnique(row);
+        // first try to update an existing row in place; this does not move any record
+        this.lock.readLock().lock();
+        try {
+            if (this.file == null) return true;
+            synchronized (stripe(key)) {
+                final int i = (int) this.index.get(key);
+                if (i >= 0) {
+                    putInPlace(i, rowb);
+                    return false;
                 }
-                return true;
             }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        // the key is new: appending the row is a structural change
+        this.lock.writeLock().lock();
+        try {
+            if (this.file == null) return true;
+            final int i = (int) this.index.get(key);
+            if (i >= 0) {
+                // the key was added concurrently
+                putInPlace(i, rowb);
+                return false;
+            }
+            try {
+                addUnique0(row);
+            } catch (final SpaceExceededException e) {
+                if (this.table == null) throw e;
+                this.table = null;
+                addUnique0(row);
+            }
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
 
-            if (this.table == null) {
-                // write new value
-                this.file.put(i, rowb, 0);
-            } else {
-                // write new value
-                this.file.put(i, rowb, 0);
-                if (abandonTable()) this.table = null; else try {
-                    this.table.set(i, this.taildef.newEntry(rowb, this.rowdef.primaryKeyLength, true));
-                } catch (final SpaceExceededException e) {
-                    this.table = null;
-                }
+    /**
+     * overwrite the row at position i; the caller must hold the write lock or the read lock and the stripe lock of the key
+     */
+    private void putInPlace(final int i, final byte[] rowb) throws IOException {
+        // write new value
+        this.file.put(i, rowb, 0);
+        final RowSet t = this.table;
+        if (t != null) {
+            if (abandonTable()) this.table = null; else try {
+                t.set(i, this.taildef.newEntry(rowb, this.rowdef.primaryKeyLength, true));
+            } catch (final SpaceExceededException e) {
+                this.table = null;
             }
-            assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
-            assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
-            return false;
         }
     }
 
@@ -729,7 +836,16 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized Entry remove(final byte[] key) throws IOException {
+    public Entry remove(final byte[] key) throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            return remove0(key);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Entry remove0(final byte[] key) throws IOException {
         assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
         assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
         assert key.length == this.rowdef.primaryKeyLength;
@@ -824,7 +940,16 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized Entry removeOne() throws IOException {
+    public Entry removeOne() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            return removeOne0();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Entry removeOne0() throws IOException {
         //assert this.file.size() == this.index.size() : "file.size() = " + this.file.size() + ", index.size() = " + this.index.size();
         assert this.table == null || this.table.size() == this.index.size() : "table.size() = " + this.table.size() + ", index.size() = " + this.index.size();
         final byte[] le = new byte[this.rowdef.objectsize];
@@ -852,43 +977,58 @@ public class Table implements Index, Iterable<Row.Entry> {
 
     @Override
     public List<Row.Entry> top(int count) throws IOException {
-        if (count > this.size()) count = this.size();
         final ArrayList<Row.Entry> list = new ArrayList<Row.Entry>();
-        if (this.file == null || this.index == null || this.size() == 0 || count == 0) return list;
-        long i = this.file.size() - 1;
-        while (count > 0 && i >= 0) {
-            final byte[] b = new byte[this.rowdef.objectsize];
-            this.file.get(i, b, 0);
-            list.add(this.rowdef.newEntry(b));
-            i--;
-            count--;
+        this.lock.readLock().lock();
+        try {
+            if (count > this.size()) count = this.size();
+            if (this.file == null || this.index == null || this.size() == 0 || count == 0) return list;
+            long i = this.file.size() - 1;
+            while (count > 0 && i >= 0) {
+                final byte[] b = new byte[this.rowdef.objectsize];
+                this.file.get(i, b, 0);
+                list.add(this.rowdef.newEntry(b));
+                i--;
+                count--;
+            }
+        } finally {
+            this.lock.readLock().unlock();
         }
         return list;
     }
 
     @Override
     public List<Row.Entry> random(int count) throws IOException {
-        if (count > this.size()) count = this.size();
         final ArrayList<Row.Entry> list = new ArrayList<Row.Entry>();
-        if (this.file == null || this.index == null || this.size() == 0 || count == 0) return list;
-        long cursor = 0;
-        int stepsize = this.size() / count;
-        while (count > 0 && cursor < this.size()) {
-            final byte[] b = new byte[this.rowdef.objectsize];
-            this.file.get(cursor, b, 0);
-            list.add(this.rowdef.newEntry(b));
-            count--;
-            cursor += stepsize;
+        this.lock.readLock().lock();
+        try {
+            if (count > this.size()) count = this.size();
+            if (this.file == null || this.index == null || this.size() == 0 || count == 0) return list;
+            long cursor = 0;
+            int stepsize = this.size() / count;
+            while (count > 0 && cursor < this.size()) {
+                final byte[] b = new byte[this.rowdef.objectsize];
+                this.file.get(cursor, b, 0);
+                list.add(this.rowdef.newEntry(b));
+                count--;
+                cursor += stepsize;
+            }
+        } finally {
+            this.lock.readLock().unlock();
         }
         return list;
     }
 
     @Override
-    public synchronized void clear() throws IOException {
-        this.file.clear();
-        // initialize index and copy table
-        this.table = (this.table == null) ? null : new RowSet(this.taildef);
-        this.index.clear();
+    public void clear() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            this.file.clear();
+            // initialize index and copy table
+            this.table = (this.table == null) ? null : new RowSet(this.taildef);
+            this.index.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -917,9 +1057,14 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized CloneableIterator<Entry> rows() throws IOException {
-        this.file.flushBuffer();
-        return new rowIteratorNoOrder();
+    public CloneableIterator<Entry> rows() throws IOException {
+        this.lock.readLock().lock();
+        try {
+            this.file.flushBuffer();
+            return new rowIteratorNoOrder();
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
 
     private class rowIteratorNoOrder implements CloneableIterator<Entry> {
@@ -960,12 +1105,15 @@ public class Table implements Index, Iterable<Row.Entry> {
         @Override
         public void remove() {
             if (this.key != null) {
+                Table.this.lock.writeLock().lock();
                 try {
                     removeInFile((int) this.idx);
+                    this.i.remove();
                 } catch (final IOException e) {
                 } catch (final SpaceExceededException e) {
+                } finally {
+                    Table.this.lock.writeLock().unlock();
                 }
-                this.i.remove();
             }
         }
 
@@ -979,8 +1127,13 @@ public class Table implements Index, Iterable<Row.Entry> {
     }
 
     @Override
-    public synchronized CloneableIterator<Entry> rows(final boolean up, final byte[] firstKey) throws IOException {
-        return new rowIterator(up, firstKey);
+    public CloneableIterator<Entry> rows(final boolean up, final byte[] firstKey) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            return new rowIterator(up, firstKey);
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
 
     private class rowIterator implements CloneableIterator<Entry> {
@@ -1011,22 +1164,28 @@ public class Table implements Index, Iterable<Row.Entry> {
             final byte[] k = this.i.next();
             assert k != null;
             if (k == null) return null;
-            this.c = (int) Table.this.index.get(k);
-            if (this.c < 0) throw new ConcurrentModificationException(); // this should only happen if the table was modified during the iteration
             final byte[] b = new byte[Table.this.rowdef.objectsize];
-            final Row.Entry cacherow;
-            if (Table.this.table == null || (cacherow = Table.this.table.get(this.c, false)) == null) {
-                // read from file
-                try {
-                    Table.this.file.get(this.c, b, 0);
-                } catch (final IOException e) {
-                    log.severe("", e);
-                    return null;
+            Table.this.lock.readLock().lock();
+            try {
+                synchronized (stripe(k)) {
+                    this.c = (int) Table.this.index.get(k);
+                    if (this.c < 0) throw new ConcurrentModificationException(); // this should only happen if the table was modified during the iteration
+                    final RowSet t = Table.this.table;
+                    final Row.Entry cacherow;
+                    if (t == null || (cacherow = t.get(this.c, false)) == null) {
+                        // read from file
+                        Table.this.file.get(this.c, b, 0);
+                    } else {
+                        // compose from table and key
+                        System.arraycopy(k, 0, b, 0, Table.this.rowdef.primaryKeyLength);
+                        System.arraycopy(cacherow.bytes(), 0, b, Table.this.rowdef.primaryKeyLength, Table.this.taildef.objectsize);
+                    }
                 }
-            } else {
-                // compose from table and key
-                System.arraycopy(k, 0, b, 0, Table.this.rowdef.primaryKeyLength);
-                System.arraycopy(cacherow.bytes(), 0, b, Table.this.rowdef.primaryKeyLength, Table.this.taildef.objectsize);
+            } catch (final IOException e) {
+                log.severe("", e);
+                return null;
+            } finally {
+                Table.this.lock.readLock().unlock();
             }
             return Table.this.rowdef.newEntry(b);
         }
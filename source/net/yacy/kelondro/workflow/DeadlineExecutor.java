@@ -0,0 +1,100 @@
+/**
+ *  DeadlineExecutor
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.workflow;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * A fixed number of worker threads which execute the waiting tasks in the order of their deadline:
+ * the task with the earliest deadline is executed first, tasks with the same deadline in the order of submission.
+ * Idle worker threads terminate after one minute.
+ */
+public class DeadlineExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence;
+
+    /**
+     * @param name the prefix of the names of the worker threads
+     * @param threads the maximum number of worker threads
+     */
+    public DeadlineExecutor(final String name, final int threads) {
+        this.sequence = new AtomicLong(0);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new NamePrefixThreadFactory(name));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * schedule a task
+     * @param task
+     * @param deadline the time in milliseconds when the result of the task is needed, Long.MAX_VALUE if there is no deadline
+     */
+    public void execute(final Runnable task, final long deadline) {
+        this.executor.execute(new Task(task, deadline, this.sequence.incrementAndGet()));
+    }
+
+    /**
+     * @return the number of tasks which wait for execution
+     */
+    public int queueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of threads which execute a task
+     */
+    public int activeCount() {
+        return this.executor.getActiveCount();
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+        private final Runnable task;
+        private final long deadline, sequence;
+
+        private Task(final Runnable task, final long deadline, final long sequence) {
+            this.task = task;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            this.task.run();
+        }
+
+        @Override
+        public int compareTo(final Task other) {
+            if (this.deadline != other.deadline) return this.deadline < other.deadline ? -1 : 1;
+            if (this.sequence != other.sequence) return this.sequence < other.sequence ? -1 : 1;
+            return 0;
+        }
+    }
+}
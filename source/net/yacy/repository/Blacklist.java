@@ -38,12 +38,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
@@ -102,6 +101,8 @@ public class Blacklist {
     private final ConcurrentMap<BlacklistType, HandleSet> cachedUrlHashs;
     private final ConcurrentMap<BlacklistType, Map<String, Set<Pattern>>> hostpaths_matchable; // key=host, value=path; mapped url is http://host/path; path does not start with '/' here
     private final ConcurrentMap<BlacklistType, Map<String, Set<Pattern>>> hostpaths_notmatchable; // key=host, value=path; mapped url is http://host/path; path does not start with '/' here
+    private final ConcurrentMap<BlacklistType, BlacklistMatcher> matchers; // compiled form of the hostpaths maps, used by isListed
+    private final AtomicLong modifications; // counts the changes of the hostpaths maps; a matcher with an older count is compiled again
 
     public Blacklist(final File rootPath) {
 
@@ -111,6 +112,8 @@ public class Blacklist {
         this.hostpaths_matchable = new ConcurrentHashMap<BlacklistType, Map<String, Set<Pattern>>>();
         this.hostpaths_notmatchable = new ConcurrentHashMap<BlacklistType, Map<String, Set<Pattern>>>();
         this.cachedUrlHashs = new ConcurrentHashMap<BlacklistType, HandleSet>();
+        this.matchers = new ConcurrentHashMap<BlacklistType, BlacklistMatcher>();
+        this.modifications = new AtomicLong(0);
 
         for (final BlacklistType blacklistType : BlacklistType.values()) {
             this.hostpaths_matchable.put(blacklistType, new ConcurrentHashMap<String, Set<Pattern>>());
@@ -155,6 +158,31 @@ public class Blacklist {
         return this.cachedUrlHashs.get(blacklistType);
     }
 
+    /**
+     * get the compiled matcher for a blacklist type; the matcher is compiled again if the blacklist was changed
+     * since it was compiled. The new matcher replaces the old one at once, so concurrent lookups always
+     * see a complete matcher.
+     */
+    private final BlacklistMatcher getMatcher(final BlacklistType blacklistType) {
+        BlacklistMatcher matcher = this.matchers.get(blacklistType);
+        if (matcher != null && matcher.version() == this.modifications.get()) return matcher;
+        synchronized (this.matchers) {
+            final long version = this.modifications.get();
+            matcher = this.matchers.get(blacklistType);
+            if (matcher != null && matcher.version() == version) return matcher;
+            matcher = new BlacklistMatcher(getBlacklistMap(blacklistType, true), getBlacklistMap(blacklistType, false), version);
+            this.matchers.put(blacklistType, matcher);
+            return matcher;
+        }
+    }
+
+    /**
+     * must be called after a change of the hostpaths maps
+     */
+    private final void modified() {
+        this.modifications.incrementAndGet();
+    }
+
     public final File getRootPath() {
     	return blacklistRootPath;
     }
@@ -169,6 +197,7 @@ public class Blacklist {
         for (final HandleSet entry : this.cachedUrlHashs.values()) {
             entry.clear();
         }
+        modified();
     }
 
     public final int size() {
@@ -249,6 +278,7 @@ public class Blacklist {
                 }
             }
         }
+        modified();
     }
 
     public final void loadList(final BlacklistType blacklistType, final String fileNames, final String sep) {
@@ -298,6 +328,7 @@ public class Blacklist {
                 blacklistMapNotMatch.remove(host);
             }
         }
+        modified();
 
         //TODO: check if delete from blacklist is desired, on reload entry will not be available in any blacklist
         //      even if remove (above) from internal maps (at runtime) is only done for given blacklistType
@@ -355,6 +386,7 @@ public class Blacklist {
         Pattern pattern = Pattern.compile(p, Pattern.CASE_INSENSITIVE); 
         
         hostList.add(pattern); 
+        modified();
 
         // Append the line to the file.
         PrintWriter pw = null;
@@ -421,6 +453,7 @@ public class Blacklist {
                 hostList.add(pattern);
             }
         }
+        modified();
 
         // Append the line to the file.
         PrintWriter pw = null;
@@ -556,82 +589,8 @@ public class Blacklist {
             throw new IllegalArgumentException("path may not be null");
         }
 
-        // getting the proper blacklist
-        final Map<String, Set<Pattern>> blacklistMapMatched = getBlacklistMap(blacklistType, true);
-
         final String p = (!path.isEmpty() && path.charAt(0) == '/') ? path.substring(1) : path;
-
-        Pattern[] app;
-        boolean matched = false;
-        Pattern pp; // path-pattern
-
-        // try to match complete domain
-        if (!matched && blacklistMapMatched.get(hostlow) != null) {
-            app = blacklistMapMatched.get(hostlow).toArray(new Pattern[0]);
-            for (int i = app.length - 1; !matched && i > -1; i--) {
-                pp = app[i];
-                matched |= pp.matcher(p).matches();
-            }
-        }
-        // first try to match the domain with wildcard '*'
-        // [TL] While "." are found within the string
-        int index = 0;
-        while (!matched && (index = hostlow.indexOf('.', index + 1)) != -1) {
-            if (blacklistMapMatched.get(hostlow.substring(0, index + 1) + "*") != null) {
-                app = blacklistMapMatched.get(hostlow.substring(0, index + 1) + "*").toArray(new Pattern[0]);
-                for (int i = app.length - 1; !matched && i > -1; i--) {
-                    pp = app[i];
-                    matched |= pp.matcher(p).matches();
-                }
-            }
-            if (blacklistMapMatched.get(hostlow.substring(0, index)) != null) {
-                app = blacklistMapMatched.get(hostlow.substring(0, index)).toArray(new Pattern[0]);
-                for (int i = app.length - 1; !matched && i > -1; i--) {
-                    pp = app[i];
-                    matched |= pp.matcher(p).matches();
-                }
-            }
-        }
-        index = hostlow.length();
-        while (!matched && (index = hostlow.lastIndexOf('.', index - 1)) != -1) {
-            if (blacklistMapMatched.get("*" + hostlow.substring(index, hostlow.length())) != null) {
-                app = blacklistMapMatched.get("*" + hostlow.substring(index, hostlow.length())).toArray(new Pattern[0]);
-                for (int i = app.length - 1; !matched && i > -1; i--) {
-                    pp = app[i];
-                    matched |= pp.matcher(p).matches();
-                }
-            }
-            if (blacklistMapMatched.get(hostlow.substring(index + 1, hostlow.length())) != null) {
-                app = blacklistMapMatched.get(hostlow.substring(index + 1, hostlow.length())).toArray(new Pattern[0]);
-                for (int i = app.length - 1; !matched && i > -1; i--) {
-                    pp = app[i];
-                    matched |= pp.matcher(p).matches();
-                }
-            }
-        }
-
-
-        // loop over all Regex-entries
-        if (!matched) {
-            final Map<String, Set<Pattern>> blacklistMapNotMatched = getBlacklistMap(blacklistType, false);
-            String key;
-            for (final Entry<String, Set<Pattern>> entry : blacklistMapNotMatched.entrySet()) {
-                key = entry.getKey();
-                try {
-                    if (Pattern.matches(key, hostlow)) {
-                        app = entry.getValue().toArray(new Pattern[0]);
-                        for (final Pattern ap : app) {
-                            if (ap.matcher(p).matches()) {
-                                return true;
-                            }
-                        }
-                    }
-                } catch (final PatternSyntaxException e) {
-                    //System.out.println(e.toString());
-                }
-            }
-        }
-        return matched;
+        return getMatcher(blacklistType).isListed(hostlow, p);
     }
 
     public static BlacklistError checkError(final String element, final Map<String, String> properties) {
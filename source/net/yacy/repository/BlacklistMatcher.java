@@ -0,0 +1,258 @@
+/**
+ *  BlacklistMatcher
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An immutable, compiled form of the host/path entries of one blacklist type.
+ * The matchable host entries are stored in two label tries: a trie of the reversed host labels
+ * for entries like 'example.com' and '*.example.com' and a trie of the host labels for entries
+ * like 'www.example.*' and 'www.example' which also match as a prefix of a host.
+ * The path patterns of each host entry are combined into a single regular expression.
+ * A lookup walks along the labels of the host without creating the host keys of all suffixes
+ * and prefixes. The result is the same as the matching which was done in Blacklist.isListed().
+ */
+public final class BlacklistMatcher {
+
+    private final static Pattern notCombinable = Pattern.compile("\\\\[1-9]|\\\\k<|\\\\Q");
+
+    private final Node reverse, forward;
+    private final HostRegex[] hostRegex;
+    private final long version;
+
+    /**
+     * compile the blacklist entries
+     * @param matchable map from matchable host entries to their path patterns
+     * @param notmatchable map from regular expressions for hosts to their path patterns
+     * @param version a number which identifies the state of the maps
+     */
+    public BlacklistMatcher(final Map<String, Set<Pattern>> matchable, final Map<String, Set<Pattern>> notmatchable, final long version) {
+        this.version = version;
+        final Map<String, List<Pattern>> reverseHere = new HashMap<String, List<Pattern>>();
+        final Map<String, List<Pattern>> reverseDeeper = new HashMap<String, List<Pattern>>();
+        final Map<String, List<Pattern>> forwardDeeper = new HashMap<String, List<Pattern>>();
+        for (final Map.Entry<String, Set<Pattern>> entry: matchable.entrySet()) {
+            final String host = entry.getKey();
+            final Collection<Pattern> paths = entry.getValue();
+            if (paths == null || paths.isEmpty()) continue;
+            if (host.startsWith("*.")) {
+                // matches all hosts which end with '.' + suffix
+                add(reverseDeeper, host.substring(2), paths);
+            } else if (host.endsWith(".*")) {
+                // matches all hosts which start with prefix + '.'
+                add(forwardDeeper, host.substring(0, host.length() - 2), paths);
+            } else {
+                // matches the host itself, all hosts which end with '.' + host and all hosts which start with host + '.'
+                add(reverseHere, host, paths);
+                add(forwardDeeper, host, paths);
+            }
+        }
+        this.reverse = new Node();
+        for (final Map.Entry<String, List<Pattern>> entry: reverseHere.entrySet()) this.reverse.reverseNode(entry.getKey()).here = PathMatcher.compile(entry.getValue());
+        for (final Map.Entry<String, List<Pattern>> entry: reverseDeeper.entrySet()) this.reverse.reverseNode(entry.getKey()).deeper = PathMatcher.compile(entry.getValue());
+        this.forward = new Node();
+        for (final Map.Entry<String, List<Pattern>> entry: forwardDeeper.entrySet()) this.forward.forwardNode(entry.getKey()).deeper = PathMatcher.compile(entry.getValue());
+
+        final List<HostRegex> hostRegexList = new ArrayList<HostRegex>(notmatchable.size());
+        for (final Map.Entry<String, Set<Pattern>> entry: notmatchable.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) continue;
+            try {
+                hostRegexList.add(new HostRegex(Pattern.compile(entry.getKey()), PathMatcher.compile(entry.getValue())));
+            } catch (final PatternSyntaxException e) {
+                // such an entry can never match
+            }
+        }
+        this.hostRegex = hostRegexList.toArray(new HostRegex[hostRegexList.size()]);
+    }
+
+    private static void add(final Map<String, List<Pattern>> map, final String host, final Collection<Pattern> paths) {
+        List<Pattern> list = map.get(host);
+        if (list == null) {
+            list = new ArrayList<Pattern>(paths.size());
+            map.put(host, list);
+        }
+        list.addAll(paths);
+    }
+
+    /**
+     * @return the version which was given when this matcher was compiled
+     */
+    public long version() {
+        return this.version;
+    }
+
+    /**
+     * check if a host and path is listed
+     * @param hostlow the host in lower case
+     * @param path the path without a leading '/'
+     * @return true if an entry matches
+     */
+    public boolean isListed(final String hostlow, final String path) {
+        // walk the reversed labels: example.com and *.example.com entries
+        Node node = this.reverse;
+        int end = hostlow.length();
+        while (node != null && end >= 0) {
+            final int dot = hostlow.lastIndexOf('.', end - 1);
+            node = node.child(hostlow.substring(dot + 1, end));
+            if (node == null) break;
+            if (node.here != null && node.here.matches(path)) return true;
+            if (dot >= 0 && node.deeper != null && node.deeper.matches(path)) return true;
+            end = dot;
+        }
+
+        // walk the labels: www.example.* and www.example entries
+        node = this.forward;
+        int start = 0;
+        while (node != null) {
+            final int dot = hostlow.indexOf('.', start);
+            if (dot < 0) break; // only prefixes which are followed by another label
+            node = node.child(hostlow.substring(start, dot));
+            if (node == null) break;
+            if (node.deeper != null && node.deeper.matches(path)) return true;
+            start = dot + 1;
+        }
+
+        // regular expressions for hosts
+        for (final HostRegex entry: this.hostRegex) {
+            if (entry.host.matcher(hostlow).matches() && entry.paths.matches(path)) return true;
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private Map<String, Node> children = null;
+        private PathMatcher here = null; // paths of entries which match if the walk along the host labels reaches this node
+        private PathMatcher deeper = null; // paths of entries which match if the host has more labels after this node
+
+        private Node child(final String label) {
+            return this.children == null ? null : this.children.get(label);
+        }
+
+        private Node child0(final String label) {
+            if (this.children == null) this.children = new HashMap<String, Node>();
+            Node node = this.children.get(label);
+            if (node == null) {
+                node = new Node();
+                this.children.put(label, node);
+            }
+            return node;
+        }
+
+        private Node reverseNode(final String host) {
+            Node node = this;
+            int end = host.length();
+            while (end >= 0) {
+                final int dot = host.lastIndexOf('.', end - 1);
+                node = node.child0(host.substring(dot + 1, end));
+                end = dot;
+            }
+            return node;
+        }
+
+        private Node forwardNode(final String host) {
+            Node node = this;
+            int start = 0;
+            while (true) {
+                final int dot = host.indexOf('.', start);
+                if (dot < 0) return node.child0(host.substring(start));
+                node = node.child0(host.substring(start, dot));
+                start = dot + 1;
+            }
+        }
+    }
+
+    private static final class HostRegex {
+        private final Pattern host;
+        private final PathMatcher paths;
+        private HostRegex(final Pattern host, final PathMatcher paths) {
+            this.host = host;
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * the path patterns of a host entry
+     */
+    private static final class PathMatcher {
+        private final static PathMatcher ALL = new PathMatcher(new Pattern[0]);
+        private final Pattern[] patterns;
+
+        private PathMatcher(final Pattern[] patterns) {
+            this.patterns = patterns;
+        }
+
+        private boolean matches(final String path) {
+            if (this == ALL) return !hasLineTerminator(path); // same as matching with '.*'
+            for (final Pattern pattern: this.patterns) if (pattern.matcher(path).matches()) return true;
+            return false;
+        }
+
+        private static boolean hasLineTerminator(final String path) {
+            for (int i = 0; i < path.length(); i++) {
+                final char c = path.charAt(i);
+                if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return true;
+            }
+            return false;
+        }
+
+        /**
+         * combine the case insensitive patterns into one alternation; patterns with other flags,
+         * back references or quotes are kept as single patterns
+         */
+        private static PathMatcher compile(final Collection<Pattern> patterns) {
+            final List<Pattern> single = new ArrayList<Pattern>();
+            final List<String> combinable = new ArrayList<String>();
+            for (final Pattern pattern: patterns) {
+                final String p = pattern.pattern();
+                if (p.equals(".*") && pattern.flags() == Pattern.CASE_INSENSITIVE) return ALL;
+                if (pattern.flags() == Pattern.CASE_INSENSITIVE && !notCombinable.matcher(p).find()) {
+                    if (!combinable.contains(p)) combinable.add(p);
+                } else {
+                    single.add(pattern);
+                }
+            }
+            if (combinable.size() == 1) {
+                single.add(Pattern.compile(combinable.get(0), Pattern.CASE_INSENSITIVE));
+            } else if (combinable.size() > 1) {
+                final StringBuilder sb = new StringBuilder();
+                for (final String p: combinable) {
+                    if (sb.length() > 0) sb.append('|');
+                    sb.append("(?:").append(p).append(')');
+                }
+                try {
+                    single.add(Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE));
+                } catch (final PatternSyntaxException e) {
+                    // for example named groups which appear in more than one pattern
+                    for (final String p: combinable) single.add(Pattern.compile(p, Pattern.CASE_INSENSITIVE));
+                }
+            }
+            return new PathMatcher(single.toArray(new Pattern[single.size()]));
+        }
+    }
+}
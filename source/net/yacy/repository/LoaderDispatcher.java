@@ -92,6 +92,13 @@ public final class LoaderDispatcher {
         this.loaderSteering = new ConcurrentHashMap<DigestURL, Semaphore>();
     }
 
+    /**
+     * @return the http loader; there is only one instance because it owns the spool path of crawled documents
+     */
+    public HTTPLoader httpLoader() {
+        return this.httpLoader;
+    }
+
     public boolean isSupportedProtocol(final String protocol) {
         if ((protocol == null) || (protocol.isEmpty())) return false;
         return this.supportedProtocols.contains(protocol.trim().toLowerCase());
@@ -229,10 +236,7 @@ public final class LoaderDispatcher {
         checkAccessTime(agent, url);
 
         // now it's for sure that we will access the target. Remember the access time
-        if (host != null) {
-            if (accessTime.size() > accessTimeMaxsize) accessTime.clear(); // prevent a memory leak here
-            accessTime.put(host, System.currentTimeMillis());
-        }
+        accessed(url);
 
         // load resource from the internet
         if (protocol.equals("http") || protocol.equals("https")) {
@@ -249,7 +253,7 @@ public final class LoaderDispatcher {
         if (response == null) {
             throw new IOException("no response (NULL) for url " + url);
         }
-        if (response.getContent() == null) {
+        if (!response.hasContent()) {
             throw new IOException("empty response (code " + response.getStatus() + ") for url " + url.toNormalform(true));
         }
 
@@ -263,7 +267,12 @@ public final class LoaderDispatcher {
         final String storeError = response.shallStoreCacheForCrawler();
         if (storeError == null) {
             try {
-                Cache.store(url, response.getResponseHeader(), response.getContent());
+                // a spooled document is streamed from its file to the cache
+                if (response.getContentFile() == null) {
+                    Cache.store(url, response.getResponseHeader(), response.getContent());
+                } else {
+                    Cache.store(url, response.getResponseHeader(), response.getContentFile());
+                }
             } catch (final IOException e) {
                 LoaderDispatcher.log.warn("cannot write " + response.url() + " to Cache (3): " + e.getMessage(), e);
             }
@@ -273,6 +282,19 @@ public final class LoaderDispatcher {
         return response;
     }
 
+    /**
+     * Try loading requested resource from cache according to cache strategy, the crawl profile is taken from the request
+     * @param request request to resource
+     * @param cacheStrategy cache strategy to use
+     * @param agent agent identifier
+     * @return a Response instance when resource could be loaded from cache, or null.
+     * @throws IOException when an error occured
+     */
+    public Response loadFromCache(final Request request, final CacheStrategy cacheStrategy, final ClientIdentification.Agent agent) throws IOException {
+        final CrawlProfile crawlProfile = request.profileHandle() == null ? null : this.sb.crawler.get(UTF8.getBytes(request.profileHandle()));
+        return loadFromCache(request, cacheStrategy, agent, request.url(), crawlProfile);
+    }
+
     /**
      * Try loading requested resource from cache according to cache strategy
      * @param request request to resource
@@ -413,10 +435,7 @@ public final class LoaderDispatcher {
 	private void checkAccessTime(ClientIdentification.Agent agent, final DigestURL url) {
 		if (!url.isLocal()) {
 			String host = url.getHost();
-			final Long lastAccess = accessTime.get(host);
-			long wait = 0;
-			if (lastAccess != null)
-				wait = Math.max(0, agent.minimumDelta + lastAccess.longValue() - System.currentTimeMillis());
+			final long wait = accessDelay(agent, url);
 			if (wait > 0) {
 				// force a sleep here. Instead just sleep we clean up the
 				// accessTime map
@@ -434,7 +453,36 @@ public final class LoaderDispatcher {
 		}
 	}
 
-    private int protocolMaxFileSize(final DigestURL url) {
+    /**
+     * compute the time which must pass until the host of the given url may be accessed again.
+     * This is the same double-check which is done before any load, but without waiting.
+     * @param agent agent identifier
+     * @param url target url
+     * @return the remaining waiting time in milliseconds, 0 if the host can be accessed now
+     */
+    public static long accessDelay(final ClientIdentification.Agent agent, final DigestURL url) {
+        if (url.isLocal()) return 0;
+        final Long lastAccess = accessTime.get(url.getHost());
+        if (lastAccess == null) return 0;
+        return Math.max(0, agent.minimumDelta + lastAccess.longValue() - System.currentTimeMillis());
+    }
+
+    /**
+     * remember the access time of the host of the given url; this must be called right before the target is accessed
+     * @param url target url
+     */
+    public static void accessed(final DigestURL url) {
+        final String host = url.getHost();
+        if (host == null) return;
+        if (accessTime.size() > accessTimeMaxsize) accessTime.clear(); // prevent a memory leak here
+        accessTime.put(host, System.currentTimeMillis());
+    }
+
+    /**
+     * @param url
+     * @return the configured maximum size of a file which is loaded with the protocol of the url
+     */
+    public int protocolMaxFileSize(final DigestURL url) {
     	if (url.isHTTP() || url.isHTTPS())
     		return this.sb.getConfigInt("crawler.http.maxFileSize", HTTPLoader.DEFAULT_MAXFILESIZE);
     	if (url.isFTP())
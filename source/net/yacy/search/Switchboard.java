@@ -165,11 +165,14 @@ import net.yacy.document.parser.html.Evaluation;
 import net.yacy.gui.Audio;
 import net.yacy.gui.Tray;
 import net.yacy.http.YaCyHttpServer;
+import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.BEncodedHeap;
+import net.yacy.kelondro.blob.HeapReader;
 import net.yacy.kelondro.blob.Tables;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.logging.GuiHandler;
+import net.yacy.kelondro.rwi.AbstractIndex;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
@@ -541,6 +544,12 @@ public final class Switchboard extends serverSwitch {
 
         // initialize index
         ReferenceContainer.maxReferences = getConfigInt("index.maxReferences", 0);
+        ArrayStack.mappedRead = getConfigBool("index.mappedRead", false);
+        HeapReader.offHeapIndex = getConfigBool("index.offHeapIndex", false);
+        HeapReader.mappedIndex = getConfigBool("index.mappedIndex", false);
+        ReferenceContainer.columnarExport = getConfigBool("index.rwi.columnar", false);
+        AbstractIndex.selectiveConjunction = getConfigBool("index.rwi.selectiveJoin", false);
+        SearchEvent.rwiTopK = getConfigBool("search.rwi.topk", false);
         final File segmentsPath = new File(new File(indexPath, networkName), "SEGMENTS");
         try {this.index = new Segment(this.log, segmentsPath, archivePath, solrCollectionConfigurationWork, solrWebgraphConfigurationWork);} catch (IOException e) {ConcurrentLog.logException(e);}
         if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_RWI, true)) try {
@@ -919,6 +928,9 @@ public final class Switchboard extends serverSwitch {
                             + " property: " + pse.getMessage());
             System.exit(-1);
         }
+        Domains.setNameCacheTTL(
+                getConfigLong(SwitchboardConstants.HTTPC_NAME_CACHE_TTL, 600000L),
+                getConfigLong(SwitchboardConstants.HTTPC_NAME_CACHE_NEGATIVE_TTL, 300000L));
 
         // generate snippets cache
         this.log.config("Initializing Snippet Cache");
@@ -1904,6 +1916,7 @@ public final class Switchboard extends serverSwitch {
             if ( this.log.isFine() ) {
                 this.log.fine("deQueue: profile is null");
             }
+            response.release();
             return "profile is null";
         }
 
@@ -1940,6 +1953,7 @@ public final class Switchboard extends serverSwitch {
             //if (log.isFine()) log.logFine("deQueue: not indexed any word in URL " + response.url() + "; cause: " + noIndexReason);
             // create a new errorURL DB entry
             this.crawlQueues.errorURL.push(response.url(), response.depth(), response.profile(), FailCategory.FINAL_PROCESS_CONTEXT, noIndexReason, -1);
+            response.release();
             // finish this entry
             return "not allowed: " + noIndexReason;
         }
@@ -2694,7 +2708,7 @@ public final class Switchboard extends serverSwitch {
 
         // PARSE CONTENT
         final long parsingStartTime = System.currentTimeMillis();
-        if ( response.getContent() == null ) {
+        if ( !response.hasContent() ) {
             // fetch the document from cache
             response.setContent(Cache.getContent(response.url().hash()));
             if ( response.getContent() == null ) {
@@ -2704,10 +2718,10 @@ public final class Switchboard extends serverSwitch {
                 return null;
             }
         }
-        assert response.getContent() != null;
+        assert response.hasContent();
         try {
-            // parse the document
-            documents =
+            // parse the document; large documents are spooled to a file and are parsed from a stream
+            documents = response.getContentFile() == null ?
                 TextParser.parseSource(
                     new AnchorURL(response.url()),
                     response.getMimeType(),
@@ -2715,7 +2729,15 @@ public final class Switchboard extends serverSwitch {
                     response.profile().scraper(),
                     response.profile().timezoneOffset(),
                     response.depth(),
-                    response.getContent());
+                    response.getContent()) :
+                TextParser.parseSource(
+                    new AnchorURL(response.url()),
+                    response.getMimeType(),
+                    response.getCharacterEncoding(),
+                    response.profile().scraper(),
+                    response.profile().timezoneOffset(),
+                    response.depth(),
+                    response.getContentFile());
             if ( documents == null ) {
                 throw new Parser.Failure("Parser returned null.", response.url());
             }
@@ -2724,6 +2746,8 @@ public final class Switchboard extends serverSwitch {
             // create a new errorURL DB entry
             this.crawlQueues.errorURL.push(response.url(), response.depth(), response.profile(), FailCategory.FINAL_PROCESS_CONTEXT, e.getMessage(), -1);
             return null;
+        } finally {
+            response.release();
         }
         final long parsingEndTime = System.currentTimeMillis();
         
@@ -3334,13 +3358,14 @@ public final class Switchboard extends serverSwitch {
                         if (response == null) {
                             throw new IOException("response == null");
                         }
-                        if (response.getContent() == null) {
+                        if (!response.hasContent()) {
                             throw new IOException("content == null");
                         }
                         if (response.getResponseHeader() == null) {
                             throw new IOException("header == null");
                         }
                         final Document[] documents = response.parse();
+                        response.release();
                         if (documents != null) {
                             for (final Document document: documents) {
                                 final CrawlProfile profile = crawler.get(ASCII.getBytes(request.profileHandle()));
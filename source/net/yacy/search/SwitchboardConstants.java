@@ -313,6 +313,13 @@ public final class SwitchboardConstants {
     public static final String CRAWLER_MAX_SAME_HOST_IN_QUEUE   = "crawler.MaxSameHostInQueue";
     public static final String CRAWLER_FOLLOW_REDIRECTS         = "crawler.http.FollowRedirects"; // ignore the target url and follow to the redirect
     public static final String CRAWLER_RECORD_REDIRECTS         = "crawler.http.RecordRedirects"; // record the ignored redirected page to the index store
+    public static final String CRAWLER_HTTP_SPOOL_SIZE          = "crawler.http.spoolSize"; // crawled documents above this size are streamed to a file instead of memory
+    public static final String CRAWLER_ASYNC                    = "crawler.async"; // load remote http(s) urls with the non-blocking AsyncHTTPLoader instead of loader threads
+    public static final String CRAWLER_ASYNC_MAXINFLIGHT        = "crawler.async.maxInFlight";
+    public static final String CRAWLER_ASYNC_MAXBUFFERED        = "crawler.async.maxBuffered";
+    public static final String CRAWLER_ASYNC_HANDOFFTHREADS     = "crawler.async.handoffThreads"; // threads for the robots.txt check, the cache lookup and the hand-over to the indexer
+    public static final String CRAWLER_MAX_OPEN_STACKS          = "crawler.maxOpenStacks"; // maximum number of concurrently opened host queue stack files
+    public static final String CRAWLER_RECRAWL_REVALIDATE       = "crawler.recrawl.revalidate"; // check documents with conditional requests before the recrawl job adds them to the crawler
     
     public static final String CRAWLER_USER_AGENT_NAME          = "crawler.userAgent.name";
     public static final String CRAWLER_USER_AGENT_STRING        = "crawler.userAgent.string";
@@ -336,6 +343,8 @@ public final class SwitchboardConstants {
      */
     public static final String WORDCACHE_MAX_COUNT              = "wordCacheMaxCount";
     public static final String HTTPC_NAME_CACHE_CACHING_PATTERNS_NO = "httpc.nameCacheNoCachingPatterns";
+    public static final String HTTPC_NAME_CACHE_TTL             = "httpc.nameCacheTTL";
+    public static final String HTTPC_NAME_CACHE_NEGATIVE_TTL    = "httpc.nameCacheNegativeTTL";
     public static final String ROBOTS_TXT                       = "httpd.robots.txt";
     public static final String ROBOTS_TXT_DEFAULT               = RobotsTxtConfig.LOCKED + "," + RobotsTxtConfig.DIRS;
 
@@ -489,6 +498,7 @@ public final class SwitchboardConstants {
     public static final String SEARCH_TARGET_SPECIAL_PATTERN  = "search.target.special.pattern"; // ie 'own' addresses in topframe, 'other' in iframe
     public static final String SEARCH_VERIFY  = "search.verify";
     public static final String SEARCH_VERIFY_DELETE = "search.verify.delete";
+    public static final String SEARCH_EVENTCACHE_MAXSIZE = "search.eventcache.maxsize"; // estimated memory in MB for cached search events
 
     /**
      * ranking+evaluation
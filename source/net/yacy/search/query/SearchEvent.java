@@ -87,6 +87,7 @@ import net.yacy.kelondro.util.Bitfield;
 import net.yacy.kelondro.util.ISO639;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.SetTools;
+import net.yacy.kelondro.workflow.DeadlineExecutor;
 import net.yacy.peers.RemoteSearch;
 import net.yacy.peers.SeedDB;
 import net.yacy.peers.graphics.ProfilingGraph;
@@ -105,11 +106,17 @@ import net.yacy.search.snippet.TextSnippet.ResultClass;
 
 import org.apache.solr.common.SolrDocument;
 
-public final class SearchEvent {
+public final class SearchEvent implements SearchEventCache.Cacheable {
 
     private static final int max_results_rwi = 3000;
     private static final int max_results_node = 150;
 
+    /**
+     * if true, references are ranked before they are put on the rwiStack and references which
+     * would be removed from the full stack right away are dropped without creating a stack element
+     */
+    public static boolean rwiTopK = false;
+
     /*
     private static long noRobinsonLocalRWISearch = 0;
     static {
@@ -123,8 +130,21 @@ public final class SearchEvent {
     public final static ConcurrentLog log = new ConcurrentLog("SEARCH");
 
     public static final int SNIPPET_MAX_LENGTH = 220;
+    private static final long RESULT_DEADLINE_PAGE_DELAY = 1000; // the deadline of the result preparation is moved by this time (milliseconds) for each page
+
+    /**
+     * the worker threads which compute the snippets of the results for all search events; the results are prepared in the order of
+     * the deadline of the oneResult() call which requested them, so the first result page of a new search is not delayed by the
+     * preparation of result pages with a higher page number
+     */
+    private static final DeadlineExecutor resultPreparation = new DeadlineExecutor("SearchEvent.resultPreparation", Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
     private static final int MAX_TOPWORDS = 12; // default count of words for topicnavigagtor
 
+    // estimated memory use (bytes) for the accounting in the SearchEventCache
+    private static final long COMPACT_EVENT_BYTES = 64 * 1024; // query, navigators and counters
+    private static final long RWI_ENTRY_BYTES = 512; // a WordReferenceVars on the rwi stack
+    private static final long NODE_ENTRY_BYTES = 16 * 1024; // a solr document on the node stack or in the result list, including its text
+
     private long eventTime;
     public QueryParams query;
     public final SeedDB peers;
@@ -169,6 +189,11 @@ public final class SearchEvent {
     private final ConcurrentHashMap<String, WeakPriorityBlockingQueue<WordReferenceVars>> doubleDomCache; // key = domhash (6 bytes); value = like stack
     private final int[] flagcount; // flag counter
     private final AtomicInteger feedersAlive, feedersTerminated, snippetFetchAlive;
+    private final AtomicInteger rwiPullsQueued; // the tasks which pull an entry from the rwi stack; they are counted in snippetFetchAlive only when they fetch a snippet
+    private volatile long resultDeadline; // the deadline of the result preparation tasks, set in oneResult()
+    private volatile boolean compacted; // true if the stacks were dropped and only the result list is left
+    private int compactedDropped; // number of candidates which were dropped by compact()
+    private long compactedSize; // estimated size of a compacted event
     private boolean addRunning;
     private final AtomicInteger receivedRemoteReferences;
     private final ReferenceOrder order;
@@ -311,6 +336,11 @@ public final class SearchEvent {
         this.feedersAlive = new AtomicInteger(0);
         this.feedersTerminated = new AtomicInteger(0);
         this.snippetFetchAlive = new AtomicInteger(0);
+        this.rwiPullsQueued = new AtomicInteger(0);
+        this.resultDeadline = Long.MAX_VALUE;
+        this.compacted = false;
+        this.compactedDropped = 0;
+        this.compactedSize = 0;
         this.addRunning = true;
         this.receivedRemoteReferences = new AtomicInteger(0);
         this.order = new ReferenceOrder(this.query.ranking, this.query.targetlang);
@@ -648,11 +678,11 @@ public final class SearchEvent {
                     }
                 }
 
-                // finally extend the double-check and insert result to stack
-                this.urlhashes.putUnique(iEntry.urlhash());
+                // compute the ranking
+                long cardinal;
                 rankingtryloop: while (true) {
                     try {
-                        this.rwiStack.put(new ReverseElement<WordReferenceVars>(iEntry, this.order.cardinal(iEntry))); // inserts the element and removes the worst (which is smallest)
+                        cardinal = this.order.cardinal(iEntry);
                         break rankingtryloop;
                     } catch (final ArithmeticException e ) {
                         // this may happen if the concurrent normalizer changes values during cardinal computation
@@ -660,6 +690,20 @@ public final class SearchEvent {
                         continue rankingtryloop;
                     }
                 }
+
+                // in top-k mode drop entries which cannot enter the full stack
+                if (rwiTopK) {
+                    final WeakPriorityBlockingQueue.Element<WordReferenceVars> weakest = this.rwiStack.weakest();
+                    if (weakest != null && cardinal <= weakest.getWeight()) {
+                        if (log.isFine()) log.fine("dropped RWI: below top-k threshold");
+                        if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
+                        continue pollloop;
+                    }
+                }
+
+                // finally extend the double-check and insert result to stack
+                this.urlhashes.putUnique(iEntry.urlhash());
+                this.rwiStack.put(new ReverseElement<WordReferenceVars>(iEntry, cardinal)); // inserts the element and removes the worst (which is smallest)
                 // increase counter for statistics
                 if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
                 successcounter++;
@@ -680,6 +724,7 @@ public final class SearchEvent {
         return successcounter;
     }
     
+    @Override
     public long getEventTime() {
         return this.eventTime;
     }
@@ -688,7 +733,96 @@ public final class SearchEvent {
         this.eventTime = System.currentTimeMillis();
     }
 
-    protected void cleanup() {
+    /**
+     * @return true if no search process is feeding the stacks and no results are prepared any more
+     */
+    @Override
+    public boolean isFinished() {
+        if (!this.feedingIsFinished() || this.snippetFetchAlive.get() > 0 || this.rwiPullsQueued.get() > 0) return false;
+        if (this.rwiProcess != null && this.rwiProcess.isAlive()) return false;
+        if (this.localsolrsearch != null && this.localsolrsearch.isAlive()) return false;
+        if (this.nodeSearchThreads != null) for (final Thread search: this.nodeSearchThreads) if (search != null && search.isAlive()) return false;
+        if (this.primarySearchThreadsL != null) for (final RemoteSearch search: this.primarySearchThreadsL) if (search != null && search.isAlive()) return false;
+        if (this.secondarySearchThreads != null) for (final Thread search: this.secondarySearchThreads) if (search != null && search.isAlive()) return false;
+        return true;
+    }
+
+    /**
+     * reduce a finished event to the list of prepared results, their snippets and the navigators.
+     * The stacks with candidates which had not been prepared as results are dropped, so
+     * results beyond the prepared list are not available from this event any more. The index
+     * abstracts are dropped as well, so a compacted event cannot serve requests for abstracts.
+     */
+    @Override
+    public synchronized void compact() {
+        if (this.compacted || !this.isFinished()) return;
+        this.compactedDropped = this.rwiQueueSize() + this.nodeStack.sizeQueue() + Math.max(0, this.local_solr_stored.get() - this.localsolroffset);
+        this.rwiStack.clear();
+        this.nodeStack.clear();
+        this.doubleDomCache.clear();
+        this.snippets.clear();
+        this.localSearchInclusion = null;
+        if (this.IACount != null) this.IACount.clear();
+        if (this.IAResults != null) this.IAResults.clear();
+        this.IAmaxcounthash = null;
+        this.IAneardhthash = null;
+        long size = COMPACT_EVENT_BYTES;
+        for (final Element<URIMetadataNode> entry: this.resultList.list(-1)) size += estimateSize(entry.getElement());
+        this.compactedSize = size;
+        this.compacted = true;
+    }
+
+    @Override
+    public boolean isCompacted() {
+        return this.compacted;
+    }
+
+    /**
+     * @param neededResults the number of results which are requested
+     * @param generateAbstracts true if the index abstracts are requested
+     * @return true if the results can be taken from this event; false if this is a compacted event which
+     * has dropped candidates that would be needed to get that number of results or the requested abstracts
+     */
+    protected boolean canServe(final int neededResults, final boolean generateAbstracts) {
+        return canServe(this.compacted, this.compactedDropped, this.resultList.sizeAvailable(), neededResults, generateAbstracts);
+    }
+
+    static boolean canServe(final boolean compacted, final int dropped, final int available, final int neededResults, final boolean generateAbstracts) {
+        if (!compacted) return true;
+        if (generateAbstracts) return false;
+        return dropped == 0 || neededResults <= available;
+    }
+
+    /**
+     * @return the estimated number of bytes which are used by the results and stacks of this event
+     */
+    @Override
+    public long estimatedSize() {
+        if (this.compacted) return this.compactedSize;
+        return COMPACT_EVENT_BYTES +
+               (long) this.rwiQueueSize() * RWI_ENTRY_BYTES +
+               (long) (this.nodeStack.sizeQueue() + this.resultList.sizeAvailable()) * NODE_ENTRY_BYTES;
+    }
+
+    private static long estimateSize(final SolrDocument doc) {
+        long size = 64;
+        for (final Map.Entry<String, Object> field: doc) size += 32 + field.getKey().length() * 2 + estimateSize(field.getValue());
+        return size;
+    }
+
+    private static long estimateSize(final Object value) {
+        if (value instanceof String) return 40 + ((String) value).length() * 2;
+        if (value instanceof byte[]) return 16 + ((byte[]) value).length;
+        if (value instanceof Collection) {
+            long size = 32;
+            for (final Object o: (Collection<?>) value) size += 8 + estimateSize(o);
+            return size;
+        }
+        return 16;
+    }
+
+    @Override
+    public void cleanup() {
 
         // stop all threads
         if (this.localsolrsearch != null) {
@@ -1388,23 +1522,20 @@ public final class SearchEvent {
                     addResult(getSnippet(node, null), localEntryElement.getWeight());
                     success = true;
                 } else {
-
-                    new Thread() {
+                    // the counters are increased here and not in the task to include the tasks which wait for a worker
+                    SearchEvent.this.oneFeederStarted();
+                    SearchEvent.this.snippetFetchAlive.incrementAndGet();
+                    resultPreparation.execute(new Runnable() {
                         @Override
                         public void run() {
-                            SearchEvent.this.oneFeederStarted();
                             try {
-                                SearchEvent.this.snippetFetchAlive.incrementAndGet();
-                                try {
-                                    addResult(getSnippet(node, SearchEvent.this.query.snippetCacheStrategy), localEntryElement.getWeight());
-                                } catch (final Throwable e) {} finally {
-                                    SearchEvent.this.snippetFetchAlive.decrementAndGet();
-                                }
+                                addResult(getSnippet(node, SearchEvent.this.query.snippetCacheStrategy), localEntryElement.getWeight());
                             } catch (final Throwable e) {} finally {
+                                SearchEvent.this.snippetFetchAlive.decrementAndGet();
                                 SearchEvent.this.oneFeederTerminated();
                             }
                         }
-                    }.start();
+                    }, this.resultDeadline);
                 }
             }
         }
@@ -1415,29 +1546,33 @@ public final class SearchEvent {
                 addResult(getSnippet(noderwi, null), noderwi.score());
                 success = true;
             }
-        } else {
-            Thread t = new Thread() {
+        } else if (SearchEvent.this.rwiPullsQueued.get() < 10) {
+            // a pull which finds nothing does not fetch a snippet; it is therefore not counted in snippetFetchAlive
+            // which would otherwise reach the limit without any snippet fetch and switch to cache-only snippets
+            SearchEvent.this.oneFeederStarted();
+            SearchEvent.this.rwiPullsQueued.incrementAndGet();
+            final Runnable task = new Runnable() {
                 @Override
                 public void run() {
-                    SearchEvent.this.oneFeederStarted();
                     try {
                         final URIMetadataNode noderwi = pullOneFilteredFromRWI(true);
                         if (noderwi != null) {
                             SearchEvent.this.snippetFetchAlive.incrementAndGet();
                             try {
                                 addResult(getSnippet(noderwi, SearchEvent.this.query.snippetCacheStrategy), noderwi.score());
-                            } catch (final Throwable e) {
-                                ConcurrentLog.logException(e);
-                            } finally {    
+                            } finally {
                                 SearchEvent.this.snippetFetchAlive.decrementAndGet();
                             }
                         }
-                    } catch (final Throwable e) {} finally {
+                    } catch (final Throwable e) {
+                        ConcurrentLog.logException(e);
+                    } finally {
+                        SearchEvent.this.rwiPullsQueued.decrementAndGet();
                         SearchEvent.this.oneFeederTerminated();
                     }
                 }
             };
-            if (SearchEvent.this.query.snippetCacheStrategy == null) t.run(); else t.start(); //no need for concurrency if there is no latency
+            if (SearchEvent.this.query.snippetCacheStrategy == null) task.run(); else resultPreparation.execute(task, this.resultDeadline); //no need for concurrency if there is no latency
         }
         return success;
     }
@@ -1576,6 +1711,7 @@ public final class SearchEvent {
         // check if we already retrieved this item
         // (happens if a search pages is accessed a second time)
         final long finishTime = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + timeout;
+        this.resultDeadline = finishTime == Long.MAX_VALUE ? Long.MAX_VALUE : finishTime + (item / Math.max(1, this.query.itemsPerPage)) * RESULT_DEADLINE_PAGE_DELAY;
         EventTracker.update(EventTracker.EClass.SEARCH, new ProfilingGraph.EventSearch(this.query.id(true), SearchEventType.ONERESULT, "started, item = " + item + ", available = " + this.getResultCount(), 0, 0), false);
         // wait until a local solr is finished, we must do that to be able to check if we need more
         if (this.localsolrsearch != null && this.localsolrsearch.isAlive()) {try {this.localsolrsearch.join(100);} catch (final InterruptedException e) {}}
@@ -1584,10 +1720,15 @@ public final class SearchEvent {
             // load remaining solr results now
             int nextitems = item - this.localsolroffset + this.query.itemsPerPage; // example: suddenly switch to item 60, just 10 had been shown, 20 loaded.
             if (this.localsolrsearch != null && this.localsolrsearch.isAlive()) {try {this.localsolrsearch.join();} catch (final InterruptedException e) {}}
-            if (!Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_SOLR_OFF, false)) {
-                this.localsolrsearch = RemoteSearch.solrRemoteSearch(this, this.query.solrQuery(this.query.contentdom, false, this.excludeintext_image), this.localsolroffset, nextitems, null /*this peer*/, 0, Switchboard.urlBlacklist);
+            synchronized (this) {
+                // a compacted event is not fed any more, otherwise the stacks would grow while the estimated size stays the same
+                if (!this.compacted) {
+                    if (!Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_SOLR_OFF, false)) {
+                        this.localsolrsearch = RemoteSearch.solrRemoteSearch(this, this.query.solrQuery(this.query.contentdom, false, this.excludeintext_image), this.localsolroffset, nextitems, null /*this peer*/, 0, Switchboard.urlBlacklist);
+                    }
+                    this.localsolroffset += nextitems;
+                }
             }
-            this.localsolroffset += nextitems;
         }
         
         // now pull results as long as needed and as long as possible
@@ -41,10 +41,12 @@ import net.yacy.search.SwitchboardConstants;
 
 public class SearchEventCache {
 
-    private volatile static LinkedHashMap<String, SearchEvent> lastEvents = new LinkedHashMap<String, SearchEvent>(); // a cache for objects from this class: re-use old search requests
+    private volatile static LinkedHashMap<String, SearchEvent> lastEvents = new LinkedHashMap<String, SearchEvent>(16, 0.75f, true); // a cache for objects from this class: re-use old search requests; in order of access
     private static final long eventLifetimeBigMem = 600000; // the time an event will stay in the cache when available memory is high, 10 Minutes
     private static final long eventLifetimeMediumMem = 60000; // the time an event will stay in the cache when available memory is medium, 1 Minute
     private static final long eventLifetimeShortMem = 10000; // the time an event will stay in the cache when memory is low, 10 seconds
+    private static final long eventLifetimeCompacted = 3600000; // the time a compacted event will stay in the cache when available memory is high, 1 hour
+    private static final long maxsizeDefault = 200; // default memory for the cache in MB
     private static final long memlimitHigh = 600 * 1024 * 1024; // 400 MB
     private static final long memlimitMedium = 200 * 1024 * 1024; // 100 MB
     public volatile static String lastEventID = "";
@@ -61,6 +63,24 @@ public class SearchEventCache {
             final SearchEvent oldEvent = lastEvents.put(eventID, event);
             if (oldEvent == null) cacheInsert++;
         }
+        cleanupEvents();
+    }
+
+    /**
+     * @return the estimated memory in bytes which is used by the cached events
+     */
+    public static long estimatedSize() {
+        long size = 0;
+        synchronized (lastEvents) {
+            for (final SearchEvent event: lastEvents.values()) size += event.estimatedSize();
+        }
+        return size;
+    }
+
+    private static long maxsize() {
+        final Switchboard sb = Switchboard.getSwitchboard();
+        final long maxsize = (sb == null ? maxsizeDefault : sb.getConfigLong(SwitchboardConstants.SEARCH_EVENTCACHE_MAXSIZE, maxsizeDefault)) * 1024 * 1024;
+        return Math.min(maxsize, MemoryControl.available() / 4);
     }
 
     public static boolean delete(final String urlhash) {
@@ -78,56 +98,141 @@ public class SearchEventCache {
         // the less memory is there, the less time is acceptable for elements in the cache
         final long memx = MemoryControl.available();
         final long acceptTime = memx > memlimitHigh ? eventLifetimeBigMem : memx > memlimitMedium ? eventLifetimeMediumMem : eventLifetimeShortMem;
-        Map.Entry<String, SearchEvent> eventEntry;
+        final long acceptTimeCompacted = memx > memlimitHigh ? eventLifetimeCompacted : acceptTime;
         synchronized (lastEvents) {
-            final Iterator<Map.Entry<String, SearchEvent>> i = lastEvents.entrySet().iterator();
-            SearchEvent event;
-            while (i.hasNext()) {
-                eventEntry = i.next();
-                event = eventEntry.getValue();
-                if (event == null) continue;
-                if (all || event.getEventTime() + acceptTime < System.currentTimeMillis()) {
-                    event.cleanup();
-                    i.remove();
-                    cacheDelete++;
-                }
-            }
+            cacheDelete += expire(lastEvents, all, acceptTime, acceptTimeCompacted, System.currentTimeMillis());
         }
+        if (!all) cleanupEvents();
     }
     
     public static void cleanupEvents(int maxsize) {
-        // remove old events in the event cache
+        // remove old events in the event cache; this limits the number of events which are not compacted
         if (MemoryControl.shortStatus()) {cleanupEvents(true); return;}
-        Map.Entry<String, SearchEvent> eventEntry;
         synchronized (lastEvents) {
-            final Iterator<Map.Entry<String, SearchEvent>> i = lastEvents.entrySet().iterator(); // iterates in order of entry
-            int dc = lastEvents.size() - maxsize;
-            if (dc <= 0) return;
-            SearchEvent event;
-            while (i.hasNext()) {
-                eventEntry = i.next();
-                event = eventEntry.getValue();
-                if (event == null) continue;
+            cacheDelete += limit(lastEvents, maxsize);
+        }
+        cleanupEvents();
+    }
+
+    /**
+     * keep the estimated memory use of the cache below the configured size
+     */
+    private static void cleanupEvents() {
+        final long maxsize = maxsize();
+        synchronized (lastEvents) {
+            cacheDelete += reduce(lastEvents, maxsize);
+        }
+    }
+
+    /**
+     * the methods of a cached event which are used to expire, compact and remove it
+     */
+    interface Cacheable {
+        public long getEventTime();
+        public boolean isFinished();
+        public boolean isCompacted();
+        public void compact();
+        public long estimatedSize();
+        public void cleanup();
+    }
+
+    /**
+     * remove or compact events which are older than their lifetime; finished events are compacted instead of removed
+     * @param events the events in order of access
+     * @param all if true, all events are removed
+     * @param acceptTime the lifetime of an event which is not compacted
+     * @param acceptTimeCompacted the lifetime of a compacted event
+     * @param now the current time
+     * @return the number of removed events
+     */
+    static <E extends Cacheable> int expire(final Map<String, E> events, final boolean all, final long acceptTime, final long acceptTimeCompacted, final long now) {
+        int removed = 0;
+        final Iterator<E> i = events.values().iterator();
+        E event;
+        while (i.hasNext()) {
+            event = i.next();
+            if (event == null) continue;
+            if (all || event.getEventTime() + (event.isCompacted() ? acceptTimeCompacted : acceptTime) < now) {
+                if (!all && !event.isCompacted() && event.isFinished()) {
+                    // keep the prepared results of the event
+                    event.compact();
+                    continue;
+                }
                 event.cleanup();
                 i.remove();
-                cacheDelete++;
-                dc--;
-                if (dc <= 0) break;            
+                removed++;
             }
         }
+        return removed;
     }
 
-    public static SearchEvent getEvent(final String eventID) {
-        SearchEvent event = lastEvents.get(eventID);
-        if (event == null) {
-            synchronized (lastEvents) {
-                event = lastEvents.get(eventID);
-                if (event == null) cacheMiss++; else cacheHit++;
+    /**
+     * limit the number of events which are not compacted: the least recently used events are compacted if they are finished,
+     * otherwise removed
+     * @param events the events in order of access
+     * @param maxsize the maximum number of events which are not compacted
+     * @return the number of removed events
+     */
+    static <E extends Cacheable> int limit(final Map<String, E> events, final int maxsize) {
+        int removed = 0;
+        final Iterator<E> i = events.values().iterator(); // iterates in order of access
+        int dc = -maxsize;
+        for (final E event: events.values()) if (!event.isCompacted()) dc++;
+        E event;
+        while (dc > 0 && i.hasNext()) {
+            event = i.next();
+            if (event == null || event.isCompacted()) continue;
+            if (event.isFinished()) {
+                event.compact();
+            } else {
+                event.cleanup();
+                i.remove();
+                removed++;
             }
-            cacheMiss++;
-        } else {
-            cacheHit++;
+            dc--;
         }
+        return removed;
+    }
+
+    /**
+     * keep the estimated memory use of the events below the given size: first the least recently used finished
+     * events are compacted to their prepared results, then the least recently used events are removed.
+     * The most recently used event is never removed.
+     * @param events the events in order of access
+     * @param maxsize the maximum number of bytes
+     * @return the number of removed events
+     */
+    static <E extends Cacheable> int reduce(final Map<String, E> events, final long maxsize) {
+        long size = 0;
+        for (final E event: events.values()) size += event.estimatedSize();
+        if (size <= maxsize) return 0;
+        int removed = 0;
+        Iterator<E> i = events.values().iterator(); // iterates in order of access
+        E event;
+        while (size > maxsize && i.hasNext()) {
+            event = i.next();
+            if (event.isCompacted() || !event.isFinished()) continue;
+            size -= event.estimatedSize();
+            event.compact();
+            size += event.estimatedSize();
+        }
+        i = events.values().iterator();
+        while (size > maxsize && events.size() > 1 && i.hasNext()) {
+            event = i.next();
+            size -= event.estimatedSize();
+            event.cleanup();
+            i.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    public static SearchEvent getEvent(final String eventID) {
+        SearchEvent event;
+        synchronized (lastEvents) {
+            event = lastEvents.get(eventID); // this also moves the event to the end of the access order
+        }
+        if (event == null) cacheMiss++; else cacheHit++;
         return event;
     }
 
@@ -153,6 +258,14 @@ public class SearchEventCache {
             }
             cacheDelete++;
             event = null;
+        } else if (event != null && !event.canServe(query.neededResults(), generateAbstracts)) {
+            // the event was compacted and has not enough results for the requested page or has no abstracts any more
+            synchronized (lastEvents) {
+                lastEvents.remove(id);
+            }
+            event.cleanup();
+            cacheDelete++;
+            event = null;
         } else {
             if (event != null) {
                 //re-new the event time for this event, so it is not deleted next time too early
@@ -85,6 +85,7 @@ import net.yacy.document.Condenser;
 import net.yacy.document.Document;
 import net.yacy.document.ProbabilisticClassifier;
 import net.yacy.document.SentenceReader;
+import net.yacy.document.SnippetExtractor;
 import net.yacy.document.Tokenizer;
 import net.yacy.document.content.DCEntry;
 import net.yacy.document.parser.html.ContentScraper;
@@ -925,7 +926,28 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
         }
 
         // content (must be written after special parser data, since this can influence the content)
-        if (allAttr || contains(CollectionSchema.text_t)) add(doc, CollectionSchema.text_t, content);
+        if (allAttr || contains(CollectionSchema.text_t)) {
+            add(doc, CollectionSchema.text_t, content);
+            if ((allAttr || contains(CollectionSchema.text_sentences_val)) && content.length() > 0) {
+                // sentence positions and word masks for the snippet computation; the sentences are read like in URIMetadataNode.getSentences(false)
+                final boolean bits = allAttr || contains(CollectionSchema.text_sentencebits_val);
+                final List<Integer> sentences = new ArrayList<Integer>();
+                final List<Integer> sentencebits = bits ? new ArrayList<Integer>() : null;
+                final SentenceReader sr = new SentenceReader(content);
+                while (sr.hasNext()) {
+                    sentences.add(sr.sentenceStart());
+                    final StringBuilder sentence = sr.next();
+                    if (bits) {
+                        final long mask = SnippetExtractor.wordBits(sentence.toString());
+                        sentencebits.add((int) mask);
+                        sentencebits.add((int) (mask >>> 32));
+                    }
+                }
+                sr.close();
+                add(doc, CollectionSchema.text_sentences_val, sentences);
+                if (bits) add(doc, CollectionSchema.text_sentencebits_val, sentencebits);
+            }
+        }
         if (allAttr || contains(CollectionSchema.wordcount_i)) {
             if (content.length() == 0) {
                 add(doc, CollectionSchema.wordcount_i, 0);
@@ -99,6 +99,8 @@ public enum CollectionSchema implements SchemaDeclaration {
     imagescount_i(SolrType.num_integer, true, true, false, false, false, "number of images"),
     responsetime_i(SolrType.num_integer, true, true, false, false, false, "response time of target server in milliseconds"),
     text_t(SolrType.text_general, true, true, false, false, true, "all visible text"),
+    text_sentences_val(SolrType.num_integer, true, true, true, false, false, "start positions of the sentences in text_t, used to read single sentences for the snippet computation"),
+    text_sentencebits_val(SolrType.num_integer, true, true, true, false, false, "a 64 bit mask of the word hashes for each sentence in text_sentences_val, stored as two integers (low, high) per sentence, used to find the sentences which may contain the query words"),
     synonyms_sxt(SolrType.string, true, true, true, false, true, "additional synonyms to the words in the text"),
     h1_txt(SolrType.text_general, true, true, true, false, true, "h1 header"),
     h2_txt(SolrType.text_general, true, true, true, false, true, "h2 header"),
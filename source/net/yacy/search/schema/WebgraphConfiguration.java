@@ -260,7 +260,7 @@ public class WebgraphConfiguration extends SchemaConfiguration implements Serial
         if ((allAttr || contains(WebgraphSchema.target_crawldepth_i)) && this.contains(WebgraphSchema.target_protocol_s) && this.contains(WebgraphSchema.target_urlstub_s) && this.contains(WebgraphSchema.target_id_s)) {
             if (target_host.equals(source_host)) {
                 // get the crawl depth from the crawler directly
-                Long targetdepth = HostBalancer.depthCache.get(target_url.hash());
+                Long targetdepth = HostBalancer.getDepth(target_url.hash());
                 // if the depth is not known yet then this link configuration implies that it is on the next crawl level
                 add(edge, WebgraphSchema.target_crawldepth_i, targetdepth == null ? crawldepth_source + 1 : targetdepth.intValue());
             } else {
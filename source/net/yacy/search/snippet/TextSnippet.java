@@ -30,7 +30,10 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import net.yacy.cora.document.encoding.ASCII;
@@ -196,10 +199,21 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
                 sentences = new ArrayList<StringBuilder>();
                 for (String s:solrdesc) sentences.add(new StringBuilder(s));
             }
+            SortedMap<Integer, StringBuilder> lines = null;
             final String solrText = row.getText();
             if (solrText != null && solrText.length() > 0) { // TODO: instead of join with desc, we could check if snippet already complete and skip further computation
-                // compute sentences from solr query
-                if (sentences == null) sentences = row.getSentences(pre); else sentences.addAll(row.getSentences(pre));
+                // read only the sentences which may contain the query words if the sentence positions were stored at indexing time
+                final SortedMap<Integer, StringBuilder> candidates = pre ? null : row.getSentences(remainingHashes);
+                if (candidates != null) {
+                    // number the lines like in the joined list of description and text sentences
+                    lines = new TreeMap<Integer, StringBuilder>();
+                    int linenumber = 0;
+                    if (sentences != null) for (StringBuilder s: sentences) lines.put(linenumber++, s);
+                    for (Map.Entry<Integer, StringBuilder> candidate: candidates.entrySet()) lines.put(linenumber + candidate.getKey().intValue(), candidate.getValue());
+                } else {
+                    // compute sentences from solr query
+                    if (sentences == null) sentences = row.getSentences(pre); else sentences.addAll(row.getSentences(pre));
+                }
             } else if (net.yacy.crawler.data.Cache.has(url.hash())) {
                 // get the sentences from the cache
                 final Request request = loader == null ? null : loader.request(url, true, reindexing);
@@ -220,15 +234,15 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
                     }
                 }
             }
-            if (sentences == null) {
+            if (sentences == null && lines == null) {
                 // not found the snippet
                 init(url.hash(), null, false, ResultClass.SOURCE_METADATA, null);
                 return;
             }
 
-            if (sentences.size() > 0) {
+            if (lines != null || sentences.size() > 0) {
                 try {
-                    final SnippetExtractor tsr = new SnippetExtractor(sentences, remainingHashes, snippetMaxLength);
+                    final SnippetExtractor tsr = lines != null ? new SnippetExtractor(lines, remainingHashes, snippetMaxLength) : new SnippetExtractor(sentences, remainingHashes, snippetMaxLength);
                     textline = tsr.getSnippet();
                     remainingHashes = tsr.getRemainingWords();
                 } catch (final UnsupportedOperationException e) {
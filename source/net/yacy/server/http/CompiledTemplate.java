@@ -0,0 +1,427 @@
+/**
+ *  CompiledTemplate
+ *  Copyright 2026 by agent
+ *  First released 17.10.2026 at http://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.server.http;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverCore;
+import net.yacy.server.serverObjects;
+
+/**
+ * A template which is parsed once into a tree of nodes and can then be written any number of times
+ * with different patterns. The result is the same as with TemplateEngine.writeTemplate(), but the
+ * template file is not scanned again for each request.
+ * Compiled templates are cached by file and are compiled again when the modification date
+ * or the size of the file changes.
+ */
+public final class CompiledTemplate {
+
+    private final static byte[] UNRESOLVED_PATTERN = ASCII.getBytes("-UNRESOLVED_PATTERN-");
+    private final static byte[] mClose = ASCII.getBytes("}#");
+    private final static byte[] aClose = ASCII.getBytes(")#");
+    private final static byte[] pClose = ASCII.getBytes("]#");
+    private final static byte[] iClose = ASCII.getBytes("%#");
+    private final static byte[] dpdpa = ASCII.getBytes("::");
+    private final static byte[] PP = ASCII.getBytes("%%");
+
+    private final static Map<File, SoftReference<CompiledTemplate>> templateCache = new ConcurrentHashMap<File, SoftReference<CompiledTemplate>>();
+    private final static Map<File, SoftReference<CompiledTemplate>> includeCache = new ConcurrentHashMap<File, SoftReference<CompiledTemplate>>();
+
+    private final String name;
+    private final long lastModified, length;
+    private final Node[] nodes;
+
+    private CompiledTemplate(final String name, final long lastModified, final long length, final byte[] b) {
+        this.name = name;
+        this.lastModified = lastModified;
+        this.length = length;
+        int end = 0;
+        while (end < b.length && b[end] != 0) end++; // the template engine stops at a zero byte
+        this.nodes = parse(name, b, 0, end);
+    }
+
+    /**
+     * compile a template from a byte array; the result is not cached
+     * @param name the name of the template, used for log messages
+     * @param b the template
+     * @return the compiled template
+     */
+    public static CompiledTemplate compile(final String name, final byte[] b) {
+        return new CompiledTemplate(name, 0, b.length, b);
+    }
+
+    /**
+     * get the compiled template of a file from the cache or compile it if it is not cached or has been changed
+     * @param file the template file
+     * @return the compiled template
+     * @throws IOException if the file cannot be read
+     */
+    public static CompiledTemplate get(final File file) throws IOException {
+        return get(file, templateCache, false);
+    }
+
+    private static CompiledTemplate get(final File file, final Map<File, SoftReference<CompiledTemplate>> cache, final boolean include) throws IOException {
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+        final SoftReference<CompiledTemplate> ref = cache.get(file);
+        CompiledTemplate template = ref == null ? null : ref.get();
+        if (template != null && template.lastModified == lastModified && template.length == length) return template;
+        template = new CompiledTemplate(file.getName(), lastModified, length, include ? readInclude(file) : FileUtils.read(file));
+        cache.put(file, new SoftReference<CompiledTemplate>(template));
+        return template;
+    }
+
+    /**
+     * included files are read line by line and all lines are terminated with CRLF
+     */
+    private static byte[] readInclude(final File file) throws IOException {
+        final ByteArrayOutputStream include = new ByteArrayOutputStream((int) file.length() + 256);
+        final BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                include.write(UTF8.getBytes(line));
+                include.write(ASCII.getBytes(serverCore.CRLF_STRING));
+            }
+        } finally {
+            br.close();
+        }
+        return include.toByteArray();
+    }
+
+    public static void clearCache() {
+        templateCache.clear();
+        includeCache.clear();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * write the template with the patterns replaced
+     * @param out the target stream
+     * @param pattern the patterns for the template
+     * @throws IOException
+     */
+    public void write(final OutputStream out, final serverObjects pattern) throws IOException {
+        writeNodes(this.nodes, out, pattern, "", pattern.get("clientlanguage"));
+    }
+
+    private static void writeNodes(final Node[] nodes, final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+        for (final Node node: nodes) node.write(out, pattern, prefix, clientlanguage);
+    }
+
+    /**
+     * parse a part of a template into nodes in the same way as TemplateEngine.writeTemplate() scans a template.
+     * Constructs which are not closed end the template as they do in the template engine.
+     */
+    private static Node[] parse(final String name, final byte[] b, final int start, final int end) {
+        final List<Node> nodes = new ArrayList<Node>();
+        int textStart = start;
+        int pos = start;
+        while (pos < end) {
+            final int h = indexOf(b, pos, end, (byte) '#');
+            if (h < 0 || h + 1 >= end) break;
+            final byte c = b[h + 1];
+            if (c == '{') { // multi
+                final int close = indexOf(b, h + 2, end, mClose);
+                if (close < 0) {addText(nodes, b, textStart, h); return toArray(nodes);}
+                final byte[] key = Arrays.copyOfRange(b, h + 2, close);
+                final int p = killNewline(b, close + 2, end);
+                final int e = indexOf(b, p, end, concat(ASCII.getBytes("#{/"), key, mClose));
+                if (e < 0) {
+                    ConcurrentLog.severe("TEMPLATE", "No Close Key found for #{" + UTF8.String(key) + "}# in " + name);
+                    addText(nodes, b, textStart, h);
+                    return toArray(nodes);
+                }
+                addText(nodes, b, textStart, h);
+                nodes.add(new Multi(UTF8.String(key), parse(name, b, p, e)));
+                pos = textStart = killNewline(b, e + key.length + 5, end);
+            } else if (c == '(') { // alternative
+                final int close = indexOf(b, h + 2, end, aClose);
+                if (close < 0) {addText(nodes, b, textStart, h); return toArray(nodes);}
+                final byte[] key = Arrays.copyOfRange(b, h + 2, close);
+                addText(nodes, b, textStart, h);
+                pos = textStart = parseAlternative(name, b, close + 2, end, key, nodes);
+            } else if (c == '[') { // normal
+                final int close = indexOf(b, h + 2, end, pClose);
+                if (close < 0) {addText(nodes, b, textStart, h); return toArray(nodes);}
+                addText(nodes, b, textStart, h);
+                nodes.add(new Normal(UTF8.String(Arrays.copyOfRange(b, h + 2, close))));
+                pos = textStart = close + 2;
+            } else if (c == '%') { // include
+                final int close = indexOf(b, h + 2, end, iClose);
+                if (close < 0) {addText(nodes, b, textStart, h); return toArray(nodes);}
+                addText(nodes, b, textStart, h);
+                if (close > h + 2) nodes.add(new Include(Arrays.copyOfRange(b, h + 2, close)));
+                pos = textStart = close + 2;
+            } else {
+                // a single hash without meaning; the following character is not evaluated
+                pos = h + 2;
+            }
+        }
+        addText(nodes, b, textStart, end);
+        return toArray(nodes);
+    }
+
+    /**
+     * split the body of an alternative into its choices, scanning nested alternatives in the same way as the template engine
+     * @return the position after the closing tag
+     */
+    private static int parseAlternative(final String name, final byte[] b, final int start, final int end, final byte[] key, final List<Node> nodes) {
+        final byte[] endKey = concat(ASCII.getBytes("/"), key, null);
+        final List<Node[]> choices = new ArrayList<Node[]>();
+        int choiceStart = start;
+        int others = 0;
+        int i = start;
+        while (i < end) {
+            final byte x = b[i];
+            if (x == '#' && i + 1 < end && b[i + 1] == '(') {
+                final int close = indexOf(b, i + 2, end, aClose);
+                if (close < 0) break;
+                final byte[] nested = Arrays.copyOfRange(b, i + 2, close);
+                if (Arrays.equals(nested, endKey)) {
+                    choices.add(parse(name, b, choiceStart, i));
+                    nodes.add(new Alternative(name, UTF8.String(key), choices.toArray(new Node[choices.size()][]), Arrays.copyOfRange(b, start, i)));
+                    return close + 2;
+                }
+                if (others > 0 && nested.length > 0 && nested[0] == '/') others--; else others++;
+                i = close + 2;
+            } else if (x == ':' && others == 0) {
+                if (i + 1 < end && b[i + 1] == ':') {
+                    choices.add(parse(name, b, choiceStart, i));
+                    i += 2;
+                    choiceStart = i;
+                } else {
+                    i += 2; // the character after a single colon is not evaluated
+                }
+            } else {
+                i++;
+            }
+        }
+        ConcurrentLog.severe("TEMPLATE", "No Close Key found for #(" + UTF8.String(key) + ")# in " + name);
+        choices.add(parse(name, b, choiceStart, end));
+        nodes.add(new Alternative(name, UTF8.String(key), choices.toArray(new Node[choices.size()][]), Arrays.copyOfRange(b, start, end)));
+        return end;
+    }
+
+    private static int addText(final List<Node> nodes, final byte[] b, final int start, final int end) {
+        if (end > start) nodes.add(new Text(Arrays.copyOfRange(b, start, end)));
+        return end;
+    }
+
+    private static int killNewline(final byte[] b, final int pos, final int end) {
+        return pos < end && b[pos] == 10 ? pos + 1 : pos;
+    }
+
+    private static Node[] toArray(final List<Node> nodes) {
+        return nodes.toArray(new Node[nodes.size()]);
+    }
+
+    private static int indexOf(final byte[] b, final int start, final int end, final byte x) {
+        for (int i = start; i < end; i++) if (b[i] == x) return i;
+        return -1;
+    }
+
+    private static int indexOf(final byte[] b, final int start, final int end, final byte[] pattern) {
+        final int last = end - pattern.length;
+        search: for (int i = start; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) if (b[i + j] != pattern[j]) continue search;
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] concat(final byte[] b1, final byte[] b2, final byte[] b3) {
+        final byte[] r = new byte[b1.length + b2.length + (b3 == null ? 0 : b3.length)];
+        System.arraycopy(b1, 0, r, 0, b1.length);
+        System.arraycopy(b2, 0, r, b1.length, b2.length);
+        if (b3 != null) System.arraycopy(b3, 0, r, b1.length + b2.length, b3.length);
+        return r;
+    }
+
+    private static byte[] replacePattern(final String key, final serverObjects pattern) {
+        final String value = pattern.get(key);
+        return value == null ? UNRESOLVED_PATTERN : UTF8.getBytes(value);
+    }
+
+    private static abstract class Node {
+        abstract void write(OutputStream out, serverObjects pattern, String prefix, String clientlanguage) throws IOException;
+    }
+
+    private static final class Text extends Node {
+        private final byte[] text;
+        private Text(final byte[] text) {
+            this.text = text;
+        }
+        @Override
+        void write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            out.write(this.text);
+        }
+    }
+
+    /**
+     * #[key]#
+     */
+    private static final class Normal extends Node {
+        private final String key;
+        private Normal(final String key) {
+            this.key = key;
+        }
+        @Override
+        void write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            out.write(replacePattern(prefix + this.key, pattern));
+        }
+    }
+
+    /**
+     * #{key}#..#{/key}#
+     */
+    private static final class Multi extends Node {
+        private final String key;
+        private final Node[] body;
+        private Multi(final String key, final Node[] body) {
+            this.key = key;
+            this.body = body;
+        }
+        @Override
+        void write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final String value = pattern.get(prefix + this.key);
+            int num = 0;
+            if (value != null && !value.isEmpty()) {
+                try {
+                    num = Integer.parseInt(value); // key contains the iteration number as string
+                } catch (final NumberFormatException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
+            final String multiPrefix = prefix + this.key + "_";
+            for (int i = 0; i < num; i++) {
+                writeNodes(this.body, out, pattern, multiPrefix + i + "_", clientlanguage);
+            }
+        }
+    }
+
+    /**
+     * #(key)#..::..#(/key)#
+     */
+    private static final class Alternative extends Node {
+        private final String name, key;
+        private final Node[][] choices;
+        private final byte[] body; // the raw body, used for a selection by name
+        private final Map<String, Node[]> named;
+        private Alternative(final String name, final String key, final Node[][] choices, final byte[] body) {
+            this.name = name;
+            this.key = key;
+            this.choices = choices;
+            this.body = body;
+            this.named = new ConcurrentHashMap<String, Node[]>();
+        }
+        @Override
+        void write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final String patternKey = prefix + this.key;
+            final String patternId = pattern.get(patternKey);
+            Node[] choice;
+            if (patternId == null || "false".equals(patternId)) {
+                choice = this.choices[0];
+            } else if ("true".equals(patternId)) {
+                choice = this.choices[Math.min(1, this.choices.length - 1)];
+            } else {
+                try {
+                    final int which = Integer.parseInt(patternId);
+                    // the last choice is used if the index does not exist
+                    choice = this.choices[which >= 0 && which < this.choices.length ? which : this.choices.length - 1];
+                } catch (final NumberFormatException e) {
+                    choice = byName(patternId);
+                    if (choice == null) {
+                        ConcurrentLog.severe("TEMPLATE", "Bad Key-Value pair in #()# construct: key=\"" + patternKey + "\", value=\"" + patternId + "\" in " + this.name);
+                        return;
+                    }
+                }
+            }
+            writeNodes(choice, out, pattern, patternKey + "_", clientlanguage);
+        }
+        /**
+         * a choice can be selected by name with %%name at the beginning of the choice
+         */
+        private Node[] byName(final String patternName) {
+            Node[] choice = this.named.get(patternName);
+            if (choice != null) return choice;
+            final int p = indexOf(this.body, 0, this.body.length, concat(PP, UTF8.getBytes(patternName), null));
+            if (p < 0) return null;
+            final int start = p + 2 + UTF8.getBytes(patternName).length;
+            int end = indexOf(this.body, start, this.body.length, dpdpa);
+            if (end < 0) end = this.body.length;
+            choice = parse(this.name, this.body, start, end);
+            this.named.put(patternName, choice);
+            return choice;
+        }
+    }
+
+    /**
+     * #%file%# or #%[key]%#
+     */
+    private static final class Include extends Node {
+        private final byte[] filename;
+        private final String key; // not null if the file name is given by a pattern
+        private Include(final byte[] filename) {
+            if (filename[0] == '[' && filename[filename.length - 1] == ']') {
+                this.key = UTF8.String(Arrays.copyOfRange(filename, 1, filename.length - 1));
+                this.filename = null;
+            } else {
+                this.key = null;
+                this.filename = filename;
+            }
+        }
+        @Override
+        void write(final OutputStream out, final serverObjects pattern, final String prefix, final String clientlanguage) throws IOException {
+            final byte[] f = this.key == null ? this.filename : replacePattern(prefix + this.key, pattern);
+            if (f.length == 0 || Arrays.equals(f, UNRESOLVED_PATTERN)) return;
+            final CompiledTemplate include;
+            try {
+                include = get(HTTPDFileHandler.getLocalizedFile(UTF8.String(f), clientlanguage), includeCache, true);
+            } catch (final IOException e) {
+                // file not found?
+                ConcurrentLog.severe("FILEHANDLER", "Include Error with file " + UTF8.String(f) + ": " + e.getMessage());
+                return;
+            }
+            writeNodes(include.nodes, out, pattern, "", clientlanguage); // clear pattern prefix for include
+        }
+    }
+}
@@ -82,7 +82,7 @@ public final class HTTPDFileHandler {
     static {
         final serverSwitch theSwitchboard = Switchboard.getSwitchboard();
 
-        if (switchboard == null) {
+        if (switchboard == null && theSwitchboard != null) {
             switchboard = theSwitchboard;
 
             if (Classification.countMimes() == 0) {
@@ -115,12 +115,25 @@ public final class HTTPDFileHandler {
         if (indexForward.startsWith("/")) indexForward = indexForward.substring(1);
     }
 
+    /**
+     * set the paths of the files when there is no switchboard, i.e. in tests;
+     * the files of the client language are selected as with locale.language=browser
+     * @param docsPath the user defined pages
+     * @param defaultPath the default pages (htroot)
+     * @param localePath the translated pages, one sub-directory for each language
+     */
+    static void initPaths(final File docsPath, final File defaultPath, final File localePath) {
+        htDocsPath = docsPath;
+        htDefaultPath = defaultPath;
+        htLocalePath = localePath;
+    }
+
     /** Returns a path to the localized or default file according to the locale.language (from he switchboard)
      * @param path relative from htroot
      * @param clientLang preferred client language (browser setting), applied if config locale.language=browser
      */
     public static File getLocalizedFile(final String path, final String clientLang){
-        String localeSelection = switchboard.getConfig("locale.language", "browser");
+        String localeSelection = switchboard == null ? "browser" : switchboard.getConfig("locale.language", "browser");
         if (!(localeSelection.equals("default"))) {
 
             if (localeSelection.equals("browser")) { // handle preferred language of client browser
@@ -49,6 +49,7 @@ package net.yacy.server.http;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -202,6 +203,18 @@ public final class TemplateEngine {
         }
     }
 
+    /**
+     * Writes a template file with replaced templates on a output stream.
+     * The file is parsed only once and the compiled template is used again until the file is changed.
+     */
+    public final static void writeTemplate(final File file, final OutputStream out, final serverObjects pattern) throws IOException {
+        if (pattern == null) {
+            FileUtils.copy(file, out);
+        } else {
+            CompiledTemplate.get(file).write(out, pattern);
+        }
+    }
+
     /**
      * Reads a input stream, and writes the data with replaced templates on a output stream
      */
@@ -0,0 +1,88 @@
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.BenchmarkData;
+import net.yacy.kelondro.util.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ArrayStack.get over a growing number of BLOB files, for keys which exist in one of the files
+ * and for keys which do not exist at all and must be looked up in every file.
+ * Each invocation reads 10000 keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArrayStackBenchmark {
+
+    private static final int keysPerBlob = 5000;
+    private static final int reads = 10000;
+
+    @Param({"1", "16", "64"})
+    public int blobs;
+
+    private File dir;
+    private ArrayStack stack;
+    private byte[][] keys;
+    private byte[][] missing;
+    private int[] positions;
+
+    @Setup
+    public void setup() throws IOException, SpaceExceededException {
+        this.dir = BenchmarkData.directory("arraystack");
+        this.keys = BenchmarkData.hashes(this.blobs * keysPerBlob, BenchmarkData.SEED);
+        this.missing = BenchmarkData.hashes(reads, BenchmarkData.SEED + 1);
+        this.positions = BenchmarkData.positions(reads, this.keys.length, BenchmarkData.SEED);
+        this.stack = new ArrayStack(this.dir, "bench", Base64Order.enhancedCoder, 12, 0, true, true);
+        final byte[] blob = new byte[256];
+        final long time = System.currentTimeMillis() - this.blobs * 1000L;
+        for (int b = 0; b < this.blobs; b++) {
+            final File f = this.stack.newBLOB(new Date(time + b * 1000L));
+            final HeapWriter writer = new HeapWriter(new File(this.dir, f.getName() + ".prt"), f, 12, Base64Order.enhancedCoder, 1024 * 1024);
+            for (int k = b * keysPerBlob; k < (b + 1) * keysPerBlob; k++) writer.add(this.keys[k], blob);
+            writer.close(true);
+            this.stack.mountBLOB(f, false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.stack.close(false);
+        FileUtils.deletedelete(this.dir);
+    }
+
+    @Benchmark
+    public long get() throws IOException, SpaceExceededException {
+        long s = 0;
+        for (final int p: this.positions) s += this.stack.get(this.keys[p]).length;
+        return s;
+    }
+
+    @Benchmark
+    public int getMissing() throws IOException, SpaceExceededException {
+        int s = 0;
+        for (final byte[] key: this.missing) if (this.stack.get(key) == null) s++;
+        return s;
+    }
+}
@@ -0,0 +1,102 @@
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.BenchmarkData;
+import net.yacy.kelondro.util.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * writing a BLOB file with the HeapWriter and reading it with the HeapReader,
+ * sequentially with an entries iterator and at random positions with get().
+ * Each invocation handles all blobs of the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HeapBenchmark {
+
+    private static final int count = 20000;
+
+    @Param({"64", "4096"})
+    public int blobSize;
+
+    private File dir;
+    private File heapFile;
+    private byte[][] keys;
+    private int[] positions;
+    private byte[] blob;
+    private HeapReader reader;
+
+    @Setup
+    public void setup() throws IOException, SpaceExceededException {
+        this.dir = BenchmarkData.directory("heap");
+        this.keys = BenchmarkData.hashes(count, BenchmarkData.SEED);
+        this.positions = BenchmarkData.positions(count, count, BenchmarkData.SEED);
+        this.blob = new byte[this.blobSize];
+        for (int i = 0; i < this.blob.length; i++) this.blob[i] = (byte) i;
+        this.heapFile = write("read.blob");
+        this.reader = new HeapReader(this.heapFile, 12, Base64Order.enhancedCoder);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.reader.close();
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private File write(final String name) throws IOException, SpaceExceededException {
+        final File f = new File(this.dir, name);
+        final HeapWriter writer = new HeapWriter(new File(this.dir, name + ".prt"), f, 12, Base64Order.enhancedCoder, 1024 * 1024);
+        for (final byte[] key: this.keys) writer.add(key, this.blob);
+        writer.close(true);
+        return f;
+    }
+
+    @Benchmark
+    public long write() throws IOException, SpaceExceededException {
+        final File f = write("write.blob");
+        final long length = f.length();
+        HeapWriter.delete(f);
+        return length;
+    }
+
+    @Benchmark
+    public long readSequential() throws IOException {
+        final HeapReader.entries entries = new HeapReader.entries(this.heapFile, 12);
+        long s = 0;
+        while (entries.hasNext()) {
+            final Map.Entry<byte[], byte[]> entry = entries.next();
+            s += entry.getValue().length;
+        }
+        entries.close();
+        return s;
+    }
+
+    @Benchmark
+    public long readRandom() throws IOException, SpaceExceededException {
+        long s = 0;
+        for (final int p: this.positions) s += this.reader.get(this.keys[p]).length;
+        return s;
+    }
+}
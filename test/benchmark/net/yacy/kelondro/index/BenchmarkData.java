@@ -0,0 +1,54 @@
+package net.yacy.kelondro.index;
+
+import java.io.File;
+import java.util.Random;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * synthetic data sets for the kelondro benchmarks.
+ * All data is generated from fixed seeds, so every run of a benchmark works on the same data.
+ */
+public class BenchmarkData {
+
+    public static final long SEED = 1234567890L;
+
+    /**
+     * generate random 12-byte hashes in Base64 encoding
+     * @param count the number of hashes
+     * @param seed the seed of the random generator; the same seed produces the same hashes
+     * @return the hashes in the order they are produced, not sorted
+     */
+    public static byte[][] hashes(final int count, final long seed) {
+        final Random r = new Random(seed);
+        final byte[][] hashes = new byte[count][];
+        for (int i = 0; i < count; i++) hashes[i] = RowSet.randomHash(r);
+        return hashes;
+    }
+
+    /**
+     * generate a random access pattern
+     * @param count the number of positions
+     * @param range the positions are in the range 0 .. range - 1
+     * @param seed the seed of the random generator
+     * @return the positions
+     */
+    public static int[] positions(final int count, final int range, final long seed) {
+        final Random r = new Random(seed);
+        final int[] p = new int[count];
+        for (int i = 0; i < count; i++) p[i] = r.nextInt(range);
+        return p;
+    }
+
+    /**
+     * get an empty directory for benchmark files in the temporary directory
+     * @param name a name for the benchmark
+     * @return the directory, which exists and is empty
+     */
+    public static File directory(final String name) {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "yacy-benchmark-" + name);
+        FileUtils.deletedelete(dir);
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -0,0 +1,79 @@
+package net.yacy.kelondro.index;
+
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * put and get of a RowHandleMap as it is used for the index of BLOB files.
+ * Each invocation handles all keys of the data set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RowHandleMapBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private byte[][] keys;
+    private byte[][] missing;
+    private RowHandleMap map;
+
+    @Setup
+    public void setup() throws SpaceExceededException {
+        this.keys = BenchmarkData.hashes(this.size, BenchmarkData.SEED);
+        this.missing = BenchmarkData.hashes(this.size, BenchmarkData.SEED + 1);
+        this.map = fill();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.map.close();
+    }
+
+    private RowHandleMap fill() throws SpaceExceededException {
+        final RowHandleMap m = new RowHandleMap(12, Base64Order.enhancedCoder, 8, this.size, "benchmark");
+        for (int i = 0; i < this.keys.length; i++) m.put(this.keys[i], i);
+        return m;
+    }
+
+    @Benchmark
+    public int put() throws SpaceExceededException {
+        final RowHandleMap m = fill();
+        final int s = m.size();
+        m.close();
+        return s;
+    }
+
+    @Benchmark
+    public long get() {
+        long s = 0;
+        for (final byte[] key: this.keys) s += this.map.get(key);
+        return s;
+    }
+
+    @Benchmark
+    public long getMissing() {
+        long s = 0;
+        for (final byte[] key: this.missing) s += this.map.get(key);
+        return s;
+    }
+}
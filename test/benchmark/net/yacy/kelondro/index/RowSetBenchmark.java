@@ -0,0 +1,84 @@
+package net.yacy.kelondro.index;
+
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * sort and merge of RowSet objects and the Base64Order comparison which is used for both
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RowSetBenchmark {
+
+    private static final Row row = new Row("byte[] key-12, byte[] payload-4", Base64Order.enhancedCoder);
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private byte[][] keys;
+    private byte[] unsorted; // the row cache of a RowSet in the order of the keys
+    private RowSet a, b;     // two sorted sets with half of the keys each
+
+    @Setup
+    public void setup() throws SpaceExceededException {
+        this.keys = BenchmarkData.hashes(this.size, BenchmarkData.SEED);
+        this.unsorted = new byte[this.size * row.objectsize];
+        for (int i = 0; i < this.size; i++) {
+            System.arraycopy(this.keys[i], 0, this.unsorted, i * row.objectsize, row.primaryKeyLength);
+            this.unsorted[i * row.objectsize + row.primaryKeyLength] = (byte) i;
+        }
+        this.a = new RowSet(row, this.size / 2, this.unsorted.clone(), 0);
+        this.a.sort();
+        this.b = new RowSet(row, this.size - this.size / 2, copyOfRange(this.unsorted, (this.size / 2) * row.objectsize, this.unsorted.length), 0);
+        this.b.sort();
+    }
+
+    private static byte[] copyOfRange(final byte[] b, final int from, final int to) {
+        final byte[] c = new byte[to - from];
+        System.arraycopy(b, from, c, 0, c.length);
+        return c;
+    }
+
+    @Benchmark
+    public RowSet sort() {
+        final RowSet set = new RowSet(row, this.size, this.unsorted.clone(), 0);
+        set.sort();
+        return set;
+    }
+
+    @Benchmark
+    public RowSet merge() throws SpaceExceededException {
+        return this.a.merge(this.b);
+    }
+
+    @Benchmark
+    public void get(final Blackhole bh) {
+        for (final byte[] key: this.keys) bh.consume(this.a.get(key, false));
+    }
+
+    @Benchmark
+    public int compare() {
+        int c = 0;
+        for (int i = 1; i < this.keys.length; i++) c += Base64Order.enhancedCoder.compare(this.keys[i - 1], this.keys[i]);
+        return c;
+    }
+}
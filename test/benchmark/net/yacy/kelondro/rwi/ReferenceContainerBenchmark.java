@@ -0,0 +1,73 @@
+package net.yacy.kelondro.rwi;
+
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.BenchmarkData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * joins of reference containers as they are made for a search with two words:
+ * a large container of a common word and a container of a word with the given number of references.
+ * Every tenth reference of the small container also exists in the large container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReferenceContainerBenchmark {
+
+    private static final int largeSize = 200000;
+    private static final WordReferenceFactory factory = new WordReferenceFactory();
+
+    @Param({"100", "10000", "200000"})
+    public int smallSize;
+
+    private ReferenceContainer<WordReference> large;
+    private ReferenceContainer<WordReference> small;
+
+    @Setup
+    public void setup() throws SpaceExceededException {
+        final byte[][] urls = BenchmarkData.hashes(largeSize, BenchmarkData.SEED);
+        final byte[][] other = BenchmarkData.hashes(this.smallSize, BenchmarkData.SEED + 1);
+        this.large = new ReferenceContainer<WordReference>(factory, Word.word2hash("common"), largeSize);
+        for (final byte[] url: urls) this.large.add(reference(url));
+        this.small = new ReferenceContainer<WordReference>(factory, Word.word2hash("rare"), this.smallSize);
+        for (int i = 0; i < this.smallSize; i++) this.small.add(reference(i % 10 == 0 ? urls[i] : other[i]));
+        this.large.sort();
+        this.small.sort();
+    }
+
+    private static WordReferenceRow reference(final byte[] url) {
+        final long now = System.currentTimeMillis();
+        return new WordReferenceRow(url, 20, 2, 3, 100, 10, now, now, ASCII.getBytes("en"), 't', 1, 1);
+    }
+
+    @Benchmark
+    public ReferenceContainer<WordReference> joinConstructive() throws SpaceExceededException {
+        return ReferenceContainer.joinConstructive(factory, this.small, this.large, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public ReferenceContainer<WordReference> excludeContainers() throws SpaceExceededException {
+        return ReferenceContainer.excludeDestructive(factory, this.large.topLevelClone(), this.small);
+    }
+}
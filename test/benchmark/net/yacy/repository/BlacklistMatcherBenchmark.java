@@ -0,0 +1,147 @@
+package net.yacy.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * lookups in the compiled BlacklistMatcher against the matching as it was done in Blacklist.isListed before.
+ * Each invocation does the lookups of all hosts and paths of the data set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlacklistMatcherBenchmark {
+
+    private static final String[] LABELS = {"www", "example", "yacy", "net", "com", "de", "org", "search", "a", "b"};
+    private static final String[] PATHS = {"", "index.html", "private/x.html", "ads/banner.gif", "cgi-bin/test", "A/B", "search?q=test"};
+
+    @Param({"1000", "50000"})
+    public int size;
+
+    private Map<String, Set<Pattern>> matchable;
+    private Map<String, Set<Pattern>> notmatchable;
+    private String[] hosts;
+    private BlacklistMatcher matcher;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        this.matchable = new HashMap<String, Set<Pattern>>();
+        this.notmatchable = new HashMap<String, Set<Pattern>>();
+        for (int i = 0; i < this.size; i++) {
+            final String host = "host" + i + "." + LABELS[random.nextInt(LABELS.length)] + "." + LABELS[random.nextInt(4) + 3];
+            final int kind = random.nextInt(10);
+            if (kind == 0) put(this.matchable, "*." + host, ".*"); else if (kind == 1) put(this.matchable, host, "ads/.*", "private/.*"); else put(this.matchable, host, ".*");
+        }
+        for (int i = 0; i < 20; i++) put(this.notmatchable, "spam" + i + "[0-9]*\\.com", ".*");
+        this.hosts = new String[1000];
+        for (int i = 0; i < this.hosts.length; i++) this.hosts[i] = (i % 2 == 0 ? "www." : "") + "host" + random.nextInt(this.size * 2) + "." + randomHost(random);
+        this.matcher = new BlacklistMatcher(this.matchable, this.notmatchable, 0);
+    }
+
+    @Benchmark
+    public BlacklistMatcher compile() {
+        return new BlacklistMatcher(this.matchable, this.notmatchable, 0);
+    }
+
+    @Benchmark
+    public int compiled() {
+        int c = 0;
+        for (int i = 0; i < this.hosts.length; i++) if (this.matcher.isListed(this.hosts[i], PATHS[i % PATHS.length])) c++;
+        return c;
+    }
+
+    @Benchmark
+    public int former() {
+        int c = 0;
+        for (int i = 0; i < this.hosts.length; i++) if (isListedFormer(this.matchable, this.notmatchable, this.hosts[i], PATHS[i % PATHS.length])) c++;
+        return c;
+    }
+
+    private static void put(final Map<String, Set<Pattern>> map, final String host, final String... paths) {
+        Set<Pattern> set = map.get(host);
+        if (set == null) {
+            set = new HashSet<Pattern>();
+            map.put(host, set);
+        }
+        for (final String path: paths) set.add(Pattern.compile(path, Pattern.CASE_INSENSITIVE));
+    }
+
+    private static String randomHost(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int n = 1 + random.nextInt(4);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append('.');
+            sb.append(LABELS[random.nextInt(LABELS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * the matching as it was done in Blacklist.isListed before the compiled matcher
+     */
+    private static boolean isListedFormer(final Map<String, Set<Pattern>> matchable, final Map<String, Set<Pattern>> notmatchable, final String hostlow, final String p) {
+        boolean matched = false;
+        Pattern[] app;
+        if (matchable.get(hostlow) != null) {
+            app = matchable.get(hostlow).toArray(new Pattern[0]);
+            for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+        }
+        int index = 0;
+        while (!matched && (index = hostlow.indexOf('.', index + 1)) != -1) {
+            if (matchable.get(hostlow.substring(0, index + 1) + "*") != null) {
+                app = matchable.get(hostlow.substring(0, index + 1) + "*").toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+            if (matchable.get(hostlow.substring(0, index)) != null) {
+                app = matchable.get(hostlow.substring(0, index)).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+        }
+        index = hostlow.length();
+        while (!matched && (index = hostlow.lastIndexOf('.', index - 1)) != -1) {
+            if (matchable.get("*" + hostlow.substring(index, hostlow.length())) != null) {
+                app = matchable.get("*" + hostlow.substring(index, hostlow.length())).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+            if (matchable.get(hostlow.substring(index + 1, hostlow.length())) != null) {
+                app = matchable.get(hostlow.substring(index + 1, hostlow.length())).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+        }
+        if (!matched) {
+            for (final Map.Entry<String, Set<Pattern>> entry : notmatchable.entrySet()) {
+                try {
+                    if (Pattern.matches(entry.getKey(), hostlow)) {
+                        for (final Pattern ap : entry.getValue().toArray(new Pattern[0])) {
+                            if (ap.matcher(p).matches()) return true;
+                        }
+                    }
+                } catch (final PatternSyntaxException e) {
+                }
+            }
+        }
+        return matched;
+    }
+}
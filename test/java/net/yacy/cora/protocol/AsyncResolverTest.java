@@ -0,0 +1,135 @@
+package net.yacy.cora.protocol;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+
+public class AsyncResolverTest {
+
+    /**
+     * a local resolver which knows only the host 'known.test' and counts the lookups
+     */
+    private static class StubResolver implements AsyncResolver.Resolver {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final CountDownLatch release;
+        StubResolver(final CountDownLatch release) {
+            this.release = release;
+        }
+        @Override
+        public InetAddress resolve(final String host) throws UnknownHostException {
+            this.calls.incrementAndGet();
+            try {
+                this.release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {}
+            if ("known.test".equals(host)) return InetAddress.getByAddress(host, new byte[]{10, 1, 2, 3});
+            throw new UnknownHostException(host);
+        }
+    }
+
+    private static void awaitLookups(final AsyncResolver resolver, final long count) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (resolver.lookups() < count && System.currentTimeMillis() < timeout) Thread.sleep(5);
+        assertEquals(count, resolver.lookups());
+    }
+
+    /**
+     * Test of prefetch and resolve, of class AsyncResolver.
+     */
+    @Test
+    public void testPrefetch() throws Exception {
+        final StubResolver stub = new StubResolver(new CountDownLatch(0));
+        final AsyncResolver resolver = new AsyncResolver(stub, 100, 60000, 60000, 2, 10);
+        resolver.prefetch("known.test");
+        awaitLookups(resolver, 1);
+        assertNotNull(resolver.cached("known.test"));
+
+        // resolve is answered from the cache
+        final InetAddress ip = resolver.resolve("known.test", 1000);
+        assertEquals("10.1.2.3", ip.getHostAddress());
+        assertEquals(1, stub.calls.get());
+        assertEquals(1, resolver.hits());
+        resolver.close();
+    }
+
+    /**
+     * Test that the oldest entries are evicted when the cache is full, of class AsyncResolver.
+     */
+    @Test
+    public void testEviction() throws Exception {
+        final AsyncResolver resolver = new AsyncResolver(new StubResolver(new CountDownLatch(0)), 3, 60000, 60000, 1, 10);
+        for (int i = 0; i < 5; i++) resolver.put("host" + i + ".test", InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) i}));
+        assertEquals(3, resolver.size());
+        assertNull(resolver.cached("host0.test"));
+        assertNull(resolver.cached("host1.test"));
+        assertNotNull(resolver.cached("host4.test"));
+
+        // removed keys do not let the cache grow beyond its size
+        for (int i = 0; i < 20; i++) {
+            resolver.remove("host4.test");
+            resolver.put("host4.test", InetAddress.getByAddress(new byte[]{10, 0, 0, 4}));
+        }
+        assertTrue(resolver.size() <= 3);
+        assertNotNull(resolver.cached("host4.test"));
+        resolver.close();
+    }
+
+    /**
+     * Test of negative caching and expiration, of class AsyncResolver.
+     */
+    @Test
+    public void testNegativeCache() throws Exception {
+        final StubResolver stub = new StubResolver(new CountDownLatch(0));
+        final AsyncResolver resolver = new AsyncResolver(stub, 100, 60000, 200, 2, 10);
+        for (int i = 0; i < 3; i++) {
+            try {
+                resolver.resolve("unknown.test", 1000);
+                fail("unknown host resolved");
+            } catch (final UnknownHostException e) {}
+            awaitLookups(resolver, 1);
+        }
+        assertEquals(1, stub.calls.get());
+        assertEquals(1, resolver.negativeSize());
+
+        // the negative entry expires
+        Thread.sleep(300);
+        assertNull(resolver.cached("unknown.test"));
+        try {
+            resolver.resolve("unknown.test", 1000);
+            fail("unknown host resolved");
+        } catch (final UnknownHostException e) {}
+        assertEquals(2, stub.calls.get());
+        resolver.close();
+    }
+
+    /**
+     * Test that a resolve joins a running prefetch and that a timeout is not cached, of class AsyncResolver.
+     */
+    @Test
+    public void testJoinAndTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final StubResolver stub = new StubResolver(release);
+        final AsyncResolver resolver = new AsyncResolver(stub, 100, 60000, 60000, 2, 10);
+        resolver.prefetch("known.test");
+        resolver.prefetch("known.test");
+        assertNull(resolver.resolve("known.test", 50));
+        assertNull(resolver.cached("known.test"));
+        assertEquals(1, resolver.inflight());
+
+        release.countDown();
+        assertNotNull(resolver.resolve("known.test", 5000));
+        awaitLookups(resolver, 1);
+        assertEquals(1, stub.calls.get());
+        assertEquals(1, resolver.prefetches());
+        resolver.close();
+    }
+}
@@ -0,0 +1,29 @@
+package net.yacy.cora.sorting;
+
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.ReverseElement;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+
+public class WeakPriorityBlockingQueueTest {
+
+    /**
+     * Test of weakest method, of class WeakPriorityBlockingQueue.
+     */
+    @Test
+    public void testWeakest() {
+        final WeakPriorityBlockingQueue<String> queue = new WeakPriorityBlockingQueue<String>(3, false);
+        queue.put(new ReverseElement<String>("a", 10));
+        queue.put(new ReverseElement<String>("b", 30));
+        assertNull(queue.weakest()); // not full
+        queue.put(new ReverseElement<String>("c", 20));
+        assertEquals(10, queue.weakest().getWeight());
+
+        queue.put(new ReverseElement<String>("d", 25)); // removes "a"
+        assertEquals(3, queue.sizeQueue());
+        assertEquals("c", queue.weakest().getElement());
+        assertEquals(30, queue.poll().getWeight());
+        assertNull(queue.weakest());
+    }
+}
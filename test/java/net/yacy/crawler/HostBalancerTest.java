@@ -84,4 +84,35 @@ public class HostBalancerTest {
 
     }
 
+    /**
+     * Test of the small hosts queue: hosts with few urls do not get their own queue directory
+     */
+    @Test
+    public void testSmallHosts() throws IOException, SpaceExceededException, InterruptedException {
+        deletedelete(queuesRoot);
+        HostBalancer hb = new HostBalancer(queuesRoot, 1000, true);
+        Thread.sleep(100); // wait for file operation
+        WorkTables wt = new WorkTables(datadir);
+        RobotsTxt rob = new RobotsTxt(wt, null);
+
+        assertNull(hb.push(new Request(new DigestURL("file:///small/one"), null), null, rob));
+        for (int i = 0; i <= HostBalancer.smallHostLimit; i++) {
+            assertNull(hb.push(new Request(new DigestURL("http://large.test/" + i), null), null, rob));
+        }
+        assertEquals(HostBalancer.smallHostLimit + 2, hb.size());
+
+        // only the host with many urls has a directory next to the small hosts stack
+        String[] files = queuesRoot.list();
+        assertEquals(2, files.length);
+        for (String f: files) assertTrue(f.equals(SmallHostsQueue.fileName) || f.startsWith("large.test-#"));
+
+        hb.close();
+        hb = new HostBalancer(queuesRoot, 1000, true); // reopen balancer
+        Thread.sleep(200); // wait for file operation
+        assertEquals(HostBalancer.smallHostLimit + 2, hb.size());
+        assertTrue(hb.has(new DigestURL("file:///small/one").hash()));
+        assertTrue(hb.has(new DigestURL("http://large.test/3").hash()));
+        hb.close();
+    }
+
 }
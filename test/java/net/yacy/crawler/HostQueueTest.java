@@ -58,4 +58,28 @@ public class HostQueueTest {
 
     }
 
+    /**
+     * Test of a lazy opened HostQueue.
+     */
+    @Test
+    public void testLazyOpen() throws MalformedURLException, IOException, SpaceExceededException {
+        File stackDirFile = new File(stackDir);
+        HostQueue testhq = new HostQueue(stackDirFile, new DigestURL("http://b.com/"), false, true);
+        for (int i = 0; i < 5; i++) {
+            testhq.push(new Request(new DigestURL("http://b.com/" + i + ".html"), null), null, null);
+        }
+        File hostPath = new File(stackDirFile, stackDirFile.list()[0]);
+        testhq.close();
+
+        // the size is computed from the stack files before the stacks are opened
+        testhq = new HostQueue(hostPath, false, true, true);
+        assertEquals(5, testhq.size());
+        assertFalse(testhq.isEmpty());
+        assertTrue(testhq.has(new DigestURL("http://b.com/3.html").hash()));
+        assertEquals(5, testhq.size());
+        testhq.clear();
+        assertEquals(0, testhq.size());
+        testhq.close();
+    }
+
 }
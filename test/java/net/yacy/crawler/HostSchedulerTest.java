@@ -0,0 +1,58 @@
+package net.yacy.crawler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HostSchedulerTest {
+
+    /**
+     * Test of poll order, of class HostScheduler.
+     */
+    @Test
+    public void testPollOrder() {
+        final HostScheduler scheduler = new HostScheduler();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(scheduler.offer("host" + i, 1000 - i));
+        }
+        assertEquals(100, scheduler.size());
+        assertFalse(scheduler.offer("host5", 0)); // already scheduled, time is not changed
+        assertEquals(995, scheduler.readyTime("host5"));
+
+        scheduler.schedule("host5", 0);   // now the first one
+        scheduler.schedule("host99", 2000); // now the last one
+        assertEquals("host5", scheduler.poll());
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < 98; i++) {
+            final String h = scheduler.poll();
+            final long t = 1000 - Integer.parseInt(h.substring(4));
+            assertTrue(t >= last);
+            last = t;
+        }
+        assertEquals("host99", scheduler.poll());
+        assertNull(scheduler.poll());
+        assertEquals(0, scheduler.size());
+    }
+
+    /**
+     * Test of reschedule and remove, of class HostScheduler.
+     */
+    @Test
+    public void testRescheduleRemove() {
+        final HostScheduler scheduler = new HostScheduler();
+        assertFalse(scheduler.reschedule("a", 10)); // not scheduled: nothing happens
+        assertEquals(0, scheduler.size());
+        scheduler.schedule("a", 30);
+        scheduler.schedule("b", 20);
+        scheduler.schedule("c", 10);
+        assertTrue(scheduler.reschedule("c", 40));
+        assertTrue(scheduler.remove("b"));
+        assertFalse(scheduler.remove("b"));
+        assertEquals(Long.MIN_VALUE, scheduler.readyTime("b"));
+        assertEquals("a", scheduler.poll());
+        assertEquals("c", scheduler.poll());
+        assertNull(scheduler.poll());
+    }
+}
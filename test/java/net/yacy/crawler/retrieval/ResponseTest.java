@@ -0,0 +1,54 @@
+package net.yacy.crawler.retrieval;
+
+import java.io.File;
+import java.io.InputStream;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.document.Document;
+import net.yacy.kelondro.util.FileUtils;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ResponseTest {
+
+    /**
+     * Test of a response content which is spooled to a file, of class Response.
+     */
+    @Test
+    public void testContentFile() throws Exception {
+        final byte[] html = UTF8.getBytes("<html><head><title>spooled</title></head><body><p>a spooled document</p></body></html>");
+        final File file = File.createTempFile("test", ".spool");
+        FileUtils.copy(html, file);
+
+        final ResponseHeader header = new ResponseHeader(200);
+        header.put(HeaderFramework.CONTENT_TYPE, "text/html");
+        final Response response = new Response(new Request(new DigestURL("http://example.org/index.html"), null), new RequestHeader(), header, null, false, null);
+        assertFalse(response.hasContent());
+        response.setContentFile(file);
+        assertTrue(response.hasContent());
+        assertEquals(html.length, response.size());
+        assertArrayEquals(html, response.getContent());
+        final InputStream in = response.getContentStream();
+        assertArrayEquals(html, FileUtils.read(in));
+        in.close();
+
+        final Document[] docs = response.parse();
+        assertNotNull(docs);
+        assertEquals("spooled", docs[0].dc_title());
+
+        response.release();
+        assertFalse(file.exists());
+        assertFalse(response.hasContent());
+        assertNull(response.getContentFile());
+    }
+}
@@ -0,0 +1,45 @@
+package net.yacy.crawler.robots;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import net.yacy.cora.document.id.MultiProtocolURL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class RobotsTxtEntryTest {
+
+    /**
+     * Test of the compiled deny path matching, of class RobotsTxtEntry.
+     */
+    @Test
+    public void testIsDisallowed() throws Exception {
+        final List<String> deny = Arrays.asList("/private/", "/cgi-bin", "/private/x/", "/a", "/ab/c");
+        final RobotsTxtEntry entry = new RobotsTxtEntry(new MultiProtocolURL("http://example.org/robots.txt"),
+                null, deny, new Date(), null, null, null, 0, null);
+
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/private/")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/private/x/y.html")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/cgi-bin/test?x=1")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/abc")));
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/ab/c")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/private")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/b/a")));
+        assertFalse(entry.isDisallowed(new MultiProtocolURL("http://example.org/cgi")));
+        assertEquals("path '/cgi' does not start with any element from deny path list", entry.getInfo());
+
+        assertTrue(entry.isDisallowed(new MultiProtocolURL("http://example.org/private/index.html")));
+        assertTrue(entry.getInfo().startsWith("path '/private/index.html' starts with '/private/'"));
+
+        // an empty deny path denies everything
+        final RobotsTxtEntry all = new RobotsTxtEntry(new MultiProtocolURL("http://example.org/robots.txt"),
+                null, Arrays.asList("/x", "/"), new Date(), null, null, null, 0, null);
+        assertTrue(all.isDisallowed(new MultiProtocolURL("http://example.org/")));
+        assertTrue(all.isDisallowed(new MultiProtocolURL("http://example.org/a/b")));
+    }
+}
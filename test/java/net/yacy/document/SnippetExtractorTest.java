@@ -0,0 +1,76 @@
+package net.yacy.document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.RowHandleSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class SnippetExtractorTest {
+
+    private static final String text =
+            "  The quick brown fox jumps over the lazy dog. A second sentence follows here!\n" +
+            "Is this   a question? Foxes and dogs are animals. The dog sleeps. The fox runs away from the dog and the hunter. " +
+            "Nothing to see here. Another fox appears.";
+
+    private static HandleSet hashes(final String... words) throws Exception {
+        final HandleSet hashes = new RowHandleSet(Word.commonHashLength, Word.commonHashOrder, 0);
+        for (final String word: words) hashes.put(Word.word2hash(word));
+        return hashes;
+    }
+
+    /**
+     * Test of sentenceStart and sentenceAt, of class SentenceReader.
+     */
+    @Test
+    public void testSentenceAt() {
+        final SentenceReader sr = new SentenceReader(text);
+        int count = 0;
+        while (sr.hasNext()) {
+            final int start = sr.sentenceStart();
+            final StringBuilder sentence = sr.next();
+            assertEquals(sentence.toString(), SentenceReader.sentenceAt(text, start).toString());
+            count++;
+        }
+        assertEquals(8, count);
+    }
+
+    /**
+     * Test that a snippet from the sentences which are selected with the word masks is the same as the snippet from all sentences, of class SnippetExtractor.
+     */
+    @Test
+    public void testSelectedSentences() throws Exception {
+        final List<StringBuilder> all = new ArrayList<StringBuilder>();
+        final List<Integer> offsets = new ArrayList<Integer>();
+        final List<Long> bits = new ArrayList<Long>();
+        final SentenceReader sr = new SentenceReader(text);
+        while (sr.hasNext()) {
+            offsets.add(sr.sentenceStart());
+            final StringBuilder sentence = sr.next();
+            all.add(sentence);
+            bits.add(SnippetExtractor.wordBits(sentence.toString()));
+        }
+
+        final String[][] queries = new String[][]{{"fox"}, {"dog", "hunter"}, {"question"}, {"animals", "sleeps"}, {"appears", "quick"}};
+        for (final String[] query: queries) {
+            final HandleSet queryhashes = hashes(query);
+            final long mask = SnippetExtractor.wordBits(queryhashes);
+            final SortedMap<Integer, StringBuilder> selected = new TreeMap<Integer, StringBuilder>();
+            for (int i = 0; i < offsets.size(); i++) {
+                if ((bits.get(i) & mask) != 0) selected.put(i, SentenceReader.sentenceAt(text, offsets.get(i)));
+            }
+            assertTrue(selected.size() < all.size());
+            final SnippetExtractor full = new SnippetExtractor(all, queryhashes, 120);
+            final SnippetExtractor fast = new SnippetExtractor(selected, queryhashes, 120);
+            assertEquals(full.getSnippet(), fast.getSnippet());
+            assertEquals(full.getRemainingWords().size(), fast.getRemainingWords().size());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.util.List;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.util.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ArrayStackTest {
+
+    final String tesDir = "test/DATA/INDEX/ARRAYSTACK";
+
+    private ArrayStack stack() throws Exception {
+        final File dir = new File(this.tesDir);
+        FileUtils.deletedelete(dir);
+        ArrayStack stack = new ArrayStack(dir, "test", NaturalOrder.naturalOrder, 12, 1024, false, true);
+        for (int i = 0; i < 100; i++) {
+            stack.insert(ASCII.getBytes("key" + (100000000 + i)), ASCII.getBytes("value of entry " + i));
+        }
+        stack.close(true);
+        stack = new ArrayStack(dir, "test", NaturalOrder.naturalOrder, 12, 1024, true, true); // all blobs are read-only
+        stack.setMaxAge(0);
+        return stack;
+    }
+
+    /**
+     * Test that a range which was taken before its blob is unmounted fails to read instead of accessing the closed blob, of class ArrayStack.
+     */
+    @Test
+    public void testRangeAfterUnmount() throws Exception {
+        final ArrayStack stack = stack();
+        final List<ArrayStack.BlobRange> ranges = stack.rangeAll(ASCII.getBytes("key100000042"));
+        assertEquals(1, ranges.size());
+        final byte[] b = new byte[5];
+        assertTrue(ranges.get(0).read(0, b, 0, 5));
+        assertEquals("value", ASCII.String(b));
+
+        final File f = stack.unmountOldest();
+        assertNotNull(f);
+        assertFalse(ranges.get(0).read(0, b, 0, 5));
+        assertEquals(0, stack.entries());
+        assertNull(stack.get(ASCII.getBytes("key100000042")));
+        stack.close(false);
+        HeapWriter.delete(f);
+    }
+
+    /**
+     * Test that a key iteration which was started before its blob is unmounted returns all keys, of class ArrayStack.
+     */
+    @Test
+    public void testKeysAfterUnmount() throws Exception {
+        final ArrayStack stack = stack();
+        final CloneableIterator<byte[]> keys = stack.keys(true, false);
+        final CloneableIterator<byte[]> clone = keys.clone(null);
+        final File f = stack.unmountOldest();
+        assertNotNull(f);
+        int c = 0;
+        while (keys.hasNext()) {
+            assertEquals("key" + (100000000 + c), ASCII.String(keys.next()));
+            c++;
+        }
+        assertEquals(100, c);
+        clone.close();
+        assertFalse(stack.keys(true, false).hasNext());
+        stack.close(false);
+        HeapWriter.delete(f);
+    }
+
+    /**
+     * Test of the read methods after close, of class ArrayStack.
+     */
+    @Test
+    public void testClosed() throws Exception {
+        final ArrayStack stack = stack();
+        assertEquals(100, stack.size());
+        stack.close(false);
+        assertEquals(0, stack.size());
+        assertEquals(0, stack.length());
+        assertEquals(0, stack.mem());
+        assertTrue(stack.isEmpty());
+        assertFalse(stack.containsKey(ASCII.getBytes("key100000042")));
+        assertFalse(stack.keys(true, false).hasNext());
+        assertFalse(stack.getAll(ASCII.getBytes("key100000042")).iterator().hasNext());
+        assertEquals(-1, stack.length(ASCII.getBytes("key100000042")));
+        assertTrue(stack.rangeAll(ASCII.getBytes("key100000042")).isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.index.MappedHandleMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class HeapReaderTest {
+
+    final String tesDir = "test/DATA/INDEX/HEAP";
+
+    /**
+     * Test of the mapped read access of a sealed heap, of class HeapReader.
+     */
+    @Test
+    public void testMappedGet() throws Exception {
+        File heapfile = new File(tesDir, "mapped.heap");
+        heapfile.getParentFile().mkdirs();
+        HeapWriter.delete(heapfile);
+
+        Heap heap = new Heap(heapfile, 12, NaturalOrder.naturalOrder, 1024);
+        for (int i = 0; i < 100; i++) {
+            heap.insert(ASCII.getBytes("key" + (100000000 + i)), ASCII.getBytes("value of entry " + i));
+        }
+        assertTrue(!heap.map()); // a writable heap must not be mapped
+        heap.close(false);
+
+        HeapModifier sealed = new HeapModifier(heapfile, 12, NaturalOrder.naturalOrder);
+        assertTrue(sealed.map());
+        assertTrue(sealed.isMapped());
+        assertEquals(100, sealed.size());
+        for (int i = 0; i < 100; i++) {
+            byte[] key = ASCII.getBytes("key" + (100000000 + i));
+            assertArrayEquals(ASCII.getBytes("value of entry " + i), sealed.get(key));
+            assertEquals(("value of entry " + i).length(), sealed.length(key));
+        }
+        assertNull(sealed.get(ASCII.getBytes("key999999999")));
+
+        // deletions are visible through the mapping
+        sealed.delete(ASCII.getBytes("key100000050"));
+        assertNull(sealed.get(ASCII.getBytes("key100000050")));
+        assertArrayEquals(ASCII.getBytes("value of entry 51"), sealed.get(ASCII.getBytes("key100000051")));
+
+        // after unmap the reads go to the file
+        sealed.unmap();
+        assertTrue(!sealed.isMapped());
+        assertArrayEquals(ASCII.getBytes("value of entry 52"), sealed.get(ASCII.getBytes("key100000052")));
+        assertEquals(("value of entry 53").length(), sealed.length(ASCII.getBytes("key100000053")));
+        sealed.close(false);
+        HeapWriter.delete(heapfile);
+    }
+
+    /**
+     * Test of the use of a mapped index dump for a sealed heap, of class HeapReader.
+     */
+    @Test
+    public void testMappedIndex() throws Exception {
+        File heapfile = new File(tesDir, "mappedidx.heap");
+        heapfile.getParentFile().mkdirs();
+        HeapWriter.delete(heapfile);
+
+        Heap heap = new Heap(heapfile, 12, NaturalOrder.naturalOrder, 1024);
+        for (int i = 0; i < 100; i++) {
+            heap.insert(ASCII.getBytes("key" + (100000000 + i)), ASCII.getBytes("value of entry " + i));
+        }
+        heap.close(true); // writes the index dump
+
+        HeapReader.mappedIndex = true;
+        try {
+            HeapModifier sealed = new HeapModifier(heapfile, 12, NaturalOrder.naturalOrder);
+            assertTrue(sealed.index instanceof MappedHandleMap);
+            assertEquals(100, sealed.size());
+            for (int i = 0; i < 100; i++) {
+                assertArrayEquals(ASCII.getBytes("value of entry " + i), sealed.get(ASCII.getBytes("key" + (100000000 + i))));
+            }
+            sealed.delete(ASCII.getBytes("key100000007"));
+            assertNull(sealed.get(ASCII.getBytes("key100000007")));
+            assertEquals(99, sealed.size());
+            assertArrayEquals(ASCII.getBytes("key100000099"), sealed.lastKey());
+            sealed.close(true);
+
+            // the dump written at close must not contain the deleted entry
+            sealed = new HeapModifier(heapfile, 12, NaturalOrder.naturalOrder);
+            assertEquals(99, sealed.size());
+            assertNull(sealed.get(ASCII.getBytes("key100000007")));
+            sealed.close(false);
+        } finally {
+            HeapReader.mappedIndex = false;
+        }
+        HeapWriter.delete(heapfile);
+    }
+}
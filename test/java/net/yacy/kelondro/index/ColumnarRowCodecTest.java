@@ -0,0 +1,75 @@
+package net.yacy.kelondro.index;
+
+import java.util.Arrays;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ColumnarRowCodecTest {
+
+    private final Row row = new Row("byte[] key-12, Cardinal date-2 {b256}, Cardinal count-4 {b256}, Cardinal flags-4 {b256}, byte[] text-10", NaturalOrder.naturalOrder);
+
+    private RowSet testSet(final int size) throws Exception {
+        final RowSet set = new RowSet(this.row, size);
+        for (int i = size - 1; i >= 0; i--) {
+            final Row.Entry e = this.row.newEntry();
+            e.setCol(0, ASCII.getBytes("key" + (100000000 + i * 7)));
+            e.setCol(1, 12000 + i % 3);
+            e.setCol(2, i * 1000L);
+            e.setCol(3, 65536);
+            e.setCol(4, ASCII.getBytes("text" + (i % 10)));
+            set.addUnique(e);
+        }
+        return set;
+    }
+
+    /**
+     * Test of encode and decode, of class ColumnarRowCodec.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        final RowSet set = testSet(500);
+        final byte[] legacy = set.exportCollection();
+        final byte[] columnar;
+        synchronized (set) {
+            set.sort();
+            columnar = ColumnarRowCodec.encode(set);
+        }
+        assertTrue(ColumnarRowCodec.isColumnar(columnar));
+        assertTrue(!ColumnarRowCodec.isColumnar(legacy));
+        assertTrue(columnar.length < legacy.length / 2);
+
+        // both formats are read by importRowSet
+        final RowSet a = RowSet.importRowSet(legacy, this.row);
+        final RowSet b = RowSet.importRowSet(columnar, this.row);
+        assertEquals(500, b.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertArrayEquals(a.get(i, false).bytes(), b.get(i, false).bytes());
+        }
+        assertTrue(b.has(ASCII.getBytes("key" + (100000000 + 7 * 42))));
+
+        // the number of rows can be read from the head of both formats
+        assertEquals(500, ColumnarRowCodec.count(Arrays.copyOf(columnar, ColumnarRowCodec.headLength)));
+        assertEquals(500, ColumnarRowCodec.count(Arrays.copyOf(legacy, ColumnarRowCodec.headLength)));
+
+        // trailing padding is ignored
+        final RowSet c = RowSet.importRowSet(Arrays.copyOf(columnar, columnar.length + 3), this.row);
+        assertEquals(500, c.size());
+    }
+
+    /**
+     * Test of encode and decode of an empty set, of class ColumnarRowCodec.
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        final RowSet set = new RowSet(this.row);
+        final byte[] columnar = ColumnarRowCodec.encode(set);
+        assertEquals(0, ColumnarRowCodec.decode(columnar, this.row).size());
+        assertEquals(0, ColumnarRowCodec.count(columnar));
+    }
+}
@@ -0,0 +1,129 @@
+package net.yacy.kelondro.index;
+
+import java.io.File;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.Digest;
+import net.yacy.kelondro.io.MappedFileReader;
+import net.yacy.kelondro.util.FileUtils;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+
+public class MappedHandleMapTest {
+
+    final String tesDir = "test/DATA/INDEX/MAPPED";
+
+    private static byte[] key(int i) {
+        return ASCII.getBytes(Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(Integer.toString(i))).substring(0, 12));
+    }
+
+    private File dump(final String name, final int size) throws Exception {
+        final File dir = new File(tesDir);
+        dir.mkdirs();
+        final File file = new File(dir, name);
+        final RowHandleMap map = new RowHandleMap(12, Base64Order.enhancedCoder, 8, size, "test");
+        for (int i = 0; i < size; i++) map.put(key(i), i);
+        map.dump(file);
+        map.close();
+        return file;
+    }
+
+    /**
+     * Test that put, add and remove override the dump and that the result is the same as with a RowHandleMap, of class MappedHandleMap.
+     */
+    @Test
+    public void testChanges() throws Exception {
+        final File file = dump("changes.idx", 1000);
+        final MappedHandleMap map = new MappedHandleMap(12, Base64Order.enhancedCoder, 8, file);
+        final RowHandleMap reference = new RowHandleMap(12, Base64Order.enhancedCoder, 8, 1000, "reference");
+        for (int i = 0; i < 1000; i++) reference.put(key(i), i);
+        assertEquals(1000, map.size());
+        assertEquals(43, map.get(key(43)));
+
+        assertEquals(43, map.put(key(43), 4242));
+        reference.put(key(43), 4242);
+        assertEquals(-1, map.put(key(2000), 2000));
+        reference.put(key(2000), 2000);
+        map.putUnique(key(2001), 2001);
+        reference.putUnique(key(2001), 2001);
+        assertEquals(11, map.inc(key(10)));
+        reference.inc(key(10));
+        assertEquals(10, map.dec(key(10)));
+        reference.dec(key(10));
+        assertEquals(5, map.add(key(3000), 5));
+        reference.put(key(3000), 5);
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals(reference.remove(key(i)), map.remove(key(i)));
+        }
+        assertEquals(-1, map.remove(key(0)));
+        assertEquals(2001, map.remove(key(2001)));
+        reference.remove(key(2001));
+        assertEquals(-1, map.get(key(2001)));
+        assertFalse(map.has(key(3)));
+        assertEquals(4242, map.get(key(43)));
+
+        assertEquals(reference.size(), map.size());
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        final Iterator<byte[]> j = reference.keys(true, null);
+        while (j.hasNext()) keys.add(j.next());
+        final int first = keys.size() / 2;
+        Iterator<byte[]> i = map.keys(true, null);
+        for (final byte[] k: keys) assertArrayEquals(k, i.next());
+        assertFalse(i.hasNext());
+        i = map.keys(false, keys.get(first));
+        for (int p = first; p >= 0; p--) assertArrayEquals(keys.get(p), i.next());
+        assertFalse(i.hasNext());
+        assertArrayEquals(keys.get(0), map.smallestKey());
+        assertArrayEquals(keys.get(keys.size() - 1), map.largestKey());
+
+        // a dump of the changed map is the same as the dump of the reference
+        final File changed = new File(tesDir, "changed.idx");
+        assertEquals(reference.size(), map.dump(changed));
+        final MappedHandleMap remapped = new MappedHandleMap(12, Base64Order.enhancedCoder, 8, changed);
+        int c = 0;
+        for (final Map.Entry<byte[], Long> entry: reference) {
+            assertEquals(entry.getValue().longValue(), remapped.get(entry.getKey()));
+            c++;
+        }
+        assertEquals(c, remapped.size());
+        remapped.close();
+        reference.close();
+
+        map.close();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(key(1)));
+        assertFalse(map.keys(true, null).hasNext());
+        FileUtils.deletedelete(new File(tesDir));
+    }
+
+    /**
+     * Test that reads after close fail, of class MappedFileReader.
+     */
+    @Test
+    public void testClose() throws Exception {
+        final File file = dump("close.idx", 10);
+        final MappedFileReader reader = new MappedFileReader(file);
+        final byte[] b = new byte[12];
+        reader.readFully(0, b, 0, b.length);
+        reader.close();
+        assertTrue(reader.isClosed());
+        try {
+            reader.readFully(0, b, 0, b.length);
+            fail("read after close");
+        } catch (final ClosedChannelException e) {
+        }
+        reader.close();
+        FileUtils.deletedelete(new File(tesDir));
+    }
+}
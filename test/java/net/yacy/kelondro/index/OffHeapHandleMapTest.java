@@ -0,0 +1,84 @@
+package net.yacy.kelondro.index;
+
+import java.io.File;
+import java.util.Iterator;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.Digest;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class OffHeapHandleMapTest {
+
+    final String tesDir = "test/DATA/INDEX/HANDLEMAP";
+
+    private static byte[] key(int i) {
+        return ASCII.getBytes(Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(Integer.toString(i))).substring(0, 12));
+    }
+
+    /**
+     * Test of put, get, remove and growing, of class OffHeapHandleMap.
+     */
+    @Test
+    public void testPutGetRemove() throws Exception {
+        OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 8, 10);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(-1, map.put(key(i), i));
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, map.get(key(i)));
+        }
+        assertEquals(42, map.put(key(42), 4242));
+        assertEquals(4242, map.get(key(42)));
+        for (int i = 0; i < 10000; i += 2) {
+            assertTrue(map.remove(key(i)) >= 0);
+        }
+        assertEquals(5000, map.size());
+        assertEquals(-1, map.get(key(100)));
+        assertEquals(101, map.get(key(101)));
+        assertEquals(102, map.inc(key(101)));
+        assertEquals(1, map.inc(key(100)));
+        map.close();
+    }
+
+    /**
+     * Test of ordered access and dump compatibility with RowHandleMap, of class OffHeapHandleMap.
+     */
+    @Test
+    public void testKeysAndDump() throws Exception {
+        File dumpfile = new File(tesDir, "offheap.idx");
+        dumpfile.getParentFile().mkdirs();
+        OffHeapHandleMap map = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 8, 100);
+        for (int i = 0; i < 1000; i++) map.put(key(i), i);
+        Iterator<byte[]> k = map.keys(true, null);
+        byte[] last = k.next();
+        int c = 1;
+        while (k.hasNext()) {
+            byte[] next = k.next();
+            assertTrue(Base64Order.enhancedCoder.compare(last, next) < 0);
+            last = next;
+            c++;
+        }
+        assertEquals(1000, c);
+        assertArrayEquals(last, map.largestKey());
+        assertEquals(1000, map.dump(dumpfile));
+
+        RowHandleMap rowmap = new RowHandleMap(12, Base64Order.enhancedCoder, 8, dumpfile);
+        OffHeapHandleMap reloaded = new OffHeapHandleMap(12, Base64Order.enhancedCoder, 8, dumpfile);
+        assertEquals(1000, rowmap.size());
+        assertEquals(1000, reloaded.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, rowmap.get(key(i)));
+            assertEquals(i, reloaded.get(key(i)));
+        }
+        rowmap.close();
+        reloaded.close();
+        map.close();
+        dumpfile.delete();
+    }
+}
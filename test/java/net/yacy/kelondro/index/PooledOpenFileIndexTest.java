@@ -0,0 +1,116 @@
+package net.yacy.kelondro.index;
+
+import java.io.File;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.util.FileUtils;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class PooledOpenFileIndexTest {
+
+    final String tesDir = "test/DATA/INDEX/POOLED";
+
+    private static Row.Entry entry(final Row row, final int key, final long value) {
+        final Row.Entry e = row.newEntry();
+        e.setCol(0, ASCII.getBytes("key" + (100000000 + key)));
+        e.setCol(1, value);
+        return e;
+    }
+
+    /**
+     * Test of the least-recently-used closing of files, of class OpenFileIndexPool.
+     */
+    @Test
+    public void testEviction() throws Exception {
+        final File dir = new File(tesDir);
+        FileUtils.deletedelete(dir);
+        dir.mkdirs();
+        final Row row = new Row("byte[] key-12, Cardinal value-8 {b256}", NaturalOrder.naturalOrder);
+        final OpenFileIndexPool pool = new OpenFileIndexPool(2);
+        final PooledOpenFileIndex[] indexes = new PooledOpenFileIndex[5];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new PooledOpenFileIndex(new File(dir, i + ".table"), row, 100, false, false, pool);
+            for (int k = 0; k < 10; k++) indexes[i].put(entry(row, k, i));
+            assertTrue(pool.openCount() <= 2);
+        }
+        assertEquals(2, pool.openCount());
+        assertEquals(3, pool.evictions());
+        assertFalse(indexes[0].isOpen());
+        assertTrue(indexes[4].isOpen());
+
+        // closed indexes are opened again transparently
+        final long misses = pool.misses();
+        final Row.Entry e = indexes[0].get(ASCII.getBytes("key" + (100000000 + 3)), false);
+        assertNotNull(e);
+        assertEquals(0, e.getColLong(1));
+        assertEquals(misses + 1, pool.misses());
+        assertTrue(indexes[0].isOpen());
+        assertEquals(2, pool.openCount());
+        for (int i = 0; i < indexes.length; i++) {
+            assertEquals(10, indexes[i].size());
+            assertNotNull(indexes[i].removeOne());
+            assertEquals(9, indexes[i].size());
+        }
+
+        for (final PooledOpenFileIndex index: indexes) index.close();
+        assertEquals(0, pool.openCount());
+        FileUtils.deletedelete(dir);
+    }
+
+    /**
+     * Test that the iterators can be cloned and read the content again, also after the file was closed, of class PooledOpenFileIndex.
+     */
+    @Test
+    public void testIteratorClone() throws Exception {
+        final File dir = new File(tesDir);
+        FileUtils.deletedelete(dir);
+        dir.mkdirs();
+        final Row row = new Row("byte[] key-12, Cardinal value-8 {b256}", NaturalOrder.naturalOrder);
+        final OpenFileIndexPool pool = new OpenFileIndexPool(1);
+        final PooledOpenFileIndex index = new PooledOpenFileIndex(new File(dir, "clone.table"), row, 100, false, false, pool);
+        final PooledOpenFileIndex other = new PooledOpenFileIndex(new File(dir, "other.table"), row, 100, false, false, pool);
+        for (int k = 0; k < 10; k++) index.put(entry(row, k, k));
+
+        final CloneableIterator<byte[]> keys = index.keys(true, null);
+        index.put(entry(row, 10, 10));
+        other.put(entry(row, 0, 0)); // closes the first file
+        assertFalse(index.isOpen());
+        int c = 0;
+        while (keys.hasNext()) {
+            keys.next();
+            c++;
+        }
+        assertEquals(10, c);
+
+        // a clone reads the content again, starting at the given key
+        final CloneableIterator<byte[]> clone = keys.clone(ASCII.getBytes("key" + (100000000 + 5)));
+        assertNotNull(clone);
+        assertArrayEquals(ASCII.getBytes("key" + (100000000 + 5)), clone.next());
+        c = 1;
+        while (clone.hasNext()) {
+            clone.next();
+            c++;
+        }
+        assertEquals(6, c);
+        final CloneableIterator<Row.Entry> rows = index.rows(true, null).clone(null);
+        c = 0;
+        while (rows.hasNext()) {
+            rows.next();
+            c++;
+        }
+        assertEquals(11, c);
+        assertTrue(index.rows().clone(null).hasNext());
+
+        index.close();
+        other.close();
+        FileUtils.deletedelete(dir);
+    }
+}
@@ -0,0 +1,88 @@
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.kelondro.blob.HeapWriter;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.util.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ReferenceContainerArrayTest {
+
+    final String tesDir = "test/DATA/INDEX/RWI";
+    final WordReferenceFactory factory = new WordReferenceFactory();
+
+    private static WordReferenceRow reference(final int url) {
+        final long now = System.currentTimeMillis();
+        return new WordReferenceRow(urlHash(url), 20, 2, 3, 100, 10, now, now, ASCII.getBytes("en"), 't', 1, 1);
+    }
+
+    private static byte[] urlHash(final int url) {
+        return ASCII.getBytes("url_" + (10000000 + url));
+    }
+
+    private ReferenceContainer<WordReference> container(final byte[] term, final int from, final int to, final int step) throws Exception {
+        final ReferenceContainer<WordReference> c = new ReferenceContainer<WordReference>(this.factory, term);
+        for (int url = from; url < to; url += step) c.add(reference(url));
+        return c;
+    }
+
+    /**
+     * Test of get with an url selection, of class ReferenceContainerArray.
+     */
+    @Test
+    public void testSelectiveGet() throws Exception {
+        final File location = new File(this.tesDir);
+        FileUtils.deletedelete(location);
+        location.mkdirs();
+        final ReferenceContainerArray<WordReference> array = new ReferenceContainerArray<WordReference>(location, "text.index", this.factory, Base64Order.enhancedCoder, Word.commonHashLength);
+        final byte[] term = Word.word2hash("common");
+        final File f = array.newContainerBLOBFile();
+        final HeapWriter writer = new HeapWriter(new File(location, f.getName() + ".prt"), f, Word.commonHashLength, Base64Order.enhancedCoder, 1024);
+        writer.add(term, container(term, 0, 5000, 1).exportCollection());
+        writer.close(true);
+        array.mountBLOBFile(f);
+
+        final HandleSet selection = new RowHandleSet(12, Base64Order.enhancedCoder, 4);
+        selection.put(urlHash(7));
+        selection.put(urlHash(1234));
+        selection.put(urlHash(4999));
+        selection.put(urlHash(20000)); // does not exist
+        final ReferenceContainer<WordReference> c = array.get(term, selection);
+        assertEquals(3, c.size());
+        assertTrue(c.has(urlHash(7)));
+        assertTrue(c.has(urlHash(1234)));
+        assertTrue(c.has(urlHash(4999)));
+        assertEquals(5000, array.get(term, null).size());
+        array.close();
+        FileUtils.deletedelete(location);
+    }
+
+    /**
+     * Test of joinConstructive, of class ReferenceContainer.
+     */
+    @Test
+    public void testJoinConstructive() throws Exception {
+        final byte[] term1 = Word.word2hash("common");
+        final byte[] term2 = Word.word2hash("rare");
+        final ReferenceContainer<WordReference> large = container(term1, 0, 5000, 1);
+        final ReferenceContainer<WordReference> small = container(term2, 3, 10000, 97);
+        final ReferenceContainer<WordReference> conj = ReferenceContainer.joinConstructive(this.factory, small, large, Integer.MAX_VALUE);
+        int expected = 0;
+        for (int url = 3; url < 5000; url += 97) {
+            assertTrue(conj.has(urlHash(url)));
+            expected++;
+        }
+        assertEquals(expected, conj.size());
+    }
+}
@@ -0,0 +1,44 @@
+package net.yacy.kelondro.rwi;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.index.ColumnarRowCodec;
+import net.yacy.kelondro.index.RowSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ReferenceContainerTest {
+
+    /**
+     * Test that the export with columnarExport is never larger than the export without it, of class ReferenceContainer.
+     */
+    @Test
+    public void testExportSize() throws Exception {
+        final WordReferenceFactory factory = new WordReferenceFactory();
+        final ReferenceContainer<WordReference> c = new ReferenceContainer<WordReference>(factory, Word.word2hash("test"));
+        final long now = System.currentTimeMillis();
+        boolean columnarUsed = false;
+        try {
+            for (int url = 0; url < 200; url++) {
+                c.add(new WordReferenceRow(ASCII.getBytes("url_" + (10000000 + url)), 20, 2, 3, 100, 10, now, now, ASCII.getBytes("en"), 't', 1, 1));
+                ReferenceContainer.columnarExport = false;
+                final byte[] legacy = c.exportCollection();
+                ReferenceContainer.columnarExport = true;
+                final byte[] export = c.exportCollection();
+                assertTrue("size " + c.size() + ": " + export.length + " > " + legacy.length, export.length <= legacy.length);
+                assertEquals(c.size(), RowSet.importRowSet(export, c.row()).size());
+                if (c.size() == 1) assertFalse(ColumnarRowCodec.isColumnar(export));
+                columnarUsed |= ColumnarRowCodec.isColumnar(export);
+            }
+        } finally {
+            ReferenceContainer.columnarExport = false;
+        }
+        assertTrue(columnarUsed);
+    }
+}
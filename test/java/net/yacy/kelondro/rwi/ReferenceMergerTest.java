@@ -0,0 +1,98 @@
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.kelondro.blob.HeapWriter;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ReferenceMergerTest {
+
+    final String tesDir = "test/DATA/INDEX/MERGE";
+    final WordReferenceFactory factory = new WordReferenceFactory();
+
+    private static WordReferenceRow reference(final int url) {
+        final long now = System.currentTimeMillis();
+        return new WordReferenceRow(ASCII.getBytes("url_" + (10000000 + url)), 20, 2, 3, 100, 10, now, now, ASCII.getBytes("en"), 't', 1, 1);
+    }
+
+    private static List<byte[]> terms(final int from, final int to) {
+        final List<byte[]> terms = new ArrayList<byte[]>();
+        for (int i = from; i < to; i++) terms.add(Word.word2hash("term" + i));
+        Collections.sort(terms, Base64Order.enhancedCoder);
+        return terms;
+    }
+
+    /**
+     * write a heap file where every term has the references firstURL .. firstURL + 9;
+     * the term with the columnar hash is written in the columnar format
+     */
+    private File write(final String name, final List<byte[]> terms, final int firstURL, final byte[] columnar) throws Exception {
+        final File f = new File(this.tesDir, name);
+        f.getParentFile().mkdirs();
+        HeapWriter.delete(f);
+        final HeapWriter writer = new HeapWriter(new File(this.tesDir, name + ".prt"), f, Word.commonHashLength, Base64Order.enhancedCoder, 1024);
+        for (final byte[] term: terms) {
+            final ReferenceContainer<WordReference> c = new ReferenceContainer<WordReference>(this.factory, term);
+            for (int url = firstURL; url < firstURL + 10; url++) c.add(reference(url));
+            ReferenceContainer.columnarExport = columnar != null && Arrays.equals(term, columnar);
+            writer.add(term, c.exportCollection());
+        }
+        ReferenceContainer.columnarExport = false;
+        writer.close(false);
+        return f;
+    }
+
+    /**
+     * Test of merge, of class ReferenceMerger.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        final File f1 = write("merge1.blob", terms(0, 100), 0, null);
+        final File f2 = write("merge2.blob", terms(50, 150), 5, Word.word2hash("term60"));
+        final File f = new File(this.tesDir, "merged.blob");
+        HeapWriter.delete(f);
+        final HeapWriter writer = new HeapWriter(new File(this.tesDir, "merged.blob.prt"), f, Word.commonHashLength, Base64Order.enhancedCoder, 1024);
+        final long decoded = ReferenceMerger.decodedCount();
+        ReferenceMerger.merge(f1, f2, this.factory, Base64Order.enhancedCoder, writer);
+        writer.close(false);
+        assertEquals(1, ReferenceMerger.decodedCount() - decoded); // only the columnar term was decoded
+
+        final Map<ByteArray, Integer> expected = new HashMap<ByteArray, Integer>();
+        for (final byte[] term: terms(0, 150)) expected.put(new ByteArray(term), 10);
+        for (final byte[] term: terms(50, 100)) expected.put(new ByteArray(term), 15);
+        final ReferenceIterator<WordReference> i = new ReferenceIterator<WordReference>(f, this.factory);
+        int count = 0;
+        byte[] last = null;
+        while (i.hasNext()) {
+            final ReferenceContainer<WordReference> c = i.next();
+            assertEquals(expected.get(new ByteArray(c.getTermHash())).intValue(), c.size());
+            if (last != null) assertTrue(Base64Order.enhancedCoder.compare(last, c.getTermHash()) < 0);
+            final int firstURL = c.has(reference(0).urlhash()) ? 0 : 5;
+            for (int url = firstURL; url < firstURL + c.size(); url++) assertTrue(c.has(reference(url).urlhash()));
+            last = c.getTermHash();
+            count++;
+        }
+        i.close();
+        assertEquals(150, count);
+        assertTrue(ReferenceMerger.lastTermsPerSecond() > 0);
+        HeapWriter.delete(f1);
+        HeapWriter.delete(f2);
+        HeapWriter.delete(f);
+    }
+}
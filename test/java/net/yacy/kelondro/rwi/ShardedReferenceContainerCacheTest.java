@@ -0,0 +1,69 @@
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class ShardedReferenceContainerCacheTest {
+
+    private static WordReferenceRow reference(final int url) {
+        final long now = System.currentTimeMillis();
+        return new WordReferenceRow(ASCII.getBytes("url_" + (10000000 + url)), 20, 2, 3, 100, 10, now, now, ASCII.getBytes("en"), 't', 1, 1);
+    }
+
+    /**
+     * Test of concurrent add and the exchange of shards, of class ShardedReferenceContainerCache.
+     */
+    @Test
+    public void testConcurrentAddAndExchange() throws Exception {
+        final ShardedReferenceContainerCache<WordReference> cache =
+                new ShardedReferenceContainerCache<WordReference>(new WordReferenceFactory(), Base64Order.enhancedCoder, Word.commonHashLength, 4);
+        final int terms = 200;
+        final AtomicInteger errors = new AtomicInteger(0);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // every thread adds one reference to every term
+                        for (int i = 0; i < terms; i++) cache.add(Word.word2hash("term" + i), reference(thread));
+                    } catch (final Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (final Thread t: threads) t.start();
+        for (final Thread t: threads) t.join();
+
+        assertEquals(0, errors.get());
+        assertEquals(terms, cache.size());
+        for (int i = 0; i < terms; i++) assertEquals(4, cache.count(Word.word2hash("term" + i)));
+
+        // a single shard can be taken out of the cache
+        final int shard = cache.largestShard();
+        final int shardSize = cache.shardSize(shard);
+        final ReferenceContainerCache<WordReference> dump = cache.exchange(shard);
+        assertEquals(shardSize, dump.size());
+        assertEquals(terms - shardSize, cache.size());
+        assertEquals(0, cache.shardSize(shard));
+
+        // all remaining shards are combined in one cache
+        final ReferenceContainerCache<WordReference> all = cache.exchangeAll();
+        assertEquals(terms - shardSize, all.size());
+        assertTrue(cache.isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package net.yacy.kelondro.table;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.index.Row;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Test;
+
+
+public class TableTest {
+
+    final String tesDir = "test/DATA/INDEX/TABLE";
+
+    private static Row.Entry entry(final Row row, final int key, final long value) {
+        final Row.Entry e = row.newEntry();
+        e.setCol(0, ASCII.getBytes("key" + (100000000 + key)));
+        e.setCol(1, value);
+        return e;
+    }
+
+    /**
+     * Test of concurrent put, get and remove, of class Table.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final File tablefile = new File(tesDir, "concurrent.table");
+        tablefile.getParentFile().mkdirs();
+        tablefile.delete();
+        final Row row = new Row("byte[] key-12, Cardinal value-8 {b256}", NaturalOrder.naturalOrder);
+        final Table table = new Table(tablefile, row, 1024, 0, true, false, false);
+        final int keys = 1000;
+        for (int i = 0; i < keys; i++) table.put(entry(row, i, 0));
+
+        final AtomicInteger errors = new AtomicInteger(0);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int round = 1; round <= 20; round++) {
+                            for (int i = thread; i < keys; i += 4) {
+                                // each thread updates its own keys and reads all others
+                                table.put(entry(row, i, round));
+                                final Row.Entry e = table.get(ASCII.getBytes("key" + (100000000 + ((i + 1) % keys))), false);
+                                if (e == null) errors.incrementAndGet();
+                            }
+                            // structural changes: append and remove a row which belongs to this thread only
+                            table.put(entry(row, keys + thread, round));
+                            if (table.remove(ASCII.getBytes("key" + (100000000 + keys + thread))) == null) errors.incrementAndGet();
+                        }
+                    } catch (final Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (final Thread t: threads) t.start();
+        for (final Thread t: threads) t.join();
+
+        assertEquals(0, errors.get());
+        assertEquals(keys, table.size());
+        for (int i = 0; i < keys; i++) {
+            final Row.Entry e = table.get(ASCII.getBytes("key" + (100000000 + i)), false);
+            assertNotNull(e);
+            assertEquals(20, e.getColLong(1));
+        }
+        table.close();
+        tablefile.delete();
+    }
+}
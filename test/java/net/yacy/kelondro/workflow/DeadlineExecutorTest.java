@@ -0,0 +1,54 @@
+package net.yacy.kelondro.workflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class DeadlineExecutorTest {
+
+    /**
+     * Test that waiting tasks are executed in the order of their deadline, of class DeadlineExecutor.
+     */
+    @Test
+    public void testOrder() throws Exception {
+        final DeadlineExecutor executor = new DeadlineExecutor("DeadlineExecutorTest", 1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(5);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        // occupy the only worker so that the following tasks wait in the queue
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {}
+            }
+        }, 0);
+        final long[] deadlines = new long[]{Long.MAX_VALUE, 3000, 1000, 2000, 1000};
+        for (int i = 0; i < deadlines.length; i++) {
+            final int n = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(n);
+                    finished.countDown();
+                }
+            }, deadlines[i]);
+        }
+        assertEquals(5, executor.queueSize());
+        blocked.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        // the earliest deadline first; tasks with the same deadline in the order of submission
+        assertEquals("[2, 4, 3, 1, 0]", order.toString());
+    }
+}
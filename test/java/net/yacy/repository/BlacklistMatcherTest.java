@@ -0,0 +1,146 @@
+package net.yacy.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class BlacklistMatcherTest {
+
+    private static final String[] LABELS = {"www", "example", "yacy", "net", "com", "de", "org", "search", "a", "b"};
+    private static final String[] PATHS = {"", "index.html", "private/x.html", "ads/banner.gif", "cgi-bin/test", "A/B", "search?q=test"};
+
+    /**
+     * the matching as it was done in Blacklist.isListed before the compiled matcher
+     */
+    private static boolean isListedReference(final Map<String, Set<Pattern>> matchable, final Map<String, Set<Pattern>> notmatchable, final String hostlow, final String p) {
+        boolean matched = false;
+        Pattern[] app;
+        if (matchable.get(hostlow) != null) {
+            app = matchable.get(hostlow).toArray(new Pattern[0]);
+            for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+        }
+        int index = 0;
+        while (!matched && (index = hostlow.indexOf('.', index + 1)) != -1) {
+            if (matchable.get(hostlow.substring(0, index + 1) + "*") != null) {
+                app = matchable.get(hostlow.substring(0, index + 1) + "*").toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+            if (matchable.get(hostlow.substring(0, index)) != null) {
+                app = matchable.get(hostlow.substring(0, index)).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+        }
+        index = hostlow.length();
+        while (!matched && (index = hostlow.lastIndexOf('.', index - 1)) != -1) {
+            if (matchable.get("*" + hostlow.substring(index, hostlow.length())) != null) {
+                app = matchable.get("*" + hostlow.substring(index, hostlow.length())).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+            if (matchable.get(hostlow.substring(index + 1, hostlow.length())) != null) {
+                app = matchable.get(hostlow.substring(index + 1, hostlow.length())).toArray(new Pattern[0]);
+                for (int i = app.length - 1; !matched && i > -1; i--) matched |= app[i].matcher(p).matches();
+            }
+        }
+        if (!matched) {
+            for (final Map.Entry<String, Set<Pattern>> entry : notmatchable.entrySet()) {
+                try {
+                    if (Pattern.matches(entry.getKey(), hostlow)) {
+                        for (final Pattern ap : entry.getValue().toArray(new Pattern[0])) {
+                            if (ap.matcher(p).matches()) return true;
+                        }
+                    }
+                } catch (final PatternSyntaxException e) {
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static void put(final Map<String, Set<Pattern>> map, final String host, final String... paths) {
+        Set<Pattern> set = map.get(host);
+        if (set == null) {
+            set = new HashSet<Pattern>();
+            map.put(host, set);
+        }
+        for (final String path: paths) set.add(Pattern.compile(path, Pattern.CASE_INSENSITIVE));
+    }
+
+    private static String randomHost(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int n = 1 + random.nextInt(4);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append('.');
+            sb.append(LABELS[random.nextInt(LABELS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void randomBlacklist(final Random random, final int size, final Map<String, Set<Pattern>> matchable, final Map<String, Set<Pattern>> notmatchable) {
+        final String[] pathPatterns = {".*", "private/.*", "ads/.*\\.gif", "cgi-bin.*", "a/b", "(index|search)\\.html", "(.)/\\1"};
+        for (int i = 0; i < size; i++) {
+            String host = randomHost(random);
+            final int kind = random.nextInt(5);
+            if (kind == 1) host = "*." + host;
+            if (kind == 2) host = host + ".*";
+            if (kind == 3) host = host.replace(".", "\\.") + ".*";
+            final String path = pathPatterns[random.nextInt(pathPatterns.length)];
+            put(Blacklist.isMatchable(host) ? matchable : notmatchable, host, path);
+        }
+    }
+
+    /**
+     * Test of host wildcards and path patterns, of class BlacklistMatcher.
+     */
+    @Test
+    public void testIsListed() {
+        final Map<String, Set<Pattern>> matchable = new HashMap<String, Set<Pattern>>();
+        final Map<String, Set<Pattern>> notmatchable = new HashMap<String, Set<Pattern>>();
+        put(matchable, "example.com", "private/.*");
+        put(matchable, "*.yacy.net", ".*");
+        put(matchable, "www.test.*", "ads/.*", "cgi-bin.*");
+        put(notmatchable, "search[0-9]+\\.org", ".*\\.gif");
+        final BlacklistMatcher matcher = new BlacklistMatcher(matchable, notmatchable, 0);
+
+        assertTrue(matcher.isListed("example.com", "private/x.html"));
+        assertTrue(matcher.isListed("www.example.com", "PRIVATE/x.html"));
+        assertTrue(matcher.isListed("example.com.evil", "private/x.html"));
+        assertFalse(matcher.isListed("example.com", "public/x.html"));
+        assertFalse(matcher.isListed("myexample.com", "private/x.html"));
+        assertTrue(matcher.isListed("www.yacy.net", ""));
+        assertFalse(matcher.isListed("yacy.net", ""));
+        assertTrue(matcher.isListed("www.test.de", "ads/banner"));
+        assertTrue(matcher.isListed("www.test.co.uk", "cgi-bin/x"));
+        assertFalse(matcher.isListed("www.test", "ads/banner"));
+        assertTrue(matcher.isListed("search12.org", "a.gif"));
+        assertFalse(matcher.isListed("search.org", "a.gif"));
+    }
+
+    /**
+     * Test that the compiled matcher gives the same results as the former matching, of class BlacklistMatcher.
+     */
+    @Test
+    public void testReference() {
+        final Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            final Map<String, Set<Pattern>> matchable = new HashMap<String, Set<Pattern>>();
+            final Map<String, Set<Pattern>> notmatchable = new HashMap<String, Set<Pattern>>();
+            randomBlacklist(random, 30, matchable, notmatchable);
+            final BlacklistMatcher matcher = new BlacklistMatcher(matchable, notmatchable, round);
+            for (int i = 0; i < 500; i++) {
+                final String host = randomHost(random);
+                final String path = PATHS[random.nextInt(PATHS.length)];
+                assertEquals(host + "/" + path, isListedReference(matchable, notmatchable, host, path), matcher.isListed(host, path));
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package net.yacy.search.query;
+
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+public class SearchEventCacheTest {
+
+    /**
+     * an event with a size of 100 which is reduced to 10 by compact()
+     */
+    private static class TestEvent implements SearchEventCache.Cacheable {
+        private final long eventTime;
+        private final boolean finished;
+        private boolean compacted = false, cleanedUp = false;
+
+        private TestEvent(final long eventTime, final boolean finished) {
+            this.eventTime = eventTime;
+            this.finished = finished;
+        }
+
+        @Override
+        public long getEventTime() {
+            return this.eventTime;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return this.finished;
+        }
+
+        @Override
+        public boolean isCompacted() {
+            return this.compacted;
+        }
+
+        @Override
+        public void compact() {
+            if (this.finished) this.compacted = true;
+        }
+
+        @Override
+        public long estimatedSize() {
+            return this.compacted ? 10 : 100;
+        }
+
+        @Override
+        public void cleanup() {
+            this.cleanedUp = true;
+        }
+    }
+
+    private static TestEvent[] testEvents(final boolean... finished) {
+        final TestEvent[] e = new TestEvent[finished.length];
+        for (int i = 0; i < finished.length; i++) e[i] = new TestEvent(1000 * i, finished[i]);
+        return e;
+    }
+
+    /**
+     * @return the events in an access-ordered map like the one of the cache; the events are accessed in the given order
+     */
+    private static LinkedHashMap<String, TestEvent> events(final TestEvent[] e) {
+        final LinkedHashMap<String, TestEvent> events = new LinkedHashMap<String, TestEvent>(16, 0.75f, true);
+        for (int i = 0; i < e.length; i++) events.put("e" + i, e[i]);
+        return events;
+    }
+
+    /**
+     * Test that finished events are compacted before events are removed, of class SearchEventCache.
+     */
+    @Test
+    public void testReduceCompactsFirst() {
+        final TestEvent[] e = testEvents(true, false, true, true);
+        final LinkedHashMap<String, TestEvent> events = events(e);
+        assertEquals(0, SearchEventCache.reduce(events, 400));
+        assertFalse(e[0].isCompacted());
+
+        // compacting e0 and e2 is enough to get from 400 to 220
+        assertEquals(0, SearchEventCache.reduce(events, 230));
+        assertEquals(4, events.size());
+        assertTrue(e[0].isCompacted());
+        assertFalse(e[1].isCompacted());
+        assertTrue(e[2].isCompacted());
+        assertFalse(e[3].isCompacted());
+    }
+
+    /**
+     * Test that the least recently used events are removed if compaction is not enough, of class SearchEventCache.
+     */
+    @Test
+    public void testReduceRemovesLeastRecentlyUsed() {
+        final TestEvent[] e = testEvents(false, false, false);
+        final LinkedHashMap<String, TestEvent> events = events(e);
+        events.get("e0"); // e0 is now the most recently used event
+        assertEquals(1, SearchEventCache.reduce(events, 200));
+        assertTrue(e[1].cleanedUp);
+        assertFalse(events.containsKey("e1"));
+        assertTrue(events.containsKey("e0"));
+        assertTrue(events.containsKey("e2"));
+
+        // the most recently used event is never removed
+        assertEquals(1, SearchEventCache.reduce(events, 0));
+        assertEquals(1, events.size());
+        assertTrue(events.containsKey("e0"));
+        assertFalse(e[0].cleanedUp);
+    }
+
+    /**
+     * Test of the lifetime of events, of class SearchEventCache.
+     */
+    @Test
+    public void testExpire() {
+        final TestEvent[] e = testEvents(true, false, true);
+        final LinkedHashMap<String, TestEvent> events = events(e);
+        // e0 and e1 are expired: the finished event is compacted, the other one removed
+        assertEquals(1, SearchEventCache.expire(events, false, 1500, 5000, 3000));
+        assertTrue(e[0].isCompacted());
+        assertFalse(events.containsKey("e1"));
+        assertFalse(e[2].isCompacted());
+
+        // a compacted event has its own lifetime
+        assertEquals(0, SearchEventCache.expire(events, false, 1500, 5000, 4000));
+        assertEquals(1, SearchEventCache.expire(events, false, 1500, 5000, 6000));
+        assertFalse(events.containsKey("e0"));
+
+        assertEquals(1, SearchEventCache.expire(events, true, 1500, 5000, 0));
+        assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Test that the number of events which are not compacted is limited, of class SearchEventCache.
+     */
+    @Test
+    public void testLimit() {
+        final TestEvent[] e = testEvents(true, false, true, false);
+        final LinkedHashMap<String, TestEvent> events = events(e);
+        assertEquals(1, SearchEventCache.limit(events, 1));
+        assertTrue(e[0].isCompacted());
+        assertFalse(events.containsKey("e1"));
+        assertTrue(e[2].isCompacted());
+        assertFalse(e[3].isCompacted());
+    }
+
+    /**
+     * Test of the pages which can be served by a compacted event, of class SearchEvent.
+     */
+    @Test
+    public void testCanServe() {
+        // an event which is not compacted serves everything
+        assertTrue(SearchEvent.canServe(false, 100, 10, 50, true));
+        // a compacted event without dropped candidates serves every page
+        assertTrue(SearchEvent.canServe(true, 0, 10, 50, false));
+        // a compacted event with dropped candidates serves only pages within the prepared results
+        assertTrue(SearchEvent.canServe(true, 100, 30, 30, false));
+        assertFalse(SearchEvent.canServe(true, 100, 30, 31, false));
+        // a compacted event has no index abstracts
+        assertFalse(SearchEvent.canServe(true, 0, 30, 10, true));
+    }
+}
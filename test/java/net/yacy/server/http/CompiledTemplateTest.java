@@ -0,0 +1,124 @@
+package net.yacy.server.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.server.serverObjects;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class CompiledTemplateTest {
+
+    static final String tesDir = "test/DATA/HTDOCS";
+
+    /**
+     * include files are taken from htroot, from the user defined pages in tesDir/DOCS
+     * and from the translated pages in tesDir/LOCALE
+     */
+    @BeforeClass
+    public static void initPaths() {
+        final File dir = new File(tesDir);
+        FileUtils.deletedelete(dir);
+        final File docs = new File(dir, "DOCS");
+        final File locale = new File(dir, "LOCALE");
+        new File(docs, "test").mkdirs();
+        new File(locale, "de/test").mkdirs();
+        HTTPDFileHandler.initPaths(docs, new File("htroot"), locale);
+    }
+
+    private static String interpreted(final byte[] template, final serverObjects pattern) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TemplateEngine.writeTemplate("test", new ByteArrayInputStream(template), out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    private static String compiled(final byte[] template, final serverObjects pattern) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTemplate.compile("test", template).write(out, pattern);
+        return UTF8.String(out.toByteArray());
+    }
+
+    /**
+     * Test that a compiled template writes the same as the template engine, of class CompiledTemplate.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        final String template =
+                "<html># #x ##[a]# a:b #[a]# #[missing]#\n" +
+                "#{times}#\n" +
+                "Good #(daytime)#morning::evening::night#(/daytime)#, #[name]#!#(ok)#no::yes#(/ok)#\n" +
+                "#(nested)#a#(inner)#x::y#(/inner)#::b:c::#(inner)#u::v#(/inner)#::d#(/nested)#\n" +
+                "#{/times}#\n" +
+                "#(byname)#%%first::one::%%second::two#(/byname)# #(flag)#off::on#(/flag)# #(range)#0::1#(/range)#</html>";
+        final serverObjects pattern = new serverObjects();
+        pattern.put("a", "A");
+        pattern.put("times", 3);
+        for (int i = 0; i < 3; i++) {
+            pattern.put("times_" + i + "_daytime", i);
+            pattern.put("times_" + i + "_name", "name" + i);
+            pattern.put("times_" + i + "_ok", i == 1);
+            pattern.put("times_" + i + "_nested", i);
+            pattern.put("times_" + i + "_nested_inner", 1);
+        }
+        pattern.put("byname", "second");
+        pattern.put("flag", "true");
+        pattern.put("range", 5);
+        final byte[] b = UTF8.getBytes(template);
+        final String expected = interpreted(b, pattern);
+        assertEquals(expected, compiled(b, pattern));
+        final String head = "<html># #x ##[a]# a:b A -UNRESOLVED_PATTERN-\nGood morning, name0!no\nay\nGood evening";
+        assertEquals(head, expected.substring(0, head.length()));
+    }
+
+    /**
+     * Test that included files and their translations are written the same as by the template engine, of class CompiledTemplate.
+     */
+    @Test
+    public void testInclude() throws Exception {
+        final File docs = new File(tesDir, "DOCS/test");
+        final File locale = new File(tesDir, "LOCALE/de/test");
+        FileUtils.copy(UTF8.getBytes("Hello #[name]#!\n#(ok)#no::yes#(/ok)#\n#%test/inner.template%#"), new File(docs, "outer.template"));
+        FileUtils.copy(UTF8.getBytes("Hallo #[name]#!\n#(ok)#nein::ja#(/ok)#\n#%test/inner.template%#"), new File(locale, "outer.template"));
+        FileUtils.copy(UTF8.getBytes("inner #[a]#\r\nlast line"), new File(docs, "inner.template"));
+        final String template =
+                "<html>#%test/outer.template%#\n" +
+                "#{list}##%[file]%##{/list}#\n" +
+                "#%test/missing.template%##%[missing]%#</html>";
+        final byte[] b = UTF8.getBytes(template);
+        for (final String language: new String[]{null, "en", "de"}) {
+            final serverObjects pattern = new serverObjects();
+            if (language != null) pattern.put("clientlanguage", language);
+            pattern.put("name", "world");
+            pattern.put("ok", 1);
+            pattern.put("a", "A");
+            pattern.put("list", 2);
+            pattern.put("list_0_file", "test/inner.template");
+            pattern.put("list_1_file", "test/outer.template");
+            final String expected = interpreted(b, pattern);
+            assertEquals(language, expected, compiled(b, pattern));
+            assertTrue(expected, expected.startsWith("de".equals(language) ? "<html>Hallo world!\r\nja\r\ninner A\r\nlast line" : "<html>Hello world!\r\nyes\r\ninner A\r\nlast line"));
+        }
+        CompiledTemplate.clearCache();
+    }
+
+    /**
+     * Test the compiled templates of the htroot files, of class CompiledTemplate.
+     */
+    @Test
+    public void testHtroot() throws Exception {
+        final File[] files = new File("htroot").listFiles();
+        if (files == null) return;
+        final serverObjects pattern = new serverObjects();
+        for (final File file: files) {
+            if (!file.isFile() || !(file.getName().endsWith(".html") || file.getName().endsWith(".xml") || file.getName().endsWith(".json"))) continue;
+            final byte[] b = FileUtils.read(file);
+            assertEquals(file.getName(), interpreted(b, pattern), compiled(b, pattern));
+        }
+    }
+}